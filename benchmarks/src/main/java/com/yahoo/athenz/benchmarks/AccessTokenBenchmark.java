@@ -0,0 +1,77 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.benchmarks;
+
+import com.yahoo.athenz.auth.token.AccessToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the generation of signed access tokens and the parsing
+ * and signature validation of the generated tokens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccessTokenBenchmark {
+
+    @Param({BenchmarkEnvironment.KEY_TYPE_EC, BenchmarkEnvironment.KEY_TYPE_RSA})
+    String keyType;
+
+    private KeyPair keyPair;
+    private String sigAlgorithm;
+    private AccessToken accessToken;
+    private String signedToken;
+
+    @Setup(Level.Trial)
+    public void setup() {
+
+        keyPair = BenchmarkEnvironment.generateKeyPair(keyType);
+        sigAlgorithm = BenchmarkEnvironment.KEY_TYPE_EC.equals(keyType) ? "ES256" : "RS256";
+
+        final long now = System.currentTimeMillis() / 1000;
+        accessToken = new AccessToken();
+        accessToken.setVersion(1);
+        accessToken.setAuthTime(now);
+        accessToken.setIssueTime(now);
+        accessToken.setExpiryTime(now + TimeUnit.HOURS.toSeconds(2));
+        accessToken.setJwtId("b9d3fa21-8fa4-4d0e-9e4c-52c6a8ab4c7d");
+        accessToken.setIssuer("https://athenz.io");
+        accessToken.setAudience("coretech");
+        accessToken.setSubject("user.john");
+        accessToken.setClientId("coretech.api");
+        accessToken.setUserId("user.john");
+        accessToken.setScope(Arrays.asList("readers", "writers"));
+
+        signedToken = sign();
+    }
+
+    @Benchmark
+    public String sign() {
+        return accessToken.getSignedToken(keyPair.getPrivate(), BenchmarkEnvironment.KEY_ID, sigAlgorithm);
+    }
+
+    @Benchmark
+    public AccessToken parseAndVerify() {
+        return new AccessToken(signedToken, keyPair.getPublic());
+    }
+}
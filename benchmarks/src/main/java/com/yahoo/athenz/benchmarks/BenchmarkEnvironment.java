@@ -0,0 +1,84 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.benchmarks;
+
+import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.common.config.AthenzConfig;
+import com.yahoo.athenz.zms.PublicKeyEntry;
+import com.yahoo.rdl.JSON;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.*;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+
+/**
+ * Helper methods to create the keys and configuration files that
+ * the Athenz components require during their initialization.
+ */
+public class BenchmarkEnvironment {
+
+    public static final String KEY_ID = "0";
+    public static final String KEY_TYPE_RSA = "RSA";
+    public static final String KEY_TYPE_EC = "EC";
+
+    /**
+     * Generate a new key pair for the given type - RSA 2048 bit
+     * or EC P-256 keys
+     * @param keyType key type: RSA or EC
+     * @return generated key pair
+     */
+    public static KeyPair generateKeyPair(final String keyType) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance(keyType);
+            if (KEY_TYPE_EC.equals(keyType)) {
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+            } else {
+                generator.initialize(2048);
+            }
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("unable to generate " + keyType + " key pair", ex);
+        }
+    }
+
+    /**
+     * Create an athenz.conf file in the given directory that includes
+     * the given public key as both zms and zts public key with id 0.
+     * @param dir directory to create the file in
+     * @param publicKey public key to include in the config file
+     * @return path of the created file
+     * @throws IOException if unable to write the file
+     */
+    public static Path createAthenzConf(Path dir, PublicKey publicKey) throws IOException {
+
+        ArrayList<PublicKeyEntry> publicKeys = new ArrayList<>();
+        publicKeys.add(new PublicKeyEntry().setId(KEY_ID)
+                .setKey(Crypto.ybase64EncodeString(Crypto.convertToPEMFormat(publicKey))));
+
+        AthenzConfig athenzConfig = new AthenzConfig();
+        athenzConfig.setZmsUrl("https://localhost:4443/");
+        athenzConfig.setZtsUrl("https://localhost:8443/");
+        athenzConfig.setZmsPublicKeys(publicKeys);
+        athenzConfig.setZtsPublicKeys(publicKeys);
+
+        Path path = dir.resolve("athenz.conf");
+        Files.write(path, JSON.bytes(athenzConfig));
+        return path;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.benchmarks;
+
+import com.yahoo.athenz.auth.util.Crypto;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the Crypto sign and verify methods used for the
+ * principal tokens and signed domain and policy data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoBenchmark {
+
+    @Param({BenchmarkEnvironment.KEY_TYPE_EC, BenchmarkEnvironment.KEY_TYPE_RSA})
+    String keyType;
+
+    @Param({"256", "16384"})
+    int messageSize;
+
+    private KeyPair keyPair;
+    private String message;
+    private String signature;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keyPair = BenchmarkEnvironment.generateKeyPair(keyType);
+        message = "v=S1;d=coretech;n=storage;h=localhost;a=aAkjbbDMhnLX;t=1431974053;e=1431974153;"
+                .repeat(messageSize / 80 + 1).substring(0, messageSize);
+        signature = sign();
+    }
+
+    @Benchmark
+    public String sign() {
+        return Crypto.sign(message, keyPair.getPrivate());
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return Crypto.verify(message, keyPair.getPublic(), signature);
+    }
+}
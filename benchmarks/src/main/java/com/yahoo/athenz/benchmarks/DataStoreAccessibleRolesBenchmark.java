@@ -0,0 +1,105 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.benchmarks;
+
+import com.yahoo.athenz.common.ServerCommonConsts;
+import com.yahoo.athenz.common.metrics.impl.NoOpMetric;
+import com.yahoo.athenz.zms.DomainData;
+import com.yahoo.athenz.zts.cache.DataCache;
+import com.yahoo.athenz.zts.store.DataStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the ZTS data store lookup of the roles that a principal
+ * can access in a generated domain. The domain includes roles that are
+ * delegated to trust domains based on the configured trust depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataStoreAccessibleRolesBenchmark {
+
+    static final String DOMAIN_NAME = "bench";
+    static final String PROP_PRINCIPAL_ROLES_CACHE_SIZE = "athenz.zts.principal_roles_cache_size";
+    static final int REQUEST_COUNT = 256;
+
+    @Param({"100", "1000"})
+    int roleCount;
+
+    @Param({"10"})
+    int membersPerRole;
+
+    @Param({"0", "10"})
+    int trustDepth;
+
+    @Param({"0", "10000"})
+    int principalRolesCacheSize;
+
+    private DataStore dataStore;
+    private DataCache dataCache;
+    private String[] principals;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+
+        Path dir = Files.createTempDirectory("athenz-zts-benchmark");
+        Path athenzConf = BenchmarkEnvironment.createAthenzConf(dir,
+                BenchmarkEnvironment.generateKeyPair(BenchmarkEnvironment.KEY_TYPE_EC).getPublic());
+        System.setProperty(ServerCommonConsts.PROP_ATHENZ_CONF, athenzConf.toString());
+        System.setProperty(PROP_PRINCIPAL_ROLES_CACHE_SIZE, Integer.toString(principalRolesCacheSize));
+
+        DomainGenerator generator = new DomainGenerator(DOMAIN_NAME).roleCount(roleCount)
+                .membersPerRole(membersPerRole).assertionCount(roleCount).trustDepth(trustDepth);
+
+        dataStore = new DataStore(new LocalChangeLogStore(), null, new NoOpMetric());
+        for (DomainData trustDomain : generator.generateTrustDomains()) {
+            dataStore.processDomainData(trustDomain);
+        }
+        dataStore.processDomainData(generator.generateDomain());
+        dataCache = dataStore.getDataCache(DOMAIN_NAME);
+
+        principals = new String[REQUEST_COUNT];
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            principals[i] = generator.accessCheck(i * 7919).principal;
+        }
+    }
+
+    @Benchmark
+    public Set<String> getAccessibleRoles() {
+        Set<String> roles = new HashSet<>();
+        dataStore.getAccessibleRoles(dataCache, DOMAIN_NAME, principals[index++ & (REQUEST_COUNT - 1)],
+                null, false, roles, false);
+        return roles;
+    }
+
+    @Benchmark
+    public Set<String> getAccessibleRolesUnknownPrincipal() {
+        Set<String> roles = new HashSet<>();
+        dataStore.getAccessibleRoles(dataCache, DOMAIN_NAME, "user.unknown", null, false, roles, false);
+        return roles;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.benchmarks;
+
+import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.common.ServerCommonConsts;
+import com.yahoo.athenz.common.metrics.impl.NoOpMetric;
+import com.yahoo.athenz.zms.DomainData;
+import com.yahoo.athenz.zms.PublicKeyEntry;
+import com.yahoo.athenz.zms.ServiceIdentity;
+import com.yahoo.athenz.zts.HostServices;
+import com.yahoo.athenz.zts.cache.DataCache;
+import com.yahoo.athenz.zts.store.DataStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the ZTS data store public key and host lookups while
+ * the domains are continuously updated by a writer thread. Compare
+ * the lookup results of the contended group with the uncontended
+ * lookup benchmarks to see how much the updates slow down readers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataStoreKeyLookupBenchmark {
+
+    static final String DOMAIN_PREFIX = "bench";
+    static final int REQUEST_COUNT = 256;
+
+    @Param({"100", "1000"})
+    int domainCount;
+
+    @Param({"10"})
+    int servicesPerDomain;
+
+    private DataStore dataStore;
+    private DataCache[][] dataCaches;
+    private String[] domainNames;
+    private String[] lookupDomains;
+    private String[] lookupServices;
+    private String[] lookupHosts;
+    private int lookupIndex;
+    private int updateIndex;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+
+        Path dir = Files.createTempDirectory("athenz-zts-benchmark");
+        Path athenzConf = BenchmarkEnvironment.createAthenzConf(dir,
+                BenchmarkEnvironment.generateKeyPair(BenchmarkEnvironment.KEY_TYPE_EC).getPublic());
+        System.setProperty(ServerCommonConsts.PROP_ATHENZ_CONF, athenzConf.toString());
+
+        final String publicKey = Crypto.ybase64EncodeString(Crypto.convertToPEMFormat(
+                BenchmarkEnvironment.generateKeyPair(BenchmarkEnvironment.KEY_TYPE_EC).getPublic()));
+
+        // each domain has two versions that share the first key and
+        // host of every service so the writer can switch between them
+
+        dataStore = new DataStore(new LocalChangeLogStore(), null, new NoOpMetric());
+        domainNames = new String[domainCount];
+        dataCaches = new DataCache[domainCount][2];
+        for (int i = 0; i < domainCount; i++) {
+            domainNames[i] = DOMAIN_PREFIX + i;
+            for (int version = 0; version < 2; version++) {
+                dataCaches[i][version] = generateDataCache(domainNames[i], version, publicKey);
+            }
+            dataStore.addDomainToCache(domainNames[i], dataCaches[i][0]);
+        }
+
+        lookupDomains = new String[REQUEST_COUNT];
+        lookupServices = new String[REQUEST_COUNT];
+        lookupHosts = new String[REQUEST_COUNT];
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            final int domainIndex = (i * 7919) % domainCount;
+            final int serviceIndex = i % servicesPerDomain;
+            lookupDomains[i] = domainNames[domainIndex];
+            lookupServices[i] = "service" + serviceIndex;
+            lookupHosts[i] = hostName(domainNames[domainIndex], serviceIndex, 0);
+        }
+    }
+
+    DataCache generateDataCache(final String domainName, int version, final String publicKey) {
+
+        List<ServiceIdentity> services = new ArrayList<>();
+        DataCache dataCache = new DataCache();
+        for (int i = 0; i < servicesPerDomain; i++) {
+            List<PublicKeyEntry> publicKeys = new ArrayList<>();
+            publicKeys.add(new PublicKeyEntry().setId("0").setKey(publicKey));
+            publicKeys.add(new PublicKeyEntry().setId(Integer.toString(version + 1)).setKey(publicKey));
+            ServiceIdentity service = new ServiceIdentity().setName(domainName + ".service" + i)
+                    .setPublicKeys(publicKeys)
+                    .setHosts(List.of(hostName(domainName, i, 0), hostName(domainName, i, version + 1)));
+            dataCache.processServiceIdentity(service);
+            services.add(service);
+        }
+        dataCache.setDomainData(new DomainData().setName(domainName).setServices(services));
+        return dataCache;
+    }
+
+    static String hostName(final String domainName, int serviceIndex, int hostIndex) {
+        return "host" + hostIndex + ".service" + serviceIndex + "." + domainName + ".athenz.io";
+    }
+
+    @Benchmark
+    public String getPublicKey() {
+        final int index = lookupIndex++ & (REQUEST_COUNT - 1);
+        return dataStore.getPublicKey(lookupDomains[index], lookupServices[index], "0");
+    }
+
+    @Benchmark
+    public HostServices getHostServices() {
+        return dataStore.getHostServices(lookupHosts[lookupIndex++ & (REQUEST_COUNT - 1)]);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public String getPublicKeyDuringUpdates() {
+        return getPublicKey();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void updateDomain() {
+        final int index = updateIndex++;
+        final int domainIndex = index % domainCount;
+        dataStore.addDomainToCache(domainNames[domainIndex], dataCaches[domainIndex][(index / domainCount) & 1]);
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.benchmarks;
+
+import com.yahoo.athenz.common.server.util.ResourceUtils;
+import com.yahoo.athenz.zms.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic domains for the benchmarks. The domain has the
+ * configured number of roles, each with the same number of user members,
+ * and the assertions are spread evenly across the roles. The given ratio
+ * of assertions use wildcards for their action and resource values. The
+ * last trustDepth roles in the domain are delegated to separate trust
+ * domains which grant the assume_role action to their own members, so
+ * authorization checks for those principals must go through the trust
+ * domains. All generated names are deterministic for the given settings
+ * so the benchmarks can compute the expected access check requests.
+ */
+public class DomainGenerator {
+
+    public static final String ACTION_ASSUME_ROLE = "assume_role";
+    public static final int ASSERTIONS_PER_POLICY = 50;
+
+    private final String domainName;
+    private int roleCount = 100;
+    private int membersPerRole = 10;
+    private int assertionCount = 500;
+    private double wildcardRatio = 0.1;
+    private int trustDepth = 0;
+    private long seed = 1;
+
+    /**
+     * Access check request that is expected to be allowed by the
+     * generated domain.
+     */
+    public static class AccessCheck {
+
+        public final String principal;
+        public final String roleName;
+        public final String action;
+        public final String resource;
+
+        AccessCheck(final String principal, final String roleName, final String action, final String resource) {
+            this.principal = principal;
+            this.roleName = roleName;
+            this.action = action;
+            this.resource = resource;
+        }
+    }
+
+    public DomainGenerator(final String domainName) {
+        this.domainName = domainName;
+    }
+
+    public DomainGenerator roleCount(int roleCount) {
+        this.roleCount = roleCount;
+        return this;
+    }
+
+    public DomainGenerator membersPerRole(int membersPerRole) {
+        this.membersPerRole = membersPerRole;
+        return this;
+    }
+
+    public DomainGenerator assertionCount(int assertionCount) {
+        this.assertionCount = assertionCount;
+        return this;
+    }
+
+    public DomainGenerator wildcardRatio(double wildcardRatio) {
+        this.wildcardRatio = wildcardRatio;
+        return this;
+    }
+
+    public DomainGenerator trustDepth(int trustDepth) {
+        this.trustDepth = Math.min(trustDepth, roleCount);
+        return this;
+    }
+
+    public DomainGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public String getDomainName() {
+        return domainName;
+    }
+
+    public int getAssertionCount() {
+        return assertionCount;
+    }
+
+    public String roleName(int roleIndex) {
+        return "role" + roleIndex;
+    }
+
+    public String trustDomainName(int trustIndex) {
+        return domainName + "-trust" + trustIndex;
+    }
+
+    boolean isTrustRole(int roleIndex) {
+        return roleIndex >= roleCount - trustDepth;
+    }
+
+    String principal(int roleIndex, int memberIndex) {
+        if (isTrustRole(roleIndex)) {
+            return "user.trust" + (roleIndex - roleCount + trustDepth) + "-member" + memberIndex;
+        }
+        return "user.role" + roleIndex + "-member" + memberIndex;
+    }
+
+    boolean isWildcardAssertion(int assertionIndex) {
+
+        // we want the same assertions to be wildcards for the same
+        // seed value regardless of which assertion is asked first
+
+        return new Random(seed * 31 + assertionIndex).nextDouble() < wildcardRatio;
+    }
+
+    /**
+     * Generate the domain data object for the configured domain.
+     * @return domain data object
+     */
+    public DomainData generateDomain() {
+
+        List<Role> roles = new ArrayList<>();
+        for (int i = 0; i < roleCount; i++) {
+            Role role = new Role().setName(ResourceUtils.roleResourceName(domainName, roleName(i)));
+            if (isTrustRole(i)) {
+                role.setTrust(trustDomainName(i - roleCount + trustDepth));
+            } else {
+                List<RoleMember> members = new ArrayList<>();
+                for (int j = 0; j < membersPerRole; j++) {
+                    members.add(new RoleMember().setMemberName(principal(i, j)));
+                }
+                role.setRoleMembers(members);
+            }
+            roles.add(role);
+        }
+
+        List<Policy> policies = new ArrayList<>();
+        List<Assertion> assertions = null;
+        for (int i = 0; i < assertionCount; i++) {
+            if (i % ASSERTIONS_PER_POLICY == 0) {
+                assertions = new ArrayList<>();
+                policies.add(new Policy().setName(ResourceUtils.policyResourceName(domainName,
+                        "policy" + policies.size())).setAssertions(assertions).setActive(true));
+            }
+            final boolean wildcard = isWildcardAssertion(i);
+            assertions.add(new Assertion()
+                    .setRole(ResourceUtils.roleResourceName(domainName, roleName(i % roleCount)))
+                    .setAction(wildcard ? "*" : action(i))
+                    .setResource(domainName + ":resource" + i + (wildcard ? "/*" : ""))
+                    .setEffect(AssertionEffect.ALLOW)
+                    .setId((long) i));
+        }
+
+        return createDomainData(domainName, roles, policies);
+    }
+
+    /**
+     * Generate the trust domains for the configured trust depth. Each
+     * trust domain includes a single role whose members are allowed to
+     * assume the corresponding delegated role in the generated domain.
+     * @return list of trust domain data objects
+     */
+    public List<DomainData> generateTrustDomains() {
+
+        List<DomainData> trustDomains = new ArrayList<>();
+        for (int t = 0; t < trustDepth; t++) {
+
+            final String trustDomainName = trustDomainName(t);
+            final int roleIndex = roleCount - trustDepth + t;
+
+            List<RoleMember> members = new ArrayList<>();
+            for (int j = 0; j < membersPerRole; j++) {
+                members.add(new RoleMember().setMemberName(principal(roleIndex, j)));
+            }
+            final String tenantRole = ResourceUtils.roleResourceName(trustDomainName, "tenant");
+            List<Role> roles = new ArrayList<>();
+            roles.add(new Role().setName(tenantRole).setRoleMembers(members));
+
+            List<Assertion> assertions = new ArrayList<>();
+            assertions.add(new Assertion().setRole(tenantRole).setAction(ACTION_ASSUME_ROLE)
+                    .setResource(ResourceUtils.roleResourceName(domainName, roleName(roleIndex)))
+                    .setEffect(AssertionEffect.ALLOW).setId((long) t));
+            List<Policy> policies = new ArrayList<>();
+            policies.add(new Policy().setName(ResourceUtils.policyResourceName(trustDomainName, "tenant"))
+                    .setAssertions(assertions).setActive(true));
+
+            trustDomains.add(createDomainData(trustDomainName, roles, policies));
+        }
+        return trustDomains;
+    }
+
+    DomainData createDomainData(final String name, List<Role> roles, List<Policy> policies) {
+        return new DomainData().setName(name).setEnabled(true).setRoles(roles)
+                .setGroups(new ArrayList<>()).setServices(new ArrayList<>()).setEntities(new ArrayList<>())
+                .setPolicies(new SignedPolicies().setContents(new DomainPolicies()
+                        .setDomain(name).setPolicies(policies)));
+    }
+
+    String action(int assertionIndex) {
+        return (assertionIndex % 2 == 0) ? "read" : "write";
+    }
+
+    /**
+     * Return the access check request that matches the given assertion.
+     * For wildcard assertions the request is for a resource that matches
+     * the resource glob pattern.
+     * @param assertionIndex index of the assertion
+     * @return access check request details
+     */
+    public AccessCheck accessCheck(int assertionIndex) {
+        final int index = assertionIndex % assertionCount;
+        final int roleIndex = index % roleCount;
+        final String resource = domainName + ":resource" + index + (isWildcardAssertion(index) ? "/item" : "");
+        return new AccessCheck(principal(roleIndex, index % membersPerRole), roleName(roleIndex),
+                action(index), resource);
+    }
+}
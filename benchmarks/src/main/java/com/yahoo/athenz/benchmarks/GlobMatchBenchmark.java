@@ -0,0 +1,77 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.benchmarks;
+
+import com.yahoo.athenz.auth.util.GlobMatcher;
+import com.yahoo.athenz.auth.util.StringUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks the glob based matching of assertion action, resource
+ * and role values. The regex based matching is included as the reference
+ * for the GlobMatcher based matching used by the server access checks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GlobMatchBenchmark {
+
+    @Param({"coretech:role.readers", "coretech:service.storage.*", "coretech:*.data.?ead*"})
+    String glob;
+
+    @Param({"coretech:service.storage.tenant.sports.data.reader"})
+    String value;
+
+    private Pattern pattern;
+    private GlobMatcher globMatcher;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        pattern = Pattern.compile(StringUtils.patternFromGlob(glob));
+        globMatcher = new GlobMatcher(glob);
+    }
+
+    @Benchmark
+    public String patternFromGlob() {
+        return StringUtils.patternFromGlob(glob);
+    }
+
+    @Benchmark
+    public boolean globMatch() {
+        return value.matches(StringUtils.patternFromGlob(glob));
+    }
+
+    @Benchmark
+    public boolean compiledPatternMatch() {
+        return pattern.matcher(value).matches();
+    }
+
+    @Benchmark
+    public boolean globMatcherMatch() {
+        return GlobMatcher.matches(glob, value);
+    }
+
+    @Benchmark
+    public boolean compiledGlobMatcherMatch() {
+        return globMatcher.matches(value);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.benchmarks;
+
+import com.yahoo.athenz.common.server.store.ChangeLogStore;
+import com.yahoo.athenz.zms.SignedDomain;
+import com.yahoo.athenz.zms.SignedDomains;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Change log store without any domains. The benchmarks add the
+ * generated domains directly into the data store caches.
+ */
+public class LocalChangeLogStore implements ChangeLogStore {
+
+    @Override
+    public SignedDomain getLocalSignedDomain(String domainName) {
+        return null;
+    }
+
+    @Override
+    public SignedDomain getServerSignedDomain(String domainName) {
+        return null;
+    }
+
+    @Override
+    public void removeLocalDomain(String domainName) {
+    }
+
+    @Override
+    public void saveLocalDomain(String domainName, SignedDomain signedDomain) {
+    }
+
+    @Override
+    public List<String> getLocalDomainList() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public Set<String> getServerDomainList() {
+        return new HashSet<>();
+    }
+
+    @Override
+    public SignedDomains getServerDomainModifiedList() {
+        return null;
+    }
+
+    @Override
+    public SignedDomains getUpdatedSignedDomains(StringBuilder lastModTimeBuffer) {
+        return null;
+    }
+
+    @Override
+    public void setLastModificationTimestamp(String lastModTime) {
+    }
+
+    @Override
+    public boolean supportsFullRefresh() {
+        return false;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.benchmarks;
+
+import com.yahoo.athenz.auth.token.AccessToken;
+import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.common.utils.SignUtils;
+import com.yahoo.athenz.zms.DomainData;
+import com.yahoo.athenz.zpe.AuthZpeClient;
+import com.yahoo.athenz.zpe.AuthZpeClient.AccessCheckStatus;
+import com.yahoo.athenz.zpe.ZpeConsts;
+import com.yahoo.athenz.zts.*;
+import com.yahoo.rdl.JSON;
+import com.yahoo.rdl.Timestamp;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the ZPE authorization check for access tokens against
+ * a generated policy file. The policy file is signed with a generated
+ * key and loaded by the standard ZPE policy updater, so the JVM must be
+ * forked for each benchmark since ZPE reads its configuration only once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZpeAllowAccessBenchmark {
+
+    static final String DOMAIN_NAME = "bench";
+    static final int REQUEST_COUNT = 256;
+    static final String UNKNOWN_RESOURCE = DOMAIN_NAME + ":unknown";
+
+    @Param({"100"})
+    int roleCount;
+
+    @Param({"500", "5000"})
+    int assertionCount;
+
+    @Param({"0.0", "0.5"})
+    double wildcardRatio;
+
+    private AccessToken[] accessTokens;
+    private String[] resources;
+    private String[] actions;
+    private final StringBuilder matchRoleName = new StringBuilder(256);
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+
+        DomainGenerator generator = new DomainGenerator(DOMAIN_NAME).roleCount(roleCount)
+                .assertionCount(assertionCount).wildcardRatio(wildcardRatio);
+
+        Path dir = Files.createTempDirectory("athenz-zpe-benchmark");
+        Path policyDir = Files.createDirectory(dir.resolve("policies"));
+        KeyPair keyPair = BenchmarkEnvironment.generateKeyPair(BenchmarkEnvironment.KEY_TYPE_EC);
+        Path athenzConf = BenchmarkEnvironment.createAthenzConf(dir, keyPair.getPublic());
+
+        // we write the policy file with a different suffix first and
+        // then rename it so the loader never sees a partial file
+
+        Path tempFile = policyDir.resolve(DOMAIN_NAME + ".tmp");
+        Files.write(tempFile, JSON.bytes(signPolicyData(toPolicyData(generator.generateDomain()), keyPair)));
+        Files.move(tempFile, policyDir.resolve(DOMAIN_NAME + ".pol"));
+
+        // our access tokens are not signed so we only need empty
+        // jwk key lists for the zpe initialization
+
+        Path jwkConf = Files.write(dir.resolve("athenz.jwk.conf"),
+                "{\"zts\":{\"keys\":[]},\"zms\":{\"keys\":[]}}".getBytes(StandardCharsets.UTF_8));
+        Path jwkKeys = Files.write(dir.resolve("jwks.json"), "{\"keys\":[]}".getBytes(StandardCharsets.UTF_8));
+
+        System.setProperty(ZpeConsts.ZPE_PROP_ATHENZ_CONF, athenzConf.toString());
+        System.setProperty(ZpeConsts.ZPE_PROP_JWK_ATHENZ_CONF, jwkConf.toString());
+        System.setProperty(ZpeConsts.ZPE_PROP_JWK_URI, jwkKeys.toUri().toString());
+        System.setProperty(ZpeConsts.ZPE_PROP_POLICY_DIR, policyDir.toString());
+
+        AuthZpeClient.init();
+
+        final long expiryTime = System.currentTimeMillis() / 1000 + TimeUnit.HOURS.toSeconds(2);
+        accessTokens = new AccessToken[REQUEST_COUNT];
+        resources = new String[REQUEST_COUNT];
+        actions = new String[REQUEST_COUNT];
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            DomainGenerator.AccessCheck check = generator.accessCheck(i * 7919);
+            AccessToken accessToken = new AccessToken();
+            accessToken.setAudience(DOMAIN_NAME);
+            accessToken.setScope(Collections.singletonList(check.roleName));
+            accessToken.setExpiryTime(expiryTime);
+            accessTokens[i] = accessToken;
+            resources[i] = check.resource;
+            actions[i] = check.action;
+        }
+
+        AccessCheckStatus status = AuthZpeClient.allowAccess(accessTokens[0], resources[0], actions[0],
+                matchRoleName);
+        if (status != AccessCheckStatus.ALLOW) {
+            throw new IllegalStateException("policy file not loaded by zpe: " + status);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        AuthZpeClient.close();
+    }
+
+    @Benchmark
+    public AccessCheckStatus allowAccess() {
+        final int i = index++ & (REQUEST_COUNT - 1);
+        matchRoleName.setLength(0);
+        return AuthZpeClient.allowAccess(accessTokens[i], resources[i], actions[i], matchRoleName);
+    }
+
+    @Benchmark
+    public AccessCheckStatus allowAccessNoMatch() {
+
+        // access check that must go through all assertions
+        // for the role before the request is rejected
+
+        final int i = index++ & (REQUEST_COUNT - 1);
+        matchRoleName.setLength(0);
+        return AuthZpeClient.allowAccess(accessTokens[i], UNKNOWN_RESOURCE, actions[i], matchRoleName);
+    }
+
+    static PolicyData toPolicyData(DomainData domainData) {
+
+        List<Policy> policies = new ArrayList<>();
+        for (com.yahoo.athenz.zms.Policy zmsPolicy : domainData.getPolicies().getContents().getPolicies()) {
+            List<Assertion> assertions = new ArrayList<>();
+            for (com.yahoo.athenz.zms.Assertion zmsAssertion : zmsPolicy.getAssertions()) {
+                assertions.add(new Assertion().setRole(zmsAssertion.getRole())
+                        .setResource(zmsAssertion.getResource()).setAction(zmsAssertion.getAction())
+                        .setEffect(AssertionEffect.valueOf(zmsAssertion.getEffect().name())));
+            }
+            policies.add(new Policy().setName(zmsPolicy.getName()).setAssertions(assertions));
+        }
+        return new PolicyData().setDomain(domainData.getName()).setPolicies(policies);
+    }
+
+    static DomainSignedPolicyData signPolicyData(PolicyData policyData, KeyPair keyPair) {
+
+        final long now = System.currentTimeMillis();
+        SignedPolicyData signedPolicyData = new SignedPolicyData().setPolicyData(policyData)
+                .setModified(Timestamp.fromMillis(now))
+                .setExpires(Timestamp.fromMillis(now + TimeUnit.DAYS.toMillis(7)));
+        final String signature = Crypto.sign(SignUtils.asCanonicalString(signedPolicyData), keyPair.getPrivate());
+        return new DomainSignedPolicyData().setSignedPolicyData(signedPolicyData)
+                .setSignature(signature).setKeyId(BenchmarkEnvironment.KEY_ID);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zms;
+
+import com.yahoo.athenz.auth.Principal;
+import com.yahoo.athenz.auth.impl.SimplePrincipal;
+import com.yahoo.athenz.benchmarks.DomainGenerator;
+import com.yahoo.athenz.common.server.store.AthenzDomain;
+import org.objenesis.ObjenesisStd;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the ZMS access check evaluation against a generated domain.
+ * The benchmark lives in the zms package since evaluateAccess is package
+ * private. The ZMSImpl object is created without running its constructor
+ * (which requires a fully configured server) and the domain lookups for
+ * the trust domains are served from the generated domains.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZMSEvaluateAccessBenchmark {
+
+    static final String DOMAIN_NAME = "bench";
+    static final int REQUEST_COUNT = 256;
+
+    public static class BenchmarkZMSImpl extends ZMSImpl {
+
+        // objenesis does not run any constructors or field
+        // initializers so the map is set by the benchmark setup
+
+        Map<String, AthenzDomain> domains;
+
+        @Override
+        AthenzDomain getAthenzDomain(String domainName, boolean ignoreExceptions, boolean masterCopy) {
+            return domains.get(domainName);
+        }
+    }
+
+    @Param({"100"})
+    int roleCount;
+
+    @Param({"500", "5000"})
+    int assertionCount;
+
+    @Param({"0.0", "0.5"})
+    double wildcardRatio;
+
+    @Param({"0", "10"})
+    int trustDepth;
+
+    private BenchmarkZMSImpl zmsImpl;
+    private AthenzDomain athenzDomain;
+    private Principal[] principals;
+    private String[] resources;
+    private String[] actions;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+
+        DomainGenerator generator = new DomainGenerator(DOMAIN_NAME).roleCount(roleCount)
+                .assertionCount(assertionCount).wildcardRatio(wildcardRatio).trustDepth(trustDepth);
+
+        zmsImpl = new ObjenesisStd().newInstance(BenchmarkZMSImpl.class);
+        zmsImpl.domains = new HashMap<>();
+        for (DomainData trustDomain : generator.generateTrustDomains()) {
+            zmsImpl.domains.put(trustDomain.getName(), createAthenzDomain(trustDomain));
+        }
+        athenzDomain = createAthenzDomain(generator.generateDomain());
+
+        principals = new Principal[REQUEST_COUNT];
+        resources = new String[REQUEST_COUNT];
+        actions = new String[REQUEST_COUNT];
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            DomainGenerator.AccessCheck check = generator.accessCheck(i * 7919);
+            final int idx = check.principal.lastIndexOf('.');
+            principals[i] = SimplePrincipal.create(check.principal.substring(0, idx),
+                    check.principal.substring(idx + 1), (String) null);
+            resources[i] = check.resource;
+            actions[i] = check.action;
+        }
+    }
+
+    static AthenzDomain createAthenzDomain(DomainData domainData) {
+        AthenzDomain athenzDomain = new AthenzDomain(domainData.getName());
+        athenzDomain.setDomain(new Domain().setName(domainData.getName()).setEnabled(true));
+        athenzDomain.setRoles(domainData.getRoles());
+        athenzDomain.setPolicies(domainData.getPolicies().getContents().getPolicies());
+        return athenzDomain;
+    }
+
+    @Benchmark
+    public boolean evaluateAccess() {
+        final int i = index++ & (REQUEST_COUNT - 1);
+        final Principal principal = principals[i];
+        return zmsImpl.evaluateAccess(athenzDomain, principal.getFullName(), actions[i], resources[i],
+                null, null, principal) == ZMSImpl.AccessStatus.ALLOWED;
+    }
+}
@@ -23,6 +23,7 @@ import com.yahoo.athenz.auth.impl.PrincipalAuthority;
 import com.yahoo.athenz.auth.impl.SimplePrincipal;
 import com.yahoo.athenz.auth.token.PrincipalToken;
 import com.yahoo.athenz.common.config.AthenzConfig;
+import com.yahoo.athenz.common.http.Http2ClassicHttpClient;
 import com.yahoo.athenz.common.utils.SSLUtils;
 import com.yahoo.athenz.common.utils.SSLUtils.ClientSSLContextBuilder;
 import com.yahoo.rdl.JSON;
@@ -36,6 +37,7 @@ import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuil
 import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
 import org.apache.hc.client5.http.ssl.TlsSocketStrategy;
 import org.apache.hc.core5.http.ssl.TLS;
+import org.apache.hc.core5.http2.config.H2Config;
 import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
 import org.apache.hc.core5.pool.PoolReusePolicy;
 import org.apache.hc.core5.util.TimeValue;
@@ -86,6 +88,10 @@ public class ZMSClient implements Closeable {
     public static final String ZMS_CLIENT_PROP_RETRY_TIMEOUT = "athenz.zms.client.http_pool_retry_timeout";
     public static final String ZMS_CLIENT_PROP_VALIDATE_AFTER_INACTIVITY = "athenz.zms.client.http_pool_validate_after_inactivity";
 
+    public static final String ZMS_CLIENT_PROP_HTTP2_ENABLED = "athenz.zms.client.http2_enabled";
+    public static final String ZMS_CLIENT_PROP_HTTP2_MAX_CONCURRENT_STREAMS = "athenz.zms.client.http2_max_concurrent_streams";
+    public static final String ZMS_CLIENT_PROP_HTTP2_INITIAL_WINDOW_SIZE = "athenz.zms.client.http2_initial_window_size";
+
     public static final String ZMS_CLIENT_PROP_CERT_ALIAS = "athenz.zms.client.cert_alias";
 
     public static final String ZMS_CLIENT_PROP_KEYSTORE_PATH = "athenz.zms.client.keystore_path";
@@ -399,6 +405,30 @@ public class ZMSClient implements Closeable {
                 .build();
     }
 
+    boolean isHttp2Enabled(SSLContext sslContext) {
+        return sslContext != null && Boolean.parseBoolean(System.getProperty(ZMS_CLIENT_PROP_HTTP2_ENABLED, "false"));
+    }
+
+    protected CloseableHttpClient createHttp2Client(SSLContext sslContext) {
+
+        // all requests are multiplexed over a single connection so the
+        // number of concurrent streams and the flow control window size
+        // replace the connection pool settings
+
+        int maxConcurrentStreams = Integer.parseInt(System.getProperty(ZMS_CLIENT_PROP_HTTP2_MAX_CONCURRENT_STREAMS, "100"));
+        int initialWindowSize = Integer.parseInt(System.getProperty(ZMS_CLIENT_PROP_HTTP2_INITIAL_WINDOW_SIZE, "65535"));
+        long readTimeout = Long.parseLong(System.getProperty(ZMS_CLIENT_PROP_READ_TIMEOUT, "30000"));
+        long connectTimeout = Long.parseLong(System.getProperty(ZMS_CLIENT_PROP_CONNECT_TIMEOUT, "30000"));
+
+        H2Config h2Config = H2Config.custom()
+                .setPushEnabled(false)
+                .setMaxConcurrentStreams(maxConcurrentStreams)
+                .setInitialWindowSize(initialWindowSize)
+                .build();
+
+        return Http2ClassicHttpClient.create(sslContext, null, h2Config, connectTimeout, readTimeout, dnsResolver);
+    }
+
     /**
      * Initialize the client for class constructors
      *
@@ -431,8 +461,13 @@ public class ZMSClient implements Closeable {
             sslContext = createSSLContext();
         }
 
-        PoolingHttpClientConnectionManager connManager = createConnectionPooling(sslContext);
-        CloseableHttpClient httpClient = createHttpClient(connManager);
+        CloseableHttpClient httpClient;
+        if (isHttp2Enabled(sslContext)) {
+            httpClient = createHttp2Client(sslContext);
+        } else {
+            PoolingHttpClientConnectionManager connManager = createConnectionPooling(sslContext);
+            httpClient = createHttpClient(connManager);
+        }
 
         client = new ZMSRDLGeneratedClient(zmsUrl, httpClient);
     }
@@ -19,8 +19,10 @@ import com.yahoo.athenz.auth.Authority;
 import com.yahoo.athenz.auth.Principal;
 import com.yahoo.athenz.auth.impl.PrincipalAuthority;
 import com.yahoo.athenz.auth.impl.SimplePrincipal;
+import com.yahoo.athenz.common.http.Http2ClassicHttpClient;
 import com.yahoo.rdl.Struct;
 import com.yahoo.rdl.Timestamp;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.core5.net.URIBuilder;
 import org.apache.hc.core5.ssl.SSLContextBuilder;
 import org.mockito.Mockito;
@@ -1113,6 +1115,33 @@ public class ZMSClientTest {
         System.clearProperty(ZMSClient.ZMS_CLIENT_PROP_ATHENZ_CONF);
     }
 
+    @Test
+    public void testClientHttp2Enabled() throws Exception {
+
+        final SSLContext sslContext = SSLContextBuilder.create().build();
+
+        ZMSClient client = new ZMSClient("https://localhost:4443/zms/v1", sslContext);
+        assertFalse(client.isHttp2Enabled(sslContext));
+        client.close();
+
+        System.setProperty(ZMSClient.ZMS_CLIENT_PROP_HTTP2_ENABLED, "true");
+        System.setProperty(ZMSClient.ZMS_CLIENT_PROP_HTTP2_MAX_CONCURRENT_STREAMS, "50");
+        System.setProperty(ZMSClient.ZMS_CLIENT_PROP_HTTP2_INITIAL_WINDOW_SIZE, "131072");
+
+        client = new ZMSClient("https://localhost:4443/zms/v1", sslContext);
+        assertTrue(client.isHttp2Enabled(sslContext));
+        assertFalse(client.isHttp2Enabled(null));
+
+        CloseableHttpClient httpClient = client.createHttp2Client(sslContext);
+        assertTrue(httpClient instanceof Http2ClassicHttpClient);
+        httpClient.close();
+        client.close();
+
+        System.clearProperty(ZMSClient.ZMS_CLIENT_PROP_HTTP2_ENABLED);
+        System.clearProperty(ZMSClient.ZMS_CLIENT_PROP_HTTP2_MAX_CONCURRENT_STREAMS);
+        System.clearProperty(ZMSClient.ZMS_CLIENT_PROP_HTTP2_INITIAL_WINDOW_SIZE);
+    }
+
     @Test
     public void testClientConstructorsInvalid() {
 
@@ -239,10 +239,10 @@ public class AuthZpeClient {
      * tokens must be re-used by clients until they're about to be
      * expired. However, incorrectly configured client might generate
      * a new token for every request and eventually cause the server
-     * to run out of memory. Once the limit is reached, the library
-     * will no longer cache any tokens until the expiry thread cleans
-     * up the expired tokens and the size of the cache is smaller than
-     * the configured number. The value of 0 indicates no limit. The
+     * to run out of memory. Once the limit is reached, a new token
+     * is only cached if it has been seen more frequently than the
+     * cached token that expires first, which is then evicted. Expired
+     * tokens are always evicted first. The value of 0 indicates no limit. The
      * default value of cached tokens is 10K. The value can also be
      * configured by using the athenz.zpe.max_token_cache_entries
      * system property.
@@ -253,6 +253,7 @@ public class AuthZpeClient {
         // while any other positive integer enforces the limit
         if (maxCacheSize > -1) {
             maxTokenCacheSize = maxCacheSize;
+            ZpeUpdPolLoader.setTokenCacheMaxSize(maxCacheSize);
         }
     }
 
@@ -1261,7 +1262,13 @@ public class AuthZpeClient {
     }
 
     static <T> void addTokenToCache(Map<String, T> tokenCache, final String tokenKey, T tokenValue) {
-        if (maxTokenCacheSize == 0 || tokenCache.size() < maxTokenCacheSize) {
+
+        // our own token cache enforces its size limit based on the
+        // token expiry and access frequency
+
+        if (tokenCache instanceof ZpeTokenCache) {
+            tokenCache.put(tokenKey, tokenValue);
+        } else if (maxTokenCacheSize == 0 || tokenCache.size() < maxTokenCacheSize) {
             tokenCache.put(tokenKey, tokenValue);
         }
     }
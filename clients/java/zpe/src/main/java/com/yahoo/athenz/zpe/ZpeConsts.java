@@ -68,6 +68,7 @@ public final class ZpeConsts {
     public static final String ZPE_PROP_METRIC_FILE_PATH             = "athenz.zpe.metric_file_path";
     public static final String ZPE_PROP_MON_TIMEOUT                  = "athenz.zpe.monitor_timeout_secs";
     public static final String ZPE_PROP_MON_CLEANUP_TOKENS           = "athenz.zpe.cleanup_tokens_secs";
+    public static final String ZPE_PROP_MON_WATCH_POLICY_DIR         = "athenz.zpe.monitor_watch_policy_dir";
     public static final String ZPE_PROP_POLICY_DIR                   = "athenz.zpe.policy_dir";
     public static final String ZPE_PROP_SKIP_POLICY_DIR_CHECK        = "athenz.zpe.skip_policy_dir_check";
     public static final String ZPE_PROP_CHECK_POLICY_ZMS_SIGNATURE   = "athenz.zpe.check_policy_zms_signature";
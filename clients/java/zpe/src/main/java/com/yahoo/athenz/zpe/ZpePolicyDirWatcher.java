@@ -0,0 +1,129 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the policy directory for changes and reloads only the policy
+ * files that have been created, modified or deleted. The files are loaded
+ * and verified on the watcher thread. Events received within the batch
+ * delay are combined so that a file being written is only loaded once.
+ * The periodic directory scan carried out by ZpeUpdMonitor remains in
+ * place as a fallback.
+ */
+public class ZpePolicyDirWatcher implements Runnable, Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ZpePolicyDirWatcher.class);
+
+    private final ZpeUpdPolLoader updLoader;
+    private final WatchService watchService;
+    private final Thread watchThread;
+    private final long batchDelayMillis;
+    private volatile boolean shutdownThread = false;
+
+    ZpePolicyDirWatcher(final ZpeUpdPolLoader zpeUpdLoader, long batchDelayMillis) throws IOException {
+
+        updLoader = zpeUpdLoader;
+        this.batchDelayMillis = batchDelayMillis;
+
+        Path dirPath = Paths.get(updLoader.getDirName());
+        watchService = dirPath.getFileSystem().newWatchService();
+        dirPath.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+
+        watchThread = new Thread(this, "zpe-policy-watcher");
+        watchThread.setDaemon(true);
+    }
+
+    void start() {
+        watchThread.start();
+    }
+
+    @Override
+    public void close() {
+        shutdownThread = true;
+        try {
+            watchService.close();
+        } catch (IOException ex) {
+            LOG.error("close: unable to close watch service", ex);
+        }
+        watchThread.interrupt();
+    }
+
+    @Override
+    public void run() {
+
+        while (!shutdownThread) {
+
+            Set<String> fileNames = new HashSet<>();
+            boolean overflow = false;
+
+            try {
+                WatchKey key = watchService.take();
+                while (key != null) {
+                    overflow |= processEvents(key, fileNames);
+                    if (!key.reset()) {
+                        LOG.error("run: policy directory {} is no longer accessible", updLoader.getDirName());
+                        return;
+                    }
+                    key = watchService.poll(batchDelayMillis, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                LOG.debug("run: watcher told to shutdown");
+                return;
+            }
+
+            // if we have lost any events then we'll just check all the files
+            // otherwise we'll only reload the files that have changed
+
+            try {
+                if (overflow) {
+                    updLoader.loadDb();
+                } else if (!fileNames.isEmpty()) {
+                    updLoader.reloadFiles(fileNames);
+                }
+            } catch (Exception ex) {
+                LOG.error("run: load failure, directory name: {}", updLoader.getDirName(), ex);
+            }
+        }
+    }
+
+    boolean processEvents(WatchKey key, Set<String> fileNames) {
+
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            final String fileName = event.context().toString();
+            if (fileName.endsWith(".pol")) {
+                fileNames.add(fileName);
+            }
+        }
+        return overflow;
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded cache of validated tokens. Entries are keyed by the SHA-256
+ * digest of the token string instead of the token itself and are
+ * dropped once the token expires. When the cache is full, the entry
+ * with the earliest expiry time is the eviction candidate and the new
+ * token only replaces it if it has been seen more frequently (based
+ * on a count-min sketch of recent lookups). This way a burst of unique
+ * tokens cannot push the frequently used tokens out of the cache.
+ * The keys returned by the entry set are the token digests.
+ */
+public class ZpeTokenCache<T> extends AbstractMap<String, T> {
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_MAX_COUNT = 15;
+    private static final int SKETCH_MIN_WIDTH = 64;
+    private static final int[] SKETCH_SEEDS = { 0x97cb3127, 0x85ebca6b, 0xc2b2ae35, 0x27d4eb2f };
+
+    private static final ThreadLocal<MessageDigest> SHA256_DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    });
+
+    static class CacheEntry<T> implements Comparable<CacheEntry<T>> {
+
+        final String digest;
+        final T value;
+        final long expiryTime;
+        final long sequence;
+
+        CacheEntry(final String digest, T value, long expiryTime, long sequence) {
+            this.digest = digest;
+            this.value = value;
+            this.expiryTime = expiryTime;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(CacheEntry<T> entry) {
+            int result = Long.compare(expiryTime, entry.expiryTime);
+            return (result != 0) ? result : Long.compare(sequence, entry.sequence);
+        }
+    }
+
+    private final ConcurrentHashMap<String, CacheEntry<T>> entries = new ConcurrentHashMap<>();
+    private final TreeSet<CacheEntry<T>> expiryIndex = new TreeSet<>();
+    private final ToLongFunction<T> expiryTimeFunction;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private volatile int maxSize;
+    private volatile AtomicIntegerArray sketch;
+    private final AtomicLong sketchSamples = new AtomicLong();
+
+    /**
+     * Create a new token cache
+     * @param expiryTimeFunction function returning the expiry time
+     *        of the token in seconds since epoch
+     * @param maxSize maximum number of entries. 0 indicates no limit
+     */
+    public ZpeTokenCache(ToLongFunction<T> expiryTimeFunction, int maxSize) {
+        this.expiryTimeFunction = expiryTimeFunction;
+        setMaxSize(maxSize);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized void setMaxSize(int maxSize) {
+
+        this.maxSize = maxSize;
+
+        // the sketch is only used for admission when the cache is bounded
+
+        int width = SKETCH_MIN_WIDTH;
+        while (width < 2 * maxSize && width < (1 << 24)) {
+            width <<= 1;
+        }
+        if (sketch == null || sketch.length() != SKETCH_DEPTH * width) {
+            sketch = new AtomicIntegerArray(SKETCH_DEPTH * width);
+            sketchSamples.set(0);
+        }
+    }
+
+    static String digest(final String token) {
+        MessageDigest md = SHA256_DIGEST.get();
+        byte[] hash = md.digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    @Override
+    public T get(Object key) {
+
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        final String digest = digest((String) key);
+        recordAccess(digest);
+
+        CacheEntry<T> entry = entries.get(digest);
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.expiryTime < System.currentTimeMillis() / 1000) {
+            removeEntry(entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return (key instanceof String) && entries.containsKey(digest((String) key));
+    }
+
+    /**
+     * Add the given token to the cache. If the cache is full then the
+     * token is only added if it's been accessed more frequently than
+     * the entry with the earliest expiry time which is then evicted.
+     * @param key token string
+     * @param value validated token object
+     * @return the previous value for the token, if any
+     */
+    @Override
+    public synchronized T put(final String key, T value) {
+
+        final String digest = digest(key);
+        final long expiryTime = expiryTimeFunction.applyAsLong(value);
+
+        CacheEntry<T> existing = entries.get(digest);
+        if (existing != null) {
+            expiryIndex.remove(existing);
+        } else if (maxSize > 0 && entries.size() >= maxSize) {
+
+            // first drop any expired tokens and if the cache is still
+            // full compare the frequency of our candidate against the
+            // entry that expires first
+
+            removeExpired(System.currentTimeMillis() / 1000);
+            if (entries.size() >= maxSize) {
+                CacheEntry<T> victim = expiryIndex.first();
+                if (frequency(digest) <= frequency(victim.digest)) {
+                    return null;
+                }
+                removeEntry(victim);
+            }
+        }
+
+        CacheEntry<T> entry = new CacheEntry<>(digest, value, expiryTime, sequence.incrementAndGet());
+        entries.put(digest, entry);
+        expiryIndex.add(entry);
+        return (existing == null) ? null : existing.value;
+    }
+
+    @Override
+    public synchronized T remove(Object key) {
+
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        CacheEntry<T> entry = entries.remove(digest((String) key));
+        if (entry == null) {
+            return null;
+        }
+        expiryIndex.remove(entry);
+        return entry.value;
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        expiryIndex.clear();
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public Set<Entry<String, T>> entrySet() {
+        Set<Entry<String, T>> entrySet = new HashSet<>();
+        for (CacheEntry<T> entry : entries.values()) {
+            entrySet.add(new SimpleImmutableEntry<>(entry.digest, entry.value));
+        }
+        return Collections.unmodifiableSet(entrySet);
+    }
+
+    /**
+     * Remove all tokens that have expired before the given time.
+     * Since the entries are indexed by their expiry time, only
+     * the expired entries are visited.
+     * @param nowSecs current time in seconds since epoch
+     */
+    public synchronized void removeExpired(long nowSecs) {
+        while (!expiryIndex.isEmpty() && expiryIndex.first().expiryTime < nowSecs) {
+            CacheEntry<T> entry = expiryIndex.pollFirst();
+            entries.remove(entry.digest, entry);
+        }
+    }
+
+    synchronized void removeEntry(CacheEntry<T> entry) {
+        if (entries.remove(entry.digest, entry)) {
+            expiryIndex.remove(entry);
+        }
+    }
+
+    void recordAccess(final String digest) {
+
+        if (maxSize == 0) {
+            return;
+        }
+
+        // count-min sketch with 4 bit saturating counters. once we have
+        // recorded 10 times the number of sketch columns, all counters
+        // are halved so that the frequencies reflect recent lookups
+
+        final AtomicIntegerArray counters = sketch;
+        final int hash = digest.hashCode();
+        for (int i = 0; i < SKETCH_DEPTH; i++) {
+            counters.getAndUpdate(sketchIndex(counters, hash, i), count -> Math.min(count + 1, SKETCH_MAX_COUNT));
+        }
+
+        if (sketchSamples.incrementAndGet() >= 10L * counters.length() / SKETCH_DEPTH) {
+            resetSketch(counters);
+        }
+    }
+
+    synchronized void resetSketch(AtomicIntegerArray counters) {
+
+        if (counters != sketch || sketchSamples.get() < 10L * counters.length() / SKETCH_DEPTH) {
+            return;
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.updateAndGet(i, count -> count >>> 1);
+        }
+        sketchSamples.set(0);
+    }
+
+    int frequency(final String digest) {
+
+        final AtomicIntegerArray counters = sketch;
+        final int hash = digest.hashCode();
+        int frequency = SKETCH_MAX_COUNT;
+        for (int i = 0; i < SKETCH_DEPTH; i++) {
+            frequency = Math.min(frequency, counters.get(sketchIndex(counters, hash, i)));
+        }
+        return frequency;
+    }
+
+    private int sketchIndex(AtomicIntegerArray counters, int hash, int row) {
+        final int width = counters.length() / SKETCH_DEPTH;
+        int h = hash * SKETCH_SEEDS[row];
+        h ^= h >>> 16;
+        return row * width + (h & (width - 1));
+    }
+}
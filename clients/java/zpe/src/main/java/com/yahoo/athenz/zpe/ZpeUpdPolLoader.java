@@ -48,6 +48,7 @@ public class ZpeUpdPolLoader implements Closeable {
 
     static boolean skipPolicyDirCheck;
     static boolean checkPolicyZMSSignature;
+    static boolean watchPolicyDir;
     static long sleepTimeMillis = -1;
     static long cleanupTokenInterval = 600000; // 600 secs = 10 minutes
     static long lastRoleTokenCleanup = System.currentTimeMillis();
@@ -57,6 +58,7 @@ public class ZpeUpdPolLoader implements Closeable {
 
         skipPolicyDirCheck = Boolean.parseBoolean(System.getProperty(ZpeConsts.ZPE_PROP_SKIP_POLICY_DIR_CHECK, "false"));
         checkPolicyZMSSignature = Boolean.parseBoolean(System.getProperty(ZpeConsts.ZPE_PROP_CHECK_POLICY_ZMS_SIGNATURE, "false"));
+        watchPolicyDir = Boolean.parseBoolean(System.getProperty(ZpeConsts.ZPE_PROP_MON_WATCH_POLICY_DIR, "false"));
 
         // default to 5 minutes / 300 secs
         String timeoutSecs = System.getProperty(ZpeConsts.ZPE_PROP_MON_TIMEOUT, "300");
@@ -85,6 +87,7 @@ public class ZpeUpdPolLoader implements Closeable {
 
     private final ScheduledExecutorService scheduledExecutorSvc = Executors.newScheduledThreadPool(1);
     private ZpeUpdMonitor updMonWorker;
+    private ZpePolicyDirWatcher dirWatcher;
 
     // key is the domain name, value is a map keyed by role name with list of assertions
     ConcurrentHashMap<String, Map<String, List<Struct>>> domStandardRoleAllowMap = new ConcurrentHashMap<>();
@@ -99,10 +102,10 @@ public class ZpeUpdPolLoader implements Closeable {
     ConcurrentHashMap<String, Map<String, List<Struct>>> domWildcardRoleDenyMap = new ConcurrentHashMap<>();
 
     // cache of active Role Tokens
-    static ConcurrentHashMap<String, RoleToken> roleTokenCacheMap = new ConcurrentHashMap<>();
+    static ZpeTokenCache<RoleToken> roleTokenCacheMap = new ZpeTokenCache<>(RoleToken::getExpiryTime, 0);
 
     // cache of active Access Tokens
-    static ConcurrentHashMap<String, AccessToken> accessTokenCacheMap = new ConcurrentHashMap<>();
+    static ZpeTokenCache<AccessToken> accessTokenCacheMap = new ZpeTokenCache<>(AccessToken::getExpiryTime, 0);
 
     // array of file status objects
     static class ZpeFileStatus {
@@ -172,6 +175,11 @@ public class ZpeUpdPolLoader implements Closeable {
         return accessTokenCacheMap;
     }
 
+    static public void setTokenCacheMaxSize(int maxCacheSize) {
+        roleTokenCacheMap.setMaxSize(maxCacheSize);
+        accessTokenCacheMap.setMaxSize(maxCacheSize);
+    }
+
     /**
      * All of our maps must contain the same number of objects since we
      * process and update them at the same time, so we'll just return
@@ -191,6 +199,18 @@ public class ZpeUpdPolLoader implements Closeable {
             updMonWorker = new ZpeUpdMonitor(this);
         }
         scheduledExecutorSvc.scheduleAtFixedRate(updMonWorker, 0, sleepTimeMillis, TimeUnit.MILLISECONDS);
+
+        // if configured, watch the policy directory so that changed files
+        // are reloaded right away. the periodic scan remains as a fallback
+
+        if (watchPolicyDir && !skipPolicyDirCheck && dirWatcher == null) {
+            try {
+                dirWatcher = new ZpePolicyDirWatcher(this, 500);
+                dirWatcher.start();
+            } catch (Exception ex) {
+                LOG.error("start: unable to watch policy directory {}, using periodic scan only", polDirName, ex);
+            }
+        }
     }
 
     @Override
@@ -198,6 +218,9 @@ public class ZpeUpdPolLoader implements Closeable {
         if (updMonWorker != null) {
             updMonWorker.cancel();
         }
+        if (dirWatcher != null) {
+            dirWatcher.close();
+        }
         scheduledExecutorSvc.shutdownNow();
     }
 
@@ -209,7 +232,7 @@ public class ZpeUpdPolLoader implements Closeable {
         }
 
         long nowSecs = now / 1000;
-        roleTokenCacheMap.entrySet().removeIf(entry -> entry.getValue().getExpiryTime() < nowSecs);
+        roleTokenCacheMap.removeExpired(nowSecs);
         lastRoleTokenCleanup = now; // reset time of last cleanup
     }
 
@@ -221,7 +244,7 @@ public class ZpeUpdPolLoader implements Closeable {
         }
 
         long nowSecs = now / 1000;
-        accessTokenCacheMap.entrySet().removeIf(entry -> entry.getValue().getExpiryTime() < nowSecs);
+        accessTokenCacheMap.removeExpired(nowSecs);
         lastAccessTokenCleanup = now; // reset time of last cleanup
     }
 
@@ -238,12 +261,27 @@ public class ZpeUpdPolLoader implements Closeable {
         loadDb(updMonWorker.loadFileStatus());
     }
 
+    /**
+     * Reload the given policy files from the policy directory. Files
+     * that no longer exist are processed as deleted policy files.
+     * @param fileNames names of the policy files that have changed
+     */
+    void reloadFiles(Collection<String> fileNames) {
+
+        File[] polFiles = new File[fileNames.size()];
+        int idx = 0;
+        for (String fileName : fileNames) {
+            polFiles[idx++] = new File(polDirName, fileName);
+        }
+        loadDb(polFiles);
+    }
+
     /**
      *  Process the given policy file list and determine if any of the
      *  policy domain files have been updated. New ones will be loaded
      *  into the policy domain map.
      **/
-    void loadDb(File []polFileNames) {
+    synchronized void loadDb(File []polFileNames) {
 
         if (polFileNames == null) {
             LOG.error("loadDb: no policy files to load");
@@ -301,7 +339,12 @@ public class ZpeUpdPolLoader implements Closeable {
                     }
             
                 }
+                fstat.modifyTimeMillis = lastModMilliSeconds;
             } else {
+                // skip any files that were deleted before we had a chance to load them
+                if (!polFile.exists()) {
+                    continue;
+                }
                 fstat = new ZpeFileStatus(lastModMilliSeconds);
                 fsmap.put(fileName, fstat);
             }
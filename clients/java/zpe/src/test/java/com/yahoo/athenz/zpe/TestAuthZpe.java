@@ -1478,8 +1478,9 @@ public class TestAuthZpe {
         String certStr = new String(Files.readAllBytes(path));
         X509Certificate cert = Crypto.loadX509Certificate(certStr);
 
-        // clear our cache
+        // clear our cache and start with a small limit
 
+        AuthZpeClient.setTokenCacheMaxValue(10);
         Map<String, AccessToken> roleMap = ZpeUpdPolLoader.getAccessTokenCacheMap();
         roleMap.clear();
 
@@ -1491,18 +1492,24 @@ public class TestAuthZpe {
         Assert.assertEquals(roleMap.size(), 1);
 
         // with our new token cache size limit of 1 the size should not change
+        // and since both tokens have been seen once, the new token is not
+        // admitted into the cache
 
         AuthZpeClient.setTokenCacheMaxValue(1);
 
+        final String firstToken = signedToken;
         roles.add("testrole1");
         signedToken = createAccessToken("angler", roles, "0");
         status = AuthZpeClient.allowAccess(signedToken, cert, null, resource, action);
         Assert.assertEquals(status, AccessCheckStatus.ALLOW);
 
         Assert.assertEquals(roleMap.size(), 1);
+        Assert.assertTrue(roleMap.containsKey(firstToken));
+        Assert.assertFalse(roleMap.containsKey(signedToken));
 
         // set a negative value will be ignored, so we'll still
-        // have a single entry in the cache
+        // have a single entry in the cache but now our second token
+        // has been seen more frequently so it replaces the first one
 
         AuthZpeClient.setTokenCacheMaxValue(-2);
 
@@ -1510,13 +1517,14 @@ public class TestAuthZpe {
         Assert.assertEquals(status, AccessCheckStatus.ALLOW);
 
         Assert.assertEquals(roleMap.size(), 1);
+        Assert.assertFalse(roleMap.containsKey(firstToken));
+        Assert.assertTrue(roleMap.containsKey(signedToken));
 
-
-        // now let's increase the size and try again
+        // now let's increase the size and try again with the first token
 
         AuthZpeClient.setTokenCacheMaxValue(10);
 
-        status = AuthZpeClient.allowAccess(signedToken, cert, null, resource, action);
+        status = AuthZpeClient.allowAccess(firstToken, cert, null, resource, action);
         Assert.assertEquals(status, AccessCheckStatus.ALLOW);
 
         Assert.assertEquals(roleMap.size(), 2);
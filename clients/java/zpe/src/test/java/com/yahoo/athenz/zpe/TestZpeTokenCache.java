@@ -0,0 +1,209 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe;
+
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class TestZpeTokenCache {
+
+    // our test values are the expiry times of the tokens
+
+    private ZpeTokenCache<Long> createCache(int maxSize) {
+        return new ZpeTokenCache<>(Long::longValue, maxSize);
+    }
+
+    private long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    @Test
+    public void testGetPutRemove() {
+
+        ZpeTokenCache<Long> cache = createCache(0);
+        final long expiry = now() + 3600;
+
+        assertNull(cache.get("token1"));
+        assertNull(cache.put("token1", expiry));
+        assertEquals(cache.get("token1"), Long.valueOf(expiry));
+        assertTrue(cache.containsKey("token1"));
+        assertFalse(cache.containsKey("token2"));
+        assertFalse(cache.containsKey(10));
+        assertNull(cache.get(10));
+        assertEquals(cache.size(), 1);
+
+        // replacing the value returns the previous one
+
+        assertEquals(cache.put("token1", expiry + 10), Long.valueOf(expiry));
+        assertEquals(cache.get("token1"), Long.valueOf(expiry + 10));
+        assertEquals(cache.size(), 1);
+
+        assertNull(cache.remove("token2"));
+        assertNull(cache.remove(10));
+        assertEquals(cache.remove("token1"), Long.valueOf(expiry + 10));
+        assertTrue(cache.isEmpty());
+
+        cache.put("token1", expiry);
+        cache.put("token2", expiry);
+        cache.clear();
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testDigestKeys() {
+
+        ZpeTokenCache<Long> cache = createCache(0);
+        final String token = "v=Z1;d=coretech;r=readers;".repeat(100);
+        cache.put(token, now() + 3600);
+
+        Map.Entry<String, Long> entry = cache.entrySet().iterator().next();
+        assertEquals(entry.getKey(), ZpeTokenCache.digest(token));
+        assertEquals(entry.getKey().length(), 43);
+    }
+
+    @Test
+    public void testExpiredEntries() {
+
+        ZpeTokenCache<Long> cache = createCache(0);
+        final long now = now();
+
+        cache.put("expired1", now - 10);
+        cache.put("expired2", now - 5);
+        cache.put("valid", now + 3600);
+        assertEquals(cache.size(), 3);
+
+        // expired entries are not returned from the cache
+
+        assertNull(cache.get("expired1"));
+        assertEquals(cache.size(), 2);
+
+        cache.removeExpired(now);
+        assertEquals(cache.size(), 1);
+        assertNotNull(cache.get("valid"));
+    }
+
+    @Test
+    public void testAdmission() {
+
+        ZpeTokenCache<Long> cache = createCache(2);
+        assertEquals(cache.getMaxSize(), 2);
+        final long now = now();
+
+        // add two tokens that are frequently accessed
+
+        for (int i = 0; i < 3; i++) {
+            cache.get("token1");
+            cache.get("token2");
+        }
+        cache.put("token1", now + 100);
+        cache.put("token2", now + 200);
+
+        // a burst of unique tokens is not admitted into the cache
+
+        for (int i = 0; i < 10; i++) {
+            final String token = "burst" + i;
+            assertNull(cache.get(token));
+            cache.put(token, now + 300);
+            assertFalse(cache.containsKey(token));
+        }
+        assertEquals(cache.size(), 2);
+
+        // once a token is seen more frequently than the token that
+        // expires first, it replaces that token
+
+        for (int i = 0; i < 5; i++) {
+            cache.get("token3");
+        }
+        cache.put("token3", now + 300);
+        assertEquals(cache.size(), 2);
+        assertFalse(cache.containsKey("token1"));
+        assertTrue(cache.containsKey("token2"));
+        assertTrue(cache.containsKey("token3"));
+    }
+
+    @Test
+    public void testAdmissionExpiredEntries() {
+
+        ZpeTokenCache<Long> cache = createCache(2);
+        final long now = now();
+
+        for (int i = 0; i < 3; i++) {
+            cache.get("token1");
+        }
+        cache.put("token1", now - 10);
+        cache.put("token2", now + 100);
+
+        // the expired token is removed to make room for the new one
+        // regardless of its frequency
+
+        cache.put("token3", now + 100);
+        assertEquals(cache.size(), 2);
+        assertFalse(cache.containsKey("token1"));
+        assertTrue(cache.containsKey("token3"));
+    }
+
+    @Test
+    public void testFrequencyDecay() {
+
+        ZpeTokenCache<Long> cache = createCache(1);
+        final String digest = ZpeTokenCache.digest("token1");
+
+        cache.recordAccess(digest);
+        cache.recordAccess(digest);
+        assertEquals(cache.frequency(digest), 2);
+
+        // counters saturate at their max value
+
+        for (int i = 0; i < 20; i++) {
+            cache.recordAccess(digest);
+        }
+        assertEquals(cache.frequency(digest), 15);
+
+        // after recording enough samples all counters are halved
+
+        for (int i = 0; i < 640; i++) {
+            cache.recordAccess(ZpeTokenCache.digest("other" + i));
+        }
+        assertTrue(cache.frequency(digest) < 15);
+    }
+
+    @Test
+    public void testUnboundedCache() {
+
+        ZpeTokenCache<Long> cache = createCache(0);
+        final String digest = ZpeTokenCache.digest("token1");
+
+        // no frequencies are recorded for unbounded caches
+
+        cache.recordAccess(digest);
+        assertEquals(cache.frequency(digest), 0);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put("token" + i, now() + 100);
+        }
+        assertEquals(cache.size(), 100);
+
+        // setting the limit keeps the current entries
+
+        cache.setMaxSize(10);
+        assertEquals(cache.size(), 100);
+        cache.put("token100", now() + 100);
+        assertEquals(cache.size(), 100);
+    }
+}
@@ -541,6 +541,102 @@ public class TestZpeUpdPolLoader {
         monitor.run();
     }
 
+    @Test
+    public void testPolicyDirWatcher() throws Exception {
+
+        setupPolicyFiles("./src/test/resources/unit_test_zts_private_k0.pem",
+                "./src/test/resources/unit_test_zms_private_k0.pem", "0", "RS256", false);
+
+        final String watchDir = "./src/test/resources/watch_pol_dir/";
+        java.nio.file.Path dirPath = Paths.get(watchDir);
+        FileUtils.deleteDirectory(dirPath.toFile());
+        Files.createDirectory(dirPath);
+
+        ZpeUpdPolLoader loader = new ZpeUpdPolLoader(watchDir);
+        assertEquals(loader.getDomainCount(), 0);
+
+        ZpePolicyDirWatcher watcher = new ZpePolicyDirWatcher(loader, 100);
+        watcher.start();
+
+        // a new policy file is loaded without a directory scan
+
+        Files.copy(Paths.get(TEST_SIGNED_POL_GOOD_FILE), Paths.get(watchDir, TEST_POL_FILE));
+        for (int i = 0; i < 100 && loader.getDomainCount() == 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(loader.getDomainCount(), 1);
+        assertTrue(loader.getFileStatusMap().get(TEST_POL_FILE).validPolFile);
+        assertFalse(loader.getStandardRoleAllowMap("angler").isEmpty());
+
+        // deleting the file resets the domain maps
+
+        Files.delete(Paths.get(watchDir, TEST_POL_FILE));
+        for (int i = 0; i < 100 && loader.getFileStatusMap().containsKey(TEST_POL_FILE); i++) {
+            Thread.sleep(100);
+        }
+        assertNull(loader.getFileStatusMap().get(TEST_POL_FILE));
+        assertTrue(loader.getStandardRoleAllowMap("angler").isEmpty());
+
+        watcher.close();
+        loader.close();
+        FileUtils.deleteDirectory(dirPath.toFile());
+    }
+
+    @Test
+    public void testPolicyDirWatcherProcessEvents() throws Exception {
+
+        ZpeUpdPolLoader loader = new ZpeUpdPolLoader("./src/test/resources");
+        ZpePolicyDirWatcher watcher = new ZpePolicyDirWatcher(loader, 100);
+
+        @SuppressWarnings("unchecked")
+        java.nio.file.WatchEvent<java.nio.file.Path> polEvent = Mockito.mock(java.nio.file.WatchEvent.class);
+        Mockito.when(polEvent.kind()).thenReturn(java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY);
+        Mockito.when(polEvent.context()).thenReturn(Paths.get("angler.pol"));
+
+        @SuppressWarnings("unchecked")
+        java.nio.file.WatchEvent<java.nio.file.Path> tmpEvent = Mockito.mock(java.nio.file.WatchEvent.class);
+        Mockito.when(tmpEvent.kind()).thenReturn(java.nio.file.StandardWatchEventKinds.ENTRY_CREATE);
+        Mockito.when(tmpEvent.context()).thenReturn(Paths.get("angler.pol.tmp"));
+
+        java.nio.file.WatchKey key = Mockito.mock(java.nio.file.WatchKey.class);
+        Mockito.when(key.pollEvents()).thenReturn(List.of(polEvent, tmpEvent));
+
+        Set<String> fileNames = new HashSet<>();
+        assertFalse(watcher.processEvents(key, fileNames));
+        assertEquals(fileNames, Set.of("angler.pol"));
+
+        @SuppressWarnings("unchecked")
+        java.nio.file.WatchEvent<Object> overflowEvent = Mockito.mock(java.nio.file.WatchEvent.class);
+        Mockito.when(overflowEvent.kind()).thenReturn(java.nio.file.StandardWatchEventKinds.OVERFLOW);
+        Mockito.when(key.pollEvents()).thenReturn(List.of(overflowEvent));
+
+        fileNames.clear();
+        assertTrue(watcher.processEvents(key, fileNames));
+        assertTrue(fileNames.isEmpty());
+
+        watcher.close();
+        loader.close();
+    }
+
+    @Test
+    public void testStartWithPolicyDirWatcher() throws Exception {
+
+        boolean savedValue = ZpeUpdPolLoader.watchPolicyDir;
+        ZpeUpdPolLoader.watchPolicyDir = true;
+
+        // with an invalid directory we fall back to the periodic scan
+
+        ZpeUpdPolLoader loader = new ZpeUpdPolLoader("./noexist");
+        loader.start();
+        loader.close();
+
+        loader = new ZpeUpdPolLoader("./src/test/resources");
+        loader.start();
+        loader.close();
+
+        ZpeUpdPolLoader.watchPolicyDir = savedValue;
+    }
+
     @Test
     public void testGetDERSignatureInvalidHeader() {
         ZpeUpdPolLoader loader = new ZpeUpdPolLoader(TEST_POL_DIR);
@@ -27,6 +27,12 @@ public class AccessTokenResponseCacheEntry {
         this.serverExpirySecs = accessTokenResponse.getExpires_in();
     }
 
+    AccessTokenResponseCacheEntry(AccessTokenResponse accessTokenResponse, long expiryTime, long serverExpirySecs) {
+        this.accessTokenResponse = accessTokenResponse;
+        this.expiryTime = expiryTime;
+        this.serverExpirySecs = serverExpirySecs;
+    }
+
     public boolean isExpired(long expirySeconds) {
 
         // before returning our cache hit we need to make sure it
@@ -59,6 +59,7 @@ import org.apache.hc.core5.util.TimeValue;
 import org.apache.hc.core5.util.Timeout;
 import org.apache.hc.client5.http.DnsResolver;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http2.config.H2Config;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
 import org.bouncycastle.asn1.DERIA5String;
@@ -78,6 +79,7 @@ import com.yahoo.athenz.auth.impl.RoleAuthority;
 import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.auth.util.CryptoException;
 import com.yahoo.athenz.common.config.AthenzConfig;
+import com.yahoo.athenz.common.http.Http2ClassicHttpClient;
 import com.yahoo.athenz.common.utils.SSLUtils;
 import com.yahoo.athenz.common.utils.SSLUtils.ClientSSLContextBuilder;
 import com.yahoo.rdl.JSON;
@@ -108,6 +110,8 @@ public class ZTSClient implements Closeable {
     static private int tokenMinExpiryTime = 900;
     static private long prefetchInterval = 60; // seconds
     static private boolean prefetchAutoEnable = true;
+    static private int prefetchWorkerThreads = 0;
+    static private int prefetchJitterPercent = 10;
     static private String x509CsrDn = null;
     static private String x509CsrDomain = null;
     static private int reqReadTimeout = 30000;
@@ -133,6 +137,8 @@ public class ZTSClient implements Closeable {
     public static final String ZTS_CLIENT_PROP_HANDSHAKE_TIMEOUT         = "athenz.zts.client.handshake_timeout";
     public static final String ZTS_CLIENT_PROP_PREFETCH_SLEEP_INTERVAL   = "athenz.zts.client.prefetch_sleep_interval";
     public static final String ZTS_CLIENT_PROP_PREFETCH_AUTO_ENABLE      = "athenz.zts.client.prefetch_auto_enable";
+    public static final String ZTS_CLIENT_PROP_PREFETCH_WORKER_THREADS   = "athenz.zts.client.prefetch_worker_threads";
+    public static final String ZTS_CLIENT_PROP_PREFETCH_JITTER_PERCENT   = "athenz.zts.client.prefetch_jitter_percent";
     public static final String ZTS_CLIENT_PROP_X509CERT_DNS_NAME         = "athenz.zts.client.x509cert_dns_name";
     public static final String ZTS_CLIENT_PROP_X509CSR_DN                = "athenz.zts.client.x509csr_dn";
     public static final String ZTS_CLIENT_PROP_X509CSR_DOMAIN            = "athenz.zts.client.x509csr_domain";
@@ -162,6 +168,9 @@ public class ZTSClient implements Closeable {
     public static final String ZTS_CLIENT_PROP_MAX_RETRIES                      = "athenz.zts.client.http_pool_max_retries";
     public static final String ZTS_CLIENT_PROP_RETRY_TIMEOUT                    = "athenz.zts.client.http_pool_retry_timeout";
     public static final String ZTS_CLIENT_PROP_VALIDATE_AFTER_INACTIVITY        = "athenz.zts.client.http_pool_validate_after_inactivity";
+    public static final String ZTS_CLIENT_PROP_HTTP2_ENABLED                    = "athenz.zts.client.http2_enabled";
+    public static final String ZTS_CLIENT_PROP_HTTP2_MAX_CONCURRENT_STREAMS     = "athenz.zts.client.http2_max_concurrent_streams";
+    public static final String ZTS_CLIENT_PROP_HTTP2_INITIAL_WINDOW_SIZE        = "athenz.zts.client.http2_initial_window_size";
     public static final String ZTS_CLIENT_PROP_PRIVATE_KEY_STORE_FACTORY_CLASS  = "athenz.zts.client.private_keystore_factory_class";
     public static final String ZTS_CLIENT_PROP_CLIENT_PROTOCOL                  = "athenz.zts.client.client_ssl_protocol";
     public static final String ZTS_CLIENT_PKEY_STORE_FACTORY_CLASS              = "com.yahoo.athenz.auth.impl.FilePrivateKeyStoreFactory";
@@ -182,6 +191,7 @@ public class ZTSClient implements Closeable {
 
     private static final Queue<PrefetchTokenScheduledItem> PREFETCH_SCHEDULED_ITEMS = new ConcurrentLinkedQueue<>();
     private static Timer FETCH_TIMER;
+    private static volatile ZTSClientPrefetchScheduler PREFETCH_SCHEDULER;
     private static final Object TIMER_LOCK = new Object();
     static AtomicLong FETCHER_LAST_RUN_AT = new AtomicLong(-1);
     static final ClientKeyRefresherListener KEY_REFRESHER_LISTENER = new ClientKeyRefresherListener();
@@ -192,6 +202,7 @@ public class ZTSClient implements Closeable {
     private static AtomicReference<Set<String>> svcLoaderCacheKeys;
     private static final PrivateKeyStore PRIVATE_KEY_STORE = loadServicePrivateKey();
     private static ZTSAccessTokenFileLoader ztsAccessTokenFileLoader;
+    private static ZTSClientTokenDiskCache tokenDiskCache;
 
     enum TokenType {
         ROLE,
@@ -218,6 +229,11 @@ public class ZTSClient implements Closeable {
         // set the prefetch support
         
         setPrefetchAutoEnable(Boolean.parseBoolean(System.getProperty(ZTS_CLIENT_PROP_PREFETCH_AUTO_ENABLE, "true")));
+
+        // set the prefetch scheduler settings
+
+        setPrefetchScheduler(Integer.parseInt(System.getProperty(ZTS_CLIENT_PROP_PREFETCH_WORKER_THREADS, "0")),
+                Integer.parseInt(System.getProperty(ZTS_CLIENT_PROP_PREFETCH_JITTER_PERCENT, "10")));
         
         // disable the cache if configured
         
@@ -288,6 +304,22 @@ public class ZTSClient implements Closeable {
     public static void setPrefetchAutoEnable(boolean fetchState) {
         prefetchAutoEnable = fetchState;
     }
+
+    /**
+     * Configure the prefetch scheduler. By default, all prefetch items are
+     * checked and refreshed serially by a single timer thread every prefetch
+     * interval. If the number of worker threads is positive, then the items
+     * are refreshed by a scheduler that orders them by their refresh time
+     * and refreshes the due items in parallel with the given number of
+     * threads. The setting only applies if the prefetch has not started yet.
+     * @param workerThreads number of refresh worker threads, 0 to use the timer
+     * @param jitterPercent percentage of the refresh interval used as random
+     *      jitter for the refresh times of the scheduler
+     */
+    public static void setPrefetchScheduler(int workerThreads, int jitterPercent) {
+        prefetchWorkerThreads = workerThreads;
+        prefetchJitterPercent = jitterPercent;
+    }
     
     /**
      * Set the prefetch interval. if the prefetch interval is longer than
@@ -369,6 +401,25 @@ public class ZTSClient implements Closeable {
         }
     }
 
+    public static void resetZTSTokenDiskCache() {
+        tokenDiskCache = null;
+    }
+
+    public static void initZTSTokenDiskCache() {
+
+        if (tokenDiskCache != null || cacheDisabled) {
+            return;
+        }
+
+        // if configured, warm up our in-memory caches with the tokens
+        // that were fetched before the process was restarted
+
+        tokenDiskCache = ZTSClientTokenDiskCache.create();
+        if (tokenDiskCache != null) {
+            tokenDiskCache.load(ROLE_TOKEN_CACHE, ACCESS_TOKEN_CACHE, AWS_CREDS_CACHE);
+        }
+    }
+
     public static void setAccessTokenSignKeyResolver(JwtsSigningKeyResolver keyResolver) {
         jwtsSigningKeyResolver = keyResolver;
     }
@@ -601,6 +652,10 @@ public class ZTSClient implements Closeable {
             FETCH_TIMER.cancel();
             FETCH_TIMER = null;
         }
+        if (PREFETCH_SCHEDULER != null) {
+            PREFETCH_SCHEDULER.shutdown();
+            PREFETCH_SCHEDULER = null;
+        }
     }
     
     /**
@@ -808,8 +863,13 @@ public class ZTSClient implements Closeable {
 
         // determine our read and connect timeouts
 
-        PoolingHttpClientConnectionManager connManager = createConnectionManager(sslContext, hostnameVerifier);
-        CloseableHttpClient httpClient = createHttpClient(proxyUrl, connManager);
+        CloseableHttpClient httpClient;
+        if (isHttp2Enabled(sslContext, proxyUrl)) {
+            httpClient = createHttp2Client(sslContext, hostnameVerifier);
+        } else {
+            PoolingHttpClientConnectionManager connManager = createConnectionManager(sslContext, hostnameVerifier);
+            httpClient = createHttpClient(proxyUrl, connManager);
+        }
 
         ztsClient = new ZTSRDLGeneratedClient(ztsUrl, httpClient);
         principal = identity;
@@ -826,12 +886,40 @@ public class ZTSClient implements Closeable {
             ztsClient.addCredentials(identity.getAuthority().getHeader(), identity.getCredentials());
         }
 
-        // initialize our static file loader object if we have not done so already
+        // initialize our static file loader and disk cache objects if we have not done so already
         // there is no real need to provide extensive synchronization here since
         // the application must only create a single zts client object during startup
         // and use it throughout the life of the application
 
         initZTSAccessTokenFileLoader(ztsUrl, sslContext);
+        initZTSTokenDiskCache();
+    }
+
+    boolean isHttp2Enabled(SSLContext sslContext, final String proxyUrl) {
+
+        // http/2 is only supported for direct tls connections to zts
+
+        return sslContext != null && isEmpty(proxyUrl)
+                && Boolean.parseBoolean(System.getProperty(ZTS_CLIENT_PROP_HTTP2_ENABLED, "false"));
+    }
+
+    CloseableHttpClient createHttp2Client(SSLContext sslContext, HostnameVerifier hostnameVerifier) {
+
+        // all requests are multiplexed over a single connection so the
+        // number of concurrent streams and the flow control window size
+        // replace the connection pool settings
+
+        int maxConcurrentStreams = Integer.parseInt(System.getProperty(ZTS_CLIENT_PROP_HTTP2_MAX_CONCURRENT_STREAMS, "100"));
+        int initialWindowSize = Integer.parseInt(System.getProperty(ZTS_CLIENT_PROP_HTTP2_INITIAL_WINDOW_SIZE, "65535"));
+
+        H2Config h2Config = H2Config.custom()
+                .setPushEnabled(false)
+                .setMaxConcurrentStreams(maxConcurrentStreams)
+                .setInitialWindowSize(initialWindowSize)
+                .build();
+
+        return Http2ClassicHttpClient.create(sslContext, hostnameVerifier, h2Config,
+                reqConnectTimeout, reqReadTimeout, dnsResolver);
     }
 
     PoolingHttpClientConnectionManager createConnectionManager(SSLContext sslContext, HostnameVerifier hostnameVerifier) {
@@ -1216,6 +1304,9 @@ public class ZTSClient implements Closeable {
             }
             if (cacheKey != null) {
                 ROLE_TOKEN_CACHE.put(cacheKey, roleToken);
+                if (tokenDiskCache != null) {
+                    tokenDiskCache.putRoleToken(cacheKey, roleToken);
+                }
             }
         }
         return roleToken;
@@ -1392,7 +1483,11 @@ public class ZTSClient implements Closeable {
                         proxyForPrincipal, authorizationDetails, proxyPrincipalSpiffeUris);
             }
             if (cacheKey != null) {
-                ACCESS_TOKEN_CACHE.put(cacheKey, new AccessTokenResponseCacheEntry(accessTokenResponse));
+                AccessTokenResponseCacheEntry cacheEntry = new AccessTokenResponseCacheEntry(accessTokenResponse);
+                ACCESS_TOKEN_CACHE.put(cacheKey, cacheEntry);
+                if (tokenDiskCache != null) {
+                    tokenDiskCache.putAccessToken(cacheKey, cacheEntry);
+                }
             }
         }
 
@@ -1715,18 +1810,22 @@ public class ZTSClient implements Closeable {
                 x509CsrDn, csrDomain, expiryTime);
     }
     
+    static ZTSClient createPrefetchClient(PrefetchTokenScheduledItem item) {
+
+        ZTSClient client;
+        if (item.sslContext != null) {
+            client = new ZTSClient(item.providedZTSUrl, item.proxyUrl, item.sslContext);
+        } else {
+            client = new ZTSClient(item.providedZTSUrl, item.proxyUrl, item.identityDomain,
+                    item.identityName, item.siaProvider);
+        }
+        return client;
+    }
+
     static class TokenPrefetchTask extends TimerTask {
         
         ZTSClient getZTSClient(PrefetchTokenScheduledItem item) {
-            
-            ZTSClient client;
-            if (item.sslContext != null) {
-                client = new ZTSClient(item.providedZTSUrl, item.proxyUrl, item.sslContext);
-            } else {
-                client = new ZTSClient(item.providedZTSUrl, item.proxyUrl, item.identityDomain,
-                        item.identityName, item.siaProvider);
-            }
-            return client;
+            return createPrefetchClient(item);
         }
 
         boolean shouldRefresh(TokenType tokenType, long currentTime, long lastFetchTime,
@@ -1977,8 +2076,16 @@ public class ZTSClient implements Closeable {
         return PREFETCH_SCHEDULED_ITEMS.size();
     }
 
+    // method useful for test purposes only
+    static ZTSClientPrefetchScheduler getPrefetchScheduler() {
+        return PREFETCH_SCHEDULER;
+    }
+
     // method useful for test purposes only
     void clearScheduledItems() {
+        for (PrefetchTokenScheduledItem item : PREFETCH_SCHEDULED_ITEMS) {
+            item.setIsCancelled(true);
+        }
         PREFETCH_SCHEDULED_ITEMS.clear();
     }
 
@@ -2024,8 +2131,20 @@ public class ZTSClient implements Closeable {
             throw new ZTSClientException(ClientResourceException.BAD_REQUEST, "Domain Name cannot be empty");
         }
         
-        RoleToken token = getRoleToken(domainName, roleName, minExpiryTime, maxExpiryTime,
-                true, proxyForPrincipal);
+        // if the in-memory cache was warmed up from the token disk cache
+        // then we only need to contact ZTS if the token is missing or
+        // about to expire. Otherwise, we always fetch a fresh token
+
+        RoleToken token = null;
+        if (tokenDiskCache != null && !cacheDisabled) {
+            final String cacheKey = getRoleTokenCacheKey(domainName, roleName, proxyForPrincipal);
+            if (cacheKey != null) {
+                token = lookupRoleTokenInCache(cacheKey, minExpiryTime, maxExpiryTime, tokenMinExpiryTime);
+            }
+        }
+        if (token == null) {
+            token = getRoleToken(domainName, roleName, minExpiryTime, maxExpiryTime, true, proxyForPrincipal);
+        }
         if (token == null) {
             LOG.error("PrefetchToken: No token fetchable using domain={}, roleSuffix={}",
                         domainName, roleName);
@@ -2045,8 +2164,17 @@ public class ZTSClient implements Closeable {
             throw new ZTSClientException(ClientResourceException.BAD_REQUEST, "Domain Name cannot be empty");
         }
 
-        AWSTemporaryCredentials awsCred = getAWSTemporaryCredentials(domainName, roleName,
-                externalId, minExpiryTime, maxExpiryTime, true);
+        AWSTemporaryCredentials awsCred = null;
+        if (tokenDiskCache != null) {
+            final String cacheKey = getRoleTokenCacheKey(domainName, roleName, null);
+            if (cacheKey != null) {
+                awsCred = lookupAwsCredInCache(cacheKey, minExpiryTime, maxExpiryTime);
+            }
+        }
+        if (awsCred == null) {
+            awsCred = getAWSTemporaryCredentials(domainName, roleName, externalId,
+                    minExpiryTime, maxExpiryTime, true);
+        }
         if (awsCred == null) {
             LOG.error("PrefetchToken: No aws credential fetchable using domain={}, roleName={}",
                         domainName, roleName);
@@ -2067,8 +2195,18 @@ public class ZTSClient implements Closeable {
             throw new ZTSClientException(ClientResourceException.BAD_REQUEST, "Domain Name cannot be empty");
         }
 
-        AccessTokenResponse tokenResponse = getAccessToken(domainName, roleNames, idTokenServiceName,
-                proxyForPrincipal, authorizationDetails, proxyPrincipalSpiffeUris, expiryTime, true);
+        AccessTokenResponse tokenResponse = null;
+        if (tokenDiskCache != null && !cacheDisabled) {
+            final String cacheKey = getAccessTokenCacheKey(domainName, roleNames, idTokenServiceName,
+                    proxyForPrincipal, authorizationDetails, proxyPrincipalSpiffeUris);
+            if (cacheKey != null) {
+                tokenResponse = lookupAccessTokenResponseInCache(cacheKey, expiryTime);
+            }
+        }
+        if (tokenResponse == null) {
+            tokenResponse = getAccessToken(domainName, roleNames, idTokenServiceName, proxyForPrincipal,
+                    authorizationDetails, proxyPrincipalSpiffeUris, expiryTime, true);
+        }
         if (tokenResponse == null) {
             LOG.error("PrefetchToken: No access token fetchable using domain={}", domainName);
             return false;
@@ -2149,17 +2287,7 @@ public class ZTSClient implements Closeable {
              item.setZtsClient(this.ztsClient);
         }
 
-        // we need to make sure we don't have duplicates in
-        // our prefetch list so since we got a brand-new
-        // token now we're going to remove any others we have
-        // in the list and add this one. Our item's equals
-        // method defines what attributes we're looking for
-        // when comparing two items.
-
-        PREFETCH_SCHEDULED_ITEMS.remove(item);
-        PREFETCH_SCHEDULED_ITEMS.add(item);
-
-        startPrefetch();
+        schedulePrefetchItem(item);
         return true;
     }
 
@@ -2369,6 +2497,9 @@ public class ZTSClient implements Closeable {
 
             if (expiryTime < 1) {
                 ROLE_TOKEN_CACHE.remove(cacheKey);
+                if (tokenDiskCache != null) {
+                    tokenDiskCache.remove(cacheKey);
+                }
             }
 
             return null;
@@ -2395,6 +2526,9 @@ public class ZTSClient implements Closeable {
         if (accessTokenResponseCacheEntry.isExpired(expiryTime)) {
             if (accessTokenResponseCacheEntry.isExpired(-1)) {
                 ACCESS_TOKEN_CACHE.remove(cacheKey);
+                if (tokenDiskCache != null) {
+                    tokenDiskCache.remove(cacheKey);
+                }
             }
             return null;
         }
@@ -2431,6 +2565,9 @@ public class ZTSClient implements Closeable {
 
             if (expiryTime < 1) {
                 AWS_CREDS_CACHE.remove(cacheKey);
+                if (tokenDiskCache != null) {
+                    tokenDiskCache.remove(cacheKey);
+                }
             }
             return null;
         }
@@ -2959,6 +3096,9 @@ public class ZTSClient implements Closeable {
             }
             if (cacheKey != null) {
                 AWS_CREDS_CACHE.put(cacheKey, awsCred);
+                if (tokenDiskCache != null) {
+                    tokenDiskCache.putAWSCredentials(cacheKey, awsCred);
+                }
             }
         }
         return awsCred;
@@ -3565,6 +3705,12 @@ public class ZTSClient implements Closeable {
             isInvalid = invalid;
             return this;
         }
+
+        volatile boolean isCancelled = false;
+        PrefetchTokenScheduledItem setIsCancelled(boolean cancelled) {
+            isCancelled = cancelled;
+            return this;
+        }
         
         String identityDomain;
         PrefetchTokenScheduledItem setIdentityDomain(String d) {
@@ -3916,7 +4062,7 @@ public class ZTSClient implements Closeable {
         }
     }
     
-    private static Set<String> loadSvcProviderTokens() {
+    static Set<String> loadSvcProviderTokens() {
         
         ztsTokenProviders = ServiceLoader.load(ZTSClientService.class);
         svcLoaderCacheKeys = new AtomicReference<>();
@@ -4073,30 +4219,56 @@ public class ZTSClient implements Closeable {
             .setIdentityName(service)
             .setTokenMinExpiryTime(ZTSClient.tokenMinExpiryTime);
 
+        schedulePrefetchItem(item);
+    }
+
+    static void schedulePrefetchItem(PrefetchTokenScheduledItem item) {
+
         // we need to make sure we don't have duplicates in
-        // our prefetch list so since we got a brand new
+        // our prefetch list so since we got a brand-new
         // token now we're going to remove any others we have
-        // in the list and add this one. Our items equal
+        // in the list and add this one. Our item's equals
         // method defines what attributes we're looking for
-        // when comparing two items
-
-        PREFETCH_SCHEDULED_ITEMS.remove(item);
+        // when comparing two items. The removed items are
+        // marked as cancelled so the prefetch scheduler
+        // does not refresh them anymore
+
+        Iterator<PrefetchTokenScheduledItem> iterator = PREFETCH_SCHEDULED_ITEMS.iterator();
+        while (iterator.hasNext()) {
+            PrefetchTokenScheduledItem scheduledItem = iterator.next();
+            if (scheduledItem.equals(item)) {
+                scheduledItem.setIsCancelled(true);
+                iterator.remove();
+            }
+        }
         PREFETCH_SCHEDULED_ITEMS.add(item);
 
         startPrefetch();
+
+        ZTSClientPrefetchScheduler scheduler = PREFETCH_SCHEDULER;
+        if (scheduler != null) {
+            scheduler.schedule(item);
+        }
     }
 
     static void startPrefetch() {
 
-        if (FETCH_TIMER != null) {
+        if (FETCH_TIMER != null || PREFETCH_SCHEDULER != null) {
             return;
         }
 
         synchronized (TIMER_LOCK) {
-            if (FETCH_TIMER == null) {
-                FETCH_TIMER = new Timer(true);
-                // check the fetch items every prefetchInterval seconds.
-                FETCH_TIMER.schedule(new TokenPrefetchTask(), 0, prefetchInterval * 1000);
+            if (FETCH_TIMER == null && PREFETCH_SCHEDULER == null) {
+                if (prefetchWorkerThreads > 0) {
+                    ZTSClientPrefetchScheduler scheduler = new ZTSClientPrefetchScheduler(prefetchWorkerThreads,
+                            prefetchJitterPercent, prefetchInterval);
+                    scheduler.start();
+                    PREFETCH_SCHEDULER = scheduler;
+                } else {
+                    FETCH_TIMER = new Timer(true);
+                    // check the fetch items every prefetchInterval seconds.
+                    FETCH_TIMER.schedule(new TokenPrefetchTask(), 0, prefetchInterval * 1000);
+                }
             }
         }
     }
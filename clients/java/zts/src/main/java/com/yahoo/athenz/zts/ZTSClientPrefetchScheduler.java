@@ -0,0 +1,327 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Token prefetch scheduler that keeps the scheduled items in a time ordered
+ * queue based on their next refresh time. A single dispatcher thread waits
+ * for the next item to become due and hands it off to a fixed pool of
+ * worker threads, so one slow ZTS call does not delay the refresh of
+ * other tokens. The refresh times are jittered so that a fleet of clients
+ * that fetched their tokens at the same time does not refresh them in
+ * lockstep. ZTS clients for items with a ssl context are pooled and reused
+ * until the certificate is refreshed.
+ */
+class ZTSClientPrefetchScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ZTSClientPrefetchScheduler.class);
+
+    private final DelayQueue<ScheduledRefresh> refreshQueue = new DelayQueue<>();
+    private final ExecutorService workers;
+    private final Thread dispatcher;
+    private final ClientPool clientPool = new ClientPool();
+    private final int jitterPercent;
+    private final long minRefreshInterval;
+    private long lastCertRefreshTime;
+    private volatile boolean running = true;
+
+    /**
+     * Create the prefetch scheduler
+     * @param workerThreads number of threads refreshing tokens in parallel
+     * @param jitterPercent percentage of the refresh interval used as the
+     *      random jitter when computing the next refresh time
+     * @param minRefreshInterval minimum interval in seconds between two
+     *      refresh attempts of the same item
+     */
+    ZTSClientPrefetchScheduler(int workerThreads, int jitterPercent, long minRefreshInterval) {
+
+        this.jitterPercent = Math.max(0, Math.min(jitterPercent, 100));
+        this.minRefreshInterval = Math.max(1, minRefreshInterval);
+        lastCertRefreshTime = ZTSClient.KEY_REFRESHER_LISTENER.getLastCertRefreshTime();
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "zts-client-prefetch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        dispatcher = new Thread(this::dispatch, "zts-client-prefetch-dispatcher");
+        dispatcher.setDaemon(true);
+    }
+
+    /**
+     * Start the dispatcher thread to refresh the scheduled items
+     */
+    void start() {
+        dispatcher.start();
+    }
+
+    /**
+     * Schedule the given item for refresh based on its fetch and expiry times
+     * @param item prefetch item to schedule
+     */
+    void schedule(ZTSClient.PrefetchTokenScheduledItem item) {
+        final long currentTime = System.currentTimeMillis() / 1000;
+        refreshQueue.add(new ScheduledRefresh(item, nextRefreshTime(item, currentTime)));
+    }
+
+    /**
+     * Stop the dispatcher and worker threads and close all pooled clients.
+     */
+    void shutdown() {
+        running = false;
+        dispatcher.interrupt();
+        workers.shutdownNow();
+        refreshQueue.clear();
+        clientPool.retireAll();
+    }
+
+    int getQueueSize() {
+        return refreshQueue.size();
+    }
+
+    // method useful for test purposes only
+    ZTSClient.PrefetchTokenScheduledItem pollDueItem() {
+        ScheduledRefresh refresh = refreshQueue.poll();
+        return refresh == null ? null : refresh.item;
+    }
+
+    /**
+     * Calculate the next refresh time for the item. Same as the timer based
+     * prefetch task, the token is refreshed once we're halfway before its
+     * expiry time, or after a failure, halfway between the failure and the
+     * expiry times. The refresh time is moved earlier by a random jitter
+     * of up to the configured percentage of that interval.
+     * @param item prefetch item
+     * @param currentTime current time in seconds
+     * @return the next refresh time in seconds
+     */
+    long nextRefreshTime(ZTSClient.PrefetchTokenScheduledItem item, long currentTime) {
+
+        final long baseTime = item.lastFailTime == 0 ? item.fetchTime : item.lastFailTime;
+        final long interval = (item.expiresAtUTC - baseTime) / 2;
+        long refreshTime = baseTime + interval;
+
+        final long jitter = interval * jitterPercent / 100;
+        if (jitter > 0) {
+            refreshTime -= ThreadLocalRandom.current().nextLong(jitter + 1);
+        }
+
+        return Math.max(refreshTime, currentTime + minRefreshInterval);
+    }
+
+    void dispatch() {
+
+        List<ScheduledRefresh> dueItems = new ArrayList<>();
+        while (running) {
+
+            try {
+                ScheduledRefresh refresh = refreshQueue.poll(minRefreshInterval, TimeUnit.SECONDS);
+
+                final long currentTime = System.currentTimeMillis() / 1000;
+                ZTSClient.FETCHER_LAST_RUN_AT.set(currentTime);
+                checkCertRefresh();
+
+                if (refresh == null) {
+                    continue;
+                }
+
+                // collect all the items that are due now so we only
+                // reload our service provider tokens once
+
+                boolean svcTokenRefresh = false;
+                while (refresh != null) {
+                    if (isActive(refresh.item)) {
+                        dueItems.add(refresh);
+                        if (refresh.item.tokenType == ZTSClient.TokenType.SVC_ROLE) {
+                            svcTokenRefresh = true;
+                        }
+                    }
+                    refresh = refreshQueue.poll();
+                }
+
+                Set<String> svcLoaderCache = null;
+                if (svcTokenRefresh) {
+                    try {
+                        svcLoaderCache = ZTSClient.loadSvcProviderTokens();
+                    } catch (Exception ex) {
+                        LOG.error("Unable to load service provider tokens", ex);
+                    }
+                }
+
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("PrefetchScheduler: refreshing {} items, {} items scheduled",
+                            dueItems.size(), refreshQueue.size());
+                }
+
+                for (ScheduledRefresh dueItem : dueItems) {
+                    final Set<String> svcKeys = svcLoaderCache;
+                    workers.execute(() -> refresh(dueItem.item, svcKeys));
+                }
+                dueItems.clear();
+
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception ex) {
+                LOG.error("PrefetchScheduler: unable to dispatch items", ex);
+                dueItems.clear();
+            }
+        }
+    }
+
+    void refresh(ZTSClient.PrefetchTokenScheduledItem item, Set<String> svcLoaderCache) {
+
+        final long currentTime = System.currentTimeMillis() / 1000;
+        try {
+
+            // only items with a ssl context use a pooled client. for items
+            // with a service identity provider the client generates the
+            // principal credentials when it's created so we create a new
+            // client for every refresh. the same applies for the items with
+            // the zts client overridden by the caller since the prefetch
+            // task must replace the client during its processing
+
+            if (item.sslContext == null || item.ztsClient != null) {
+                try (ZTSClient itemZtsClient = ZTSClient.createPrefetchClient(item)) {
+                    ZTSClient.processPrefetchTask(item, itemZtsClient, svcLoaderCache, currentTime);
+                }
+            } else {
+                PooledClient pooledClient = clientPool.acquire(item);
+                try {
+                    ZTSClient.processPrefetchTask(item, pooledClient.client, svcLoaderCache, currentTime);
+                } finally {
+                    clientPool.release(pooledClient);
+                }
+            }
+        } catch (Exception ex) {
+            LOG.error("PrefetchScheduler: Error while trying to prefetch token", ex);
+            item.setLastFailTime(currentTime);
+        }
+
+        if (running && isActive(item)) {
+            schedule(item);
+        }
+    }
+
+    boolean isActive(ZTSClient.PrefetchTokenScheduledItem item) {
+        return !item.isInvalid && !item.isCancelled;
+    }
+
+    void checkCertRefresh() {
+
+        // if the ssl context has been modified since our last check
+        // then we need to refresh all access tokens since they are
+        // cert bound, and we must stop using our pooled clients since
+        // their connections were established with the old certificate
+
+        final long certRefreshTime = ZTSClient.KEY_REFRESHER_LISTENER.getLastCertRefreshTime();
+        if (certRefreshTime <= lastCertRefreshTime) {
+            return;
+        }
+        lastCertRefreshTime = certRefreshTime;
+
+        clientPool.retireAll();
+
+        List<ScheduledRefresh> accessTokens = new ArrayList<>();
+        refreshQueue.removeIf(refresh -> refresh.item.tokenType == ZTSClient.TokenType.ACCESS
+                && refresh.item.fetchTime < certRefreshTime && accessTokens.add(refresh));
+        for (ScheduledRefresh refresh : accessTokens) {
+            refreshQueue.add(new ScheduledRefresh(refresh.item, 0));
+        }
+    }
+
+    static class ScheduledRefresh implements Delayed {
+
+        final ZTSClient.PrefetchTokenScheduledItem item;
+        final long refreshTimeMillis;
+
+        ScheduledRefresh(ZTSClient.PrefetchTokenScheduledItem item, long refreshTime) {
+            this.item = item;
+            this.refreshTimeMillis = refreshTime * 1000;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(refreshTimeMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(refreshTimeMillis, ((ScheduledRefresh) other).refreshTimeMillis);
+        }
+    }
+
+    static class PooledClient {
+
+        final ZTSClient client;
+        int leases = 0;
+        boolean retired = false;
+
+        PooledClient(ZTSClient client) {
+            this.client = client;
+        }
+    }
+
+    static class ClientPool {
+
+        private final Map<List<Object>, PooledClient> clients = new HashMap<>();
+
+        synchronized PooledClient acquire(ZTSClient.PrefetchTokenScheduledItem item) {
+
+            // ssl context does not override equals so the clients
+            // are shared only between items with the same object
+
+            final List<Object> key = Arrays.asList(item.providedZTSUrl, item.proxyUrl, item.sslContext);
+            PooledClient pooledClient = clients.get(key);
+            if (pooledClient == null) {
+                pooledClient = new PooledClient(ZTSClient.createPrefetchClient(item));
+                clients.put(key, pooledClient);
+            }
+            pooledClient.leases++;
+            return pooledClient;
+        }
+
+        synchronized void release(PooledClient pooledClient) {
+            pooledClient.leases--;
+            if (pooledClient.retired && pooledClient.leases == 0) {
+                pooledClient.client.close();
+            }
+        }
+
+        synchronized void retireAll() {
+            for (PooledClient pooledClient : clients.values()) {
+                pooledClient.retired = true;
+                if (pooledClient.leases == 0) {
+                    pooledClient.client.close();
+                }
+            }
+            clients.clear();
+        }
+
+        synchronized int size() {
+            return clients.size();
+        }
+    }
+}
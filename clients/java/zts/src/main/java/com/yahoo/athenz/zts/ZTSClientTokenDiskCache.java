@@ -0,0 +1,428 @@
+/*
+ * Copyright The Athenz Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yahoo.athenz.auth.token.AccessToken;
+import com.yahoo.athenz.auth.token.jwts.JwtsSigningKeyResolver;
+import com.yahoo.athenz.auth.util.Crypto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Optional persistent second level cache for the tokens and credentials
+ * fetched by {@link ZTSClient}. Every token added to the in-memory caches
+ * is also written to the configured directory so that when the process is
+ * restarted, the in-memory caches are warmed up with the tokens that are
+ * still valid instead of requesting all of them from ZTS again.<br><br>
+ *
+ * Each entry is stored in its own file encrypted with AES-GCM. The name of
+ * the file is the hash of the cache key and is also used as the additional
+ * authenticated data, so entries cannot be swapped between files. The key
+ * should be configured with {@link #ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_KEY_PATH}
+ * and stored outside the cache directory. If no key file is configured, a
+ * random key is generated and stored in the cache directory next to the
+ * entries: in that mode the encryption is only obfuscation and anyone who
+ * can read the cache directory can also decrypt the tokens, so the cache
+ * relies entirely on the directory permissions. Entries are removed from the
+ * disk when they expire and are evicted from the in-memory caches.
+ * Access tokens that are bound to an X.509 certificate are only
+ * loaded if the certificate configured with {@link #ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_CERT_PATH}
+ * is the one the token was issued for.<br><br>
+ *
+ * To enable the cache, set the system property {@link #ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_PATH}
+ * to a directory that is only accessible by the service.
+ */
+public class ZTSClientTokenDiskCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ZTSClientTokenDiskCache.class);
+
+    public static final String ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_PATH      = "athenz.zts.client.token_disk_cache_path";
+    public static final String ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_KEY_PATH  = "athenz.zts.client.token_disk_cache_key_path";
+    public static final String ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_CERT_PATH = "athenz.zts.client.token_disk_cache_cert_path";
+
+    static final String TYPE_ROLE_TOKEN   = "role";
+    static final String TYPE_ACCESS_TOKEN = "access";
+    static final String TYPE_AWS_CREDS    = "aws";
+
+    private static final String KEY_FILE_NAME = ".cache.key";
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+    private static final int AES_KEY_LENGTH = 32;
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_LENGTH = 128;
+    private static final String TEMP_FILE_PREFIX = ".tmp";
+    private static final long TEMP_FILE_MAX_AGE_MS = 60000;
+
+    private final File cacheDir;
+    private final SecretKey secretKey;
+    private final ObjectMapper jsonMapper;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final Map<String, String> entryHashes = new ConcurrentHashMap<>();
+    private final String certPath;
+
+    /**
+     * Single cache entry as stored on disk
+     */
+    static class CacheEntry {
+        public String type;
+        public String key;
+        public long expiryTime;
+        public long serverExpirySecs;
+        public String certHash;
+        public String value;
+    }
+
+    /**
+     * Create the disk cache based on the configured system properties
+     * @return disk cache object or null if the cache is not configured
+     *      or could not be initialized
+     */
+    static ZTSClientTokenDiskCache create() {
+
+        final String cachePath = System.getProperty(ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_PATH);
+        if (cachePath == null || cachePath.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return new ZTSClientTokenDiskCache(cachePath,
+                    System.getProperty(ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_KEY_PATH),
+                    System.getProperty(ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_CERT_PATH));
+        } catch (Exception ex) {
+            LOG.error("Unable to initialize token disk cache {}: {}", cachePath, ex.getMessage());
+            return null;
+        }
+    }
+
+    ZTSClientTokenDiskCache(final String cachePath, final String keyPath, final String certPath) throws IOException {
+
+        cacheDir = new File(cachePath);
+        if (!cacheDir.exists()) {
+            Files.createDirectories(cacheDir.toPath());
+            setOwnerOnlyPermissions(cacheDir.toPath(), true);
+        } else if (!cacheDir.isDirectory()) {
+            throw new IOException("token cache path is not a directory: " + cachePath);
+        }
+
+        if (keyPath == null || keyPath.isEmpty()) {
+            LOG.warn("No {} configured, token disk cache key is stored in {} and only obfuscates the entries",
+                    ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_KEY_PATH, cachePath);
+            secretKey = loadSecretKey(new File(cacheDir, KEY_FILE_NAME));
+        } else {
+            secretKey = loadSecretKey(new File(keyPath));
+        }
+
+        jsonMapper = new ObjectMapper();
+        jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        this.certPath = certPath;
+    }
+
+    public void putRoleToken(final String cacheKey, RoleToken roleToken) {
+        put(TYPE_ROLE_TOKEN, cacheKey, roleToken, roleToken.getExpiryTime(), 0, null);
+    }
+
+    public void putAccessToken(final String cacheKey, AccessTokenResponseCacheEntry cacheEntry) {
+        AccessTokenResponse accessTokenResponse = cacheEntry.accessTokenResponse();
+        put(TYPE_ACCESS_TOKEN, cacheKey, accessTokenResponse, cacheEntry.expiryTime,
+                cacheEntry.serverExpirySecs, getAccessTokenCertHash(accessTokenResponse.getAccess_token()));
+    }
+
+    public void putAWSCredentials(final String cacheKey, AWSTemporaryCredentials awsCreds) {
+        if (awsCreds.getExpiration() == null) {
+            return;
+        }
+        put(TYPE_AWS_CREDS, cacheKey, awsCreds, awsCreds.getExpiration().millis() / 1000, 0, null);
+    }
+
+    /**
+     * Remove the entry for the given key from the disk cache. Called when
+     * the token is evicted from the in-memory cache so that expired tokens
+     * do not stay on the disk until the next restart.
+     * @param cacheKey cache key of the token
+     */
+    public void remove(final String cacheKey) {
+        final String fileName = entryHashes.remove(cacheKey);
+        deleteFile(new File(cacheDir, fileName != null ? fileName : getFileName(cacheKey)));
+    }
+
+    /**
+     * Load all valid entries from the disk cache into the given in-memory
+     * caches. Expired entries and entries that cannot be decrypted or are
+     * bound to a different certificate are removed from the disk along with
+     * any temporary files left behind by an interrupted write.
+     * @param roleTokenCache in-memory role token cache
+     * @param accessTokenCache in-memory access token cache
+     * @param awsCredsCache in-memory aws credentials cache
+     * @return number of entries loaded
+     */
+    public int load(Map<String, RoleToken> roleTokenCache, Map<String, AccessTokenResponseCacheEntry> accessTokenCache,
+            Map<String, AWSTemporaryCredentials> awsCredsCache) {
+
+        File[] files = cacheDir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+
+        final long now = System.currentTimeMillis() / 1000;
+        final String currentCertHash = getCurrentCertHash();
+
+        int count = 0;
+        for (File file : files) {
+
+            // we are going to skip any hidden files including our key.
+            // temporary files are removed unless they're recent enough
+            // to be still written by another process sharing the directory
+
+            final String fileName = file.getName();
+            if (fileName.startsWith(TEMP_FILE_PREFIX)) {
+                if (file.lastModified() < System.currentTimeMillis() - TEMP_FILE_MAX_AGE_MS) {
+                    deleteFile(file);
+                }
+                continue;
+            }
+            if (fileName.charAt(0) == '.' || !file.isFile()) {
+                continue;
+            }
+
+            CacheEntry entry = readEntry(file);
+            if (entry == null || entry.expiryTime <= now) {
+                deleteFile(file);
+                continue;
+            }
+
+            if (!loadEntry(entry, currentCertHash, roleTokenCache, accessTokenCache, awsCredsCache)) {
+                deleteFile(file);
+                continue;
+            }
+
+            entryHashes.put(entry.key, fileName);
+            count += 1;
+        }
+
+        LOG.info("Loaded {} entries from token disk cache {}", count, cacheDir.getPath());
+        return count;
+    }
+
+    boolean loadEntry(CacheEntry entry, final String currentCertHash, Map<String, RoleToken> roleTokenCache,
+            Map<String, AccessTokenResponseCacheEntry> accessTokenCache, Map<String, AWSTemporaryCredentials> awsCredsCache) {
+
+        try {
+            switch (entry.type) {
+                case TYPE_ROLE_TOKEN:
+                    roleTokenCache.putIfAbsent(entry.key, jsonMapper.readValue(entry.value, RoleToken.class));
+                    return true;
+                case TYPE_ACCESS_TOKEN:
+
+                    // access tokens that are bound to a certificate are only
+                    // usable if the service is still using the same certificate
+
+                    if (entry.certHash != null && !entry.certHash.equals(currentCertHash)) {
+                        LOG.info("Skipping access token {} bound to a different certificate", entry.key);
+                        return false;
+                    }
+                    AccessTokenResponse accessTokenResponse = jsonMapper.readValue(entry.value,
+                            AccessTokenResponse.class);
+                    accessTokenCache.putIfAbsent(entry.key, new AccessTokenResponseCacheEntry(accessTokenResponse,
+                            entry.expiryTime, entry.serverExpirySecs));
+                    return true;
+                case TYPE_AWS_CREDS:
+                    awsCredsCache.putIfAbsent(entry.key, jsonMapper.readValue(entry.value,
+                            AWSTemporaryCredentials.class));
+                    return true;
+                default:
+                    LOG.error("Unknown token disk cache entry type {}", entry.type);
+                    return false;
+            }
+        } catch (Exception ex) {
+            LOG.error("Unable to parse token disk cache entry {}: {}", entry.key, ex.getMessage());
+            return false;
+        }
+    }
+
+    void put(final String type, final String cacheKey, Object value, long expiryTime,
+            long serverExpirySecs, final String certHash) {
+
+        try {
+            CacheEntry entry = new CacheEntry();
+            entry.type = type;
+            entry.key = cacheKey;
+            entry.expiryTime = expiryTime;
+            entry.serverExpirySecs = serverExpirySecs;
+            entry.certHash = certHash;
+            entry.value = jsonMapper.writeValueAsString(value);
+
+            final String fileName = entryHashes.computeIfAbsent(cacheKey, ZTSClientTokenDiskCache::getFileName);
+            final byte[] data = encrypt(jsonMapper.writeValueAsBytes(entry), fileName);
+
+            // write the data into a temporary file first and then move it
+            // to its final location so readers never see a partial entry
+
+            Path tempFile = Files.createTempFile(cacheDir.toPath(), TEMP_FILE_PREFIX, null);
+            try {
+                setOwnerOnlyPermissions(tempFile, false);
+                Files.write(tempFile, data);
+                Files.move(tempFile, new File(cacheDir, fileName).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (Exception ex) {
+            LOG.error("Unable to write token disk cache entry {}: {}", cacheKey, ex.getMessage());
+        }
+    }
+
+    CacheEntry readEntry(File file) {
+
+        try {
+            final byte[] data = decrypt(Files.readAllBytes(file.toPath()), file.getName());
+            CacheEntry entry = jsonMapper.readValue(data, CacheEntry.class);
+
+            // make sure the entry was stored for the key that it claims
+
+            if (entry.key == null || entry.type == null || !file.getName().equals(getFileName(entry.key))) {
+                LOG.error("Invalid token disk cache entry {}", file.getName());
+                return null;
+            }
+            return entry;
+        } catch (Exception ex) {
+            LOG.error("Unable to read token disk cache entry {}: {}", file.getName(), ex.getMessage());
+            return null;
+        }
+    }
+
+    byte[] encrypt(final byte[] data, final String fileName) throws Exception {
+
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        secureRandom.nextBytes(iv);
+
+        Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+        cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+        cipher.updateAAD(fileName.getBytes(StandardCharsets.UTF_8));
+        final byte[] encrypted = cipher.doFinal(data);
+
+        byte[] result = new byte[iv.length + encrypted.length];
+        System.arraycopy(iv, 0, result, 0, iv.length);
+        System.arraycopy(encrypted, 0, result, iv.length, encrypted.length);
+        return result;
+    }
+
+    byte[] decrypt(final byte[] data, final String fileName) throws Exception {
+
+        Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+        cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, data, 0, GCM_IV_LENGTH));
+        cipher.updateAAD(fileName.getBytes(StandardCharsets.UTF_8));
+        return cipher.doFinal(data, GCM_IV_LENGTH, data.length - GCM_IV_LENGTH);
+    }
+
+    SecretKey loadSecretKey(File keyFile) throws IOException {
+
+        if (keyFile.exists()) {
+            final byte[] key = Base64.getDecoder().decode(new String(Files.readAllBytes(keyFile.toPath()),
+                    StandardCharsets.UTF_8).trim());
+            if (key.length != 16 && key.length != 24 && key.length != AES_KEY_LENGTH) {
+                throw new IOException("invalid token cache key length: " + key.length);
+            }
+            return new SecretKeySpec(key, "AES");
+        }
+
+        // generate a new random key and store it with owner only permissions
+
+        byte[] key = new byte[AES_KEY_LENGTH];
+        secureRandom.nextBytes(key);
+
+        Files.createFile(keyFile.toPath());
+        setOwnerOnlyPermissions(keyFile.toPath(), false);
+        Files.write(keyFile.toPath(), Base64.getEncoder().encode(key));
+        return new SecretKeySpec(key, "AES");
+    }
+
+    String getCurrentCertHash() {
+
+        if (certPath == null || certPath.isEmpty()) {
+            return null;
+        }
+
+        try {
+            X509Certificate cert = Crypto.loadX509Certificate(new File(certPath));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Crypto.sha256(cert.getEncoded()));
+        } catch (Exception ex) {
+            LOG.error("Unable to load certificate {}: {}", certPath, ex.getMessage());
+            return null;
+        }
+    }
+
+    static String getAccessTokenCertHash(final String token) {
+
+        if (token == null) {
+            return null;
+        }
+
+        // parse the access token without validating the signature
+        // since we only need the confirmation claim
+
+        int idx = token.lastIndexOf('.');
+        final String tokenWithoutSignature = (idx == -1) ? token : token.substring(0, idx + 1);
+        try {
+            AccessToken accessToken = new AccessToken(tokenWithoutSignature, (JwtsSigningKeyResolver) null);
+            Object certHash = accessToken.getConfirmEntry(AccessToken.CLAIM_CONFIRM_X509_HASH);
+            return certHash == null ? null : certHash.toString();
+        } catch (Exception ex) {
+            LOG.error("Unable to parse access token: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    static String getFileName(final String cacheKey) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Crypto.sha256(cacheKey));
+    }
+
+    void deleteFile(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException ex) {
+            LOG.error("Unable to delete token disk cache entry {}: {}", file.getName(), ex.getMessage());
+        }
+    }
+
+    static void setOwnerOnlyPermissions(Path path, boolean directory) {
+
+        Set<PosixFilePermission> perms = directory ?
+                EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE,
+                        PosixFilePermission.OWNER_EXECUTE) :
+                EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+        try {
+            Files.setPosixFilePermissions(path, perms);
+        } catch (UnsupportedOperationException | IOException ex) {
+            LOG.debug("Unable to set owner only permissions on {}: {}", path, ex.getMessage());
+        }
+    }
+}
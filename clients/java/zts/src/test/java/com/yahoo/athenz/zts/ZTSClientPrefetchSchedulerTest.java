@@ -0,0 +1,295 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts;
+
+import com.yahoo.athenz.auth.Principal;
+import com.yahoo.athenz.auth.ServiceIdentityProvider;
+import com.yahoo.athenz.auth.impl.PrincipalAuthority;
+import com.yahoo.athenz.auth.impl.SimplePrincipal;
+import org.mockito.Mockito;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.net.ssl.SSLContext;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.*;
+
+public class ZTSClientPrefetchSchedulerTest {
+
+    @BeforeMethod
+    public void setup() {
+        System.setProperty(ZTSClient.ZTS_CLIENT_PROP_ATHENZ_CONF, "src/test/resources/athenz.conf");
+        System.setProperty(ZTSClient.ZTS_CLIENT_PROP_PREFETCH_SLEEP_INTERVAL, "1");
+        System.setProperty(ZTSClient.ZTS_CLIENT_PROP_PREFETCH_AUTO_ENABLE, "false");
+        System.setProperty(ZTSClient.ZTS_CLIENT_PROP_PREFETCH_WORKER_THREADS, "2");
+        System.setProperty(ZTSClient.ZTS_CLIENT_PROP_PREFETCH_JITTER_PERCENT, "0");
+        ZTSClient.initConfigValues();
+    }
+
+    @AfterMethod
+    public void cleanup() {
+        ZTSClient.cancelPrefetch();
+        System.clearProperty(ZTSClient.ZTS_CLIENT_PROP_ATHENZ_CONF);
+        System.clearProperty(ZTSClient.ZTS_CLIENT_PROP_PREFETCH_SLEEP_INTERVAL);
+        System.clearProperty(ZTSClient.ZTS_CLIENT_PROP_PREFETCH_AUTO_ENABLE);
+        System.clearProperty(ZTSClient.ZTS_CLIENT_PROP_PREFETCH_WORKER_THREADS);
+        System.clearProperty(ZTSClient.ZTS_CLIENT_PROP_PREFETCH_JITTER_PERCENT);
+        ZTSClient.initConfigValues();
+    }
+
+    @Test
+    public void testNextRefreshTime() {
+
+        ZTSClientPrefetchScheduler scheduler = new ZTSClientPrefetchScheduler(1, 0, 60);
+
+        // token fetched at 1000 and expiring at 1800 is refreshed at 1400
+
+        ZTSClient.PrefetchTokenScheduledItem item = new ZTSClient.PrefetchTokenScheduledItem()
+                .setFetchTime(1000).setExpiresAtUTC(1800);
+        assertEquals(scheduler.nextRefreshTime(item, 1000), 1400);
+
+        // after a failure at 1400 we retry halfway to the expiry
+
+        item.setLastFailTime(1400);
+        assertEquals(scheduler.nextRefreshTime(item, 1400), 1600);
+
+        // we never refresh before our min refresh interval
+
+        assertEquals(scheduler.nextRefreshTime(item, 1580), 1640);
+        item.setExpiresAtUTC(1300);
+        assertEquals(scheduler.nextRefreshTime(item, 1500), 1560);
+
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testNextRefreshTimeJitter() {
+
+        ZTSClientPrefetchScheduler scheduler = new ZTSClientPrefetchScheduler(1, 10, 60);
+
+        ZTSClient.PrefetchTokenScheduledItem item = new ZTSClient.PrefetchTokenScheduledItem()
+                .setFetchTime(1000).setExpiresAtUTC(3000);
+
+        boolean jitterApplied = false;
+        for (int i = 0; i < 100; i++) {
+            long refreshTime = scheduler.nextRefreshTime(item, 1000);
+            assertTrue(refreshTime >= 1900 && refreshTime <= 2000, "refresh time: " + refreshTime);
+            if (refreshTime != 2000) {
+                jitterApplied = true;
+            }
+        }
+        assertTrue(jitterApplied);
+
+        // invalid jitter percentage values are capped
+
+        ZTSClientPrefetchScheduler scheduler2 = new ZTSClientPrefetchScheduler(1, 200, 60);
+        for (int i = 0; i < 100; i++) {
+            long refreshTime = scheduler2.nextRefreshTime(item, 1000);
+            assertTrue(refreshTime >= 1060 && refreshTime <= 2000, "refresh time: " + refreshTime);
+        }
+
+        scheduler.shutdown();
+        scheduler2.shutdown();
+    }
+
+    @Test
+    public void testPrefetchRoleTokenScheduler() throws Exception {
+
+        ZTSRDLClientMock ztsClientMock = new ZTSRDLClientMock();
+        ztsClientMock.setRoleName("role1");
+        ztsClientMock.setTestSleepInterval(1);
+
+        final Principal principal = SimplePrincipal.create("user_domain", "user",
+                "auth_creds", new PrincipalAuthority());
+        ServiceIdentityProvider siaProvider = Mockito.mock(ServiceIdentityProvider.class);
+        when(siaProvider.getIdentity(any(), any())).thenReturn(principal);
+
+        ZTSClient client = new ZTSClient("http://localhost:4080/", "user_domain",
+                "user", siaProvider);
+        client.setZTSRDLGeneratedClient(ztsClientMock);
+
+        // the providerdomain tokens are valid for 11 seconds so
+        // they must be refreshed after 5 seconds
+
+        assertTrue(client.prefetchRoleToken("providerdomain", null, null, null, null));
+        long lastFetchTime1 = ztsClientMock.getLastRoleTokenFetchedTime("providerdomain", null, null);
+
+        ZTSClientPrefetchScheduler scheduler = ZTSClient.getPrefetchScheduler();
+        assertNotNull(scheduler);
+        assertEquals(scheduler.getQueueSize(), 1);
+
+        // adding the same item replaces the scheduled one
+
+        assertTrue(client.prefetchRoleToken("providerdomain", null, null, null, null));
+        assertEquals(client.getScheduledItemsSize(), 1);
+        long lastFetchTime2 = ztsClientMock.getLastRoleTokenFetchedTime("providerdomain", null, null);
+        assertTrue(lastFetchTime2 >= lastFetchTime1);
+
+        Thread.sleep(7000);
+
+        long lastFetchTime3 = ztsClientMock.getLastRoleTokenFetchedTime("providerdomain", null, null);
+        assertTrue(lastFetchTime3 > lastFetchTime2);
+        assertTrue(ZTSClient.FETCHER_LAST_RUN_AT.get() > 0);
+
+        // the cancelled item is not rescheduled so we only have
+        // the refreshed item in the queue
+
+        assertEquals(client.getScheduledItemsSize(), 1);
+        assertEquals(scheduler.getQueueSize(), 1);
+
+        ZTSClient.cancelPrefetch();
+        assertNull(ZTSClient.getPrefetchScheduler());
+        client.close();
+    }
+
+    @Test
+    public void testRefreshInvalidItem() {
+
+        ZTSRDLClientMock ztsClientMock = new ZTSRDLClientMock();
+        ztsClientMock.setRoleName("role1");
+
+        final Principal principal = SimplePrincipal.create("user_domain", "user",
+                "auth_creds", new PrincipalAuthority());
+        ServiceIdentityProvider siaProvider = Mockito.mock(ServiceIdentityProvider.class);
+        when(siaProvider.getIdentity(any(), any())).thenReturn(principal);
+
+        ZTSClientPrefetchScheduler scheduler = new ZTSClientPrefetchScheduler(1, 0, 60);
+
+        // role name not matching our mock returns forbidden which
+        // marks the item as invalid so it's not rescheduled
+
+        final long currentTime = System.currentTimeMillis() / 1000;
+        ZTSClient.PrefetchTokenScheduledItem item = new ZTSClient.PrefetchTokenScheduledItem()
+                .setTokenType(ZTSClient.TokenType.ROLE)
+                .setDomainName("coretech").setRoleName("unknown")
+                .setIdentityDomain("user_domain").setIdentityName("user")
+                .setProvidedZTSUrl("http://localhost:4080/")
+                .setSiaIdentityProvider(siaProvider)
+                .setZtsClient(ztsClientMock)
+                .setFetchTime(currentTime).setExpiresAtUTC(currentTime + 3600);
+
+        scheduler.refresh(item, null);
+        assertTrue(item.isInvalid);
+        assertEquals(scheduler.getQueueSize(), 0);
+
+        // cancelled items are not rescheduled either
+
+        item.setIsInvalid(false).setRoleName("role1").setIsCancelled(true);
+        scheduler.refresh(item, null);
+        assertFalse(item.isInvalid);
+        assertEquals(scheduler.getQueueSize(), 0);
+
+        // active items are rescheduled
+
+        item.setIsCancelled(false);
+        scheduler.refresh(item, null);
+        assertEquals(scheduler.getQueueSize(), 1);
+
+        scheduler.shutdown();
+        assertEquals(scheduler.getQueueSize(), 0);
+    }
+
+    @Test
+    public void testClientPool() throws Exception {
+
+        ZTSClientPrefetchScheduler.ClientPool clientPool = new ZTSClientPrefetchScheduler.ClientPool();
+
+        SSLContext sslContext1 = SSLContext.getInstance("TLSv1.2");
+        sslContext1.init(null, null, null);
+        SSLContext sslContext2 = SSLContext.getInstance("TLSv1.2");
+        sslContext2.init(null, null, null);
+
+        ZTSClient.PrefetchTokenScheduledItem item1 = new ZTSClient.PrefetchTokenScheduledItem()
+                .setProvidedZTSUrl("https://localhost:4443/zts/v1").setSslContext(sslContext1);
+        ZTSClient.PrefetchTokenScheduledItem item2 = new ZTSClient.PrefetchTokenScheduledItem()
+                .setProvidedZTSUrl("https://localhost:4443/zts/v1").setSslContext(sslContext1)
+                .setDomainName("coretech");
+        ZTSClient.PrefetchTokenScheduledItem item3 = new ZTSClient.PrefetchTokenScheduledItem()
+                .setProvidedZTSUrl("https://localhost:4443/zts/v1").setSslContext(sslContext2);
+
+        // items with the same ssl context share the client
+
+        ZTSClientPrefetchScheduler.PooledClient client1 = clientPool.acquire(item1);
+        ZTSClientPrefetchScheduler.PooledClient client2 = clientPool.acquire(item2);
+        ZTSClientPrefetchScheduler.PooledClient client3 = clientPool.acquire(item3);
+        assertSame(client1, client2);
+        assertNotSame(client1, client3);
+        assertEquals(client1.leases, 2);
+        assertEquals(clientPool.size(), 2);
+
+        clientPool.release(client2);
+        clientPool.release(client3);
+        assertEquals(client1.leases, 1);
+        assertEquals(client3.leases, 0);
+
+        // retiring the clients removes them from the pool and the
+        // leased client is only retired and closed once released
+
+        clientPool.retireAll();
+        assertEquals(clientPool.size(), 0);
+        assertTrue(client1.retired);
+        assertTrue(client3.retired);
+
+        clientPool.release(client1);
+        assertEquals(client1.leases, 0);
+
+        ZTSClientPrefetchScheduler.PooledClient client4 = clientPool.acquire(item1);
+        assertNotSame(client1, client4);
+        clientPool.release(client4);
+        clientPool.retireAll();
+    }
+
+    @Test
+    public void testCertRefreshReschedulesAccessTokens() throws InterruptedException {
+
+        ZTSClientPrefetchScheduler scheduler = new ZTSClientPrefetchScheduler(1, 0, 60);
+
+        final long currentTime = System.currentTimeMillis() / 1000;
+        ZTSClient.PrefetchTokenScheduledItem accessItem = new ZTSClient.PrefetchTokenScheduledItem()
+                .setTokenType(ZTSClient.TokenType.ACCESS)
+                .setFetchTime(currentTime - 10).setExpiresAtUTC(currentTime + 3600);
+        ZTSClient.PrefetchTokenScheduledItem roleItem = new ZTSClient.PrefetchTokenScheduledItem()
+                .setTokenType(ZTSClient.TokenType.ROLE)
+                .setFetchTime(currentTime - 10).setExpiresAtUTC(currentTime + 3600);
+        scheduler.schedule(accessItem);
+        scheduler.schedule(roleItem);
+
+        // without a cert refresh there are no changes
+
+        scheduler.checkCertRefresh();
+        assertEquals(scheduler.getQueueSize(), 2);
+
+        // after the cert refresh the access token is due right away
+
+        assertEquals(scheduler.getQueueSize(), 2);
+        assertNull(scheduler.pollDueItem());
+
+        final long savedCertRefreshTime = ZTSClient.KEY_REFRESHER_LISTENER.getLastCertRefreshTime();
+        Thread.sleep(1000);
+        ZTSClient.KEY_REFRESHER_LISTENER.onKeyChangeEvent();
+        scheduler.checkCertRefresh();
+        assertEquals(scheduler.getQueueSize(), 2);
+        assertSame(scheduler.pollDueItem(), accessItem);
+        assertNull(scheduler.pollDueItem());
+
+        ZTSClient.KEY_REFRESHER_LISTENER.lastCertRefreshTime = savedCertRefreshTime;
+
+        scheduler.shutdown();
+    }
+}
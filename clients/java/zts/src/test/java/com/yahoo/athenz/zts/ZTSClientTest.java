@@ -47,6 +47,7 @@ import java.util.*;
 
 import javax.net.ssl.*;
 
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.mockito.ArgumentCaptor;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
@@ -63,6 +64,7 @@ import com.yahoo.athenz.auth.impl.PrincipalAuthority;
 import com.yahoo.athenz.auth.impl.SimplePrincipal;
 import com.yahoo.athenz.auth.impl.SimpleServiceIdentityProvider;
 import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.common.http.Http2ClassicHttpClient;
 import com.yahoo.rdl.Timestamp;
 
 import software.amazon.awssdk.services.sts.model.AssumeRoleRequest;
@@ -3305,6 +3307,36 @@ public class ZTSClientTest {
         client.close();
     }
 
+    @Test
+    public void testHttp2Enabled() throws Exception {
+
+        SSLContext sslContext = SSLContext.getInstance("TLSv1.3");
+        sslContext.init(null, null, null);
+
+        ZTSClient client = new ZTSClient("https://localhost:4443/zts/v1", sslContext);
+        assertFalse(client.isHttp2Enabled(sslContext, null));
+        client.close();
+
+        System.setProperty(ZTSClient.ZTS_CLIENT_PROP_HTTP2_ENABLED, "true");
+        System.setProperty(ZTSClient.ZTS_CLIENT_PROP_HTTP2_MAX_CONCURRENT_STREAMS, "50");
+        System.setProperty(ZTSClient.ZTS_CLIENT_PROP_HTTP2_INITIAL_WINDOW_SIZE, "131072");
+
+        client = new ZTSClient("https://localhost:4443/zts/v1", sslContext);
+        assertTrue(client.isHttp2Enabled(sslContext, null));
+        assertTrue(client.isHttp2Enabled(sslContext, ""));
+        assertFalse(client.isHttp2Enabled(sslContext, "https://proxy.athenz.io:4443"));
+        assertFalse(client.isHttp2Enabled(null, null));
+
+        CloseableHttpClient httpClient = client.createHttp2Client(sslContext, null);
+        assertTrue(httpClient instanceof Http2ClassicHttpClient);
+        httpClient.close();
+        client.close();
+
+        System.clearProperty(ZTSClient.ZTS_CLIENT_PROP_HTTP2_ENABLED);
+        System.clearProperty(ZTSClient.ZTS_CLIENT_PROP_HTTP2_MAX_CONCURRENT_STREAMS);
+        System.clearProperty(ZTSClient.ZTS_CLIENT_PROP_HTTP2_INITIAL_WINDOW_SIZE);
+    }
+
     @Test
     public void testGetAccessTokenCacheKeySSLContext() {
 
@@ -3405,6 +3437,120 @@ public class ZTSClientTest {
         client.close();
     }
 
+    @Test
+    public void testGetTokensWithDiskCache() {
+
+        final String cachePath = "/tmp/zts_client_disk_cache_unit_test";
+        System.setProperty(ZTSClientTokenDiskCache.ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_PATH, cachePath);
+        ZTSClient.resetZTSTokenDiskCache();
+        ZTSClient.ACCESS_TOKEN_CACHE.clear();
+        ZTSClient.ROLE_TOKEN_CACHE.clear();
+
+        Principal principal = SimplePrincipal.create("user_domain", "user",
+                "auth_creds", PRINCIPAL_AUTHORITY);
+
+        ZTSRDLClientMock ztsClientMock = new ZTSRDLClientMock();
+        ZTSClient client = new ZTSClient("http://localhost:4080", principal);
+        client.setZTSRDLGeneratedClient(ztsClientMock);
+        System.clearProperty(ZTSClientTokenDiskCache.ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_PATH);
+
+        // fetched tokens are written through to the disk cache
+
+        AccessTokenResponse accessTokenResponse = client.getAccessToken("coretech",
+                Collections.singletonList("role1"), 3600);
+        assertEquals("accesstoken", accessTokenResponse.getAccess_token());
+        RoleToken roleToken = client.getRoleToken("coretech");
+        assertNotNull(roleToken);
+
+        final String accessTokenKey = client.getAccessTokenCacheKey("coretech",
+                Collections.singletonList("role1"), null, null, null, null);
+        final String roleTokenKey = client.getRoleTokenCacheKey("coretech", null, null);
+        assertTrue(new File(cachePath, ZTSClientTokenDiskCache.getFileName(accessTokenKey)).exists());
+        assertTrue(new File(cachePath, ZTSClientTokenDiskCache.getFileName(roleTokenKey)).exists());
+
+        // after a restart the in-memory caches are loaded from disk
+
+        ZTSClient.ACCESS_TOKEN_CACHE.clear();
+        ZTSClient.ROLE_TOKEN_CACHE.clear();
+        ZTSClient.resetZTSTokenDiskCache();
+        System.setProperty(ZTSClientTokenDiskCache.ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_PATH, cachePath);
+        ZTSClient.initZTSTokenDiskCache();
+        System.clearProperty(ZTSClientTokenDiskCache.ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_PATH);
+
+        assertNotNull(ZTSClient.ACCESS_TOKEN_CACHE.get(accessTokenKey));
+        assertEquals(ZTSClient.ROLE_TOKEN_CACHE.get(roleTokenKey).getToken(), roleToken.getToken());
+
+        client.close();
+
+        ZTSClient.resetZTSTokenDiskCache();
+        ZTSClient.ACCESS_TOKEN_CACHE.clear();
+        ZTSClient.ROLE_TOKEN_CACHE.clear();
+        for (File file : Objects.requireNonNull(new File(cachePath).listFiles())) {
+            assertTrue(file.delete());
+        }
+        assertTrue(new File(cachePath).delete());
+    }
+
+    @Test
+    public void testPrefetchTokensWithDiskCache() {
+
+        final String cachePath = "/tmp/zts_client_disk_cache_prefetch_test";
+        System.setProperty(ZTSClientTokenDiskCache.ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_PATH, cachePath);
+        ZTSClient.resetZTSTokenDiskCache();
+        ZTSClient.ACCESS_TOKEN_CACHE.clear();
+        ZTSClient.ROLE_TOKEN_CACHE.clear();
+
+        final Principal principal = SimplePrincipal.create("user_domain", "user",
+                "auth_creds", PRINCIPAL_AUTHORITY);
+        ServiceIdentityProvider siaProvider = Mockito.mock(ServiceIdentityProvider.class);
+        when(siaProvider.getIdentity(any(), any())).thenReturn(principal);
+
+        ZTSRDLClientMock ztsClientMock = new ZTSRDLClientMock();
+        ztsClientMock.setRoleName("role1");
+        ZTSClient client = new ZTSClient("http://localhost:4080/", "user_domain", "user", siaProvider);
+        client.setZTSRDLGeneratedClient(ztsClientMock);
+        System.clearProperty(ZTSClientTokenDiskCache.ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_PATH);
+
+        assertTrue(client.prefetchRoleToken("coretech", null, null, null, null));
+        assertTrue(client.prefetchAccessToken("coretech", Collections.singletonList("role1"),
+                null, null, null, null, 3600));
+        client.clearScheduledItems();
+        client.close();
+
+        // simulate a restart so the in-memory caches are loaded from disk
+
+        ZTSClient.ACCESS_TOKEN_CACHE.clear();
+        ZTSClient.ROLE_TOKEN_CACHE.clear();
+        ZTSClient.resetZTSTokenDiskCache();
+        System.setProperty(ZTSClientTokenDiskCache.ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_PATH, cachePath);
+        ZTSClient.initZTSTokenDiskCache();
+        System.clearProperty(ZTSClientTokenDiskCache.ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_PATH);
+
+        // registering the prefetch items must not contact ZTS since
+        // the cached tokens are still valid
+
+        ZTSRDLGeneratedClient ztsRdlClient = Mockito.mock(ZTSRDLGeneratedClient.class);
+        client = new ZTSClient("http://localhost:4080/", "user_domain", "user", siaProvider);
+        client.setZTSRDLGeneratedClient(ztsRdlClient);
+
+        assertTrue(client.prefetchRoleToken("coretech", null, null, null, null));
+        assertTrue(client.prefetchAccessToken("coretech", Collections.singletonList("role1"),
+                null, null, null, null, 3600));
+        assertEquals(client.getScheduledItemsSize(), 2);
+        Mockito.verifyNoInteractions(ztsRdlClient);
+
+        client.clearScheduledItems();
+        client.close();
+
+        ZTSClient.resetZTSTokenDiskCache();
+        ZTSClient.ACCESS_TOKEN_CACHE.clear();
+        ZTSClient.ROLE_TOKEN_CACHE.clear();
+        for (File file : Objects.requireNonNull(new File(cachePath).listFiles())) {
+            assertTrue(file.delete());
+        }
+        assertTrue(new File(cachePath).delete());
+    }
+
     @Test
     public void testGetAccessTokenWithAuthorizationDetails() {
 
@@ -0,0 +1,290 @@
+/*
+ * Copyright The Athenz Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts;
+
+import com.yahoo.rdl.Timestamp;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.testng.Assert.*;
+
+public class ZTSClientTokenDiskCacheTest {
+
+    private static final String CACHE_PATH = "/tmp/zts_client_token_disk_cache";
+    private static final String MTLS_CERT_PATH = "src/test/resources/mtls_token_spec.cert";
+    private static final String UNIT_CERT_PATH = "src/test/resources/unit.cert.pem";
+
+    private final Map<String, RoleToken> roleTokens = new HashMap<>();
+    private final Map<String, AccessTokenResponseCacheEntry> accessTokens = new HashMap<>();
+    private final Map<String, AWSTemporaryCredentials> awsCreds = new HashMap<>();
+
+    @BeforeMethod
+    public void setup() {
+        deleteDirectory(new File(CACHE_PATH));
+        roleTokens.clear();
+        accessTokens.clear();
+        awsCreds.clear();
+    }
+
+    @AfterMethod
+    public void shutdown() {
+        deleteDirectory(new File(CACHE_PATH));
+    }
+
+    private void deleteDirectory(File dir) {
+        if (dir.exists()) {
+            for (File file : Objects.requireNonNull(dir.listFiles())) {
+                assertTrue(file.delete());
+            }
+            assertTrue(dir.delete());
+        }
+    }
+
+    private int getEntryCount() {
+        File[] files = new File(CACHE_PATH).listFiles((dir, name) -> name.charAt(0) != '.');
+        return files == null ? 0 : files.length;
+    }
+
+    @Test
+    public void testCreate() {
+
+        System.clearProperty(ZTSClientTokenDiskCache.ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_PATH);
+        assertNull(ZTSClientTokenDiskCache.create());
+
+        System.setProperty(ZTSClientTokenDiskCache.ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_PATH, CACHE_PATH);
+        assertNotNull(ZTSClientTokenDiskCache.create());
+        assertTrue(new File(CACHE_PATH, ".cache.key").exists());
+
+        // invalid key file
+
+        System.setProperty(ZTSClientTokenDiskCache.ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_KEY_PATH,
+                "src/test/resources/athenz.conf");
+        assertNull(ZTSClientTokenDiskCache.create());
+
+        // cache path is not a directory
+
+        System.clearProperty(ZTSClientTokenDiskCache.ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_KEY_PATH);
+        System.setProperty(ZTSClientTokenDiskCache.ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_PATH,
+                "src/test/resources/athenz.conf");
+        assertNull(ZTSClientTokenDiskCache.create());
+
+        System.clearProperty(ZTSClientTokenDiskCache.ZTS_CLIENT_PROP_TOKEN_DISK_CACHE_PATH);
+    }
+
+    @Test
+    public void testPutAndLoad() throws IOException {
+
+        ZTSClientTokenDiskCache diskCache = new ZTSClientTokenDiskCache(CACHE_PATH, null, null);
+
+        final long now = System.currentTimeMillis() / 1000;
+        RoleToken roleToken = new RoleToken().setToken("role-token").setExpiryTime(now + 3600);
+        diskCache.putRoleToken("role-key", roleToken);
+
+        AccessTokenResponse accessTokenResponse = new AccessTokenResponse().setAccess_token("header.payload.")
+                .setExpires_in(3600).setScope("admin").setToken_type("Bearer");
+        diskCache.putAccessToken("access-key", new AccessTokenResponseCacheEntry(accessTokenResponse));
+
+        AWSTemporaryCredentials creds = new AWSTemporaryCredentials().setAccessKeyId("access-key-id")
+                .setSecretAccessKey("secret").setSessionToken("session")
+                .setExpiration(Timestamp.fromMillis(System.currentTimeMillis() + 3600000));
+        diskCache.putAWSCredentials("aws-key", creds);
+
+        // credentials without expiration are not stored
+
+        diskCache.putAWSCredentials("aws-key2", new AWSTemporaryCredentials().setAccessKeyId("id"));
+        assertEquals(getEntryCount(), 3);
+
+        // entries are encrypted on disk
+
+        File entryFile = new File(CACHE_PATH, ZTSClientTokenDiskCache.getFileName("role-key"));
+        String data = new String(Files.readAllBytes(entryFile.toPath()), StandardCharsets.ISO_8859_1);
+        assertFalse(data.contains("role-token"));
+
+        // a new cache object with the same key loads all the entries
+
+        ZTSClientTokenDiskCache newDiskCache = new ZTSClientTokenDiskCache(CACHE_PATH, null, null);
+        assertEquals(newDiskCache.load(roleTokens, accessTokens, awsCreds), 3);
+
+        assertEquals(roleTokens.get("role-key").getToken(), "role-token");
+        assertEquals(roleTokens.get("role-key").getExpiryTime(), now + 3600);
+
+        AccessTokenResponseCacheEntry cacheEntry = accessTokens.get("access-key");
+        assertEquals(cacheEntry.serverExpirySecs, 3600);
+        assertTrue(cacheEntry.expiryTime >= now + 3600);
+        assertFalse(cacheEntry.isExpired(0));
+        assertEquals(cacheEntry.accessTokenResponse().getAccess_token(), "header.payload.");
+        assertEquals(cacheEntry.accessTokenResponse().getScope(), "admin");
+
+        assertEquals(awsCreds.get("aws-key").getSessionToken(), "session");
+        assertEquals(awsCreds.get("aws-key").getExpiration(), creds.getExpiration());
+
+        // updating an entry replaces the existing file
+
+        newDiskCache.putRoleToken("role-key", new RoleToken().setToken("role-token2").setExpiryTime(now + 3600));
+        assertEquals(getEntryCount(), 3);
+
+        roleTokens.clear();
+        diskCache.load(roleTokens, accessTokens, awsCreds);
+        assertEquals(roleTokens.get("role-key").getToken(), "role-token2");
+    }
+
+    @Test
+    public void testLoadExpiredEntries() throws IOException {
+
+        ZTSClientTokenDiskCache diskCache = new ZTSClientTokenDiskCache(CACHE_PATH, null, null);
+
+        final long now = System.currentTimeMillis() / 1000;
+        diskCache.putRoleToken("role-key1", new RoleToken().setToken("token1").setExpiryTime(now - 10));
+        diskCache.putRoleToken("role-key2", new RoleToken().setToken("token2").setExpiryTime(now + 3600));
+        assertEquals(getEntryCount(), 2);
+
+        assertEquals(diskCache.load(roleTokens, accessTokens, awsCreds), 1);
+        assertNotNull(roleTokens.get("role-key2"));
+        assertEquals(getEntryCount(), 1);
+    }
+
+    @Test
+    public void testLoadInvalidEntries() throws IOException {
+
+        ZTSClientTokenDiskCache diskCache = new ZTSClientTokenDiskCache(CACHE_PATH, null, null);
+
+        final long now = System.currentTimeMillis() / 1000;
+        diskCache.putRoleToken("role-key1", new RoleToken().setToken("token1").setExpiryTime(now + 3600));
+        diskCache.putRoleToken("role-key2", new RoleToken().setToken("token2").setExpiryTime(now + 3600));
+
+        // corrupted entry and an entry moved to a different file
+
+        File file1 = new File(CACHE_PATH, ZTSClientTokenDiskCache.getFileName("role-key1"));
+        File file2 = new File(CACHE_PATH, ZTSClientTokenDiskCache.getFileName("role-key2"));
+        Files.write(file1.toPath(), "invalid-data".getBytes(StandardCharsets.UTF_8));
+        Files.copy(file2.toPath(), new File(CACHE_PATH, "role-key3").toPath());
+
+        // unknown entry type
+
+        diskCache.put("unknown", "unknown-key", "value", now + 3600, 0, null);
+        assertEquals(getEntryCount(), 4);
+
+        assertEquals(diskCache.load(roleTokens, accessTokens, awsCreds), 1);
+        assertEquals(roleTokens.size(), 1);
+        assertEquals(roleTokens.get("role-key2").getToken(), "token2");
+        assertEquals(getEntryCount(), 1);
+    }
+
+    @Test
+    public void testLoadTempFiles() throws IOException {
+
+        ZTSClientTokenDiskCache diskCache = new ZTSClientTokenDiskCache(CACHE_PATH, null, null);
+
+        // stale temp files left by an interrupted write are removed while
+        // recent ones might still be written by another process
+
+        File staleFile = new File(CACHE_PATH, ".tmp123");
+        Files.write(staleFile.toPath(), "partial-data".getBytes(StandardCharsets.UTF_8));
+        assertTrue(staleFile.setLastModified(System.currentTimeMillis() - 120000));
+        File recentFile = new File(CACHE_PATH, ".tmp456");
+        Files.write(recentFile.toPath(), "partial-data".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(diskCache.load(roleTokens, accessTokens, awsCreds), 0);
+        assertFalse(staleFile.exists());
+        assertTrue(recentFile.exists());
+        assertTrue(new File(CACHE_PATH, ".cache.key").exists());
+    }
+
+    @Test
+    public void testRemove() throws IOException {
+
+        ZTSClientTokenDiskCache diskCache = new ZTSClientTokenDiskCache(CACHE_PATH, null, null);
+
+        final long now = System.currentTimeMillis() / 1000;
+        diskCache.putRoleToken("role-key1", new RoleToken().setToken("token1").setExpiryTime(now + 3600));
+        diskCache.putRoleToken("role-key2", new RoleToken().setToken("token2").setExpiryTime(now + 3600));
+        assertEquals(getEntryCount(), 2);
+
+        diskCache.remove("role-key1");
+        assertEquals(getEntryCount(), 1);
+        assertFalse(new File(CACHE_PATH, ZTSClientTokenDiskCache.getFileName("role-key1")).exists());
+
+        // entries loaded from the disk and unknown keys are handled as well
+
+        ZTSClientTokenDiskCache newDiskCache = new ZTSClientTokenDiskCache(CACHE_PATH, null, null);
+        assertEquals(newDiskCache.load(roleTokens, accessTokens, awsCreds), 1);
+        newDiskCache.remove("role-key2");
+        newDiskCache.remove("unknown-key");
+        assertEquals(getEntryCount(), 0);
+    }
+
+    @Test
+    public void testLoadWithDifferentKey() throws IOException {
+
+        ZTSClientTokenDiskCache diskCache = new ZTSClientTokenDiskCache(CACHE_PATH, null, null);
+        diskCache.putRoleToken("role-key", new RoleToken().setToken("token")
+                .setExpiryTime(System.currentTimeMillis() / 1000 + 3600));
+
+        // with a different key the entries cannot be decrypted
+
+        File keyFile = new File(CACHE_PATH, ".custom.key");
+        Files.write(keyFile.toPath(), "MDEyMzQ1Njc4OWFiY2RlZg==".getBytes(StandardCharsets.UTF_8));
+
+        ZTSClientTokenDiskCache newDiskCache = new ZTSClientTokenDiskCache(CACHE_PATH, keyFile.getPath(), null);
+        assertEquals(newDiskCache.load(roleTokens, accessTokens, awsCreds), 0);
+        assertEquals(getEntryCount(), 0);
+    }
+
+    @Test
+    public void testLoadCertBoundAccessToken() throws IOException {
+
+        ZTSClientTokenDiskCache diskCache = new ZTSClientTokenDiskCache(CACHE_PATH, null, MTLS_CERT_PATH);
+
+        AccessTokenResponse accessTokenResponse = new AccessTokenResponse()
+                .setAccess_token(AccessTokenTestFileHelper.getSignedAccessToken(3600)).setExpires_in(3600);
+        diskCache.putAccessToken("access-key", new AccessTokenResponseCacheEntry(accessTokenResponse));
+        assertNotNull(ZTSClientTokenDiskCache.getAccessTokenCertHash(accessTokenResponse.getAccess_token()));
+
+        // with the same certificate the token is loaded
+
+        assertEquals(diskCache.load(roleTokens, accessTokens, awsCreds), 1);
+        assertNotNull(accessTokens.get("access-key"));
+
+        // without any certificate or with a rotated certificate the token is skipped
+
+        accessTokens.clear();
+        assertEquals(new ZTSClientTokenDiskCache(CACHE_PATH, null, "invalid-cert-path")
+                .load(roleTokens, accessTokens, awsCreds), 0);
+        assertEquals(getEntryCount(), 0);
+
+        diskCache.putAccessToken("access-key", new AccessTokenResponseCacheEntry(accessTokenResponse));
+        assertEquals(new ZTSClientTokenDiskCache(CACHE_PATH, null, UNIT_CERT_PATH)
+                .load(roleTokens, accessTokens, awsCreds), 0);
+        assertTrue(accessTokens.isEmpty());
+        assertEquals(getEntryCount(), 0);
+    }
+
+    @Test
+    public void testGetAccessTokenCertHash() {
+        assertNull(ZTSClientTokenDiskCache.getAccessTokenCertHash(null));
+        assertNull(ZTSClientTokenDiskCache.getAccessTokenCertHash("invalid-token"));
+        assertNull(ZTSClientTokenDiskCache.getAccessTokenCertHash("header.payload.signature"));
+    }
+}
@@ -59,6 +59,11 @@ public final class AthenzConsts {
     public static final String ATHENZ_PROP_GZIP_SUPPORT           = "athenz.gzip_support";
     public static final String ATHENZ_PROP_GZIP_MIN_SIZE          = "athenz.gzip_min_size";
     public static final String ATHENZ_PROP_MAX_THREADS            = "athenz.http_max_threads";
+    public static final String ATHENZ_PROP_VIRTUAL_THREADS        = "athenz.http_virtual_threads";
+    public static final String ATHENZ_PROP_HTTP2_ENABLED          = "athenz.http2_enabled";
+    public static final String ATHENZ_PROP_HTTP2_MAX_CONCURRENT_STREAMS   = "athenz.http2_max_concurrent_streams";
+    public static final String ATHENZ_PROP_HTTP2_INITIAL_STREAM_WINDOW    = "athenz.http2_initial_stream_recv_window";
+    public static final String ATHENZ_PROP_HTTP2_INITIAL_SESSION_WINDOW   = "athenz.http2_initial_session_recv_window";
     public static final String ATHENZ_PROP_HOSTNAME               = "athenz.hostname";
     public static final String ATHENZ_PROP_JETTY_HOME             = "athenz.jetty_home";
     public static final String ATHENZ_PROP_DEBUG                  = "athenz.debug";
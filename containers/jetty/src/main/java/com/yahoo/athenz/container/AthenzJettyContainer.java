@@ -28,6 +28,7 @@ import com.yahoo.athenz.common.server.util.ConfigProperties;
 import com.yahoo.athenz.common.server.util.config.providers.ConfigProviderFile;
 import com.yahoo.athenz.container.filter.HealthCheckFilter;
 import jakarta.servlet.DispatcherType;
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
 import org.eclipse.jetty.deploy.DeploymentManager;
 import org.eclipse.jetty.deploy.providers.ContextProvider;
 import org.eclipse.jetty.ee10.servlet.FilterHolder;
@@ -35,6 +36,8 @@ import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpHeaderValue;
 import org.eclipse.jetty.ee10.webapp.WebAppContext;
 import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
 import org.eclipse.jetty.rewrite.handler.HeaderPatternRule;
 import org.eclipse.jetty.rewrite.handler.RewriteHandler;
 import org.eclipse.jetty.server.*;
@@ -43,6 +46,7 @@ import org.eclipse.jetty.server.handler.StatisticsHandler;
 import org.eclipse.jetty.server.handler.gzip.GzipHandler;
 import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
 import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.util.VirtualThreads;
 import org.eclipse.jetty.util.component.Environment;
 import org.eclipse.jetty.util.ssl.KeyStoreScanner;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
@@ -52,8 +56,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static com.yahoo.athenz.common.server.util.config.ConfigManagerSingleton.CONFIG_MANAGER;
@@ -454,16 +460,31 @@ public class AthenzJettyContainer {
 
         // SSL Connector
         
-        ServerConnector sslConnector;
+        HttpConnectionFactory httpConnectionFactory = new HttpConnectionFactory(httpsConfig);
+        List<ConnectionFactory> connectionFactories = new ArrayList<>();
         if (proxyProtocol) {
-            sslConnector = new ServerConnector(server, new ProxyConnectionFactory(),
-                    new SslConnectionFactory(sslContextFactory, HttpVersion.HTTP_1_1.asString()),
-                    new HttpConnectionFactory(httpsConfig));
+            connectionFactories.add(new ProxyConnectionFactory());
+        }
+
+        // if http/2 is enabled, the protocol is negotiated with alpn
+        // and clients without alpn support fall back to http/1.1
+
+        if (Boolean.parseBoolean(System.getProperty(AthenzConsts.ATHENZ_PROP_HTTP2_ENABLED, "false"))) {
+            HTTP2ServerConnectionFactory http2ConnectionFactory = createHTTP2ConnectionFactory(httpsConfig);
+            ALPNServerConnectionFactory alpnConnectionFactory = new ALPNServerConnectionFactory(
+                    http2ConnectionFactory.getProtocol(), httpConnectionFactory.getProtocol());
+            alpnConnectionFactory.setDefaultProtocol(httpConnectionFactory.getProtocol());
+            sslContextFactory.setCipherComparator(HTTP2Cipher.COMPARATOR);
+            connectionFactories.add(new SslConnectionFactory(sslContextFactory, alpnConnectionFactory.getProtocol()));
+            connectionFactories.add(alpnConnectionFactory);
+            connectionFactories.add(http2ConnectionFactory);
         } else {
-            sslConnector = new ServerConnector(server,
-                    new SslConnectionFactory(sslContextFactory, HttpVersion.HTTP_1_1.asString()),
-                    new HttpConnectionFactory(httpsConfig));
+            connectionFactories.add(new SslConnectionFactory(sslContextFactory, HttpVersion.HTTP_1_1.asString()));
         }
+        connectionFactories.add(httpConnectionFactory);
+
+        ServerConnector sslConnector = new ServerConnector(server,
+                connectionFactories.toArray(new ConnectionFactory[0]));
         sslConnector.setPort(httpsPort);
         sslConnector.setIdleTimeout(idleTimeout);
         if (listenHost != null) {
@@ -494,6 +515,31 @@ public class AthenzJettyContainer {
         }
     }
 
+    HTTP2ServerConnectionFactory createHTTP2ConnectionFactory(HttpConfiguration httpsConfig) {
+
+        HTTP2ServerConnectionFactory http2ConnectionFactory = new HTTP2ServerConnectionFactory(httpsConfig);
+
+        // flow control settings are only applied if configured,
+        // otherwise we'll use the jetty defaults
+
+        final int maxConcurrentStreams = Integer.parseInt(
+                System.getProperty(AthenzConsts.ATHENZ_PROP_HTTP2_MAX_CONCURRENT_STREAMS, "0"));
+        if (maxConcurrentStreams > 0) {
+            http2ConnectionFactory.setMaxConcurrentStreams(maxConcurrentStreams);
+        }
+        final int initialStreamRecvWindow = Integer.parseInt(
+                System.getProperty(AthenzConsts.ATHENZ_PROP_HTTP2_INITIAL_STREAM_WINDOW, "0"));
+        if (initialStreamRecvWindow > 0) {
+            http2ConnectionFactory.setInitialStreamRecvWindow(initialStreamRecvWindow);
+        }
+        final int initialSessionRecvWindow = Integer.parseInt(
+                System.getProperty(AthenzConsts.ATHENZ_PROP_HTTP2_INITIAL_SESSION_WINDOW, "0"));
+        if (initialSessionRecvWindow > 0) {
+            http2ConnectionFactory.setInitialSessionRecvWindow(initialSessionRecvWindow);
+        }
+        return http2ConnectionFactory;
+    }
+
     HttpConfiguration getHttpsConfig(HttpConfiguration httpConfig, int httpsPort, boolean sniRequired, boolean sniHostCheck) {
         HttpConfiguration httpsConfig = new HttpConfiguration(httpConfig);
         httpsConfig.setSecureScheme("https");
@@ -577,6 +623,18 @@ public class AthenzJettyContainer {
         QueuedThreadPool threadPool = new QueuedThreadPool();
         threadPool.setMaxThreads(maxThreads);
 
+        // if configured, run the request handlers on virtual threads so
+        // that requests blocked on I/O do not hold the platform threads.
+        // virtual threads are only available with jdk 21 or newer
+
+        if (Boolean.parseBoolean(System.getProperty(AthenzConsts.ATHENZ_PROP_VIRTUAL_THREADS, "false"))) {
+            if (VirtualThreads.areSupported()) {
+                threadPool.setVirtualThreadsExecutor(VirtualThreads.getNamedVirtualThreadsExecutor("athenz-vt"));
+            } else {
+                LOG.error("Virtual threads are not supported by the jvm, using platform threads");
+            }
+        }
+
         server = new Server(threadPool);
         handlers = new Handler.Sequence();
         server.setHandler(handlers);
@@ -15,12 +15,16 @@
  */
 package com.yahoo.athenz.container;
 
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
 import org.eclipse.jetty.rewrite.handler.RewriteHandler;
 import org.eclipse.jetty.rewrite.handler.Rule;
 import org.eclipse.jetty.server.*;
 import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.eclipse.jetty.util.VirtualThreads;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.util.thread.ThreadPool;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.AfterMethod;
@@ -64,6 +68,10 @@ public class AthenzJettyContainerTest {
         System.clearProperty(AthenzConsts.ATHENZ_PROP_MAX_THREADS);
         System.clearProperty(AthenzConsts.ATHENZ_PROP_GZIP_SUPPORT);
         System.clearProperty(AthenzConsts.ATHENZ_PROP_GZIP_MIN_SIZE);
+        System.clearProperty(AthenzConsts.ATHENZ_PROP_HTTP2_ENABLED);
+        System.clearProperty(AthenzConsts.ATHENZ_PROP_HTTP2_MAX_CONCURRENT_STREAMS);
+        System.clearProperty(AthenzConsts.ATHENZ_PROP_HTTP2_INITIAL_STREAM_WINDOW);
+        System.clearProperty(AthenzConsts.ATHENZ_PROP_HTTP2_INITIAL_SESSION_WINDOW);
         System.clearProperty(AthenzConsts.ATHENZ_PROP_DEBUG);
         System.clearProperty(AthenzConsts.ATHENZ_PROP_HEALTH_CHECK_URI_LIST);
         System.clearProperty(AthenzConsts.ATHENZ_PROP_PROXY_PROTOCOL);
@@ -102,6 +110,27 @@ public class AthenzJettyContainerTest {
         assertEquals(threadPool.getIdleThreads(), 0);
     }
 
+    @Test
+    public void testContainerVirtualThreads() {
+
+        System.setProperty(AthenzConsts.ATHENZ_PROP_MAX_THREADS, "100");
+        System.setProperty(AthenzConsts.ATHENZ_PROP_VIRTUAL_THREADS, "true");
+
+        AthenzJettyContainer container = new AthenzJettyContainer();
+        container.createServer(100);
+
+        Server server = container.getServer();
+        assertNotNull(server);
+
+        QueuedThreadPool threadPool = (QueuedThreadPool) server.getThreadPool();
+        assertNotNull(threadPool);
+
+        // virtual threads executor is only set if supported by the jvm
+
+        assertEquals(threadPool.getVirtualThreadsExecutor() != null, VirtualThreads.areSupported());
+        System.clearProperty(AthenzConsts.ATHENZ_PROP_VIRTUAL_THREADS);
+    }
+
     @Test
     public void testRequestLogHandler() {
 
@@ -230,6 +259,65 @@ public class AthenzJettyContainerTest {
         assertTrue(connectors[2].getProtocols().contains("ssl"));
     }
 
+    @Test
+    public void testHttpConnectorsHttp2() {
+
+        System.setProperty(AthenzConsts.ATHENZ_PROP_KEYSTORE_PATH, "src/test/resources/keystore.pkcs12");
+        System.setProperty(AthenzConsts.ATHENZ_PROP_KEYSTORE_TYPE, "PKCS12");
+        System.setProperty(AthenzConsts.ATHENZ_PROP_KEYSTORE_PASSWORD, "pass123");
+        System.setProperty(AthenzConsts.ATHENZ_PROP_TRUSTSTORE_PATH, "src/test/resources/truststore.jks");
+        System.setProperty(AthenzConsts.ATHENZ_PROP_TRUSTSTORE_TYPE, "PKCS12");
+        System.setProperty(AthenzConsts.ATHENZ_PROP_TRUSTSTORE_PASSWORD, "pass123");
+        System.setProperty(AthenzConsts.ATHENZ_PROP_KEYMANAGER_PASSWORD, "pass123");
+        System.setProperty(AthenzConsts.ATHENZ_PROP_HTTP2_ENABLED, "true");
+        System.setProperty(AthenzConsts.ATHENZ_PROP_HTTP2_MAX_CONCURRENT_STREAMS, "64");
+        System.setProperty(AthenzConsts.ATHENZ_PROP_HTTP2_INITIAL_STREAM_WINDOW, "262144");
+        System.setProperty(AthenzConsts.ATHENZ_PROP_HTTP2_INITIAL_SESSION_WINDOW, "2097152");
+
+        AthenzJettyContainer container = new AthenzJettyContainer();
+        container.createServer(100);
+
+        HttpConfiguration httpConfig = container.newHttpConfiguration();
+        container.addHTTPConnectors(httpConfig, 8081, 8082, 0, 0);
+
+        Server server = container.getServer();
+        Connector[] connectors = server.getConnectors();
+        assertEquals(connectors.length, 2);
+
+        // http connector does not support h2
+
+        assertTrue(connectors[0].getProtocols().contains("http/1.1"));
+        assertFalse(connectors[0].getProtocols().contains("h2"));
+
+        assertTrue(connectors[1].getProtocols().contains("ssl"));
+        assertTrue(connectors[1].getProtocols().contains("alpn"));
+        assertTrue(connectors[1].getProtocols().contains("h2"));
+        assertTrue(connectors[1].getProtocols().contains("http/1.1"));
+
+        HTTP2ServerConnectionFactory http2ConnectionFactory =
+                connectors[1].getConnectionFactory(HTTP2ServerConnectionFactory.class);
+        assertEquals(http2ConnectionFactory.getMaxConcurrentStreams(), 64);
+        assertEquals(http2ConnectionFactory.getInitialStreamRecvWindow(), 262144);
+        assertEquals(http2ConnectionFactory.getInitialSessionRecvWindow(), 2097152);
+
+        ALPNServerConnectionFactory alpnConnectionFactory =
+                connectors[1].getConnectionFactory(ALPNServerConnectionFactory.class);
+        assertEquals(alpnConnectionFactory.getDefaultProtocol(), "HTTP/1.1");
+    }
+
+    @Test
+    public void testCreateHTTP2ConnectionFactoryDefaults() {
+
+        AthenzJettyContainer container = new AthenzJettyContainer();
+        HttpConfiguration httpConfig = container.newHttpConfiguration();
+
+        HTTP2ServerConnectionFactory defaultFactory = new HTTP2ServerConnectionFactory(httpConfig);
+        HTTP2ServerConnectionFactory http2ConnectionFactory = container.createHTTP2ConnectionFactory(httpConfig);
+        assertEquals(http2ConnectionFactory.getMaxConcurrentStreams(), defaultFactory.getMaxConcurrentStreams());
+        assertEquals(http2ConnectionFactory.getInitialStreamRecvWindow(), defaultFactory.getInitialStreamRecvWindow());
+        assertEquals(http2ConnectionFactory.getInitialSessionRecvWindow(), defaultFactory.getInitialSessionRecvWindow());
+    }
+
     @Test
     public void testNonExistantKeyStore() {
 
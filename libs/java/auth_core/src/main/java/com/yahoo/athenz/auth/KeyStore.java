@@ -15,6 +15,8 @@
  */
 package com.yahoo.athenz.auth;
 
+import java.security.PublicKey;
+
 public interface KeyStore {
     
     /**
@@ -26,4 +28,20 @@ public interface KeyStore {
      * @return String with PEM encoded key
      */
     String getPublicKey(String domain, String service, String keyId);
+
+    /**
+     * Return the already parsed public key for the given key id and service.
+     * Key stores that keep the parsed public key objects implement this
+     * method so the callers don't need to parse the PEM encoded key
+     * for every token they validate. If the key store does not support
+     * parsed keys or the key is not available, null is returned and
+     * the caller is expected to use the getPublicKey method instead.
+     * @param domain Name of the domain
+     * @param service Name of the service
+     * @param keyId the public key identifier
+     * @return parsed public key or null if not available
+     */
+    default PublicKey getParsedPublicKey(String domain, String service, String keyId) {
+        return null;
+    }
 }
@@ -15,6 +15,7 @@
  */
 package com.yahoo.athenz.auth.impl;
 
+import java.security.PublicKey;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -132,15 +133,25 @@ public class PrincipalAuthority implements Authority, AuthorityKeyStore {
         String keyService = serviceToken.getKeyService();
         boolean userToken = tokenDomain.equals(userDomain);
         
-        /* get the public key for this token to validate signature */
+        /* get the public key for this token to validate signature. if our
+         * key store has the key already parsed then we'll use that object
+         * otherwise we'll use the PEM encoded key */
         
-        String publicKey = getPublicKey(tokenDomain, tokenName, keyService,
+        boolean writeOp = isWriteOperation(httpMethod);
+        boolean tokenValidated;
+        PublicKey parsedPublicKey = getParsedPublicKey(tokenDomain, tokenName, keyService,
                 serviceToken.getKeyId(), userToken);
+        if (parsedPublicKey != null) {
+            tokenValidated = serviceToken.validate(parsedPublicKey, allowedOffset, !writeOp, errDetail);
+        } else {
+            String publicKey = getPublicKey(tokenDomain, tokenName, keyService,
+                    serviceToken.getKeyId(), userToken);
+            tokenValidated = serviceToken.validate(publicKey, allowedOffset, !writeOp, errDetail);
+        }
 
         /* the validate method logs all error messages */
         
-        boolean writeOp = isWriteOperation(httpMethod);
-        if (!serviceToken.validate(publicKey, allowedOffset, !writeOp, errDetail)) {
+        if (!tokenValidated) {
             errMsg.append("PrincipalAuthority:authenticate: service token validation failure: ");
             errMsg.append(errDetail).append(" : credential=").
                    append(Token.getUnsignedToken(signedToken));
@@ -218,6 +229,20 @@ public class PrincipalAuthority implements Authority, AuthorityKeyStore {
     
     String getPublicKey(String tokenDomain, String tokenName, String keyService,
             String keyId, boolean userToken) {
+
+        final String[] keyServiceName = getPublicKeyServiceName(tokenDomain, tokenName, keyService, userToken);
+        return keyStore.getPublicKey(keyServiceName[0], keyServiceName[1], keyId);
+    }
+
+    PublicKey getParsedPublicKey(String tokenDomain, String tokenName, String keyService,
+            String keyId, boolean userToken) {
+
+        final String[] keyServiceName = getPublicKeyServiceName(tokenDomain, tokenName, keyService, userToken);
+        return keyStore.getParsedPublicKey(keyServiceName[0], keyServiceName[1], keyId);
+    }
+
+    String[] getPublicKeyServiceName(String tokenDomain, String tokenName, String keyService,
+            boolean userToken) {
         
         /* by default we're going to look for the public key for the domain
          * and service defined in the token */
@@ -245,7 +270,7 @@ public class PrincipalAuthority implements Authority, AuthorityKeyStore {
             publicKeyService = ZMS_SERVICE;
         }
 
-        return keyStore.getPublicKey(publicKeyDomain, publicKeyService, keyId);
+        return new String[] { publicKeyDomain, publicKeyService };
     }
     
     boolean isWriteOperation(String httpMethod) {
@@ -312,12 +337,21 @@ public class PrincipalAuthority implements Authority, AuthorityKeyStore {
             return null;
         }
         
-        String publicKey = keyStore.getPublicKey(authorizedServiceName.substring(0, idx),
-                authorizedServiceName.substring(idx + 1), userToken.getAuthorizedServiceKeyId());
-        
+        final String serviceDomain = authorizedServiceName.substring(0, idx);
+        final String serviceName = authorizedServiceName.substring(idx + 1);
+        final String keyId = userToken.getAuthorizedServiceKeyId();
+
         /* the token method reports all error messages */
         StringBuilder errDetail = new StringBuilder(512);
-        if (!userToken.validateForAuthorizedService(publicKey, errDetail)) {
+        boolean tokenValidated;
+        PublicKey parsedPublicKey = keyStore.getParsedPublicKey(serviceDomain, serviceName, keyId);
+        if (parsedPublicKey != null) {
+            tokenValidated = userToken.validateForAuthorizedService(parsedPublicKey, errDetail);
+        } else {
+            String publicKey = keyStore.getPublicKey(serviceDomain, serviceName, keyId);
+            tokenValidated = userToken.validateForAuthorizedService(publicKey, errDetail);
+        }
+        if (!tokenValidated) {
             errMsg.append("PrincipalAuthority:validateAuthorizeService: token validation for authorized service failed: ").
                    append(errDetail);
             return null;
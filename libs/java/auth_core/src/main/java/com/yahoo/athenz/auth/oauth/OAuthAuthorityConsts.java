@@ -41,6 +41,8 @@ public final class OAuthAuthorityConsts {
     public static final String JA_PROP_CLAIM_AUD = "claim.aud";
     public static final String JA_PROP_CLAIM_SCOPE = "claim.scope";
     public static final String JA_PROP_AUTHORIZED_CLIENT_IDS_PATH = "authorized_client_ids_path";
+    // verified JWT cache, 0 to disable
+    public static final String JA_PROP_CACHE_MAX_SIZE = "cache.max_size";
     // general
     public static final String SYSTEM_PROP_PREFIX = "athenz.auth.oauth.jwt.";
     public static final String CSV_DELIMITER = ",";
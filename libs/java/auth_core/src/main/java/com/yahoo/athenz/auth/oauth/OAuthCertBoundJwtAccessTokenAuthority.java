@@ -32,6 +32,7 @@ import com.yahoo.athenz.auth.impl.SimplePrincipal;
 import com.yahoo.athenz.auth.oauth.parser.OAuthJwtAccessTokenParser;
 import com.yahoo.athenz.auth.oauth.parser.OAuthJwtAccessTokenParserFactory;
 import com.yahoo.athenz.auth.oauth.token.OAuthJwtAccessToken;
+import com.yahoo.athenz.auth.oauth.token.OAuthJwtAccessTokenCache;
 import com.yahoo.athenz.auth.oauth.token.OAuthJwtAccessTokenException;
 import com.yahoo.athenz.auth.oauth.util.OAuthAuthorityUtils;
 import com.yahoo.athenz.auth.oauth.validator.DefaultOAuthJwtAccessTokenValidator;
@@ -144,6 +145,7 @@ public class OAuthCertBoundJwtAccessTokenAuthority implements Authority {
     private OAuthJwtAccessTokenValidator validator = null;
     Map<String, String> authorizedServices = null;
     private boolean shouldVerifyCertThumbprint = true;
+    private OAuthJwtAccessTokenCache tokenCache = null;
 
     @Override
     public void initialize() {
@@ -183,6 +185,36 @@ public class OAuthCertBoundJwtAccessTokenAuthority implements Authority {
         Set<String> requiredScopes = OAuthAuthorityUtils.csvToSet(OAuthAuthorityUtils.getProperty(OAuthAuthorityConsts.JA_PROP_CLAIM_SCOPE, "sys.auth:role.admin"), OAuthJwtAccessToken.SCOPE_DELIMITER);
         // JWT validator
         this.validator = new DefaultOAuthJwtAccessTokenValidator(trustedIssuer, requiredAudiences, requiredScopes, authorizedClientIds);
+
+        // verified JWT cache
+        int cacheMaxSize = Integer.parseInt(OAuthAuthorityUtils.getProperty(OAuthAuthorityConsts.JA_PROP_CACHE_MAX_SIZE, "10000"));
+        this.tokenCache = cacheMaxSize > 0 ? new OAuthJwtAccessTokenCache(cacheMaxSize) : null;
+    }
+
+    /**
+     * Parse the JWT and validate the claims that do not depend on the request.
+     * The verified tokens are cached until they expire so the same token
+     * presented again is not parsed and its signature is not verified again.
+     * @param  jwsString                    JWT string
+     * @return                              the verified access token
+     * @throws OAuthJwtAccessTokenException invalid JWT
+     */
+    OAuthJwtAccessToken parseAndValidate(String jwsString) throws OAuthJwtAccessTokenException {
+        final long currentTime = System.currentTimeMillis() / 1000;
+        if (this.tokenCache != null) {
+            OAuthJwtAccessToken at = this.tokenCache.get(jwsString, currentTime);
+            if (at != null) {
+                return at;
+            }
+        }
+
+        OAuthJwtAccessToken at = this.parser.parse(jwsString);
+        this.validator.validate(at);
+
+        if (this.tokenCache != null) {
+            this.tokenCache.put(jwsString, at, currentTime);
+        }
+        return at;
     }
 
     /**
@@ -219,18 +251,17 @@ public class OAuthCertBoundJwtAccessTokenAuthority implements Authority {
         X509Certificate clientCert = certificateIdentity.getX509Certificate();
         String clientCertPrincipal = certificateIdentity.getPrincipalName();
 
-        // parse JWT
+        // parse and validate JWT
         OAuthJwtAccessToken at;
         try {
-            at = this.parser.parse(jwsString);
+            at = this.parseAndValidate(jwsString);
         } catch (OAuthJwtAccessTokenException e) {
             this.reportError("OAuthCertBoundJwtAccessTokenAuthority:authenticate: invalid JWT: " + e.getMessage(), errMsg);
             return null;
         }
 
-        // validate JWT
+        // validate JWT against the request
         try {
-            this.validator.validate(at);
             this.validator.validateClientId(at, clientCertPrincipal);
 
             if (this.shouldVerifyCertThumbprint) {
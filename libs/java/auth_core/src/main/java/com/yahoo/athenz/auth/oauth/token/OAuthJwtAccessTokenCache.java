@@ -0,0 +1,151 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.auth.oauth.token;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the JWT access tokens that have already been parsed,
+ * had their signature verified and their request independent claims
+ * validated. The entries are keyed by the digest of the token signature
+ * and are kept until the token expires. The cache only stores the token
+ * specific results so the caller must still carry out all the checks
+ * that depend on the request (e.g. client id and certificate binding).
+ */
+public class OAuthJwtAccessTokenCache {
+
+    private static final char JWS_DELIMITER = '.';
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private final AtomicLong lastExpirySweepTime = new AtomicLong();
+    private final int maxSize;
+
+    /**
+     * Create the access token cache
+     * @param maxSize max number of tokens in the cache
+     */
+    public OAuthJwtAccessTokenCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Return the verified access token for the given JWS string
+     * @param  jwsString   JWS compact serialization of the access token
+     * @param  currentTime current time in seconds
+     * @return             the verified token or null if not in the cache or expired
+     */
+    public OAuthJwtAccessToken get(final String jwsString, long currentTime) {
+
+        final String key = getCacheKey(jwsString);
+        if (key == null) {
+            return null;
+        }
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        // with deterministic signature algorithms the same signature can
+        // be attached to a modified header and payload, so we only return
+        // the cached token if the full token matches the verified one
+
+        if (!entry.jwsString.equals(jwsString)) {
+            return null;
+        }
+
+        if (entry.token.getExpiration() <= currentTime) {
+            cache.remove(key, entry);
+            return null;
+        }
+        return entry.token;
+    }
+
+    /**
+     * Add the verified access token to the cache. If the cache is full,
+     * the expired tokens are removed first and if there is still no room
+     * then the token is not cached. Removing the expired tokens requires
+     * a scan of the full cache so it's carried out at most once a second.
+     * @param jwsString   JWS compact serialization of the access token
+     * @param token       access token parsed and verified from the jwsString
+     * @param currentTime current time in seconds
+     */
+    public void put(final String jwsString, OAuthJwtAccessToken token, long currentTime) {
+
+        if (token.getExpiration() <= currentTime) {
+            return;
+        }
+        final String key = getCacheKey(jwsString);
+        if (key == null) {
+            return;
+        }
+        if (cache.size() >= maxSize) {
+            final long lastSweepTime = lastExpirySweepTime.get();
+            if (currentTime <= lastSweepTime || !lastExpirySweepTime.compareAndSet(lastSweepTime, currentTime)) {
+                return;
+            }
+            removeExpiredTokens(currentTime);
+            if (cache.size() >= maxSize) {
+                return;
+            }
+        }
+        cache.put(key, new Entry(jwsString, token));
+    }
+
+    /**
+     * Remove all the expired tokens from the cache
+     * @param currentTime current time in seconds
+     */
+    public void removeExpiredTokens(long currentTime) {
+        cache.values().removeIf(entry -> entry.token.getExpiration() <= currentTime);
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    String getCacheKey(final String jwsString) {
+
+        final int idx = jwsString.lastIndexOf(JWS_DELIMITER);
+        if (idx == -1 || idx == jwsString.length() - 1) {
+            return null;
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(jwsString.substring(idx + 1).getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            return null;
+        }
+    }
+
+    static class Entry {
+
+        final String jwsString;
+        final OAuthJwtAccessToken token;
+
+        Entry(final String jwsString, OAuthJwtAccessToken token) {
+            this.jwsString = jwsString;
+            this.token = token;
+        }
+    }
+}
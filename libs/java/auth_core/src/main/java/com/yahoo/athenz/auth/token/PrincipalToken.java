@@ -384,12 +384,6 @@ public class PrincipalToken extends Token {
             return false;
         }
 
-        // since at this point authorizedServiceSignature is not null
-        // our signed token has the ";bs=" component
-
-        int idx = signedToken.indexOf(";bs=");
-        String unsignedAuthorizedServiceToken = signedToken.substring(0, idx);
-        
         if (pubKey == null) {
             errMsg.append("PrincipalToken:validateForAuthorizedService: token=").
                    append(unsignedToken).append(" : No public key provided");
@@ -398,14 +392,57 @@ public class PrincipalToken extends Token {
         }
         
         PublicKey pub;
-        boolean verified = false; // fail safe
         try {
             pub = Crypto.loadPublicKey(pubKey);
+        } catch (Exception e) {
+            errMsg.append("PrincipalToken:validateForAuthorizedService: token=").
+                   append(unsignedToken).
+                   append(" : authentication failed verifying signature: exc=").
+                   append(e.getMessage()).append(" : public key=").append(pubKey);
+            LOG.error(errMsg.toString());
+            return false;
+        }
+
+        return verifyAuthorizedServiceSignature(pub, pubKey, errMsg);
+    }
+
+    public boolean validateForAuthorizedService(PublicKey pub, StringBuilder errMsg) {
+        errMsg = errMsg == null ? new StringBuilder(512) : errMsg;
+        if (authorizedServiceSignature == null) {
+            errMsg.append("PrincipalToken:validateForAuthorizedService: token=").
+                   append(unsignedToken).
+                   append(" : missing data/signature component");
+            LOG.error(errMsg.toString());
+            return false;
+        }
+
+        if (pub == null) {
+            errMsg.append("PrincipalToken:validateForAuthorizedService: token=").
+                   append(unsignedToken).append(" : No public key provided");
+            LOG.error(errMsg.toString());
+            return false;
+        }
+
+        return verifyAuthorizedServiceSignature(pub, null, errMsg);
+    }
+
+    boolean verifyAuthorizedServiceSignature(PublicKey pub, final String pubKey, StringBuilder errMsg) {
+
+        // since at this point authorizedServiceSignature is not null
+        // our signed token has the ";bs=" component
+
+        int idx = signedToken.indexOf(";bs=");
+        String unsignedAuthorizedServiceToken = signedToken.substring(0, idx);
+
+        boolean verified = false; // fail safe
+        try {
             verified = Crypto.verify(unsignedAuthorizedServiceToken, pub, authorizedServiceSignature);
             if (!verified) {
                 errMsg.append("PrincipalToken:validateForAuthorizedService: token=").
-                       append(unsignedToken).append(" : authentication failed: public key=").
-                       append(pubKey);
+                       append(unsignedToken).append(" : authentication failed");
+                if (pubKey != null) {
+                    errMsg.append(": public key=").append(pubKey);
+                }
                 LOG.error(errMsg.toString());
             } else if (LOG.isDebugEnabled()) {
                 LOG.debug("validateForAuthorizedService: Token: {} -  successfully authenticated", unsignedToken);
@@ -414,7 +451,10 @@ public class PrincipalToken extends Token {
             errMsg.append("PrincipalToken:validateForAuthorizedService: token=").
                    append(unsignedToken).
                    append(" : authentication failed verifying signature: exc=").
-                   append(e.getMessage()).append(" : public key=").append(pubKey);
+                   append(e.getMessage());
+            if (pubKey != null) {
+                errMsg.append(" : public key=").append(pubKey);
+            }
             LOG.error(errMsg.toString());
         }
 
@@ -1039,9 +1039,17 @@ public class Crypto {
         return extractX509CSRSubjectField(certReq, BCStyle.OU);
     }
 
-    private static List<String> extractX509CSRSANField(PKCS10CertificationRequest certReq, int tagNo) {
+    /**
+     * extractX509CSRSubjectAltNames returns all the subject alternative name
+     * entries from the extension request attributes of the CSR. Each call
+     * decodes the SAN extension so callers that need multiple SAN types
+     * should extract the names once and use the extractSAN* methods
+     * @param certReq PKCS10 certificate request
+     * @return list of subject alternative names
+     */
+    public static List<GeneralName> extractX509CSRSubjectAltNames(PKCS10CertificationRequest certReq) {
 
-        List<String> values = new ArrayList<>();
+        List<GeneralName> names = new ArrayList<>();
         Attribute[] attributes = certReq.getAttributes(PKCSObjectIdentifiers.pkcs_9_at_extensionRequest);
         for (Attribute attribute : attributes) {
             for (ASN1Encodable value : attribute.getAttributeValues()) {
@@ -1050,28 +1058,67 @@ public class Crypto {
                 if (gns == null) {
                     continue;
                 }
-                for (GeneralName name : gns.getNames()) {
-
-                    // GeneralName ::= CHOICE {
-                    //     otherName                       [0]     OtherName,
-                    //     rfc822Name                      [1]     IA5String,
-                    //     dNSName                         [2]     IA5String,
-                    //     x400Address                     [3]     ORAddress,
-                    //     directoryName                   [4]     Name,
-                    //     ediPartyName                    [5]     EDIPartyName,
-                    //     uniformResourceIdentifier       [6]     IA5String,
-                    //     iPAddress                       [7]     OCTET STRING,
-                    //     registeredID                    [8]     OBJECT IDENTIFIER}
-
-                    if (name.getTagNo() == tagNo) {
-                        values.add(((DERIA5String) name.getName()).getString());
-                    }
-                }
+                names.addAll(Arrays.asList(gns.getNames()));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * extractSANValues returns the string values of the given type from
+     * the subject alternative names
+     * @param names list of subject alternative names
+     * @param tagNo GeneralName tag number of the IA5String based type to extract
+     * @return list of values
+     */
+    public static List<String> extractSANValues(List<GeneralName> names, int tagNo) {
+
+        List<String> values = new ArrayList<>();
+        for (GeneralName name : names) {
+
+            // GeneralName ::= CHOICE {
+            //     otherName                       [0]     OtherName,
+            //     rfc822Name                      [1]     IA5String,
+            //     dNSName                         [2]     IA5String,
+            //     x400Address                     [3]     ORAddress,
+            //     directoryName                   [4]     Name,
+            //     ediPartyName                    [5]     EDIPartyName,
+            //     uniformResourceIdentifier       [6]     IA5String,
+            //     iPAddress                       [7]     OCTET STRING,
+            //     registeredID                    [8]     OBJECT IDENTIFIER}
+
+            if (name.getTagNo() == tagNo) {
+                values.add(((DERIA5String) name.getName()).getString());
             }
         }
         return values;
     }
 
+    /**
+     * extractSANIPAddresses returns the ip addresses from the subject
+     * alternative names
+     * @param names list of subject alternative names
+     * @return list of ip addresses
+     */
+    public static List<String> extractSANIPAddresses(List<GeneralName> names) {
+
+        List<String> ipAddresses = new ArrayList<>();
+        for (GeneralName name : names) {
+            if (name.getTagNo() == GeneralName.iPAddress) {
+                try {
+                    InetAddress addr = InetAddress.getByAddress(((DEROctetString) name.getName()).getOctets());
+                    ipAddresses.add(addr.getHostAddress());
+                } catch (UnknownHostException ignored) {
+                }
+            }
+        }
+        return ipAddresses;
+    }
+
+    private static List<String> extractX509CSRSANField(PKCS10CertificationRequest certReq, int tagNo) {
+        return extractSANValues(extractX509CSRSubjectAltNames(certReq), tagNo);
+    }
+
     public static String extractX509CSREmail(PKCS10CertificationRequest certReq) {
         List<String> emails = extractX509CSRSANField(certReq, GeneralName.rfc822Name);
         if (emails.size() == 0) {
@@ -1093,28 +1140,7 @@ public class Crypto {
     }
 
     public static List<String> extractX509CSRIPAddresses(PKCS10CertificationRequest certReq) {
-
-        List<String> ipAddresses = new ArrayList<>();
-        Attribute[] attributes = certReq.getAttributes(PKCSObjectIdentifiers.pkcs_9_at_extensionRequest);
-        for (Attribute attribute : attributes) {
-            for (ASN1Encodable value : attribute.getAttributeValues()) {
-                Extensions extensions = Extensions.getInstance(value);
-                GeneralNames gns = GeneralNames.fromExtensions(extensions, Extension.subjectAlternativeName);
-                if (gns == null) {
-                    continue;
-                }
-                for (GeneralName name : gns.getNames()) {
-                    if (name.getTagNo() == GeneralName.iPAddress) {
-                        try {
-                            InetAddress addr = InetAddress.getByAddress(((DEROctetString) name.getName()).getOctets());
-                            ipAddresses.add(addr.getHostAddress());
-                        } catch (UnknownHostException ignored) {
-                        }
-                    }
-                }
-            }
-        }
-        return ipAddresses;
+        return extractSANIPAddresses(extractX509CSRSubjectAltNames(certReq));
     }
 
     public static String extractX509CSRPublicKey(PKCS10CertificationRequest certReq) {
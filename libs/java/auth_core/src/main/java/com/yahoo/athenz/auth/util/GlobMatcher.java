@@ -0,0 +1,197 @@
+/*
+ *  Copyright The Athenz Authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.yahoo.athenz.auth.util;
+
+/**
+ * Matches values against glob patterns where '*' matches any sequence
+ * of characters (including empty) and '?' matches exactly one character.
+ * All other characters are matched literally. The match results are
+ * the same as matching the value against the regular expression returned
+ * by {@link StringUtils#patternFromGlob(String)}, including that the
+ * wildcards do not match line terminator characters, but the values
+ * are matched directly without creating regex patterns or matchers.
+ */
+public final class GlobMatcher {
+
+    private static final int TYPE_EMPTY = 0;
+    private static final int TYPE_LITERAL = 1;
+    private static final int TYPE_ANY = 2;
+    private static final int TYPE_PREFIX = 3;
+    private static final int TYPE_GLOB = 4;
+
+    private final String glob;
+    private final String literal;
+    private final int type;
+
+    /**
+     * Compile the given glob pattern. Patterns without any wildcards
+     * are matched with a string compare, "*" matches any value and
+     * patterns in the "prefix*" format are matched with a prefix check.
+     * @param glob glob pattern
+     */
+    public GlobMatcher(final String glob) {
+
+        this.glob = glob;
+
+        final int starIdx = glob.indexOf('*');
+        final boolean hasQuestionMark = glob.indexOf('?') != -1;
+
+        if (glob.isEmpty()) {
+            type = TYPE_EMPTY;
+            literal = glob;
+        } else if (starIdx == -1 && !hasQuestionMark) {
+            type = TYPE_LITERAL;
+            literal = glob;
+        } else if (!hasQuestionMark && starIdx == glob.length() - 1) {
+            type = starIdx == 0 ? TYPE_ANY : TYPE_PREFIX;
+            literal = glob.substring(0, starIdx);
+        } else {
+            type = TYPE_GLOB;
+            literal = null;
+        }
+    }
+
+    /**
+     * @return the glob pattern this matcher was compiled from
+     */
+    public String getGlob() {
+        return glob;
+    }
+
+    /**
+     * @return true if the glob pattern is empty and matches only empty values
+     */
+    public boolean isEmpty() {
+        return type == TYPE_EMPTY;
+    }
+
+    /**
+     * Check if the given value matches the compiled glob pattern
+     * @param value value to check
+     * @return true if the full value matches the pattern
+     */
+    public boolean matches(final String value) {
+        switch (type) {
+            case TYPE_EMPTY:
+            case TYPE_LITERAL:
+                return literal.equals(value);
+            case TYPE_ANY:
+                return !containsLineTerminator(value, 0);
+            case TYPE_PREFIX:
+                return value.startsWith(literal) && !containsLineTerminator(value, literal.length());
+            default:
+                return matches(glob, value);
+        }
+    }
+
+    /**
+     * Check if the given value matches the glob pattern without compiling
+     * the pattern first. The value is processed in a single pass and when
+     * a character does not match, the processing only backtracks to the
+     * position after the last '*' in the pattern, so the matching loop
+     * does not allocate any objects.
+     * @param glob glob pattern
+     * @param value value to check
+     * @return true if the full value matches the pattern
+     */
+    public static boolean matches(final String glob, final String value) {
+
+        final int globLength = glob.length();
+        final int valueLength = value.length();
+
+        int globIdx = 0;
+        int valueIdx = 0;
+        int starGlobIdx = -1;
+        int starValueIdx = 0;
+
+        while (valueIdx < valueLength) {
+            if (globIdx < globLength) {
+                final char globChar = glob.charAt(globIdx);
+                if (globChar == '*') {
+
+                    // remember the position of the star so we can come back
+                    // and extend the sequence that it matches if needed
+
+                    starGlobIdx = globIdx++;
+                    starValueIdx = valueIdx;
+                    continue;
+                }
+                final char valueChar = value.charAt(valueIdx);
+                if (globChar == '?' ? !isLineTerminator(valueChar) : globChar == valueChar) {
+                    globIdx++;
+                    valueIdx++;
+                    continue;
+                }
+            }
+
+            // no match at the current position so we need to extend the
+            // sequence matched by the last star by one character
+
+            if (starGlobIdx == -1 || isLineTerminator(value.charAt(starValueIdx))) {
+                return false;
+            }
+            globIdx = starGlobIdx + 1;
+            valueIdx = ++starValueIdx;
+        }
+
+        // any remaining characters in the glob must be stars
+        // that match the empty sequence
+
+        while (globIdx < globLength && glob.charAt(globIdx) == '*') {
+            globIdx++;
+        }
+        return globIdx == globLength;
+    }
+
+    static boolean containsLineTerminator(final String value, int startIdx) {
+        final int length = value.length();
+        for (int i = startIdx; i < length; i++) {
+            if (isLineTerminator(value.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isLineTerminator(char c) {
+
+        // same set of characters that are not matched by the
+        // regex '.' character without the DOTALL flag
+
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return glob.equals(((GlobMatcher) o).glob);
+    }
+
+    @Override
+    public int hashCode() {
+        return glob.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return glob;
+    }
+}
@@ -26,23 +26,28 @@ import java.util.stream.Collectors;
 public class GlobStringsMatcher {
     private static final Logger LOGGER = LoggerFactory.getLogger(GlobStringsMatcher.class);
 
-    private final List<String> patterns;
+    private final List<GlobMatcher> patterns;
 
     public GlobStringsMatcher(String systemProperty) {
         List<String> globList = AthenzUtils.splitCommaSeparatedSystemProperty(systemProperty);
-        patterns = globList.stream().map(StringUtils::patternFromGlob).collect(Collectors.toList());
+        patterns = globList.stream().map(GlobMatcher::new).collect(Collectors.toList());
         if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug(String.format("Property: %s, Regex List: %s", systemProperty, Arrays.toString(patterns.toArray())));
+            LOGGER.debug(String.format("Property: %s, Glob List: %s", systemProperty, Arrays.toString(patterns.toArray())));
         }
     }
 
     public boolean isEmptyPatternsList() {
         return (patterns == null ||
                 patterns.isEmpty() ||
-                (patterns.size() == 1 && patterns.get(0).equals("^$")));
+                (patterns.size() == 1 && patterns.get(0).isEmpty()));
     }
 
     public boolean isMatch(String value) {
-        return patterns.stream().anyMatch(value::matches);
+        for (GlobMatcher pattern : patterns) {
+            if (pattern.matches(value)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -20,7 +20,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.PublicKey;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.*;
@@ -36,6 +39,7 @@ import com.yahoo.athenz.auth.Principal;
 import com.yahoo.athenz.auth.Authority.CredSource;
 import com.yahoo.athenz.auth.impl.PrincipalAuthority.IpCheckMode;
 import com.yahoo.athenz.auth.token.PrincipalToken;
+import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.auth.util.CryptoException;
 
 public class PrincipalAuthorityTest {
@@ -216,6 +220,66 @@ public class PrincipalAuthorityTest {
         assertEquals(principal.getAuthorizedService(), "sports.fantasy");
     }
 
+    @Test
+    public void testPrincipalAuthorityWithParsedPublicKeys() throws IOException, CryptoException {
+
+        // key store that returns the parsed public keys and keeps
+        // track of the keys requested in both formats
+
+        List<String> parsedKeyRequests = new ArrayList<>();
+        List<String> pemKeyRequests = new ArrayList<>();
+        KeyStore keyStore = new KeyStoreMock() {
+            @Override
+            public String getPublicKey(String domain, String service, String keyId) {
+                pemKeyRequests.add(domain + "." + service + ":" + keyId);
+                return super.getPublicKey(domain, service, keyId);
+            }
+
+            @Override
+            public PublicKey getParsedPublicKey(String domain, String service, String keyId) {
+                parsedKeyRequests.add(domain + "." + service + ":" + keyId);
+                final String publicKey = super.getPublicKey(domain, service, keyId);
+                return publicKey == null ? null : Crypto.loadPublicKey(publicKey);
+            }
+        };
+
+        PrincipalAuthority serviceAuthority = new PrincipalAuthority();
+        serviceAuthority.setKeyStore(keyStore);
+
+        List<String> authorizedServices = new ArrayList<>();
+        authorizedServices.add("sports.fantasy");
+        authorizedServices.add("sports.hockey");
+
+        long issueTime = System.currentTimeMillis() / 1000;
+        PrincipalToken userTokenToSign = new PrincipalToken.Builder(usrVersion, usrDomain, usrName)
+            .salt(salt).ip("127.0.0.2").issueTime(issueTime).expirationWindow(expirationTime)
+            .authorizedServices(authorizedServices).build();
+        userTokenToSign.sign(servicePrivateKeyStringK0);
+        userTokenToSign.signForAuthorizedService("sports.fantasy", "1", servicePrivateKeyStringK1);
+
+        StringBuilder errMsg = new StringBuilder();
+        Principal principal = serviceAuthority.authenticate(userTokenToSign.getSignedToken(),
+                "127.0.0.3", "POST", errMsg);
+
+        assertNotNull(principal);
+        assertEquals(principal.getAuthorizedService(), "sports.fantasy");
+        assertEquals(parsedKeyRequests, Arrays.asList("sys.auth.zms:0", "sports.fantasy:1"));
+        assertTrue(pemKeyRequests.isEmpty());
+
+        // unknown key id falls back to the pem encoded key which fails as well
+
+        PrincipalToken serviceToken = new PrincipalToken.Builder(svcVersion, svcDomain, svcName)
+            .host(host).salt(salt).expirationWindow(expirationTime).keyId("unknown").build();
+        serviceToken.sign(servicePrivateKeyStringK0);
+
+        parsedKeyRequests.clear();
+        errMsg.setLength(0);
+        assertNull(serviceAuthority.authenticate(serviceToken.getSignedToken(), null, "GET", errMsg));
+        assertTrue(errMsg.toString().contains("No public key provided"));
+        assertEquals(parsedKeyRequests, Collections.singletonList("sports.fantasy:unknown"));
+        assertEquals(pemKeyRequests, Collections.singletonList("sports.fantasy:unknown"));
+    }
+
     @Test
     public void testGetID() {
         PrincipalAuthority authority = new PrincipalAuthority();
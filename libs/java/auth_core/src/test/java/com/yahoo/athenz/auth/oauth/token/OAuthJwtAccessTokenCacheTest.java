@@ -0,0 +1,123 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.auth.oauth.token;
+
+import static org.testng.Assert.*;
+
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+public class OAuthJwtAccessTokenCacheTest {
+
+    private OAuthJwtAccessToken mockToken(long expiration) {
+        OAuthJwtAccessToken token = Mockito.mock(OAuthJwtAccessToken.class);
+        Mockito.when(token.getExpiration()).thenReturn(expiration);
+        return token;
+    }
+
+    @Test
+    public void testGetPut() {
+        OAuthJwtAccessTokenCache cache = new OAuthJwtAccessTokenCache(10);
+        OAuthJwtAccessToken token = mockToken(2000L);
+
+        assertNull(cache.get("header.payload.signature", 1000L));
+        cache.put("header.payload.signature", token, 1000L);
+        assertEquals(cache.size(), 1);
+        assertSame(cache.get("header.payload.signature", 1000L), token);
+        assertSame(cache.get("header.payload.signature", 1999L), token);
+
+        // same signature with a different header or payload must not match
+
+        assertNull(cache.get("header.modified.signature", 1000L));
+        assertNull(cache.get("modified.payload.signature", 1000L));
+        assertNull(cache.get("header.payload.signature2", 1000L));
+        assertEquals(cache.size(), 1);
+
+        // expired token is removed from the cache
+
+        assertNull(cache.get("header.payload.signature", 2000L));
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testPutExpiredToken() {
+        OAuthJwtAccessTokenCache cache = new OAuthJwtAccessTokenCache(10);
+        cache.put("header.payload.signature", mockToken(1000L), 1000L);
+        cache.put("header.payload.signature", mockToken(0L), 1000L);
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testPutInvalidJws() {
+        OAuthJwtAccessTokenCache cache = new OAuthJwtAccessTokenCache(10);
+        cache.put("no_delimiter", mockToken(2000L), 1000L);
+        cache.put("header.payload.", mockToken(2000L), 1000L);
+        assertEquals(cache.size(), 0);
+        assertNull(cache.get("no_delimiter", 1000L));
+        assertNull(cache.get("header.payload.", 1000L));
+    }
+
+    @Test
+    public void testPutMaxSize() {
+        OAuthJwtAccessTokenCache cache = new OAuthJwtAccessTokenCache(2);
+        cache.put("header.payload.signature1", mockToken(1500L), 1000L);
+        cache.put("header.payload.signature2", mockToken(3000L), 1000L);
+        assertEquals(cache.size(), 2);
+
+        // cache is full so the new token is not added
+
+        OAuthJwtAccessToken token = mockToken(3000L);
+        cache.put("header.payload.signature3", token, 1000L);
+        assertEquals(cache.size(), 2);
+        assertNull(cache.get("header.payload.signature3", 1000L));
+
+        // once the first token expires, it is removed to make room
+
+        cache.put("header.payload.signature3", token, 1600L);
+        assertEquals(cache.size(), 2);
+        assertNull(cache.get("header.payload.signature1", 1600L));
+        assertSame(cache.get("header.payload.signature3", 1600L), token);
+    }
+
+    @Test
+    public void testPutMaxSizeSweepRateLimited() {
+        OAuthJwtAccessTokenCache cache = Mockito.spy(new OAuthJwtAccessTokenCache(1));
+        cache.put("header.payload.signature1", mockToken(3000L), 1000L);
+
+        // the expired tokens are only removed once for the same second
+
+        cache.put("header.payload.signature2", mockToken(3000L), 1000L);
+        cache.put("header.payload.signature3", mockToken(3000L), 1000L);
+        cache.put("header.payload.signature4", mockToken(3000L), 999L);
+        Mockito.verify(cache, Mockito.times(1)).removeExpiredTokens(Mockito.anyLong());
+
+        cache.put("header.payload.signature2", mockToken(3000L), 1001L);
+        cache.put("header.payload.signature3", mockToken(3000L), 1001L);
+        Mockito.verify(cache, Mockito.times(2)).removeExpiredTokens(Mockito.anyLong());
+        assertEquals(cache.size(), 1);
+        assertNotNull(cache.get("header.payload.signature1", 1001L));
+    }
+
+    @Test
+    public void testRemoveExpiredTokens() {
+        OAuthJwtAccessTokenCache cache = new OAuthJwtAccessTokenCache(10);
+        cache.put("header.payload.signature1", mockToken(1500L), 1000L);
+        cache.put("header.payload.signature2", mockToken(3000L), 1000L);
+        cache.removeExpiredTokens(2000L);
+        assertEquals(cache.size(), 1);
+        assertNotNull(cache.get("header.payload.signature2", 2000L));
+    }
+}
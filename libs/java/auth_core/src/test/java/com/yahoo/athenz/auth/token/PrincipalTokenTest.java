@@ -21,12 +21,14 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.PublicKey;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
+import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.auth.util.CryptoException;
 
 public class PrincipalTokenTest {
@@ -602,6 +604,45 @@ public class PrincipalTokenTest {
         assertFalse(errMsg.toString().isEmpty());
     }
 
+    @Test
+    public void testValidateForAuthorizedServiceParsedKey() {
+
+        long issueTime = System.currentTimeMillis() / 1000;
+        List<String> authorizedServices = new ArrayList<>();
+        authorizedServices.add("coretech.storage");
+
+        PrincipalToken userTokenToSign = new PrincipalToken.Builder(usrVersion, usrDomain, usrName)
+            .salt(salt).issueTime(issueTime).expirationWindow(expirationTime)
+            .authorizedServices(authorizedServices).build();
+        userTokenToSign.sign(servicePrivateKeyStringK0);
+
+        // validate the token without the authorized service signature
+
+        PrincipalToken userTokenToValidate = new PrincipalToken(userTokenToSign.getSignedToken());
+        PublicKey publicKeyK1 = Crypto.loadPublicKey(servicePublicKeyStringK1);
+        StringBuilder errMsg = new StringBuilder();
+        assertFalse(userTokenToValidate.validateForAuthorizedService(publicKeyK1, errMsg));
+        assertTrue(errMsg.toString().contains("missing data/signature component"));
+
+        userTokenToSign.signForAuthorizedService("coretech.storage", "1", servicePrivateKeyStringK1);
+        userTokenToValidate = new PrincipalToken(userTokenToSign.getSignedToken());
+
+        assertTrue(userTokenToValidate.validateForAuthorizedService(publicKeyK1, null));
+        assertTrue(userTokenToValidate.validate(Crypto.loadPublicKey(servicePublicKeyStringK0), 300, false, null));
+
+        errMsg.setLength(0);
+        assertFalse(userTokenToValidate.validateForAuthorizedService((PublicKey) null, errMsg));
+        assertTrue(errMsg.toString().contains("No public key provided"));
+
+        // wrong public key
+
+        errMsg.setLength(0);
+        assertFalse(userTokenToValidate.validateForAuthorizedService(
+                Crypto.loadPublicKey(servicePublicKeyStringK0), errMsg));
+        assertTrue(errMsg.toString().contains("authentication failed"));
+        assertFalse(errMsg.toString().contains("public key="));
+    }
+
     @Test
     public void testValidateForAuthorizedServiceNoSignature() throws CryptoException {
         long issueTime = System.currentTimeMillis() / 1000;
@@ -750,10 +791,10 @@ public class PrincipalTokenTest {
     @Test
     public void testValidateForAuthorizedServiceIllegal() {
         PrincipalToken token = new PrincipalToken("bs=signature;v=S1;d=domain;n=service;t=1234;e=1235;k=0;h=host1;i=1.2.3.4;b=svc1;s=signature;bk=0;bn=svc1");
-        assertFalse(token.validateForAuthorizedService(null, null));
+        assertFalse(token.validateForAuthorizedService((String) null, null));
         
         token = new PrincipalToken("v=S1;d=domain;n=service;t=1234;e=1235;k=0;h=host1;i=1.2.3.4;b=svc1;s=signature;bk=1;bn=svc1;bs=signature");
-        assertFalse(token.validateForAuthorizedService(null, null));
+        assertFalse(token.validateForAuthorizedService((String) null, null));
 
         assertFalse(token.validateForAuthorizedService(servicePublicKeyStringK1, null));
     }
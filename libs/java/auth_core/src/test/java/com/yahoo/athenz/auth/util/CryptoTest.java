@@ -1147,6 +1147,28 @@ public class CryptoTest {
         assertEquals(ips.get(1), "10.11.12.14");
     }
 
+    @Test
+    public void testExtractX509CSRSubjectAltNames() throws IOException {
+
+        Path path = Paths.get("src/test/resources/multiple_ips.csr");
+        String csr = new String(Files.readAllBytes(path));
+        PKCS10CertificationRequest certReq = Crypto.getPKCS10CertRequest(csr);
+        assertNotNull(certReq);
+
+        // the values extracted from the single list of names must match
+        // the values extracted directly from the csr
+
+        List<GeneralName> names = Crypto.extractX509CSRSubjectAltNames(certReq);
+        assertFalse(names.isEmpty());
+        assertEquals(Crypto.extractSANIPAddresses(names), Crypto.extractX509CSRIPAddresses(certReq));
+        assertEquals(Crypto.extractSANValues(names, GeneralName.dNSName), Crypto.extractX509CSRDnsNames(certReq));
+        assertEquals(Crypto.extractSANValues(names, GeneralName.uniformResourceIdentifier),
+                Crypto.extractX509CSRURIs(certReq));
+
+        assertTrue(Crypto.extractSANValues(Collections.emptyList(), GeneralName.dNSName).isEmpty());
+        assertTrue(Crypto.extractSANIPAddresses(Collections.emptyList()).isEmpty());
+    }
+
     @Test
     public void testGenerateRSAPrivateKey() {
         PrivateKey pkey = Crypto.generateRSAPrivateKey(1024);
@@ -0,0 +1,132 @@
+/*
+ *  Copyright The Athenz Authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.yahoo.athenz.auth.util;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class GlobMatcherTest {
+
+    @DataProvider(name = "globs")
+    public static Object[][] globs() {
+        return new Object[][] {
+                { "", "", true },
+                { "", "a", false },
+                { "coretech:role.readers", "coretech:role.readers", true },
+                { "coretech:role.readers", "coretech:role.reader", false },
+                { "coretech:role.readers", "coretech:role.readersx", false },
+                { "coretech:role.readers", "coretech:roleXreaders", false },
+                { "*", "", true },
+                { "*", "coretech:role.readers", true },
+                { "**", "coretech", true },
+                { "coretech:*", "coretech:role.readers", true },
+                { "coretech:*", "coretech:", true },
+                { "coretech:*", "coretech", false },
+                { "coretech:*", "sports:role.readers", false },
+                { "*:role.readers", "coretech:role.readers", true },
+                { "*:role.readers", ":role.readers", true },
+                { "*:role.readers", "coretech:role.writers", false },
+                { "coretech:*.readers", "coretech:role.readers", true },
+                { "coretech:*.readers", "coretech:role.dev.readers", true },
+                { "coretech:*.readers", "coretech:role.writers", false },
+                { "coretech:role.?eaders", "coretech:role.readers", true },
+                { "coretech:role.?eaders", "coretech:role.eaders", false },
+                { "???", "abc", true },
+                { "???", "ab", false },
+                { "???", "abcd", false },
+                { "a*b*c", "abc", true },
+                { "a*b*c", "aXXbYYc", true },
+                { "a*b*c", "aXXbYYcZ", false },
+                { "a*b*c", "acb", false },
+                { "*a*a*a*b", "aaaaaaaaaaaaaaaaaaab", true },
+                { "*a*a*a*b", "aaaaaaaaaaaaaaaaaaaa", false },
+                { "*.*.*", "a.b.c", true },
+                { "*.*.*", "a.b", false },
+                { "a*?", "a", false },
+                { "a*?", "ab", true },
+                { "a?*c", "abc", true },
+                { "a?*c", "ac", false },
+                { "(a)[b]{c}^$|+\\", "(a)[b]{c}^$|+\\", true },
+                { "(a)[b]{c}^$|+\\", "(a)[b]{c}^$|+", false },
+                { "*", "line\nbreak", false },
+                { "line*", "line\nbreak", false },
+                { "line?break", "line\nbreak", false },
+                { "line*break", "line\nbreak", false },
+                { "line\nbreak", "line\nbreak", true },
+        };
+    }
+
+    @Test(dataProvider = "globs")
+    public void testMatches(final String glob, final String value, boolean result) {
+
+        assertEquals(GlobMatcher.matches(glob, value), result);
+        assertEquals(new GlobMatcher(glob).matches(value), result);
+
+        // verify that we're consistent with the regex based matching
+
+        assertEquals(value.matches(StringUtils.patternFromGlob(glob)), result);
+    }
+
+    @Test
+    public void testMatchesRandomValues() {
+
+        // generate random globs and values from a small alphabet so
+        // we get a good number of matches and verify the results are
+        // the same as the regex based matching
+
+        final char[] globChars = { 'a', 'b', '.', '*', '?' };
+        final char[] valueChars = { 'a', 'b', '.', '\n' };
+        Random random = new Random(1234);
+        for (int i = 0; i < 20000; i++) {
+            final String glob = randomString(random, globChars, 8);
+            final String value = randomString(random, valueChars, 10);
+            final boolean expected = value.matches(StringUtils.patternFromGlob(glob));
+            assertEquals(GlobMatcher.matches(glob, value), expected, "glob: " + glob + " value: " + value);
+            assertEquals(new GlobMatcher(glob).matches(value), expected, "glob: " + glob + " value: " + value);
+        }
+    }
+
+    private String randomString(Random random, final char[] chars, int maxLength) {
+        final int length = random.nextInt(maxLength + 1);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(chars[random.nextInt(chars.length)]);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testGlobMatcherMethods() {
+
+        GlobMatcher matcher = new GlobMatcher("coretech:*");
+        assertEquals(matcher.getGlob(), "coretech:*");
+        assertEquals(matcher.toString(), "coretech:*");
+        assertFalse(matcher.isEmpty());
+
+        assertTrue(new GlobMatcher("").isEmpty());
+
+        assertEquals(matcher, matcher);
+        assertEquals(matcher, new GlobMatcher("coretech:*"));
+        assertEquals(matcher.hashCode(), new GlobMatcher("coretech:*").hashCode());
+        assertNotEquals(matcher, new GlobMatcher("coretech:?"));
+        assertNotEquals(matcher, "coretech:*");
+        assertNotEquals(matcher, null);
+    }
+}
@@ -35,6 +35,11 @@ public class KeyRefresher {
     //60 seconds * 60 (min in an hour)
     public static final int DEFAULT_RETRY_CHECK_FREQUENCY = 60_000 * 60;
 
+    public static final String PROP_WATCH_FILES         = "athenz.cert_refresher.watch_files";
+    public static final String PROP_WATCH_DEBOUNCE_TIME = "athenz.cert_refresher.watch_debounce_time";
+
+    private KeyRefresherFileWatcher fileWatcher;
+
     private final MessageDigest md = MessageDigest.getInstance("MD5");
     private final byte[] lastPublicCertManagerChecksum = new byte[md.getDigestLength()];
     private final byte[] lastPrivateKeyManagerChecksum = new byte[md.getDigestLength()];
@@ -67,6 +72,8 @@ public class KeyRefresher {
      * wake up once an hour and check the various public/private keys and trust store files
      * to see if they have been updated.  If so, it will automatically update the SSL context
      * correlating to the client/server that the *ManagerProxy objects are tied to.
+     * If the file watch is enabled, the files are also reloaded as soon as they
+     * are replaced.
      * <p>
      * If you want to stop this thread, you need to call the shutdown() method
      *
@@ -120,37 +127,47 @@ public class KeyRefresher {
         return trustManagerProxy;
     }
 
+    /**
+     * Check the trust store, private key and certificate files and if
+     * any of them have changed, update the corresponding proxy objects.
+     * The method is called by both the polling thread and the file
+     * watcher thread so the checks are synchronized.
+     */
+    synchronized void reloadChangedFiles() {
+        try {
+            if (trustStore != null && trustManagerProxy != null
+                    && haveFilesBeenChanged(trustStore.getFilePath(), lastTrustManagerChecksum)) {
+                trustManagerProxy.setTrustManager(trustStore.getTrustManagers());
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("KeyRefresher detected changes. Reloaded Trust Managers");
+                }
+            }
+            //we want to check both files (public + private) and update both checksums
+            boolean keyFilesChanged = haveFilesBeenChanged(athenzPrivateKey, lastPrivateKeyManagerChecksum);
+            keyFilesChanged = haveFilesBeenChanged(athenzPublicCert, lastPublicCertManagerChecksum) || keyFilesChanged;
+            if (keyFilesChanged) {
+
+                keyManagerProxy.setKeyManager(Utils.getKeyManagers(athenzPublicCert, athenzPrivateKey));
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("KeyRefresher detected changes. Reloaded Key managers");
+                }
+                //Signal key change event
+                if (keyRefresherListener != null) {
+                    keyRefresherListener.onKeyChangeEvent();
+                }
+            }
+        } catch (Exception ex) {
+            // if we could not reload the SSL context (but we tried) we will
+            // ignore it and hope it works on the next check
+            LOGGER.error("Error loading ssl context", ex);
+        }
+    }
+
     private void scanForFileChanges() {
         scanForFileChangesThread = new Thread(() -> {
             // run loop contents here
             while (!shutdown) {
-                try {
-                    if (trustStore != null && trustManagerProxy != null
-                            && haveFilesBeenChanged(trustStore.getFilePath(), lastTrustManagerChecksum)) {
-                        trustManagerProxy.setTrustManager(trustStore.getTrustManagers());
-                        if (LOGGER.isDebugEnabled()) {
-                            LOGGER.debug("KeyRefresher detected changes. Reloaded Trust Managers");
-                        }
-                    }
-                    //we want to check both files (public + private) and update both checksums
-                    boolean keyFilesChanged = haveFilesBeenChanged(athenzPrivateKey, lastPrivateKeyManagerChecksum);
-                    keyFilesChanged = haveFilesBeenChanged(athenzPublicCert, lastPublicCertManagerChecksum) || keyFilesChanged;
-                    if (keyFilesChanged) {
-                        
-                        keyManagerProxy.setKeyManager(Utils.getKeyManagers(athenzPublicCert, athenzPrivateKey));
-                        if (LOGGER.isDebugEnabled()) {
-                            LOGGER.debug("KeyRefresher detected changes. Reloaded Key managers");
-                        }
-                        //Signal key change event
-                        if (keyRefresherListener != null) {
-                            keyRefresherListener.onKeyChangeEvent();
-                        }
-                    }
-                } catch (Exception ex) {
-                    // if we could not reload the SSL context (but we tried) we will
-                    // ignore it and hope it works on the next loop
-                    LOGGER.error("Error loading ssl context", ex);
-                }
+                reloadChangedFiles();
                 try {
                     if (LOGGER.isDebugEnabled()) {
                         LOGGER.debug("KeyRefresher sleeping for {} ms", retryFrequency);
@@ -173,6 +190,10 @@ public class KeyRefresher {
      */
     public void shutdown() {
         shutdown = true;
+        if (fileWatcher != null) {
+            fileWatcher.close();
+            fileWatcher = null;
+        }
         if (scanForFileChangesThread != null) {
             scanForFileChangesThread.interrupt();
         }
@@ -186,15 +207,58 @@ public class KeyRefresher {
     }
 
     /**
-     * Start the refresher file scan task with given interval
+     * Start the refresher file scan task with given interval. If the
+     * athenz.cert_refresher.watch_files system property is set to true,
+     * the files are also watched for changes.
      * @param retryFrequency how often check for file changes
      */
     public void startup(int retryFrequency) {
+        startup(retryFrequency, Boolean.parseBoolean(System.getProperty(PROP_WATCH_FILES, "false")));
+    }
+
+    /**
+     * Start the refresher file scan task with given interval. If requested,
+     * the directories of the certificate, private key and trust store files
+     * are also watched so the files are reloaded within seconds after they
+     * have been replaced. The events received within the debounce time
+     * (athenz.cert_refresher.watch_debounce_time system property, default
+     * 2000 ms) are combined so the proxy objects are updated only once
+     * when both the certificate and the private key files are replaced.
+     * The periodic scan remains in place as a fallback in case any
+     * events are lost.
+     * @param retryFrequency how often check for file changes
+     * @param watchFiles watch the files for changes
+     */
+    public void startup(int retryFrequency, boolean watchFiles) {
         this.retryFrequency = retryFrequency;
         shutdown = false;
+        if (watchFiles) {
+            watchForFileChanges();
+        }
         scanForFileChanges();
     }
 
+    private void watchForFileChanges() {
+
+        final long debounceTime = Long.parseLong(System.getProperty(PROP_WATCH_DEBOUNCE_TIME, "2000"));
+        final String trustStorePath = trustStore != null && trustManagerProxy != null ? trustStore.getFilePath() : null;
+        try {
+            fileWatcher = new KeyRefresherFileWatcher(Arrays.asList(athenzPublicCert, athenzPrivateKey,
+                    trustStorePath), debounceTime, this::reloadChangedFiles);
+        } catch (Exception ex) {
+            LOGGER.error("Unable to watch key refresher files, using periodic scan only", ex);
+            return;
+        }
+        if (!fileWatcher.isWatching()) {
+            LOGGER.info("KeyRefresher files do not have absolute paths, nothing to watch");
+            fileWatcher.close();
+            fileWatcher = null;
+            return;
+        }
+        fileWatcher.start();
+        LOGGER.info("Started KeyRefresher file watcher thread.");
+    }
+
     /**
      * If the checksum for the file has changed, then update the checksum
      * and return true.  else return false
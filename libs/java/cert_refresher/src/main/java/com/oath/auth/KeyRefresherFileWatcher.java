@@ -0,0 +1,165 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oath.auth;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the directories of the given files and runs the change handler
+ * when any of the files are created, modified or replaced. Tools like SIA
+ * replace the files atomically by renaming a new file over the old one
+ * and Kubernetes updates mounted secrets by swapping the ..data symlink
+ * in the directory so both of those events are also handled. Events
+ * received within the debounce time are combined so the change handler
+ * is only called once after all files have been updated.
+ */
+class KeyRefresherFileWatcher implements Runnable, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeyRefresherFileWatcher.class);
+
+    private final Map<Path, Set<String>> watchedFiles = new HashMap<>();
+    private final WatchService watchService;
+    private final Thread watchThread;
+    private final long debounceMillis;
+    private final Runnable changeHandler;
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param filePaths list of files to watch. only files with absolute
+     *      paths are watched since the others are loaded as resources
+     * @param debounceMillis time in milliseconds to wait for more events
+     *      before calling the change handler
+     * @param changeHandler handler called when the files have changed
+     * @throws IOException if the watch service cannot be created
+     */
+    KeyRefresherFileWatcher(final List<String> filePaths, long debounceMillis, Runnable changeHandler)
+            throws IOException {
+
+        this.debounceMillis = debounceMillis;
+        this.changeHandler = changeHandler;
+
+        watchService = FileSystems.getDefault().newWatchService();
+        for (String filePath : filePaths) {
+            if (filePath == null) {
+                continue;
+            }
+            final Path path = Paths.get(filePath);
+            if (!path.isAbsolute() || path.getParent() == null) {
+                continue;
+            }
+            final Path dirPath = path.getParent();
+            if (!watchedFiles.containsKey(dirPath)) {
+                dirPath.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+                watchedFiles.put(dirPath, new HashSet<>());
+            }
+            watchedFiles.get(dirPath).add(path.getFileName().toString());
+        }
+
+        watchThread = new Thread(this, "keyRefresherFileWatcher");
+        watchThread.setDaemon(true);
+    }
+
+    boolean isWatching() {
+        return !watchedFiles.isEmpty();
+    }
+
+    void start() {
+        watchThread.start();
+    }
+
+    @Override
+    public void close() {
+        shutdown = true;
+        try {
+            watchService.close();
+        } catch (IOException ex) {
+            LOGGER.error("Unable to close key refresher watch service", ex);
+        }
+        watchThread.interrupt();
+    }
+
+    @Override
+    public void run() {
+
+        while (!shutdown) {
+
+            boolean filesChanged = false;
+            try {
+                WatchKey key = watchService.take();
+                while (key != null) {
+                    filesChanged |= processEvents(key);
+                    if (!key.reset()) {
+                        LOGGER.error("Directory {} is no longer accessible", key.watchable());
+                    }
+
+                    // if our files have changed then we'll wait until we
+                    // don't receive any more events within our debounce
+                    // time before reloading the files
+
+                    key = filesChanged ? watchService.poll(debounceMillis, TimeUnit.MILLISECONDS) : null;
+                }
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                LOGGER.debug("KeyRefresher file watcher told to shutdown");
+                return;
+            }
+
+            if (filesChanged) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("KeyRefresher file watcher detected changes");
+                }
+                try {
+                    changeHandler.run();
+                } catch (Exception ex) {
+                    LOGGER.error("Unable to process file changes", ex);
+                }
+            }
+        }
+    }
+
+    boolean processEvents(WatchKey key) {
+
+        final Set<String> fileNames = watchedFiles.getOrDefault((Path) key.watchable(), Collections.emptySet());
+        boolean filesChanged = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+
+            // if we have lost any events then we'll just check our files
+
+            if (event.kind() == OVERFLOW) {
+                filesChanged = true;
+                continue;
+            }
+
+            // besides our own files, we're also checking for the kubernetes
+            // secret volume updates where the files are symlinks to the
+            // ..data directory which is replaced when the secret is updated
+
+            final String fileName = event.context().toString();
+            if (fileNames.contains(fileName) || fileName.startsWith("..")) {
+                filesChanged = true;
+            }
+        }
+        return filesChanged;
+    }
+}
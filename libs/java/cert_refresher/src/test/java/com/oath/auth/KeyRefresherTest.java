@@ -18,8 +18,16 @@ package com.oath.auth;
 import org.mockito.Mockito;
 import org.testng.annotations.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.*;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.testng.Assert.*;
 
@@ -187,8 +195,122 @@ public class KeyRefresherTest {
         keyRefresher.shutdown();
     }
 
+    @Test
+    public void watchForFileChangesTest() throws Exception {
+
+        // copy our cert and key files into a temp directory so we can
+        // replace them the same way sia does with an atomic move
+
+        Path tempDir = Files.createTempDirectory("key-refresher");
+        Path certPath = tempDir.resolve("service.cert.pem");
+        Path keyPath = tempDir.resolve("service.key.pem");
+        Files.copy(Paths.get(Objects.requireNonNull(classLoader.getResource("gdpr.aws.core.cert.pem")).toURI()), certPath);
+        Files.copy(Paths.get(Objects.requireNonNull(classLoader.getResource("unit_test_gdpr.aws.core.key.pem")).toURI()), keyPath);
+
+        KeyManagerProxy mockedKeyManagerProxy = Mockito.mock(KeyManagerProxy.class);
+        TestKeyRefresherListener listener = new TestKeyRefresherListener();
+
+        System.setProperty(KeyRefresher.PROP_WATCH_DEBOUNCE_TIME, "200");
+        KeyRefresher keyRefresher = new KeyRefresher(certPath.toString(), keyPath.toString(), null,
+                mockedKeyManagerProxy, null, listener);
+
+        // with a long retry frequency only our initial check is done
+        // by the scan thread so any other change must be from the watcher
+
+        keyRefresher.startup(KeyRefresher.DEFAULT_RETRY_CHECK_FREQUENCY, true);
+        waitForKeyChange(listener);
+        assertTrue(listener.keyChanged);
+        listener.keyChanged = false;
+
+        // replace the cert file with an atomic move
+
+        Path tempCertPath = tempDir.resolve(".service.cert.pem.tmp");
+        String certData = new String(Files.readAllBytes(certPath), StandardCharsets.UTF_8);
+        Files.write(tempCertPath, (certData + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.move(tempCertPath, certPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        waitForKeyChange(listener);
+        assertTrue(listener.keyChanged);
+        Mockito.verify(mockedKeyManagerProxy, Mockito.times(2)).setKeyManager(Mockito.any());
+
+        keyRefresher.shutdown();
+        System.clearProperty(KeyRefresher.PROP_WATCH_DEBOUNCE_TIME);
+
+        Files.delete(certPath);
+        Files.delete(keyPath);
+        Files.delete(tempDir);
+    }
+
+    @Test
+    public void watchForFileChangesRelativePathsTest() throws Exception {
+
+        KeyManagerProxy mockedKeyManagerProxy = Mockito.mock(KeyManagerProxy.class);
+
+        // relative paths are loaded from resources so there is nothing
+        // to watch and only the scan thread is started
+
+        KeyRefresher keyRefresher = new KeyRefresher("gdpr.aws.core.cert.pem", "unit_test_gdpr.aws.core.key.pem",
+                null, mockedKeyManagerProxy, null);
+        keyRefresher.startup(100, true);
+        Thread.sleep(500);
+        keyRefresher.shutdown();
+    }
+
+    @Test
+    public void fileWatcherDebounceTest() throws Exception {
+
+        Path tempDir = Files.createTempDirectory("key-refresher");
+        Path certPath = tempDir.resolve("service.cert.pem");
+        Path otherPath = tempDir.resolve("other.pem");
+
+        AtomicInteger changes = new AtomicInteger();
+        KeyRefresherFileWatcher watcher = new KeyRefresherFileWatcher(
+                Collections.singletonList(certPath.toString()), 500, changes::incrementAndGet);
+        assertTrue(watcher.isWatching());
+        watcher.start();
+
+        // changes to other files in the directory are ignored
+
+        Files.write(otherPath, "other".getBytes(StandardCharsets.UTF_8));
+        Thread.sleep(1000);
+        assertEquals(changes.get(), 0);
+
+        // multiple changes within the debounce time are combined
+
+        for (int i = 0; i < 5; i++) {
+            Files.write(certPath, ("cert" + i).getBytes(StandardCharsets.UTF_8));
+            Thread.sleep(50);
+        }
+        for (int i = 0; i < 40 && changes.get() == 0; i++) {
+            Thread.sleep(100);
+        }
+        Thread.sleep(1000);
+        assertEquals(changes.get(), 1);
+
+        watcher.close();
+
+        Files.delete(certPath);
+        Files.delete(otherPath);
+        Files.delete(tempDir);
+    }
+
+    @Test
+    public void fileWatcherNoAbsolutePathsTest() throws Exception {
+
+        KeyRefresherFileWatcher watcher = new KeyRefresherFileWatcher(
+                Arrays.asList("cert.pem", null, ""), 500, () -> { });
+        assertFalse(watcher.isWatching());
+        watcher.close();
+    }
+
+    private void waitForKeyChange(TestKeyRefresherListener listener) throws InterruptedException {
+        for (int i = 0; i < 100 && !listener.keyChanged; i++) {
+            Thread.sleep(100);
+        }
+    }
+
     static class TestKeyRefresherListener implements KeyRefresherListener {
-        public boolean keyChanged = false;
+        public volatile boolean keyChanged = false;
         @Override
         public void onKeyChangeEvent() {
             keyChanged = true;
@@ -0,0 +1,198 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.common.http;
+
+import org.apache.hc.client5.http.ClientProtocolException;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.http.*;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.ssl.TLS;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.Timeout;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Classic (blocking) http client that carries out its requests over
+ * multiplexed HTTP/2 connections. The generated ZMS and ZTS clients
+ * execute their requests with the classic http client api, so this
+ * client converts each request into a request for the HTTP/2 async
+ * client, waits for the response and returns it as a classic response.
+ * All concurrent requests to the same server share a single connection
+ * instead of each one requiring its own connection from the pool.
+ * The server must support HTTP/2 since there is no fallback to HTTP/1.1.
+ */
+public class Http2ClassicHttpClient extends CloseableHttpClient {
+
+    // connection specific headers are not allowed in HTTP/2 requests
+
+    private static final Set<String> EXCLUDED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    static {
+        EXCLUDED_HEADERS.add(HttpHeaders.CONNECTION);
+        EXCLUDED_HEADERS.add(HttpHeaders.CONTENT_LENGTH);
+        EXCLUDED_HEADERS.add(HttpHeaders.CONTENT_TYPE);
+        EXCLUDED_HEADERS.add(HttpHeaders.HOST);
+        EXCLUDED_HEADERS.add(HttpHeaders.KEEP_ALIVE);
+        EXCLUDED_HEADERS.add(HttpHeaders.PROXY_CONNECTION);
+        EXCLUDED_HEADERS.add(HttpHeaders.TRANSFER_ENCODING);
+        EXCLUDED_HEADERS.add(HttpHeaders.UPGRADE);
+    }
+
+    private final CloseableHttpAsyncClient asyncClient;
+
+    /**
+     * Create a new client using the given HTTP/2 async client. The async
+     * client is started if it's not already running and is closed when
+     * this client is closed.
+     * @param asyncClient HTTP/2 async client to carry out the requests
+     */
+    public Http2ClassicHttpClient(CloseableHttpAsyncClient asyncClient) {
+        this.asyncClient = asyncClient;
+        this.asyncClient.start();
+    }
+
+    /**
+     * Create a new HTTP/2 client with the given ssl context and settings
+     * @param sslContext ssl context for the TLS connections
+     * @param hostnameVerifier optional hostname verifier for the server certificates
+     * @param h2Config HTTP/2 protocol and flow control settings
+     * @param connectTimeout connect timeout in milliseconds
+     * @param readTimeout response timeout in milliseconds
+     * @param dnsResolver optional dns resolver
+     * @return the new HTTP/2 client
+     */
+    public static Http2ClassicHttpClient create(SSLContext sslContext, HostnameVerifier hostnameVerifier,
+            H2Config h2Config, long connectTimeout, long readTimeout, DnsResolver dnsResolver) {
+
+        ClientTlsStrategyBuilder tlsStrategyBuilder = ClientTlsStrategyBuilder.create()
+                .setSslContext(sslContext)
+                .setTlsVersions(TLS.V_1_2, TLS.V_1_3);
+        if (hostnameVerifier != null) {
+            tlsStrategyBuilder.setHostnameVerifier(hostnameVerifier);
+        }
+
+        CloseableHttpAsyncClient asyncClient = H2AsyncClientBuilder.create()
+                .setTlsStrategy(tlsStrategyBuilder.build())
+                .setH2Config(h2Config)
+                .setDnsResolver(dnsResolver)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeout))
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeout))
+                        .setRedirectsEnabled(false)
+                        .build())
+                .disableRedirectHandling()
+                .build();
+
+        return new Http2ClassicHttpClient(asyncClient);
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, ClassicHttpRequest request,
+            HttpContext context) throws IOException {
+
+        final SimpleHttpRequest asyncRequest = getAsyncRequest(request);
+
+        final Future<SimpleHttpResponse> future = asyncClient.execute(asyncRequest, context, null);
+        final SimpleHttpResponse asyncResponse;
+        try {
+            asyncResponse = future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("request interrupted: " + ex.getMessage());
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new ClientProtocolException("request failed: " + cause.getMessage(), cause);
+        }
+
+        return getClassicResponse(asyncResponse);
+    }
+
+    SimpleHttpRequest getAsyncRequest(ClassicHttpRequest request) throws IOException {
+
+        final SimpleHttpRequest asyncRequest;
+        try {
+            asyncRequest = SimpleHttpRequest.create(request.getMethod(), request.getUri());
+        } catch (URISyntaxException ex) {
+            throw new ClientProtocolException("invalid request uri: " + ex.getMessage(), ex);
+        }
+
+        for (Header header : request.getHeaders()) {
+            if (!EXCLUDED_HEADERS.contains(header.getName())) {
+                asyncRequest.addHeader(header);
+            }
+        }
+
+        final HttpEntity entity = request.getEntity();
+        if (entity != null) {
+            final String contentType = entity.getContentType();
+            asyncRequest.setBody(EntityUtils.toByteArray(entity),
+                    contentType == null ? null : ContentType.parse(contentType));
+        }
+        return asyncRequest;
+    }
+
+    CloseableHttpResponse getClassicResponse(SimpleHttpResponse asyncResponse) {
+
+        BasicClassicHttpResponse response = new BasicClassicHttpResponse(asyncResponse.getCode(),
+                asyncResponse.getReasonPhrase());
+        response.setVersion(asyncResponse.getVersion());
+        response.setHeaders(asyncResponse.getHeaders());
+
+        final byte[] body = asyncResponse.getBodyBytes();
+        if (body != null) {
+            response.setEntity(new ByteArrayEntity(body, asyncResponse.getContentType()));
+        }
+        return CloseableHttpResponse.adapt(response);
+    }
+
+    @Override
+    public void close(CloseMode closeMode) {
+        asyncClient.close(closeMode);
+    }
+
+    @Override
+    public void close() throws IOException {
+        asyncClient.close();
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.common.http;
+
+import org.apache.hc.client5.http.ClientProtocolException;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.core5.http.*;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.entity.StringAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.testng.Assert.*;
+
+public class Http2ClassicHttpClientTest {
+
+    @Test
+    public void testExecuteHttp2Server() throws Exception {
+
+        HttpAsyncServer server = H2ServerBootstrap.bootstrap()
+                .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_2)
+                .register("*", new EchoHandler())
+                .create();
+        server.start();
+
+        try (Http2ClassicHttpClient client = new Http2ClassicHttpClient(H2AsyncClientBuilder.create()
+                .setH2Config(H2Config.custom().setMaxConcurrentStreams(16).setInitialWindowSize(65535).build())
+                .build())) {
+
+            Future<ListenerEndpoint> future = server.listen(new InetSocketAddress("localhost", 0), URIScheme.HTTP);
+            final int port = ((InetSocketAddress) future.get().getAddress()).getPort();
+            final String url = "http://localhost:" + port + "/zts/v1/domain";
+
+            ClassicHttpRequest request = ClassicRequestBuilder.get(url)
+                    .addHeader("Athenz-Principal-Auth", "v=S1;d=athenz;n=api")
+                    .build();
+            try (CloseableHttpResponse response = client.execute(request)) {
+                assertEquals(response.getCode(), 200);
+                assertEquals(EntityUtils.toString(response.getEntity()), "GET:v=S1;d=athenz;n=api:");
+            }
+
+            request = ClassicRequestBuilder.put(url)
+                    .setEntity(new StringEntity("{\"name\":\"athenz\"}", ContentType.APPLICATION_JSON))
+                    .build();
+            try (CloseableHttpResponse response = client.execute(request)) {
+                assertEquals(response.getCode(), 200);
+                assertEquals(EntityUtils.toString(response.getEntity()), "PUT:null:{\"name\":\"athenz\"}");
+                assertEquals(response.getVersion(), HttpVersion.HTTP_2);
+            }
+        } finally {
+            server.close(CloseMode.IMMEDIATE);
+        }
+    }
+
+    @Test
+    public void testGetAsyncRequest() throws IOException {
+
+        CloseableHttpAsyncClient asyncClient = Mockito.mock(CloseableHttpAsyncClient.class);
+        Http2ClassicHttpClient client = new Http2ClassicHttpClient(asyncClient);
+
+        ClassicHttpRequest request = ClassicRequestBuilder.post("https://athenz.io:4443/zts/v1/token")
+                .addHeader(HttpHeaders.CONNECTION, "keep-alive")
+                .addHeader(HttpHeaders.HOST, "athenz.io")
+                .addHeader(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
+                .addHeader("Athenz-Principal-Auth", "creds")
+                .setEntity(new StringEntity("grant_type=client_credentials",
+                        ContentType.APPLICATION_FORM_URLENCODED))
+                .build();
+
+        SimpleHttpRequest asyncRequest = client.getAsyncRequest(request);
+        assertEquals(asyncRequest.getMethod(), "POST");
+        assertEquals(asyncRequest.getRequestUri(), "/zts/v1/token");
+        assertEquals(asyncRequest.getAuthority().getHostName(), "athenz.io");
+        assertEquals(asyncRequest.getAuthority().getPort(), 4443);
+        assertEquals(asyncRequest.getHeaders().length, 1);
+        assertEquals(asyncRequest.getFirstHeader("Athenz-Principal-Auth").getValue(), "creds");
+        assertEquals(asyncRequest.getBodyText(), "grant_type=client_credentials");
+        assertEquals(asyncRequest.getContentType().getMimeType(), "application/x-www-form-urlencoded");
+
+        // request without any body
+
+        request = ClassicRequestBuilder.delete("https://athenz.io/zts/v1/domain").build();
+        asyncRequest = client.getAsyncRequest(request);
+        assertEquals(asyncRequest.getMethod(), "DELETE");
+        assertNull(asyncRequest.getBody());
+
+        // request with a body without content type
+
+        request = ClassicRequestBuilder.put("https://athenz.io/zts/v1/domain")
+                .setEntity(new StringEntity("data", (ContentType) null))
+                .build();
+        asyncRequest = client.getAsyncRequest(request);
+        assertEquals(asyncRequest.getBodyBytes(), "data".getBytes());
+        assertNull(asyncRequest.getContentType());
+    }
+
+    @Test
+    public void testGetAsyncRequestInvalidUri() throws URISyntaxException {
+
+        CloseableHttpAsyncClient asyncClient = Mockito.mock(CloseableHttpAsyncClient.class);
+        Http2ClassicHttpClient client = new Http2ClassicHttpClient(asyncClient);
+
+        ClassicHttpRequest request = Mockito.mock(ClassicHttpRequest.class);
+        Mockito.when(request.getUri()).thenThrow(new URISyntaxException("uri", "invalid"));
+        try {
+            client.getAsyncRequest(request);
+            fail();
+        } catch (IOException ex) {
+            assertTrue(ex instanceof ClientProtocolException);
+        }
+    }
+
+    @Test
+    public void testGetClassicResponse() throws IOException, ParseException {
+
+        CloseableHttpAsyncClient asyncClient = Mockito.mock(CloseableHttpAsyncClient.class);
+        Http2ClassicHttpClient client = new Http2ClassicHttpClient(asyncClient);
+
+        SimpleHttpResponse asyncResponse = SimpleHttpResponse.create(404, "{\"code\":404}",
+                ContentType.APPLICATION_JSON);
+        asyncResponse.addHeader("Cache-Control", "no-cache");
+        asyncResponse.setVersion(HttpVersion.HTTP_2);
+
+        CloseableHttpResponse response = client.getClassicResponse(asyncResponse);
+        assertEquals(response.getCode(), 404);
+        assertEquals(response.getVersion(), HttpVersion.HTTP_2);
+        assertEquals(response.getFirstHeader("Cache-Control").getValue(), "no-cache");
+        assertEquals(EntityUtils.toString(response.getEntity()), "{\"code\":404}");
+        assertEquals(response.getEntity().getContentType(), ContentType.APPLICATION_JSON.toString());
+
+        // response without a body
+
+        response = client.getClassicResponse(SimpleHttpResponse.create(204));
+        assertEquals(response.getCode(), 204);
+        assertNull(response.getEntity());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testExecuteFailures() throws Exception {
+
+        CloseableHttpAsyncClient asyncClient = Mockito.mock(CloseableHttpAsyncClient.class);
+        Future<SimpleHttpResponse> future = Mockito.mock(Future.class);
+        Mockito.when(asyncClient.execute(any(SimpleHttpRequest.class), any(), any())).thenReturn(future);
+        Mockito.when(future.get())
+                .thenThrow(new ExecutionException(new IOException("connection reset")))
+                .thenThrow(new ExecutionException(new HttpException("protocol error")))
+                .thenThrow(new InterruptedException("interrupted"));
+
+        Http2ClassicHttpClient client = new Http2ClassicHttpClient(asyncClient);
+        ClassicHttpRequest request = ClassicRequestBuilder.get("https://athenz.io/zts/v1/domain").build();
+
+        try {
+            client.execute(request);
+            fail();
+        } catch (IOException ex) {
+            assertEquals(ex.getMessage(), "connection reset");
+        }
+
+        try {
+            client.execute(request);
+            fail();
+        } catch (ClientProtocolException ex) {
+            assertTrue(ex.getMessage().contains("protocol error"));
+        }
+
+        try {
+            client.execute(request);
+            fail();
+        } catch (InterruptedIOException ex) {
+            assertTrue(Thread.interrupted());
+        }
+        Mockito.verify(future, Mockito.times(1)).cancel(true);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testExecuteWithContext() throws Exception {
+
+        CloseableHttpAsyncClient asyncClient = Mockito.mock(CloseableHttpAsyncClient.class);
+        Future<SimpleHttpResponse> future = Mockito.mock(Future.class);
+        Mockito.when(future.get()).thenReturn(SimpleHttpResponse.create(200, "ok", ContentType.TEXT_PLAIN));
+        ArgumentCaptor<HttpContext> contextCaptor = ArgumentCaptor.forClass(HttpContext.class);
+        Mockito.when(asyncClient.execute(any(SimpleHttpRequest.class), contextCaptor.capture(),
+                Mockito.isNull())).thenReturn(future);
+
+        Http2ClassicHttpClient client = new Http2ClassicHttpClient(asyncClient);
+        Mockito.verify(asyncClient, Mockito.times(1)).start();
+
+        HttpContext context = Mockito.mock(HttpContext.class);
+        ClassicHttpRequest request = ClassicRequestBuilder.get("https://athenz.io/zts/v1/domain").build();
+        try (CloseableHttpResponse response = client.execute(request, context)) {
+            assertEquals(response.getCode(), 200);
+            assertEquals(EntityUtils.toString(response.getEntity()), "ok");
+        }
+        assertSame(contextCaptor.getValue(), context);
+
+        client.close(CloseMode.IMMEDIATE);
+        Mockito.verify(asyncClient, Mockito.times(1)).close(CloseMode.IMMEDIATE);
+        client.close();
+        Mockito.verify(asyncClient, Mockito.times(1)).close();
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+
+        SSLContext sslContext = SSLContext.getInstance("TLSv1.3");
+        sslContext.init(null, null, null);
+
+        H2Config h2Config = H2Config.custom().setMaxConcurrentStreams(32).build();
+        try (Http2ClassicHttpClient client = Http2ClassicHttpClient.create(sslContext, null,
+                h2Config, 1000, 2000, null)) {
+            assertNotNull(client);
+        }
+        try (Http2ClassicHttpClient client = Http2ClassicHttpClient.create(sslContext,
+                (hostname, session) -> true, h2Config, 1000, 2000, null)) {
+            assertNotNull(client);
+        }
+    }
+
+    static class EchoHandler implements AsyncServerRequestHandler<Message<HttpRequest, String>> {
+
+        @Override
+        public AsyncRequestConsumer<Message<HttpRequest, String>> prepare(HttpRequest request,
+                EntityDetails entityDetails, HttpContext context) {
+            return new BasicRequestConsumer<>(entityDetails == null ? null : new StringAsyncEntityConsumer());
+        }
+
+        @Override
+        public void handle(Message<HttpRequest, String> message, ResponseTrigger responseTrigger,
+                HttpContext context) throws HttpException, IOException {
+
+            final HttpRequest request = message.getHead();
+            final Header authHeader = request.getFirstHeader("Athenz-Principal-Auth");
+            final String body = request.getMethod() + ":" + (authHeader == null ? null : authHeader.getValue())
+                    + ":" + (message.getBody() == null ? "" : message.getBody());
+            responseTrigger.submitResponse(AsyncResponseBuilder.create(HttpStatus.SC_OK)
+                    .setEntity(AsyncEntityProducers.create(body, ContentType.TEXT_PLAIN))
+                    .build(), context);
+        }
+    }
+}
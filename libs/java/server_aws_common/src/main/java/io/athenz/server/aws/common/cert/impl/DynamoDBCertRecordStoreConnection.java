@@ -201,6 +201,35 @@ public class DynamoDBCertRecordStoreConnection implements CertRecordStoreConnect
         }
     }
     
+    @Override
+    public boolean updateX509CertRecordSerial(X509CertRecord certRecord) {
+
+        final String primaryKey = getPrimaryKey(certRecord.getProvider(), certRecord.getInstanceId(),
+                certRecord.getService());
+
+        HashMap<String, AttributeValue> itemKey = new HashMap<>();
+        itemKey.put(KEY_PRIMARY, AttributeValue.fromS(primaryKey));
+
+        try {
+            HashMap<String, AttributeValueUpdate> updatedValues = new HashMap<>();
+            DynamoDBUtils.updateItemStringValue(updatedValues, KEY_CURRENT_SERIAL, certRecord.getCurrentSerial());
+            DynamoDBUtils.updateItemStringValue(updatedValues, KEY_PREV_SERIAL, certRecord.getPrevSerial());
+            DynamoDBUtils.updateItemLongValue(updatedValues, KEY_EXPIRY_TIME, certRecord.getExpiryTime());
+
+            UpdateItemRequest request = UpdateItemRequest.builder()
+                    .tableName(tableName)
+                    .key(itemKey)
+                    .attributeUpdates(updatedValues)
+                    .build();
+
+            updateItemRetryDynamoDBCommand.run(() -> dynamoDB.updateItem(request));
+            return true;
+        } catch (Exception ex) {
+            LOGGER.error("DynamoDB Serial Update Error for {}: {}/{}", primaryKey, ex.getClass(), ex.getMessage());
+            return false;
+        }
+    }
+
     @Override
     public boolean insertX509CertRecord(X509CertRecord certRecord) {
 
@@ -446,6 +446,50 @@ public class DynamoDBCertRecordStoreConnectionTest {
         dbConn.close();
     }
 
+    @Test
+    public void testUpdateX509RecordSerial() {
+
+        DynamoDBCertRecordStoreConnection dbConn = getDBConnection();
+
+        Date now = new Date();
+        X509CertRecord certRecord = getRecordNonNullableColumns(now);
+        certRecord.setExpiryTime(now);
+        certRecord.setHostName("hostname");
+
+        Mockito.doReturn(updateOutcome).when(dynamoDB).updateItem(any(UpdateItemRequest.class));
+        assertTrue(dbConn.updateX509CertRecordSerial(certRecord));
+
+        ArgumentCaptor<UpdateItemRequest> itemCaptor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        Mockito.verify(dynamoDB, times(1)).updateItem(itemCaptor.capture());
+        UpdateItemRequest request = itemCaptor.getValue();
+
+        // only the serial and expiry attributes are updated
+
+        assertEquals(request.key().get("primaryKey").s(), "athenz.provider:cn:1234");
+        assertEquals(request.attributeUpdates().size(), 3);
+        assertEquals(request.attributeUpdates().get("currentSerial").value().s(), "current-serial");
+        assertEquals(request.attributeUpdates().get("prevSerial").value().s(), "prev-serial");
+        assertEquals(request.attributeUpdates().get("expiryTime").value().n(), String.valueOf(now.getTime()));
+        assertNull(request.attributeUpdates().get("hostName"));
+
+        dbConn.close();
+    }
+
+    @Test
+    public void testUpdateX509RecordSerialException() {
+
+        Date now = new Date();
+        X509CertRecord certRecord = getRecordNonNullableColumns(now);
+
+        Mockito.doThrow(AwsServiceException.create("invalid operation", new Throwable("invalid operation")))
+                .when(dynamoDB).updateItem(ArgumentMatchers.any(UpdateItemRequest.class));
+
+        DynamoDBCertRecordStoreConnection dbConn = getDBConnection();
+        assertFalse(dbConn.updateX509CertRecordSerial(certRecord));
+
+        dbConn.close();
+    }
+
     @Test
     public void testDeleteX509Record() {
 
@@ -39,6 +39,8 @@ public final class ServerCommonConsts {
     public static final String PROP_ATHENZ_CONF             = "athenz.athenz_conf";
     public static final String ZTS_PROP_FILE_NAME           = "athenz.zts.prop_file";
     public static final String PROP_DATA_STORE_SUBDIR = "athenz.server_common.data_store_subdir";
+    public static final String ZTS_PROP_ZMS_DOMAIN_FETCH_THREADS = "athenz.zts.zms_domain_fetch_threads";
+    public static final String ZTS_PROP_ZMS_DOMAIN_FETCH_TIMEOUT = "athenz.zts.zms_domain_fetch_timeout";
 
     public static final String REQUEST_PRINCIPAL      = "com.yahoo.athenz.auth.principal";
     public static final String REQUEST_AUTHORITY_ID   = "com.yahoo.athenz.auth.authority_id";
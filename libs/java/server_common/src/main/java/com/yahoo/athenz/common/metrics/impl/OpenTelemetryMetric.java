@@ -18,8 +18,10 @@ package com.yahoo.athenz.common.metrics.impl;
 import com.yahoo.athenz.common.metrics.Metric;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.LongGauge;
 import io.opentelemetry.api.metrics.Meter;
 import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.Tracer;
 import io.opentelemetry.context.Context;
@@ -87,6 +89,31 @@ public class OpenTelemetryMetric implements Metric {
     counter.add(count, attributes);
   }
 
+  @Override
+  public void increment(String metric, final String... attributes) {
+    increment(metric, 1, attributes);
+  }
+
+  @Override
+  public void increment(String metric, long change, final String... attributes) {
+    LongCounter counter = meter.counterBuilder(metric).build();
+    counter.add(change, buildAttributes(attributes));
+  }
+
+  @Override
+  public void gauge(String metric, long value, final String... attributes) {
+    LongGauge gauge = meter.gaugeBuilder(metric).ofLongs().build();
+    gauge.set(value, buildAttributes(attributes));
+  }
+
+  Attributes buildAttributes(final String... attributes) {
+    AttributesBuilder builder = Attributes.builder();
+    for (int i = 0; i + 1 < attributes.length; i += 2) {
+      builder.put(attributes[i], attributes[i + 1]);
+    }
+    return builder.build();
+  }
+
   @Override
   public Object startTiming(String metric, String requestDomainName) {
     Span span = tracer.spanBuilder(metric).startSpan();
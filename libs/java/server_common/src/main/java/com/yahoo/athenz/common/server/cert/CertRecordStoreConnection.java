@@ -48,7 +48,21 @@ public interface CertRecordStoreConnection extends Closeable {
      * @return true on success otherwise false
      */
     boolean updateX509CertRecord(X509CertRecord certRecord) throws ServerResourceException;
-    
+
+    /**
+     * Update only the serial number (current and previous) and expiry
+     * fields of the specified certificate record in the store. These are
+     * the fields required to validate the next refresh request for the
+     * instance, so the remaining metadata fields (ip, hostname, timestamps)
+     * can be written separately. Implementations that do not support
+     * partial updates update the full record.
+     * @param certRecord X509CertRecord to be updated
+     * @return true on success otherwise false
+     */
+    default boolean updateX509CertRecordSerial(X509CertRecord certRecord) throws ServerResourceException {
+        return updateX509CertRecord(certRecord);
+    }
+
     /**
      * Insert a new certificate record in the store
      * @param certRecord X509CertRecord to be created
@@ -74,6 +88,36 @@ public interface CertRecordStoreConnection extends Closeable {
      */
     int deleteExpiredX509CertRecords(int expiryTimeMins) throws ServerResourceException;
 
+    /**
+     * Delete expired x509 certificate records in chunks of at most the
+     * given number of records. A certificate is considered expired if
+     * it hasn't been updated within the specified number of minutes.
+     * Callers are expected to call this method repeatedly until the
+     * number of deleted records is less than the limit. Implementations
+     * that do not support limited deletes remove all expired records.
+     * @param expiryTimeMins expiry time in minutes
+     * @param limit maximum number of records to delete
+     * @return number of records deleted
+     */
+    default int deleteExpiredX509CertRecords(int expiryTimeMins, int limit) throws ServerResourceException {
+        return deleteExpiredX509CertRecords(expiryTimeMins);
+    }
+
+    /**
+     * Update the given list of certificate records in the store
+     * @param certRecords list of X509CertRecord objects to be updated
+     * @return number of records successfully updated
+     */
+    default int updateX509CertRecords(List<X509CertRecord> certRecords) throws ServerResourceException {
+        int count = 0;
+        for (X509CertRecord certRecord : certRecords) {
+            if (updateX509CertRecord(certRecord)) {
+                count += 1;
+            }
+        }
+        return count;
+    }
+
     /**
      * Return all certificate records that failed to refresh after updating them with the current notification time and server.
      * Implementers of this interface should note the following:
@@ -16,6 +16,7 @@
 package com.yahoo.athenz.common.server.cert;
 
 import com.yahoo.athenz.common.server.ServerResourceException;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 
 public interface CertSigner {
 
@@ -40,6 +41,31 @@ public interface CertSigner {
         return null;
     }
 
+    /**
+     * Generate a signed X509 Certificate based on the given request. This
+     * is the same as the generateX509Certificate method above but it also
+     * includes the certificate request object that the server has already
+     * parsed and validated, so signers that need to process the request
+     * locally do not have to decode the csr again. The default
+     * implementation ignores the parsed request and calls the method above.
+     * @param provider (optional) Athenz provider that validated certificate request
+     * @param certIssuer (optional) Request to have cert signed by given issuer
+     * @param csr Certificate request
+     * @param certReq (optional) Parsed certificate request for the given csr
+     * @param keyUsage Requested key usage (null for both server and client,
+     * otherwise specified usage type: server or client)
+     * @param expiryTime Requested certificate expiration time in minutes.
+     * CertSigner might override this value with a smaller value.
+     * @param priority requested priority for processing the request signing service
+     * @param signerKeyId requested signer key id if configured for the domain
+     * @return X509 Certificate in PEM format
+     */
+    default String generateX509Certificate(String provider, String certIssuer, String csr,
+            PKCS10CertificationRequest certReq, String keyUsage, int expiryTime, Priority priority,
+            String signerKeyId) throws ServerResourceException {
+        return generateX509Certificate(provider, certIssuer, csr, keyUsage, expiryTime, priority, signerKeyId);
+    }
+
     /**
      * Retrieve the CA certificate in PEM format. This will be returned
      * along with the x509 certificate back to the client. The function
@@ -47,10 +47,15 @@ public class JDBCCertRecordStoreConnection implements CertRecordStoreConnection
             "currentSerial=?, currentTime=?, currentIP=?, prevSerial=?, prevTime=?, prevIP=?, " +
             "expiryTime=?, hostName=?, clientCert=? " +
             "WHERE provider=? AND instanceId=? AND service=?;";
+    private static final String SQL_UPDATE_X509_RECORD_SERIAL = "UPDATE certificates SET " +
+            "currentSerial=?, prevSerial=?, expiryTime=? " +
+            "WHERE provider=? AND instanceId=? AND service=?;";
     private static final String SQL_DELETE_X509_RECORD = "DELETE from certificates " +
             "WHERE provider=? AND instanceId=? AND service=?;";
     private static final String SQL_DELETE_EXPIRED_X509_RECORDS = "DELETE FROM certificates " +
             "WHERE currentTime < ADDDATE(NOW(), INTERVAL -? MINUTE);";
+    private static final String SQL_DELETE_EXPIRED_X509_RECORDS_LIMIT = "DELETE FROM certificates " +
+            "WHERE currentTime < ADDDATE(NOW(), INTERVAL -? MINUTE) LIMIT ?;";
 
     // Get all records that didn't refresh and update notification time.
     // Query explanation:
@@ -86,6 +91,10 @@ public class JDBCCertRecordStoreConnection implements CertRecordStoreConnection
     public static final String DB_COLUMN_EXPIRY_TIME            = "expiryTime";
     public static final String DB_COLUMN_HOSTNAME               = "hostName";
     
+    // maximum number of records we process in a single batch
+
+    private static final int BATCH_SIZE = 100;
+
     Connection con;
     int queryTimeout = 10;
 
@@ -123,6 +132,20 @@ public class JDBCCertRecordStoreConnection implements CertRecordStoreConnection
         return ps.executeUpdate();
     }
 
+    int executeBatch(PreparedStatement ps, String caller) throws SQLException {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("{}: {}", caller, ps.toString());
+        }
+        ps.setQueryTimeout(queryTimeout);
+        int affectedRecords = 0;
+        for (int result : ps.executeBatch()) {
+            if (result > 0 || result == Statement.SUCCESS_NO_INFO) {
+                affectedRecords += 1;
+            }
+        }
+        return affectedRecords;
+    }
+
     ResultSet executeQuery(PreparedStatement ps, String caller) throws SQLException {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("{}: {}", caller, ps.toString());
@@ -196,24 +219,48 @@ public class JDBCCertRecordStoreConnection implements CertRecordStoreConnection
         final String caller = "updateX509CertRecord";
 
         try (PreparedStatement ps = con.prepareStatement(SQL_UPDATE_X509_RECORD)) {
+            setUpdateStatementParams(ps, certRecord);
+            affectedRows = executeUpdate(ps, caller);
+        } catch (SQLException ex) {
+            throw sqlError(ex, caller);
+        }
+        return (affectedRows > 0);
+    }
+
+    @Override
+    public boolean updateX509CertRecordSerial(X509CertRecord certRecord) throws ServerResourceException {
+
+        int affectedRows;
+        final String caller = "updateX509CertRecordSerial";
+
+        try (PreparedStatement ps = con.prepareStatement(SQL_UPDATE_X509_RECORD_SERIAL)) {
             ps.setString(1, certRecord.getCurrentSerial());
-            ps.setTimestamp(2, getTimestampFromDate(certRecord.getCurrentTime()));
-            ps.setString(3, certRecord.getCurrentIP());
-            ps.setString(4, certRecord.getPrevSerial());
-            ps.setTimestamp(5, getTimestampFromDate(certRecord.getPrevTime()));
-            ps.setString(6, certRecord.getPrevIP());
-            ps.setTimestamp(7, getTimestampFromDate(certRecord.getExpiryTime()));
-            ps.setString(8, certRecord.getHostName());
-            ps.setBoolean(9, certRecord.getClientCert());
-            ps.setString(10, certRecord.getProvider());
-            ps.setString(11, certRecord.getInstanceId());
-            ps.setString(12, certRecord.getService());
+            ps.setString(2, certRecord.getPrevSerial());
+            ps.setTimestamp(3, getTimestampFromDate(certRecord.getExpiryTime()));
+            ps.setString(4, certRecord.getProvider());
+            ps.setString(5, certRecord.getInstanceId());
+            ps.setString(6, certRecord.getService());
             affectedRows = executeUpdate(ps, caller);
         } catch (SQLException ex) {
             throw sqlError(ex, caller);
         }
         return (affectedRows > 0);
     }
+
+    void setUpdateStatementParams(PreparedStatement ps, X509CertRecord certRecord) throws SQLException {
+        ps.setString(1, certRecord.getCurrentSerial());
+        ps.setTimestamp(2, getTimestampFromDate(certRecord.getCurrentTime()));
+        ps.setString(3, certRecord.getCurrentIP());
+        ps.setString(4, certRecord.getPrevSerial());
+        ps.setTimestamp(5, getTimestampFromDate(certRecord.getPrevTime()));
+        ps.setString(6, certRecord.getPrevIP());
+        ps.setTimestamp(7, getTimestampFromDate(certRecord.getExpiryTime()));
+        ps.setString(8, certRecord.getHostName());
+        ps.setBoolean(9, certRecord.getClientCert());
+        ps.setString(10, certRecord.getProvider());
+        ps.setString(11, certRecord.getInstanceId());
+        ps.setString(12, certRecord.getService());
+    }
     
     @Override
     public boolean insertX509CertRecord(X509CertRecord certRecord) throws ServerResourceException {
@@ -222,19 +269,7 @@ public class JDBCCertRecordStoreConnection implements CertRecordStoreConnection
         final String caller = "insertX509CertRecord";
 
         try (PreparedStatement ps = con.prepareStatement(SQL_INSERT_X509_RECORD)) {
-            ps.setString(1, certRecord.getProvider());
-            ps.setString(2, certRecord.getInstanceId());
-            ps.setString(3, certRecord.getService());
-            ps.setString(4, certRecord.getCurrentSerial());
-            ps.setTimestamp(5, getTimestampFromDate(certRecord.getCurrentTime()));
-            ps.setString(6, certRecord.getCurrentIP());
-            ps.setString(7, certRecord.getPrevSerial());
-            ps.setTimestamp(8, getTimestampFromDate(certRecord.getPrevTime()));
-            ps.setString(9, certRecord.getPrevIP());
-            ps.setBoolean(10, certRecord.getClientCert());
-            ps.setTimestamp(11, getTimestampFromDate(certRecord.getExpiryTime()));
-            ps.setString(12, certRecord.getHostName());
-
+            setInsertStatementParams(ps, certRecord);
             affectedRows = executeUpdate(ps, caller);
             
         } catch (SQLException ex) {
@@ -255,6 +290,21 @@ public class JDBCCertRecordStoreConnection implements CertRecordStoreConnection
         return (affectedRows > 0);
     }
     
+    void setInsertStatementParams(PreparedStatement ps, X509CertRecord certRecord) throws SQLException {
+        ps.setString(1, certRecord.getProvider());
+        ps.setString(2, certRecord.getInstanceId());
+        ps.setString(3, certRecord.getService());
+        ps.setString(4, certRecord.getCurrentSerial());
+        ps.setTimestamp(5, getTimestampFromDate(certRecord.getCurrentTime()));
+        ps.setString(6, certRecord.getCurrentIP());
+        ps.setString(7, certRecord.getPrevSerial());
+        ps.setTimestamp(8, getTimestampFromDate(certRecord.getPrevTime()));
+        ps.setString(9, certRecord.getPrevIP());
+        ps.setBoolean(10, certRecord.getClientCert());
+        ps.setTimestamp(11, getTimestampFromDate(certRecord.getExpiryTime()));
+        ps.setString(12, certRecord.getHostName());
+    }
+
     @Override
     public boolean deleteX509CertRecord(String provider, String instanceId, String service) throws ServerResourceException {
 
@@ -293,6 +343,53 @@ public class JDBCCertRecordStoreConnection implements CertRecordStoreConnection
         return affectedRows;
     }
 
+    @Override
+    public int deleteExpiredX509CertRecords(int expiryTimeMins, int limit) throws ServerResourceException {
+
+        int affectedRows;
+        final String caller = "deleteExpiredX509CertRecords";
+
+        // make sure we have valid values specified for expiry time
+        // and the limit. without a limit we'll delete all records
+
+        if (expiryTimeMins <= 0) {
+            return 0;
+        }
+
+        if (limit <= 0) {
+            return deleteExpiredX509CertRecords(expiryTimeMins);
+        }
+
+        try (PreparedStatement ps = con.prepareStatement(SQL_DELETE_EXPIRED_X509_RECORDS_LIMIT)) {
+            ps.setInt(1, expiryTimeMins);
+            ps.setInt(2, limit);
+            affectedRows = executeUpdate(ps, caller);
+        } catch (SQLException ex) {
+            throw sqlError(ex, caller);
+        }
+        return affectedRows;
+    }
+
+    @Override
+    public int updateX509CertRecords(List<X509CertRecord> certRecords) throws ServerResourceException {
+
+        final String caller = "updateX509CertRecords";
+
+        int affectedRecords = 0;
+        for (int idx = 0; idx < certRecords.size(); idx += BATCH_SIZE) {
+            try (PreparedStatement ps = con.prepareStatement(SQL_UPDATE_X509_RECORD)) {
+                for (X509CertRecord certRecord : certRecords.subList(idx, Math.min(idx + BATCH_SIZE, certRecords.size()))) {
+                    setUpdateStatementParams(ps, certRecord);
+                    ps.addBatch();
+                }
+                affectedRecords += executeBatch(ps, caller);
+            } catch (SQLException ex) {
+                throw sqlError(ex, caller);
+            }
+        }
+        return affectedRecords;
+    }
+
     @Override
     public List<X509CertRecord> updateUnrefreshedCertificatesNotificationTimestamp(String lastNotifiedServer,
                                                                       long lastNotifiedTime,
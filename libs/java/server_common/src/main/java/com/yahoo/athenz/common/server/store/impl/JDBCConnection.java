@@ -300,6 +300,9 @@ public class JDBCConnection implements ObjectStoreConnection {
             + "JOIN domain ON policy.domain_id=domain.domain_id";
     private static final String SQL_LIST_ROLE_ASSERTION_QUERY_ACTION = " WHERE assertion.action=?;";
     private static final String SQL_LIST_ROLE_ASSERTION_NO_ACTION = " WHERE assertion.action!='assume_role';";
+    private static final String SQL_LIST_ROLE_ASSERTIONS_DOMAIN_MODIFIED = SQL_LIST_ROLE_ASSERTIONS
+            + " WHERE domain.modified>=?;";
+    private static final String SQL_LIST_DOMAIN_ID_MODIFIED = "SELECT domain_id, modified FROM domain WHERE modified>=?;";
     private static final String SQL_LIST_ROLE_PRINCIPALS = "SELECT role.domain_id, role.name AS role_name FROM principal "
             + "JOIN role_member ON principal.principal_id=role_member.principal_id "
             + "JOIN role ON role_member.role_id=role.role_id WHERE principal.name=? "
@@ -700,6 +703,7 @@ public class JDBCConnection implements ObjectStoreConnection {
     private static final String CACHE_PRINCIPAL = "u:";
     private static final String CACHE_HOST      = "h:";
     private static final String ALL_PRINCIPALS  = "*";
+    private static final String ACTION_ASSUME_ROLE = "assume_role";
 
     private static final String MYSQL_SERVER_TIMEZONE = System.getProperty(JDBCConsts.ZMS_PROP_MYSQL_SERVER_TIMEZONE, "GMT");
 
@@ -719,6 +723,20 @@ public class JDBCConnection implements ObjectStoreConnection {
     private volatile static long SERVER_TRUST_ROLES_TIMESTAMP;
     private static final long SERVER_TRUST_ROLES_UPDATE_TIMEOUT = Long.parseLong(
             System.getProperty(JDBCConsts.ZMS_PROP_MYSQL_SERVER_TRUST_ROLES_UPDATE_TIMEOUT, "600000"));
+    private volatile static Map<String, Map<String, List<Assertion>>> SERVER_ROLE_ASSERTIONS_INDEX;
+    private volatile static Map<String, Long> SERVER_ROLE_ASSERTIONS_DOMAINS;
+    private volatile static long SERVER_ROLE_ASSERTIONS_TIMESTAMP;
+    private volatile static long SERVER_ROLE_ASSERTIONS_BUILD_TIME;
+    private static final boolean SERVER_RESOURCE_ACCESS_INDEX = Boolean.parseBoolean(
+            System.getProperty(JDBCConsts.ZMS_PROP_MYSQL_SERVER_RESOURCE_ACCESS_INDEX, "false"));
+
+    // when checking for modified domains we look back an extra minute
+    // since a transaction committed after our last update might have
+    // set an earlier modification timestamp for its domain
+
+    static final long SERVER_ROLE_ASSERTIONS_MODIFIED_MARGIN = TimeUnit.MINUTES.toMillis(1);
+
+    boolean resourceAccessIndex = SERVER_RESOURCE_ACCESS_INDEX;
 
     public JDBCConnection(Connection con, boolean autoCommit) throws SQLException {
         this.con = con;
@@ -739,6 +757,16 @@ public class JDBCConnection implements ObjectStoreConnection {
         SERVER_TRUST_ROLES_TIMESTAMP = 0;
     }
 
+    /**
+     * Used only by the test classes to reset the server role assertions index
+     */
+    void resetRoleAssertionsIndex() {
+        SERVER_ROLE_ASSERTIONS_INDEX = null;
+        SERVER_ROLE_ASSERTIONS_DOMAINS = null;
+        SERVER_ROLE_ASSERTIONS_TIMESTAMP = 0;
+        SERVER_ROLE_ASSERTIONS_BUILD_TIME = 0;
+    }
+
     @Override
     public void setDomainOptions(DomainOptions domainOptions) {
         this.domainOptions = domainOptions;
@@ -4735,6 +4763,147 @@ public class JDBCConnection implements ObjectStoreConnection {
         }
     }
 
+    Map<String, Map<String, List<Assertion>>> getRoleAssertionsIndex(final String caller) throws ServerResourceException {
+
+        // the index includes the assertions for all roles grouped by the
+        // domain id and then by the role index. since any change to the
+        // domain's policies updates the domain's modification timestamp, we
+        // only need to reload the assertions for the domains that have been
+        // modified since our last update, and we keep the modification
+        // timestamp of each domain so the domains returned again because
+        // of our safety margin are not reloaded unless they have changed.
+        // we rebuild the full index after the configured timeout to remove
+        // any deleted domains
+
+        synchronized (synchronizer) {
+
+            final long now = System.currentTimeMillis();
+            boolean fullRebuild = SERVER_ROLE_ASSERTIONS_INDEX == null
+                    || now - SERVER_ROLE_ASSERTIONS_BUILD_TIME > SERVER_TRUST_ROLES_UPDATE_TIMEOUT;
+            final long modifiedSince = fullRebuild ? 0 :
+                    Math.max(0, SERVER_ROLE_ASSERTIONS_TIMESTAMP - SERVER_ROLE_ASSERTIONS_MODIFIED_MARGIN);
+
+            Map<String, Long> modifiedDomains = getModifiedDomainIds(modifiedSince, caller);
+            long lastModified = modifiedDomains.values().stream().max(Long::compare).orElse(0L);
+            if (!fullRebuild) {
+                final Map<String, Long> currentDomains = SERVER_ROLE_ASSERTIONS_DOMAINS;
+                modifiedDomains.entrySet().removeIf(entry -> entry.getValue().equals(currentDomains.get(entry.getKey())));
+                if (modifiedDomains.isEmpty()) {
+                    return SERVER_ROLE_ASSERTIONS_INDEX;
+                }
+            }
+
+            // the assertions query might include domains that have not changed
+            // within our margin, so we only update the ones that have changed
+
+            Map<String, Map<String, List<Assertion>>> domainAssertions = getDomainRoleAssertions(modifiedSince, caller);
+            Map<String, Map<String, List<Assertion>>> index = fullRebuild ?
+                    new HashMap<>() : new HashMap<>(SERVER_ROLE_ASSERTIONS_INDEX);
+            Map<String, Long> indexedDomains = fullRebuild ?
+                    new HashMap<>() : new HashMap<>(SERVER_ROLE_ASSERTIONS_DOMAINS);
+            for (String domainId : modifiedDomains.keySet()) {
+                index.put(domainId, domainAssertions.getOrDefault(domainId, Collections.emptyMap()));
+            }
+            indexedDomains.putAll(modifiedDomains);
+
+            SERVER_ROLE_ASSERTIONS_INDEX = index;
+            SERVER_ROLE_ASSERTIONS_DOMAINS = indexedDomains;
+            SERVER_ROLE_ASSERTIONS_TIMESTAMP = Math.max(lastModified, SERVER_ROLE_ASSERTIONS_TIMESTAMP);
+            if (fullRebuild) {
+                SERVER_ROLE_ASSERTIONS_BUILD_TIME = now;
+            }
+            return index;
+        }
+    }
+
+    Map<String, Long> getModifiedDomainIds(long modifiedSince, final String caller)
+            throws ServerResourceException {
+
+        Map<String, Long> domainIds = new HashMap<>();
+        try (PreparedStatement ps = con.prepareStatement(SQL_LIST_DOMAIN_ID_MODIFIED)) {
+            Calendar cal = Calendar.getInstance(TimeZone.getTimeZone(MYSQL_SERVER_TIMEZONE));
+            ps.setTimestamp(1, new java.sql.Timestamp(modifiedSince), cal);
+            try (ResultSet rs = executeQuery(ps, caller)) {
+                while (rs.next()) {
+                    domainIds.put(rs.getString(JDBCConsts.DB_COLUMN_DOMAIN_ID),
+                            rs.getTimestamp(JDBCConsts.DB_COLUMN_MODIFIED).getTime());
+                }
+            }
+        } catch (SQLException ex) {
+            throw sqlError(ex, caller);
+        }
+        return domainIds;
+    }
+
+    Map<String, Map<String, List<Assertion>>> getDomainRoleAssertions(long modifiedSince, final String caller)
+            throws ServerResourceException {
+
+        Map<String, Map<String, List<Assertion>>> domainAssertions = new HashMap<>();
+        try (PreparedStatement ps = con.prepareStatement(SQL_LIST_ROLE_ASSERTIONS_DOMAIN_MODIFIED)) {
+            Calendar cal = Calendar.getInstance(TimeZone.getTimeZone(MYSQL_SERVER_TIMEZONE));
+            ps.setTimestamp(1, new java.sql.Timestamp(modifiedSince), cal);
+            try (ResultSet rs = executeQuery(ps, caller)) {
+                while (rs.next()) {
+                    final String domainName = rs.getString(JDBCConsts.DB_COLUMN_NAME);
+                    final String roleName = rs.getString(JDBCConsts.DB_COLUMN_ROLE);
+                    final String domainId = rs.getString(JDBCConsts.DB_COLUMN_DOMAIN_ID);
+
+                    Assertion assertion = new Assertion()
+                            .setRole(ResourceUtils.roleResourceName(domainName, roleName))
+                            .setResource(rs.getString(JDBCConsts.DB_COLUMN_RESOURCE))
+                            .setAction(rs.getString(JDBCConsts.DB_COLUMN_ACTION))
+                            .setEffect(AssertionEffect.valueOf(rs.getString(JDBCConsts.DB_COLUMN_EFFECT)))
+                            .setId((long) rs.getInt(JDBCConsts.DB_COLUMN_ASSERT_ID));
+
+                    domainAssertions.computeIfAbsent(domainId, k -> new HashMap<>())
+                            .computeIfAbsent(roleIndex(domainId, roleName), k -> new ArrayList<>())
+                            .add(assertion);
+                }
+            }
+        } catch (SQLException ex) {
+            throw sqlError(ex, caller);
+        }
+        return domainAssertions;
+    }
+
+    /**
+     * Build the role assertions index if the resource access index
+     * is enabled so the first request does not have to wait for it
+     */
+    public void initRoleAssertionsIndex() throws ServerResourceException {
+        if (resourceAccessIndex) {
+            getRoleAssertionsIndex("initRoleAssertionsIndex");
+        }
+    }
+
+    List<Assertion> getIndexedRoleAssertions(Map<String, Map<String, List<Assertion>>> index,
+            final String roleIndex, final String action) {
+
+        Map<String, List<Assertion>> domainAssertions = index.get(roleIndex.substring(0, roleIndex.indexOf(':')));
+        if (domainAssertions == null) {
+            return null;
+        }
+        List<Assertion> assertions = domainAssertions.get(roleIndex);
+        if (assertions == null) {
+            return null;
+        }
+
+        // we need to return copies of our assertions since the
+        // caller might update the objects before returning them
+
+        List<Assertion> roleAssertions = new ArrayList<>();
+        for (Assertion assertion : assertions) {
+            final String assertionAction = assertion.getAction();
+            if (StringUtil.isEmpty(action) ? ACTION_ASSUME_ROLE.equalsIgnoreCase(assertionAction)
+                    : !action.equalsIgnoreCase(assertionAction)) {
+                continue;
+            }
+            roleAssertions.add(new Assertion().setRole(assertion.getRole()).setResource(assertion.getResource())
+                    .setAction(assertionAction).setEffect(assertion.getEffect()).setId(assertion.getId()));
+        }
+        return roleAssertions;
+    }
+
     void addRoleAssertions(List<Assertion> principalAssertions, List<Assertion> roleAssertions) {
         if (roleAssertions != null && !roleAssertions.isEmpty()) {
             principalAssertions.addAll(roleAssertions);
@@ -4777,12 +4946,20 @@ public class JDBCConnection implements ObjectStoreConnection {
         }
 
         // now let's get the list of role assertions. if we have
-        // no matches, then we have nothing to do
-
-        Map<String, List<Assertion>> roleAssertions = getRoleAssertions(action, caller);
-        if (roleAssertions.isEmpty()) {
-            resources.add(getResourceAccessObject(principal, null));
-            return rsrcAccessList;
+        // no matches, then we have nothing to do. if the resource
+        // access index is enabled, then we'll look up the assertions
+        // for each role from the index instead
+
+        Map<String, Map<String, List<Assertion>>> assertionsIndex = null;
+        Map<String, List<Assertion>> roleAssertions = null;
+        if (resourceAccessIndex) {
+            assertionsIndex = getRoleAssertionsIndex(caller);
+        } else {
+            roleAssertions = getRoleAssertions(action, caller);
+            if (roleAssertions.isEmpty()) {
+                resources.add(getResourceAccessObject(principal, null));
+                return rsrcAccessList;
+            }
         }
 
         // finally we need to get all the trusted role maps
@@ -4806,7 +4983,8 @@ public class JDBCConnection implements ObjectStoreConnection {
 
             // retrieve the assertions for this role
 
-            addRoleAssertions(assertions, roleAssertions.get(roleIndex));
+            addRoleAssertions(assertions, (assertionsIndex != null) ?
+                    getIndexedRoleAssertions(assertionsIndex, roleIndex, action) : roleAssertions.get(roleIndex));
 
             // check to see if this is a trusted role. There might be multiple
             // roles all being mapped as trusted, so we need to process them all
@@ -4819,7 +4997,9 @@ public class JDBCConnection implements ObjectStoreConnection {
                         LOG.debug("{}: processing trusted role: {}", caller, mappedTrustedRole);
                     }
 
-                    addRoleAssertions(assertions, roleAssertions.get(mappedTrustedRole));
+                    addRoleAssertions(assertions, (assertionsIndex != null) ?
+                            getIndexedRoleAssertions(assertionsIndex, mappedTrustedRole, action) :
+                            roleAssertions.get(mappedTrustedRole));
                 }
             }
         }
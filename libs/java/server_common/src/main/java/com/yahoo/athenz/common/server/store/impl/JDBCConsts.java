@@ -35,6 +35,7 @@ public final class JDBCConsts {
 
     public static final String ZMS_PROP_MYSQL_SERVER_TIMEZONE = "athenz.zms.mysql_server_timezone";
     public static final String ZMS_PROP_MYSQL_SERVER_TRUST_ROLES_UPDATE_TIMEOUT = "athenz.zms.mysql_server_trust_roles_update_timeout";
+    public static final String ZMS_PROP_MYSQL_SERVER_RESOURCE_ACCESS_INDEX = "athenz.zms.mysql_server_resource_access_index";
 
     public static final int ZMS_DEFAULT_TAG_LIMIT   = 25;
 
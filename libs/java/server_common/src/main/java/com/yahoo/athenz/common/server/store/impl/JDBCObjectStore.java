@@ -21,9 +21,13 @@ import com.yahoo.athenz.zms.DomainOptions;
 import com.yahoo.athenz.common.server.ServerResourceException;
 import com.yahoo.athenz.common.server.store.ObjectStore;
 import com.yahoo.athenz.common.server.store.ObjectStoreConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class JDBCObjectStore implements ObjectStore {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(JDBCObjectStore.class);
+
     final PoolableDataSource rwSrc;
     PoolableDataSource roSrc;
     private int opTimeout = 60; //in seconds
@@ -75,6 +79,19 @@ public class JDBCObjectStore implements ObjectStore {
         }
     }
     
+    /**
+     * Build the role assertions index at startup if the resource access
+     * index is enabled. If we're not able to build the index, it will be
+     * built when processing the first resource access list request
+     */
+    public void initResourceAccessIndex() {
+        try (ObjectStoreConnection con = getConnection(true, false)) {
+            ((JDBCConnection) con).initRoleAssertionsIndex();
+        } catch (Exception ex) {
+            LOGGER.error("Unable to build role assertions index: {}", ex.getMessage());
+        }
+    }
+
     @Override
     public void setOperationTimeout(int opTimeout) {
         this.opTimeout = opTimeout;
@@ -67,7 +67,14 @@ public class JDBCObjectStoreFactory implements ObjectStoreFactory {
             Properties readOnlyProperties = getProperties(jdbcReadOnlyUser, keyStore.getSecret(jdbcAppName, jdbcKeygroupName, readOnlyPassword));
             readOnlySrc = DataSourceFactory.create(jdbcReadOnlyStore, readOnlyProperties);
         }
-        return new JDBCObjectStore(readWriteSrc, readOnlySrc);
+        JDBCObjectStore objectStore = new JDBCObjectStore(readWriteSrc, readOnlySrc);
+
+        // if configured, build our resource access index at startup
+
+        if (Boolean.parseBoolean(System.getProperty(JDBCConsts.ZMS_PROP_MYSQL_SERVER_RESOURCE_ACCESS_INDEX, "false"))) {
+            objectStore.initResourceAccessIndex();
+        }
+        return objectStore;
     }
 
     String getDefaultSetting(final String propName, final String defaultValue) {
@@ -28,7 +28,12 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.attribute.PosixFilePermission;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.yahoo.athenz.common.ServerCommonConsts.ZTS_PROP_ZMS_DOMAIN_FETCH_THREADS;
+import static com.yahoo.athenz.common.ServerCommonConsts.ZTS_PROP_ZMS_DOMAIN_FETCH_TIMEOUT;
 
 public class ZMSFileChangeLogStoreCommon {
 
@@ -47,6 +52,9 @@ public class ZMSFileChangeLogStoreCommon {
 
     boolean requestConditions;
     int maxRateLimitRetryCount = 101;
+    int fetchThreads;
+    long fetchTimeout;
+    ThreadPoolExecutor fetchExecutor;
 
     public ZMSFileChangeLogStoreCommon(final String rootDirectory) {
 
@@ -54,6 +62,27 @@ public class ZMSFileChangeLogStoreCommon {
 
         filesHelper = new FilesHelper();
 
+        // number of domains we fetch from ZMS in parallel and how long
+        // we keep retrying a single domain when we're rate limited
+
+        fetchThreads = Integer.parseInt(System.getProperty(ZTS_PROP_ZMS_DOMAIN_FETCH_THREADS, "4"));
+        fetchTimeout = Long.parseLong(System.getProperty(ZTS_PROP_ZMS_DOMAIN_FETCH_TIMEOUT, "300000"));
+
+        // the fetch threads are shared by all our syncs. the threads
+        // are only started when needed and exit once they're idle
+        // since most of the syncs only include a few domains
+
+        if (fetchThreads > 1) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            fetchExecutor = new ThreadPoolExecutor(fetchThreads, fetchThreads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "zms-domain-fetch-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            fetchExecutor.allowCoreThreadTimeOut(true);
+        }
+
         // initialize our jackson object mapper
 
         jsonMapper = new ObjectMapper();
@@ -300,95 +329,113 @@ public class ZMSFileChangeLogStoreCommon {
 
     List<SignedDomain> getSignedDomainList(ZMSClient zmsClient, SignedDomains domainList) {
 
-        List<SignedDomain> domains = new ArrayList<>();
-        for (SignedDomain domain : domainList.getDomains()) {
-
-            final String domainName = domain.getDomain().getName();
-
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("getSignedDomainList: fetching domain {}", domainName);
+        return fetchDomainList(domainList, domainName -> {
+            SignedDomains singleDomain = makeSignedDomainsCall(zmsClient, domainName, null, null, null);
+            if (singleDomain == null || singleDomain.getDomains() == null) {
+                return Collections.emptyList();
             }
+            return singleDomain.getDomains();
+        });
+    }
 
-            // we're going to retry up to 100 times in case of rate limiting
-            // from ZMS Server. If not able to retrieve after so many times
-            // we'll pick up the change again during our full sync time
-
-            for (int count = 1; count < maxRateLimitRetryCount; count++) {
-                try {
-
-                    SignedDomains singleDomain = makeSignedDomainsCall(zmsClient, domainName, null, null, null);
-
-                    if (singleDomain != null && !singleDomain.getDomains().isEmpty()) {
-                        domains.addAll(singleDomain.getDomains());
-                    }
-
-                    break;
+    List<JWSDomain> getJWSDomainList(ZMSClient zmsClient, SignedDomains domainList) {
 
-                } catch (ZMSClientException ex) {
+        return fetchDomainList(domainList, domainName -> {
+            JWSDomain jwsDomain = zmsClient.getJWSDomain(domainName, null, null);
+            return jwsDomain == null ? Collections.emptyList() : Collections.singletonList(jwsDomain);
+        });
+    }
 
-                    LOGGER.error("Error fetching domain {} from ZMS: {}", domainName, ex.getMessage());
+    /**
+     * Fetch the given list of domains from ZMS. If configured, the domains
+     * are fetched in parallel with the number of threads capping the number
+     * of concurrent requests sent to ZMS. The returned list maintains the
+     * order of the domains in the given list and is only returned once all
+     * the domains have been fetched, so a domain that is retried because
+     * of rate limiting holds the list for up to the configured fetch timeout.
+     * @param domainList list of domains to be fetched
+     * @param fetcher function to fetch a single domain from ZMS
+     * @return list of fetched domains
+     */
+    <T> List<T> fetchDomainList(SignedDomains domainList, Function<String, List<T>> fetcher) {
 
-                    // if we get a rate limiting failure, we're going to sleep
-                    // for some period and retry our operation again
+        List<String> domainNames = new ArrayList<>();
+        for (SignedDomain domain : domainList.getDomains()) {
+            domainNames.add(domain.getDomain().getName());
+        }
 
-                    if (ex.getCode() != ZMSClientException.TOO_MANY_REQUESTS) {
-                        break;
-                    }
+        List<T> domains = new ArrayList<>();
+        if (fetchExecutor == null || domainNames.size() <= 1) {
+            for (String domainName : domainNames) {
+                domains.addAll(fetchDomain(domainName, fetcher));
+            }
+            return domains;
+        }
 
-                    try {
-                        Thread.sleep(randomSleepForRetry(count));
-                    } catch (InterruptedException ignored) {
-                    }
+        List<Future<List<T>>> futures = new ArrayList<>();
+        try {
+            for (String domainName : domainNames) {
+                futures.add(fetchExecutor.submit(() -> fetchDomain(domainName, fetcher)));
+            }
+            for (int idx = 0; idx < futures.size(); idx++) {
+                try {
+                    domains.addAll(futures.get(idx).get());
+                } catch (ExecutionException ex) {
+                    LOGGER.error("Error fetching domain {} from ZMS: {}", domainNames.get(idx),
+                            ex.getCause().getMessage());
                 }
             }
+        } catch (InterruptedException ex) {
+            LOGGER.error("Interrupted while fetching domains from ZMS");
+            Thread.currentThread().interrupt();
+            for (Future<List<T>> future : futures) {
+                future.cancel(true);
+            }
         }
         return domains;
     }
 
-    List<JWSDomain> getJWSDomainList(ZMSClient zmsClient, SignedDomains domainList) {
-
-        List<JWSDomain> domains = new ArrayList<>();
-        for (SignedDomain domain : domainList.getDomains()) {
+    <T> List<T> fetchDomain(final String domainName, Function<String, List<T>> fetcher) {
 
-            final String domainName = domain.getDomain().getName();
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("fetchDomain: fetching domain {}", domainName);
+        }
 
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("getJWSDomainList: fetching domain {}", domainName);
-            }
+        // we're going to retry up to 100 times in case of rate limiting
+        // from ZMS Server as long as we're within our configured timeout.
+        // If not able to retrieve the domain, we'll pick up the change
+        // again during our full sync time
 
-            // we're going to retry up to 100 times in case of rate limiting
-            // from ZMS Server. If not able to retrieve after so many times
-            // we'll pick up the change again during our full sync time
+        final long deadline = System.currentTimeMillis() + fetchTimeout;
+        for (int count = 1; count < maxRateLimitRetryCount; count++) {
+            try {
+                return fetcher.apply(domainName);
+            } catch (ZMSClientException ex) {
 
-            for (int count = 1; count < maxRateLimitRetryCount; count++) {
-                try {
+                LOGGER.error("Error fetching domain {} from ZMS: {}", domainName, ex.getMessage());
 
-                    JWSDomain jwsDomain = zmsClient.getJWSDomain(domainName, null, null);
-                    if (jwsDomain != null) {
-                        domains.add(jwsDomain);
-                    }
+                // if we get a rate limiting failure, we're going to sleep
+                // for some period and retry our operation again
 
+                if (ex.getCode() != ZMSClientException.TOO_MANY_REQUESTS) {
                     break;
+                }
 
-                } catch (ZMSClientException ex) {
-
-                    LOGGER.error("Error fetching domain {} from ZMS: {}", domainName, ex.getMessage());
-
-                    // if we get a rate limiting failure, we're going to sleep
-                    // for some period and retry our operation again
-
-                    if (ex.getCode() != ZMSClientException.TOO_MANY_REQUESTS) {
-                        break;
-                    }
+                final long sleepTime = randomSleepForRetry(count);
+                if (System.currentTimeMillis() + sleepTime > deadline) {
+                    LOGGER.error("Unable to fetch domain {} from ZMS within {} ms", domainName, fetchTimeout);
+                    break;
+                }
 
-                    try {
-                        Thread.sleep(randomSleepForRetry(count));
-                    } catch (InterruptedException ignored) {
-                    }
+                try {
+                    Thread.sleep(sleepTime);
+                } catch (InterruptedException ex2) {
+                    Thread.currentThread().interrupt();
+                    break;
                 }
             }
         }
-        return domains;
+        return Collections.emptyList();
     }
 
     /**
@@ -441,7 +488,7 @@ public class ZMSFileChangeLogStoreCommon {
             LOGGER.info("getUpdatedSignedDomains: {} updated domains", domainList.getDomains().size());
         }
 
-        // now let's iterate through our list and retrieve one domain at a time
+        // now let's retrieve all the domains in our list
 
         List<SignedDomain> domains = getSignedDomainList(zmsClient, domainList);
         return new SignedDomains().setDomains(domains);
@@ -461,7 +508,7 @@ public class ZMSFileChangeLogStoreCommon {
             LOGGER.info("getUpdatedJWSDomains: {} updated domains", domainList.getDomains().size());
         }
 
-        // now let's iterate through our list and retrieve one domain at a time
+        // now let's retrieve all the domains in our list
 
         return getJWSDomainList(zmsClient, domainList);
     }
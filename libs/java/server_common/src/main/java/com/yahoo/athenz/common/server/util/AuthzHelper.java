@@ -21,7 +21,7 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yahoo.athenz.auth.Authority;
 import com.yahoo.athenz.auth.Principal;
-import com.yahoo.athenz.auth.util.StringUtils;
+import com.yahoo.athenz.auth.util.GlobMatcher;
 import com.yahoo.athenz.common.config.AuthzDetailsEntity;
 import com.yahoo.athenz.common.server.ServerResourceException;
 import com.yahoo.athenz.zms.*;
@@ -270,8 +270,7 @@ public class AuthzHelper {
             return false;
         }
 
-        String rezPattern = StringUtils.patternFromGlob(assertion.getResource());
-        return roleName.matches(rezPattern);
+        return GlobMatcher.matches(assertion.getResource(), roleName);
     }
 
     public static boolean matchDelegatedTrustPolicy(Policy policy, final String roleName, final String roleMember,
@@ -298,10 +297,10 @@ public class AuthzHelper {
             return false;
         }
 
-        String rolePattern = StringUtils.patternFromGlob(assertion.getRole());
+        final String roleGlob = assertion.getRole();
         for (Role role : roles) {
             String name = role.getName();
-            if (!name.matches(rolePattern)) {
+            if (!GlobMatcher.matches(roleGlob, name)) {
                 continue;
             }
 
@@ -45,6 +45,8 @@ public class MetricsTest {
         };
 
         metric.increment("metric1", attributes);
+        metric.increment("metric1", 3, attributes);
+        metric.gauge("gauge1", 10, attributes);
 
         assertNull(metric.startTiming("metric1", "athenz"));
         assertNull(metric.startTiming("metric1", "athenz", "sports"));
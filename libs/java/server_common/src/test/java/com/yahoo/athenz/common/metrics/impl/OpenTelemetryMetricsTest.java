@@ -22,6 +22,9 @@ import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.metrics.LongCounter;
 import io.opentelemetry.api.metrics.LongCounterBuilder;
+import io.opentelemetry.api.metrics.DoubleGaugeBuilder;
+import io.opentelemetry.api.metrics.LongGauge;
+import io.opentelemetry.api.metrics.LongGaugeBuilder;
 import io.opentelemetry.api.metrics.Meter;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.trace.Span;
@@ -165,6 +168,39 @@ public class OpenTelemetryMetricsTest {
   }
 
 
+  @Test
+  public void testIncrementMetricAttributes() {
+    metric.increment("testMetric", "apiName", "testAPI", "provider", "testProvider");
+    ArgumentCaptor<Attributes> captor = ArgumentCaptor.forClass(Attributes.class);
+    verify(counter).add(eq(1L), captor.capture());
+    Attributes attributes = captor.getValue();
+    assertEquals(attributes.get(AttributeKey.stringKey("apiName")), "testAPI");
+    assertEquals(attributes.get(AttributeKey.stringKey("provider")), "testProvider");
+
+    // incomplete key-value pairs are ignored
+
+    metric.increment("testMetric", 5, "apiName", "testAPI", "incomplete");
+    verify(counter).add(eq(5L), captor.capture());
+    attributes = captor.getValue();
+    assertEquals(attributes.size(), 1);
+    assertEquals(attributes.get(AttributeKey.stringKey("apiName")), "testAPI");
+  }
+
+  @Test
+  public void testGauge() {
+    DoubleGaugeBuilder gaugeBuilder = mock(DoubleGaugeBuilder.class);
+    LongGaugeBuilder longGaugeBuilder = mock(LongGaugeBuilder.class);
+    LongGauge gauge = mock(LongGauge.class);
+    when(meter.gaugeBuilder("testGauge")).thenReturn(gaugeBuilder);
+    when(gaugeBuilder.ofLongs()).thenReturn(longGaugeBuilder);
+    when(longGaugeBuilder.build()).thenReturn(gauge);
+
+    metric.gauge("testGauge", 20, "apiName", "testAPI");
+    ArgumentCaptor<Attributes> captor = ArgumentCaptor.forClass(Attributes.class);
+    verify(gauge).set(eq(20L), captor.capture());
+    assertEquals(captor.getValue().get(AttributeKey.stringKey("apiName")), "testAPI");
+  }
+
   @Test
   public void testFlush() {
     metric.flush();
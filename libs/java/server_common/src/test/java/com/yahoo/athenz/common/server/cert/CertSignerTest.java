@@ -68,6 +68,24 @@ public class CertSignerTest {
         testSigner.close();
     }
 
+    @Test
+    public void testCertSignerParsedRequestDefault() throws ServerResourceException {
+
+        // the default implementation ignores the parsed request and
+        // calls the csr based method
+
+        CertSigner signer = new CertSigner() {
+            @Override
+            public String generateX509Certificate(String provider, String certIssuer, String csr,
+                    String keyUsage, int expiryTime, Priority priority, String signerKeyId) {
+                return provider + ":" + csr + ":" + expiryTime + ":" + signerKeyId;
+            }
+        };
+
+        assertEquals(signer.generateX509Certificate("aws", "us-west-2", "csr", null, "client", 60,
+                Priority.High, "keyid"), "aws:csr:60:keyid");
+    }
+
     @Test
     public void testPriority() {
         assertEquals(Priority.Unspecified_priority.getPriorityValue(), 0);
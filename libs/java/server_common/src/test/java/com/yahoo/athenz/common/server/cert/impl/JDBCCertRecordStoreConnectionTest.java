@@ -15,6 +15,7 @@
  */
 package com.yahoo.athenz.common.server.cert.impl;
 
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 
 import java.sql.Connection;
@@ -38,6 +39,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
@@ -339,6 +341,48 @@ public class JDBCCertRecordStoreConnectionTest {
         jdbcConn.close();
     }
 
+    @Test
+    public void testUpdateX509RecordSerial() throws Exception {
+
+        JDBCCertRecordStoreConnection jdbcConn = new JDBCCertRecordStoreConnection(mockConn);
+
+        Date now = new Date();
+        X509CertRecord certRecord = getRecordWithNonNullableColumns(now);
+        certRecord.setExpiryTime(now);
+        certRecord.setHostName("hostname");
+
+        Mockito.doReturn(1).when(mockPrepStmt).executeUpdate();
+        assertTrue(jdbcConn.updateX509CertRecordSerial(certRecord));
+
+        Mockito.verify(mockConn, times(1)).prepareStatement("UPDATE certificates SET " +
+                "currentSerial=?, prevSerial=?, expiryTime=? WHERE provider=? AND instanceId=? AND service=?;");
+        Mockito.verify(mockPrepStmt, times(1)).setString(1, "current-serial");
+        Mockito.verify(mockPrepStmt, times(1)).setString(2, "prev-serial");
+        Mockito.verify(mockPrepStmt, times(1)).setTimestamp(3, new Timestamp(now.getTime()));
+        Mockito.verify(mockPrepStmt, times(1)).setString(4, "ostk");
+        Mockito.verify(mockPrepStmt, times(1)).setString(5, "instance-id");
+        Mockito.verify(mockPrepStmt, times(1)).setString(6, "cn");
+        Mockito.verify(mockPrepStmt, never()).setString(8, "hostname");
+
+        // no record updated
+
+        Mockito.doReturn(0).when(mockPrepStmt).executeUpdate();
+        assertFalse(jdbcConn.updateX509CertRecordSerial(certRecord));
+
+        // sql failure
+
+        Mockito.doThrow(new SQLException("error", "state", 503))
+                .when(mockPrepStmt).executeUpdate();
+        try {
+            jdbcConn.updateX509CertRecordSerial(certRecord);
+            fail();
+        } catch (ServerResourceException ex) {
+            Assert.assertEquals(ex.getCode(), 500);
+        }
+
+        jdbcConn.close();
+    }
+
     @Test
     public void testDeleteX509Record() throws Exception {
         
@@ -442,6 +486,85 @@ public class JDBCCertRecordStoreConnectionTest {
         jdbcConn.close();
     }
 
+    @Test
+    public void testDeleteExpiredX509CertRecordsLimit() throws Exception {
+
+        JDBCCertRecordStoreConnection jdbcConn = new JDBCCertRecordStoreConnection(mockConn);
+
+        Mockito.doReturn(100).when(mockPrepStmt).executeUpdate();
+        assertEquals(jdbcConn.deleteExpiredX509CertRecords(360, 100), 100);
+
+        Mockito.verify(mockPrepStmt, times(1)).setInt(1, 360);
+        Mockito.verify(mockPrepStmt, times(1)).setInt(2, 100);
+
+        // invalid expiry time is rejected right away
+
+        assertEquals(jdbcConn.deleteExpiredX509CertRecords(0, 100), 0);
+
+        // no limit is the same as deleting all records
+
+        Mockito.doReturn(1000).when(mockPrepStmt).executeUpdate();
+        assertEquals(jdbcConn.deleteExpiredX509CertRecords(360, 0), 1000);
+        Mockito.verify(mockPrepStmt, times(2)).setInt(1, 360);
+        Mockito.verify(mockPrepStmt, times(1)).setInt(2, 100);
+
+        Mockito.when(mockPrepStmt.executeUpdate()).thenThrow(new SQLException("exc", "exc", 101));
+        try {
+            jdbcConn.deleteExpiredX509CertRecords(360, 100);
+            fail();
+        } catch (ServerResourceException ex) {
+            Assert.assertEquals(ex.getCode(), ServerResourceException.INTERNAL_SERVER_ERROR);
+        }
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testUpdateX509CertRecords() throws Exception {
+
+        JDBCCertRecordStoreConnection jdbcConn = new JDBCCertRecordStoreConnection(mockConn);
+
+        Date now = new Date();
+        List<X509CertRecord> certRecords = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            certRecords.add(getRecordWithNonNullableColumns(now));
+        }
+
+        // we're going to return 100 results for the first batch (one
+        // of them failed) and 50 for the second batch
+
+        int[] firstBatch = new int[100];
+        java.util.Arrays.fill(firstBatch, 1);
+        firstBatch[10] = 0;
+        int[] secondBatch = new int[50];
+        java.util.Arrays.fill(secondBatch, Statement.SUCCESS_NO_INFO);
+
+        Mockito.when(mockPrepStmt.executeBatch()).thenReturn(firstBatch, secondBatch);
+        assertEquals(jdbcConn.updateX509CertRecords(certRecords), 149);
+        Mockito.verify(mockPrepStmt, times(150)).addBatch();
+        Mockito.verify(mockPrepStmt, times(2)).executeBatch();
+
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testUpdateX509CertRecordsException() throws Exception {
+
+        JDBCCertRecordStoreConnection jdbcConn = new JDBCCertRecordStoreConnection(mockConn);
+
+        List<X509CertRecord> certRecords = new ArrayList<>();
+        certRecords.add(getRecordWithNonNullableColumns(new Date()));
+        Mockito.when(mockPrepStmt.executeBatch()).thenThrow(new SQLTimeoutException("timeout"));
+
+        try {
+            jdbcConn.updateX509CertRecords(certRecords);
+            fail();
+        } catch (ServerResourceException ex) {
+            Assert.assertEquals(ex.getCode(), ServerResourceException.SERVICE_UNAVAILABLE);
+        }
+
+        jdbcConn.close();
+    }
+
     @Test
     public void testUpdateUnrefreshedCertificatesNotificationTimestamp() throws Exception {
         JDBCCertRecordStoreConnection jdbcConn = new JDBCCertRecordStoreConnection(mockConn);
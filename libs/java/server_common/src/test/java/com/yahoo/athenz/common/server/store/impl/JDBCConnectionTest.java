@@ -7907,6 +7907,229 @@ public class JDBCConnectionTest {
         jdbcConn.close();
     }
 
+    @Test
+    public void testListResourceAccessIndex() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+        jdbcConn.resetTrustRolesMap();
+        jdbcConn.resetRoleAssertionsIndex();
+        jdbcConn.resourceAccessIndex = true;
+
+        Mockito.when(mockResultSet.next())
+            .thenReturn(true)
+            .thenReturn(true)
+            .thenReturn(true)
+            .thenReturn(false) // up to here is role principals
+            .thenReturn(false) // no groups
+            .thenReturn(true)
+            .thenReturn(true)
+            .thenReturn(false) // up to here is modified domains
+            .thenReturn(true)
+            .thenReturn(true)
+            .thenReturn(true)
+            .thenReturn(true)
+            .thenReturn(false) // up to here is role assertions
+            .thenReturn(false) // no standard trusted roles
+            .thenReturn(false); // no wildcard trusted roles
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_NAME))
+            .thenReturn("dom1")
+            .thenReturn("dom1")
+            .thenReturn("dom2")
+            .thenReturn("dom2");
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_DOMAIN_ID))
+            .thenReturn("101")
+            .thenReturn("101")
+            .thenReturn("102") // up to here is role principals
+            .thenReturn("101")
+            .thenReturn("102") // up to here is modified domains
+            .thenReturn("101")
+            .thenReturn("101")
+            .thenReturn("102")
+            .thenReturn("102");
+        Mockito.when(mockResultSet.getTimestamp(JDBCConsts.DB_COLUMN_MODIFIED))
+            .thenReturn(new java.sql.Timestamp(1454358916))
+            .thenReturn(new java.sql.Timestamp(1454358920));
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_ROLE_NAME))
+            .thenReturn("role1")
+            .thenReturn("role2")
+            .thenReturn("role3");
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_ROLE))
+            .thenReturn("role1")
+            .thenReturn("role2")
+            .thenReturn("role3")
+            .thenReturn("role4");
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_RESOURCE))
+            .thenReturn("resource1")
+            .thenReturn("resource2")
+            .thenReturn("resource3")
+            .thenReturn("resource4");
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_ACTION))
+            .thenReturn("update")
+            .thenReturn("read")
+            .thenReturn("update")
+            .thenReturn("update");
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_EFFECT))
+            .thenReturn("ALLOW");
+
+        // only assertions for the given action and the principal's
+        // roles are returned
+
+        ResourceAccessList resourceAccessList = jdbcConn.listResourceAccess("user.user1", "update", "user");
+        List<ResourceAccess> resources = resourceAccessList.getResources();
+        assertEquals(1, resources.size());
+
+        ResourceAccess rsrcAccess = resources.get(0);
+        assertEquals(rsrcAccess.getPrincipal(), "user.user1");
+
+        assertEquals(rsrcAccess.getAssertions().size(), 2);
+        Set<String> resourceStrings = new HashSet<>();
+        for (Assertion assertion : rsrcAccess.getAssertions()) {
+            resourceStrings.add(assertion.getResource());
+        }
+        assertTrue(resourceStrings.contains("resource1"));
+        assertTrue(resourceStrings.contains("resource3"));
+
+        // the index has been built for both domains
+
+        Map<String, Map<String, List<Assertion>>> index = jdbcConn.getRoleAssertionsIndex("test");
+        assertEquals(index.size(), 2);
+        assertEquals(index.get("101").size(), 2);
+        assertEquals(index.get("102").size(), 2);
+
+        // returned assertions are copies of the indexed objects
+
+        rsrcAccess.getAssertions().get(0).setResource("updated");
+        assertNotEquals(index.get("101").get("101:role1").get(0).getResource(), "updated");
+
+        jdbcConn.resetRoleAssertionsIndex();
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testGetRoleAssertionsIndexIncrementalUpdate() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+        jdbcConn.resetRoleAssertionsIndex();
+
+        Mockito.when(mockResultSet.next())
+            .thenReturn(true)
+            .thenReturn(true)
+            .thenReturn(false) // up to here is modified domains
+            .thenReturn(true)
+            .thenReturn(true)
+            .thenReturn(false) // up to here is role assertions
+            .thenReturn(true)
+            .thenReturn(true)
+            .thenReturn(false) // up to here is unchanged domains within our margin
+            .thenReturn(true)
+            .thenReturn(true)
+            .thenReturn(true)
+            .thenReturn(false) // up to here is modified domains
+            .thenReturn(true)
+            .thenReturn(true)
+            .thenReturn(false); // up to here is role assertions
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_DOMAIN_ID))
+            .thenReturn("101")
+            .thenReturn("102") // up to here is modified domains
+            .thenReturn("101")
+            .thenReturn("102") // up to here is role assertions
+            .thenReturn("101")
+            .thenReturn("102") // up to here is unchanged domains within our margin
+            .thenReturn("101")
+            .thenReturn("102")
+            .thenReturn("103") // up to here is modified domains
+            .thenReturn("101")
+            .thenReturn("102");
+        Mockito.when(mockResultSet.getTimestamp(JDBCConsts.DB_COLUMN_MODIFIED))
+            .thenReturn(new java.sql.Timestamp(1454358916))
+            .thenReturn(new java.sql.Timestamp(1454358920))
+            .thenReturn(new java.sql.Timestamp(1454358916))
+            .thenReturn(new java.sql.Timestamp(1454358920))
+            .thenReturn(new java.sql.Timestamp(1454358916))
+            .thenReturn(new java.sql.Timestamp(1454358930))
+            .thenReturn(new java.sql.Timestamp(1454358930));
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_NAME))
+            .thenReturn("dom1")
+            .thenReturn("dom2")
+            .thenReturn("dom1")
+            .thenReturn("dom2");
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_ROLE))
+            .thenReturn("role1")
+            .thenReturn("role2")
+            .thenReturn("role1")
+            .thenReturn("role3");
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_RESOURCE))
+            .thenReturn("resource1")
+            .thenReturn("resource2")
+            .thenReturn("updated1")
+            .thenReturn("resource3");
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_ACTION))
+            .thenReturn("update");
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_EFFECT))
+            .thenReturn("ALLOW");
+
+        // initial full build of the index
+
+        Map<String, Map<String, List<Assertion>>> index = jdbcConn.getRoleAssertionsIndex("test");
+        assertEquals(index.size(), 2);
+        assertNotNull(index.get("101").get("101:role1"));
+        assertNotNull(index.get("102").get("102:role2"));
+
+        // domains within our safety margin have not changed since
+        // our last update so we get back the same index
+
+        assertSame(jdbcConn.getRoleAssertionsIndex("test"), index);
+        Mockito.verify(mockPrepStmt, times(1)).setTimestamp(ArgumentMatchers.eq(1),
+                ArgumentMatchers.eq(new java.sql.Timestamp(1454358920 - JDBCConnection.SERVER_ROLE_ASSERTIONS_MODIFIED_MARGIN)),
+                ArgumentMatchers.any(Calendar.class));
+
+        // domain 102 was updated and 103 was created without any assertions.
+        // domain 101 assertions returned by the query are not applied since
+        // its modification timestamp has not changed
+
+        Map<String, Map<String, List<Assertion>>> updatedIndex = jdbcConn.getRoleAssertionsIndex("test");
+        assertEquals(updatedIndex.size(), 3);
+        assertEquals(updatedIndex.get("101").get("101:role1").get(0).getResource(), "resource1");
+        assertNull(updatedIndex.get("102").get("102:role2"));
+        assertEquals(updatedIndex.get("102").get("102:role3").get(0).getResource(), "resource3");
+        assertTrue(updatedIndex.get("103").isEmpty());
+
+        // the original index is not modified
+
+        assertEquals(index.size(), 2);
+
+        jdbcConn.resetRoleAssertionsIndex();
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testGetIndexedRoleAssertions() throws SQLException {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+
+        Map<String, List<Assertion>> domainAssertions = new HashMap<>();
+        domainAssertions.put("101:role1", List.of(
+                new Assertion().setRole("dom1:role.role1").setResource("dom1:res1").setAction("read"),
+                new Assertion().setRole("dom1:role.role1").setResource("dom2:role.trust").setAction("assume_role")));
+        Map<String, Map<String, List<Assertion>>> index = Map.of("101", domainAssertions);
+
+        assertNull(jdbcConn.getIndexedRoleAssertions(index, "102:role1", "read"));
+        assertNull(jdbcConn.getIndexedRoleAssertions(index, "101:role2", "read"));
+
+        List<Assertion> assertions = jdbcConn.getIndexedRoleAssertions(index, "101:role1", "read");
+        assertEquals(assertions.size(), 1);
+        assertEquals(assertions.get(0).getResource(), "dom1:res1");
+
+        assertTrue(jdbcConn.getIndexedRoleAssertions(index, "101:role1", "write").isEmpty());
+
+        // without an action we skip the assume role assertions
+
+        assertions = jdbcConn.getIndexedRoleAssertions(index, "101:role1", null);
+        assertEquals(assertions.size(), 1);
+        assertEquals(assertions.get(0).getAction(), "read");
+        jdbcConn.close();
+    }
+
     @Test
     public void testListResourceAccessAws() throws Exception {
 
@@ -112,4 +112,25 @@ public class JDBCObjectStoreTest {
         jdbcConn = (JDBCConnection) store.getConnection(true, false);
         assertEquals(jdbcConn.con, mockConn);
     }
+
+    @Test
+    public void testInitResourceAccessIndex() throws Exception {
+
+        // with the index disabled we only get and release a connection
+
+        PoolableDataSource mockDataSrc = Mockito.mock(PoolableDataSource.class);
+        Connection mockConn = Mockito.mock(Connection.class);
+        Mockito.doReturn(mockConn).when(mockDataSrc).getConnection();
+        JDBCObjectStore store = new JDBCObjectStore(mockDataSrc, null);
+        store.initResourceAccessIndex();
+        Mockito.verify(mockConn, Mockito.never()).prepareStatement(Mockito.anyString());
+        Mockito.verify(mockConn, Mockito.times(1)).close();
+
+        // connection failures are ignored
+
+        PoolableDataSource mockFailedSrc = Mockito.mock(PoolableDataSource.class);
+        Mockito.doThrow(new SQLException()).when(mockFailedSrc).getConnection();
+        store = new JDBCObjectStore(mockFailedSrc, null);
+        store.initResourceAccessIndex();
+    }
 }
@@ -34,6 +34,8 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.file.attribute.PosixFilePermission;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import static com.yahoo.athenz.common.ServerCommonConsts.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -554,6 +556,167 @@ public class ZMSFileChangeLogStoreCommonTest {
         assertEquals(returnList.size(), 1);
     }
 
+    @Test
+    public void testGetSignedDomainListParallel() {
+        ZMSFileChangeLogStoreCommon fstore = new ZMSFileChangeLogStoreCommon(FSTORE_PATH);
+        assertEquals(fstore.fetchThreads, 4);
+        ZMSClient zmsClient = Mockito.mock(ZMSClient.class);
+
+        List<SignedDomain> domains = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final String domainName = "domain" + i;
+            SignedDomain domain = new SignedDomain().setDomain(new DomainData().setName(domainName));
+            domains.add(domain);
+            SignedDomains singleDomain = new SignedDomains().setDomains(Collections.singletonList(domain));
+            if (i == 5) {
+                Mockito.when(zmsClient.getSignedDomains(domainName, null, null, true, false, null, null))
+                        .thenThrow(new ZMSClientException(429, "too many requests"))
+                        .thenReturn(singleDomain);
+            } else if (i == 10) {
+                Mockito.when(zmsClient.getSignedDomains(domainName, null, null, true, false, null, null))
+                        .thenThrow(new IllegalStateException("invalid state"));
+            } else {
+                Mockito.when(zmsClient.getSignedDomains(domainName, null, null, true, false, null, null))
+                        .thenReturn(singleDomain);
+            }
+        }
+        SignedDomains domainList = new SignedDomains().setDomains(domains);
+
+        // the failed domain is skipped and the order of the domains is maintained
+
+        List<SignedDomain> returnList = fstore.getSignedDomainList(zmsClient, domainList);
+        assertEquals(returnList.size(), 19);
+        int idx = 0;
+        for (int i = 0; i < 20; i++) {
+            if (i != 10) {
+                assertEquals(returnList.get(idx++).getDomain().getName(), "domain" + i);
+            }
+        }
+
+        // the same executor is used for the next sync
+
+        ThreadPoolExecutor executor = fstore.fetchExecutor;
+        returnList = fstore.getSignedDomainList(zmsClient, domainList);
+        assertEquals(returnList.size(), 19);
+        assertSame(fstore.fetchExecutor, executor);
+        assertFalse(executor.isShutdown());
+        assertTrue(executor.getLargestPoolSize() <= 4);
+    }
+
+    @Test
+    public void testGetSignedDomainListSingleThread() {
+        System.setProperty(ZTS_PROP_ZMS_DOMAIN_FETCH_THREADS, "1");
+        ZMSFileChangeLogStoreCommon fstore = new ZMSFileChangeLogStoreCommon(FSTORE_PATH);
+        System.clearProperty(ZTS_PROP_ZMS_DOMAIN_FETCH_THREADS);
+        assertNull(fstore.fetchExecutor);
+
+        ZMSClient zmsClient = Mockito.mock(ZMSClient.class);
+        List<SignedDomain> domains = new ArrayList<>();
+        for (String domainName : Arrays.asList("athenz", "sports")) {
+            SignedDomain domain = new SignedDomain().setDomain(new DomainData().setName(domainName));
+            domains.add(domain);
+            Mockito.when(zmsClient.getSignedDomains(domainName, null, null, true, false, null, null))
+                    .thenReturn(new SignedDomains().setDomains(Collections.singletonList(domain)));
+        }
+
+        List<SignedDomain> returnList = fstore.getSignedDomainList(zmsClient,
+                new SignedDomains().setDomains(domains));
+        assertEquals(returnList.size(), 2);
+        assertEquals(returnList.get(0).getDomain().getName(), "athenz");
+        assertEquals(returnList.get(1).getDomain().getName(), "sports");
+    }
+
+    @Test
+    public void testFetchDomainListInterrupted() {
+        ZMSFileChangeLogStoreCommon fstore = new ZMSFileChangeLogStoreCommon(FSTORE_PATH);
+
+        List<SignedDomain> domains = new ArrayList<>();
+        for (String domainName : Arrays.asList("athenz", "sports")) {
+            domains.add(new SignedDomain().setDomain(new DomainData().setName(domainName)));
+        }
+
+        // the pending fetches are cancelled and the executor is still available
+
+        CountDownLatch latch = new CountDownLatch(1);
+        Thread.currentThread().interrupt();
+        List<String> returnList = fstore.fetchDomainList(new SignedDomains().setDomains(domains), domainName -> {
+            try {
+                latch.await();
+            } catch (InterruptedException ignored) {
+            }
+            return Collections.singletonList(domainName);
+        });
+        assertTrue(Thread.interrupted());
+        assertTrue(returnList.isEmpty());
+        assertFalse(fstore.fetchExecutor.isShutdown());
+        latch.countDown();
+    }
+
+    @Test
+    public void testGetJWSDomainListParallel() {
+        System.setProperty(ZTS_PROP_ZMS_DOMAIN_FETCH_THREADS, "2");
+        ZMSFileChangeLogStoreCommon fstore = new ZMSFileChangeLogStoreCommon(FSTORE_PATH);
+        System.clearProperty(ZTS_PROP_ZMS_DOMAIN_FETCH_THREADS);
+        assertEquals(fstore.fetchThreads, 2);
+
+        ZMSClient zmsClient = Mockito.mock(ZMSClient.class);
+
+        List<SignedDomain> domains = new ArrayList<>();
+        for (String domainName : Arrays.asList("athenz", "sports", "weather")) {
+            domains.add(new SignedDomain().setDomain(new DomainData().setName(domainName)));
+        }
+        SignedDomains domainList = new SignedDomains().setDomains(domains);
+
+        JWSDomain jwsDomain1 = new JWSDomain().setPayload("athenz");
+        JWSDomain jwsDomain3 = new JWSDomain().setPayload("weather");
+        Mockito.when(zmsClient.getJWSDomain("athenz", null, null)).thenReturn(jwsDomain1);
+        Mockito.when(zmsClient.getJWSDomain("sports", null, null))
+                .thenThrow(new ZMSClientException(401, "invalid credentials"));
+        Mockito.when(zmsClient.getJWSDomain("weather", null, null)).thenReturn(jwsDomain3);
+
+        List<JWSDomain> returnList = fstore.getJWSDomainList(zmsClient, domainList);
+        assertEquals(returnList.size(), 2);
+        assertEquals(returnList.get(0).getPayload(), "athenz");
+        assertEquals(returnList.get(1).getPayload(), "weather");
+    }
+
+    @Test
+    public void testFetchDomainTimeout() {
+        System.setProperty(ZTS_PROP_ZMS_DOMAIN_FETCH_TIMEOUT, "500");
+        ZMSFileChangeLogStoreCommon fstore = new ZMSFileChangeLogStoreCommon(FSTORE_PATH);
+        System.clearProperty(ZTS_PROP_ZMS_DOMAIN_FETCH_TIMEOUT);
+        assertEquals(fstore.fetchTimeout, 500);
+
+        ZMSClient zmsClient = Mockito.mock(ZMSClient.class);
+        Mockito.when(zmsClient.getJWSDomain("athenz", null, null))
+                .thenThrow(new ZMSClientException(429, "too many requests"));
+
+        // our first retry sleep is 1 second so we must give up
+        // right away without sleeping or retrying the request
+
+        long start = System.currentTimeMillis();
+        List<JWSDomain> returnList = fstore.fetchDomain("athenz",
+                domainName -> Collections.singletonList(zmsClient.getJWSDomain(domainName, null, null)));
+        assertTrue(returnList.isEmpty());
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        Mockito.verify(zmsClient, Mockito.times(1)).getJWSDomain("athenz", null, null);
+    }
+
+    @Test
+    public void testFetchDomainInterrupted() {
+        ZMSFileChangeLogStoreCommon fstore = new ZMSFileChangeLogStoreCommon(FSTORE_PATH);
+        ZMSClient zmsClient = Mockito.mock(ZMSClient.class);
+        Mockito.when(zmsClient.getJWSDomain("athenz", null, null))
+                .thenThrow(new ZMSClientException(429, "too many requests"));
+
+        Thread.currentThread().interrupt();
+        List<JWSDomain> returnList = fstore.fetchDomain("athenz",
+                domainName -> Collections.singletonList(zmsClient.getJWSDomain(domainName, null, null)));
+        assertTrue(Thread.interrupted());
+        assertTrue(returnList.isEmpty());
+        Mockito.verify(zmsClient, Mockito.times(1)).getJWSDomain("athenz", null, null);
+    }
+
     @Test
     public void testGetServerJWSDomain() {
         ZMSFileChangeLogStoreCommon fstore = new ZMSFileChangeLogStoreCommon(FSTORE_PATH);
@@ -20,7 +20,8 @@ import com.google.common.cache.CacheBuilder;
 import com.yahoo.athenz.auth.AuthorityConsts;
 import com.yahoo.athenz.auth.Principal;
 import com.yahoo.athenz.auth.util.AthenzUtils;
-import com.yahoo.athenz.auth.util.StringUtils;
+import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.auth.util.GlobMatcher;
 import com.yahoo.athenz.common.messaging.DomainChangeMessage;
 import com.yahoo.athenz.common.server.audit.AuditReferenceValidator;
 import com.yahoo.athenz.common.server.db.DomainProvider;
@@ -41,6 +42,7 @@ import org.eclipse.jetty.util.StringUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.security.PublicKey;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.Executors;
@@ -60,6 +62,7 @@ public class DBService implements RolesProvider, DomainProvider {
     AuditLogger auditLogger;
     private final AuthHistoryStore authHistoryStore;
     Cache<String, DataCache> cacheStore;
+    Cache<String, PublicKey> parsedPublicKeyCache;
     QuotaChecker quotaCheck;
     int retrySleepTime;
     int defaultRetryCount;
@@ -95,6 +98,7 @@ public class DBService implements RolesProvider, DomainProvider {
     private static final String AUDIT_REF_USER_AUTHORITY = "Athenz User Authority Enforcer";
 
     AuditReferenceValidator auditReferenceValidator;
+    PrincipalMembershipIndex principalMembershipIndex;
     private final ScheduledExecutorService userAuthorityFilterExecutor;
     protected DynamicConfigInteger purgeMembersMaxDbCallsPerRun;
     protected DynamicConfigInteger purgeMembersLimitPerCall;
@@ -110,6 +114,14 @@ public class DBService implements RolesProvider, DomainProvider {
         this.authHistoryStore = authHistoryStore;
         cacheStore = CacheBuilder.newBuilder().concurrencyLevel(25).build();
 
+        // parsed public keys are keyed by their encoded value so a cached
+        // key is never used once the service key has been updated
+
+        int publicKeyCacheSize = Integer.parseInt(System.getProperty(
+                ZMSConsts.ZMS_PROP_PARSED_PUBLIC_KEY_CACHE_SIZE, "10000"));
+        parsedPublicKeyCache = CacheBuilder.newBuilder().concurrencyLevel(25)
+                .maximumSize(Math.max(publicKeyCacheSize, 0)).build();
+
         awsAssumeRoleAction = System.getProperty(ZMSConsts.ZMS_PROP_AWS_ASSUME_ROLE_ACTION,
                 ZMSConsts.ACTION_ASSUME_AWS_ROLE);
         gcpAssumeRoleAction = System.getProperty(ZMSConsts.ZMS_PROP_GCP_ASSUME_ROLE_ACTION,
@@ -193,6 +205,17 @@ public class DBService implements RolesProvider, DomainProvider {
 
         minReviewDaysPercentage = new DynamicConfigInteger(CONFIG_MANAGER,
                 ZMSConsts.ZMS_PROP_REVIEW_DAYS_PERCENTAGE, ZMSConsts.ZMS_PROP_REVIEW_DAYS_PERCENTAGE_DEFAULT);
+
+        // check if we need to maintain the in-memory index of principal
+        // role and group memberships to avoid db lookups
+
+        if (this.store != null && Boolean.parseBoolean(
+                System.getProperty(ZMSConsts.ZMS_PROP_PRINCIPAL_MEMBERSHIP_INDEX, "false"))) {
+            principalMembershipIndex = new PrincipalMembershipIndex(this.store);
+            principalMembershipIndex.start(Long.parseLong(System.getProperty(
+                    ZMSConsts.ZMS_PROP_PRINCIPAL_MEMBERSHIP_INDEX_RECONCILE_INTERVAL,
+                    ZMSConsts.ZMS_PROP_PRINCIPAL_MEMBERSHIP_INDEX_RECONCILE_INTERVAL_DEFAULT)));
+        }
     }
 
     void setAuditRefObjectBits() {
@@ -321,10 +344,41 @@ public class DBService implements RolesProvider, DomainProvider {
             return data.getAthenzDomain();
         }
 
-        cacheStore.invalidate(domainName);
+        invalidateDomainCache(domainName);
         return null;
     }
 
+    void invalidateDomainCache(final String domainName) {
+        cacheStore.invalidate(domainName);
+        if (principalMembershipIndex != null) {
+            principalMembershipIndex.invalidate(domainName);
+        }
+    }
+
+    DomainRoleMember lookupPrincipalRoles(ObjectStoreConnection con, final String principal,
+            final String domainName) throws ServerResourceException {
+
+        if (principalMembershipIndex != null) {
+            DomainRoleMember domainRoleMember = principalMembershipIndex.getPrincipalRoles(principal, domainName);
+            if (domainRoleMember != null) {
+                return domainRoleMember;
+            }
+        }
+        return con.getPrincipalRoles(principal, domainName);
+    }
+
+    DomainGroupMember lookupPrincipalGroups(ObjectStoreConnection con, final String principal,
+            final String domainName) throws ServerResourceException {
+
+        if (principalMembershipIndex != null) {
+            DomainGroupMember domainGroupMember = principalMembershipIndex.getPrincipalGroups(principal, domainName);
+            if (domainGroupMember != null) {
+                return domainGroupMember;
+            }
+        }
+        return con.getPrincipalGroups(principal, domainName);
+    }
+
     String getPrincipalName(ResourceContext ctx) {
         if (ctx == null) {
             return null;
@@ -345,7 +399,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
         con.commitChanges();
         con.updateDomainModTimestamp(domainName);
-        cacheStore.invalidate(domainName);
+        invalidateDomainCache(domainName);
     }
 
     void purgeTaskSaveDomainChanges(ResourceContext ctx, ObjectStoreConnection con, String domainName,
@@ -2046,7 +2100,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
                 con.updateRoleModTimestamp(domainName, roleName);
                 con.updateDomainModTimestamp(domainName);
-                cacheStore.invalidate(domainName);
+                invalidateDomainCache(domainName);
 
                 // audit log the request
 
@@ -2110,7 +2164,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
                 con.updateGroupModTimestamp(domainName, groupName);
                 con.updateDomainModTimestamp(domainName);
-                cacheStore.invalidate(domainName);
+                invalidateDomainCache(domainName);
 
                 // audit log the request
 
@@ -2237,7 +2291,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
                 con.updateRoleModTimestamp(domainName, roleName);
                 con.updateDomainModTimestamp(domainName);
-                cacheStore.invalidate(domainName);
+                invalidateDomainCache(domainName);
 
                 // audit log the request
                 auditLogRequest(ctx, domainName, auditRef, caller, pending ? ZMSConsts.HTTP_PUT : ZMSConsts.HTTP_DELETE,
@@ -2285,7 +2339,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
                 con.updateRoleModTimestamp(domainName, roleName);
                 con.updateDomainModTimestamp(domainName);
-                cacheStore.invalidate(domainName);
+                invalidateDomainCache(domainName);
 
                 // audit log the request
 
@@ -2349,7 +2403,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
                 con.updateGroupModTimestamp(domainName, groupName);
                 con.updateDomainModTimestamp(domainName);
-                cacheStore.invalidate(domainName);
+                invalidateDomainCache(domainName);
 
                 // audit log the request
 
@@ -2398,7 +2452,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
                 con.updateGroupModTimestamp(domainName, groupName);
                 con.updateDomainModTimestamp(domainName);
-                cacheStore.invalidate(domainName);
+                invalidateDomainCache(domainName);
 
                 // audit log the request
 
@@ -2785,7 +2839,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
                 con.deleteDomain(domainName);
                 con.commitChanges();
-                cacheStore.invalidate(domainName);
+                invalidateDomainCache(domainName);
 
                 // audit log the request
 
@@ -2909,7 +2963,7 @@ public class DBService implements RolesProvider, DomainProvider {
         }
 
         con.updateDomainModTimestamp(domainName);
-        cacheStore.invalidate(domainName);
+        invalidateDomainCache(domainName);
     }
 
     void removePrincipalFromAllRoles(ResourceContext ctx, ObjectStoreConnection con, final String principalName,
@@ -2958,7 +3012,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
             con.updateRoleModTimestamp(domainName, roleName);
             con.updateDomainModTimestamp(domainName);
-            cacheStore.invalidate(domainName);
+            invalidateDomainCache(domainName);
 
             // add domain change event
             addDomainChangeMessage(ctx, domainName, roleName, DomainChangeMessage.ObjectType.ROLE);
@@ -3011,7 +3065,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
             con.updateGroupModTimestamp(domainName, groupName);
             con.updateDomainModTimestamp(domainName);
-            cacheStore.invalidate(domainName);
+            invalidateDomainCache(domainName);
 
             // add domain change event
             addDomainChangeMessage(ctx, domainName, groupName, DomainChangeMessage.ObjectType.GROUP);
@@ -3033,12 +3087,12 @@ public class DBService implements RolesProvider, DomainProvider {
         // if the actual user is not deleted
 
         con.deleteDomain(principalName);
-        cacheStore.invalidate(principalName);
+        invalidateDomainCache(principalName);
         addDomainChangeMessage(ctx, principalName, principalName, DomainChangeMessage.ObjectType.DOMAIN);
         
         for (String subDomain : subDomains) {
             con.deleteDomain(subDomain);
-            cacheStore.invalidate(subDomain);
+            invalidateDomainCache(subDomain);
             addDomainChangeMessage(ctx, subDomain, subDomain, DomainChangeMessage.ObjectType.DOMAIN);
         }
     }
@@ -3231,6 +3285,23 @@ public class DBService implements RolesProvider, DomainProvider {
         return service;
     }
 
+    /**
+     * Return the parsed public key object for the given ybase64 encoded
+     * public key value. The parsed keys are cached so the same key is
+     * only parsed once.
+     * @param encodedKey ybase64 encoded PEM public key
+     * @return parsed public key
+     */
+    PublicKey getParsedPublicKey(final String encodedKey) {
+
+        PublicKey publicKey = parsedPublicKeyCache.getIfPresent(encodedKey);
+        if (publicKey == null) {
+            publicKey = Crypto.loadPublicKey(Crypto.ybase64DecodeString(encodedKey));
+            parsedPublicKeyCache.put(encodedKey, publicKey);
+        }
+        return publicKey;
+    }
+
     PublicKeyEntry getPublicKeyFromCache(String domainName, String serviceName, String keyId) {
 
         DataCache data = cacheStore.getIfPresent(domainName);
@@ -3633,10 +3704,10 @@ public class DBService implements RolesProvider, DomainProvider {
 
         try (ObjectStoreConnection con = store.getConnection(true, false)) {
             if (expand != Boolean.TRUE) {
-                return con.getPrincipalRoles(principal, domainName);
+                return lookupPrincipalRoles(con, principal, domainName);
             }
 
-            principalRoles = con.getPrincipalRoles(principal, null);
+            principalRoles = lookupPrincipalRoles(con, principal, null);
 
             // if we're asked to return expanded list of roles (including indirect
             // membership through group and delegated roles), we need to get the list
@@ -3644,11 +3715,11 @@ public class DBService implements RolesProvider, DomainProvider {
             // extract the roles the group is a member of, and add those roles to
             // our return list for further processing
 
-            principalGroups = con.getPrincipalGroups(principal, null);
+            principalGroups = lookupPrincipalGroups(con, principal, null);
             for (GroupMember groupMember : principalGroups.getMemberGroups()) {
                 final String groupName = ResourceUtils.groupResourceName(groupMember.getDomainName(), groupMember.getGroupName());
                 try {
-                    DomainRoleMember roleGroupMembers = con.getPrincipalRoles(groupName, null);
+                    DomainRoleMember roleGroupMembers = lookupPrincipalRoles(con, groupName, null);
                     for (MemberRole memberRole : roleGroupMembers.getMemberRoles()) {
                         memberRole.setMemberName(groupName);
                     }
@@ -3838,9 +3909,9 @@ public class DBService implements RolesProvider, DomainProvider {
                 // go through the list of trusted role names and see if they
                 // match our resource definition which might include wildcards
 
-                final String rolePattern = StringUtils.patternFromGlob(resource);
+                final GlobMatcher roleMatcher = new GlobMatcher(resource);
                 for (String trustedRole : trustRoles) {
-                    if (trustedRole.matches(rolePattern)) {
+                    if (roleMatcher.matches(trustedRole)) {
                         int idx = trustedRole.indexOf(AuthorityConsts.ROLE_SEP);
                         memberRoles.add(new MemberRole()
                                 .setRoleName(trustedRole.substring(idx + AuthorityConsts.ROLE_SEP.length()))
@@ -3909,7 +3980,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
     DomainGroupMember getPrincipalGroups(String principal, String domainName) {
         try (ObjectStoreConnection con = store.getConnection(true, false)) {
-            return con.getPrincipalGroups(principal, domainName);
+            return lookupPrincipalGroups(con, principal, domainName);
         } catch (ServerResourceException ex) {
             throw ZMSUtils.error(ex);
         }
@@ -4094,7 +4165,7 @@ public class DBService implements RolesProvider, DomainProvider {
                     continue;
                 }
 
-                String rolePattern = StringUtils.patternFromGlob(assertion.getRole());
+                final GlobMatcher roleMatcher = new GlobMatcher(assertion.getRole());
                 for (Role role : domain.getRoles()) {
 
                     // make sure we have members before trying to match the name
@@ -4104,7 +4175,7 @@ public class DBService implements RolesProvider, DomainProvider {
                         continue;
                     }
 
-                    if (!role.getName().matches(rolePattern)) {
+                    if (!roleMatcher.matches(role.getName())) {
                         continue;
                     }
 
@@ -4169,7 +4240,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
                 con.updatePolicyModTimestamp(domainName, policyName, version);
                 con.updateDomainModTimestamp(domainName);
-                cacheStore.invalidate(domainName);
+                invalidateDomainCache(domainName);
 
                 // audit log the request
 
@@ -4228,7 +4299,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
                 con.updatePolicyModTimestamp(domainName, policyName, version);
                 con.updateDomainModTimestamp(domainName);
-                cacheStore.invalidate(domainName);
+                invalidateDomainCache(domainName);
 
                 // audit log the request
 
@@ -4396,7 +4467,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
                 con.updateDomainModTimestamp(domainName);
                 con.commitChanges();
-                cacheStore.invalidate(domainName);
+                invalidateDomainCache(domainName);
 
                 // audit log the request
 
@@ -4581,7 +4652,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
                 con.updateRoleModTimestamp(domainName, roleName);
                 con.updateDomainModTimestamp(domainName);
-                cacheStore.invalidate(domainName);
+                invalidateDomainCache(domainName);
 
                 // add domain change event
                 addDomainChangeMessage(ctx, domainName, roleName, DomainChangeMessage.ObjectType.ROLE);
@@ -4697,7 +4768,7 @@ public class DBService implements RolesProvider, DomainProvider {
         }
         if (domainModified) {
             con.updateDomainModTimestamp(domain.getName());
-            cacheStore.invalidate(domain.getName());
+            invalidateDomainCache(domain.getName());
         }
     }
 
@@ -7648,7 +7719,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
             con.updateRoleModTimestamp(domainName, roleName);
             con.updateDomainModTimestamp(domainName);
-            cacheStore.invalidate(domainName);
+            invalidateDomainCache(domainName);
 
             // add domain change event
             addDomainChangeMessage(ctx, domainName, roleName, DomainChangeMessage.ObjectType.ROLE);
@@ -7687,7 +7758,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
             con.updateGroupModTimestamp(domainName, groupName);
             con.updateDomainModTimestamp(domainName);
-            cacheStore.invalidate(domainName);
+            invalidateDomainCache(domainName);
         }
     }
 
@@ -7754,7 +7825,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
             con.updateGroupModTimestamp(domainName, groupName);
             con.updateDomainModTimestamp(domainName);
-            cacheStore.invalidate(domainName);
+            invalidateDomainCache(domainName);
         }
     }
 
@@ -7848,7 +7919,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
             con.updateRoleModTimestamp(domainName, roleName);
             con.updateDomainModTimestamp(domainName);
-            cacheStore.invalidate(domainName);
+            invalidateDomainCache(domainName);
 
             // add domain change event
             addDomainChangeMessage(ctx, domainName, roleName, DomainChangeMessage.ObjectType.ROLE);
@@ -8566,7 +8637,7 @@ public class DBService implements RolesProvider, DomainProvider {
             // update domain time-stamps, and invalidate local cache entry
 
             con.updateDomainModTimestamp(domainName);
-            cacheStore.invalidate(domainName);
+            invalidateDomainCache(domainName);
         } catch (ServerResourceException ex) {
             throw ZMSUtils.error(ex);
         }
@@ -8750,7 +8821,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
                 con.updateRoleModTimestamp(domainName, roleName);
                 con.updateDomainModTimestamp(domainName);
-                cacheStore.invalidate(domainName);
+                invalidateDomainCache(domainName);
             }
         } catch (ServerResourceException ex) {
             throw ZMSUtils.error(ex);
@@ -8824,7 +8895,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
                 con.updateGroupModTimestamp(domainName, groupName);
                 con.updateDomainModTimestamp(domainName);
-                cacheStore.invalidate(domainName);
+                invalidateDomainCache(domainName);
             }
         }
     }
@@ -9101,7 +9172,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
                 con.updatePolicyModTimestamp(domainName, policyName, null);
                 con.updateDomainModTimestamp(domainName);
-                cacheStore.invalidate(domainName);
+                invalidateDomainCache(domainName);
 
                 // audit log the request
 
@@ -9161,7 +9232,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
                 con.updatePolicyModTimestamp(domainName, policyName, null);
                 con.updateDomainModTimestamp(domainName);
-                cacheStore.invalidate(domainName);
+                invalidateDomainCache(domainName);
 
                 // audit log the request
 
@@ -9613,7 +9684,7 @@ public class DBService implements RolesProvider, DomainProvider {
             }
             for (String updatedDomain : updatedDomains) {
                 con.updateDomainModTimestamp(updatedDomain);
-                cacheStore.invalidate(updatedDomain);
+                invalidateDomainCache(updatedDomain);
             }
         }
     }
@@ -9649,7 +9720,7 @@ public class DBService implements RolesProvider, DomainProvider {
             }
             for (String updatedDomain : updatedDomains) {
                 con.updateDomainModTimestamp(updatedDomain);
-                cacheStore.invalidate(updatedDomain);
+                invalidateDomainCache(updatedDomain);
             }
         }
     }
@@ -9691,7 +9762,7 @@ public class DBService implements RolesProvider, DomainProvider {
 
                 // invalidate our domain cache
 
-                cacheStore.invalidate(domainName);
+                invalidateDomainCache(domainName);
 
                 // audit log the request
 
@@ -0,0 +1,359 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zms;
+
+import com.yahoo.athenz.common.server.ServerResourceException;
+import com.yahoo.athenz.common.server.store.ObjectStore;
+import com.yahoo.athenz.common.server.store.ObjectStoreConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory reverse index of role and group memberships keyed by the
+ * principal name so that the getPrincipalRoles and getPrincipalGroups
+ * requests can be answered without running the principal join queries
+ * against the database. The index is maintained per domain: DBService
+ * marks a domain as stale every time it updates the domain and the
+ * memberships for all stale domains are reloaded before the next lookup.
+ * The index is also periodically reconciled with the database to pick
+ * up changes carried out by other ZMS servers. Only approved members
+ * are included, the same as the database queries, and the expiration,
+ * review reminder and system disabled state are returned as stored.
+ */
+public class PrincipalMembershipIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrincipalMembershipIndex.class);
+
+    // when checking for modified domains we look back an extra minute
+    // to account for any clock differences between servers
+
+    static final long RECONCILE_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    static class DomainMembers {
+
+        final Map<String, List<MemberRole>> memberRoles = new HashMap<>();
+        final Map<String, List<GroupMember>> memberGroups = new HashMap<>();
+
+        DomainMembers(final String domainName, DomainRoleMembers roleMembers, DomainGroupMembers groupMembers) {
+
+            if (roleMembers != null && roleMembers.getMembers() != null) {
+                for (DomainRoleMember roleMember : roleMembers.getMembers()) {
+                    List<MemberRole> roles = memberRoles.computeIfAbsent(roleMember.getMemberName(),
+                            k -> new ArrayList<>());
+                    for (MemberRole memberRole : roleMember.getMemberRoles()) {
+                        roles.add(copyMemberRole(memberRole).setDomainName(domainName));
+                    }
+                }
+            }
+
+            if (groupMembers != null && groupMembers.getMembers() != null) {
+                for (DomainGroupMember groupMember : groupMembers.getMembers()) {
+                    List<GroupMember> groups = memberGroups.computeIfAbsent(groupMember.getMemberName(),
+                            k -> new ArrayList<>());
+                    for (GroupMember memberGroup : groupMember.getMemberGroups()) {
+                        groups.add(copyGroupMember(memberGroup).setDomainName(domainName));
+                    }
+                }
+            }
+        }
+
+        boolean containsPrincipal(final String principal) {
+            return memberRoles.containsKey(principal) || memberGroups.containsKey(principal);
+        }
+
+        Set<String> getPrincipals() {
+            Set<String> principals = new HashSet<>(memberRoles.keySet());
+            principals.addAll(memberGroups.keySet());
+            return principals;
+        }
+    }
+
+    private final ObjectStore store;
+    private final Map<String, DomainMembers> domainMembers = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> principalDomains = new ConcurrentHashMap<>();
+    private final Map<String, Long> staleDomains = new ConcurrentHashMap<>();
+    private final AtomicLong staleSequence = new AtomicLong();
+    private volatile boolean initialized = false;
+    private long lastReconcileTime = 0;
+    private ScheduledExecutorService scheduledExecutor;
+
+    public PrincipalMembershipIndex(ObjectStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Build the index in a background thread and then reconcile it with
+     * the database at the given interval. Until the index is built, all
+     * lookups return null and the caller must use the database.
+     * @param reconcileInterval interval in seconds
+     */
+    public void start(long reconcileInterval) {
+
+        LOGGER.info("starting principal membership index with reconcile interval {} secs", reconcileInterval);
+
+        scheduledExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "zms-membership-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduledExecutor.scheduleWithFixedDelay(this::reconcile, 0, reconcileInterval, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        if (scheduledExecutor != null) {
+            scheduledExecutor.shutdownNow();
+        }
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * Mark the given domain as stale so its memberships are reloaded
+     * from the database before the next lookup.
+     * @param domainName name of the domain that was updated
+     */
+    public void invalidate(final String domainName) {
+        staleDomains.put(domainName, staleSequence.incrementAndGet());
+    }
+
+    /**
+     * Return the roles that the principal is a member of
+     * @param principal name of the principal
+     * @param domainName optional domain name to filter the roles
+     * @return the roles or null if the index is not able to answer
+     *      the request and the caller must use the database
+     */
+    public DomainRoleMember getPrincipalRoles(final String principal, final String domainName) {
+
+        Set<String> domains = getPrincipalDomains(principal, domainName);
+        if (domains == null) {
+            return null;
+        }
+
+        DomainRoleMember domainRoleMember = new DomainRoleMember();
+        domainRoleMember.setMemberName(principal);
+        domainRoleMember.setMemberRoles(new ArrayList<>());
+        for (String name : domains) {
+            DomainMembers members = domainMembers.get(name);
+            List<MemberRole> memberRoles = (members == null) ? null : members.memberRoles.get(principal);
+            if (memberRoles == null) {
+                continue;
+            }
+            for (MemberRole memberRole : memberRoles) {
+                domainRoleMember.getMemberRoles().add(copyMemberRole(memberRole));
+            }
+        }
+        return domainRoleMember;
+    }
+
+    /**
+     * Return the groups that the principal is a member of
+     * @param principal name of the principal
+     * @param domainName optional domain name to filter the groups
+     * @return the groups or null if the index is not able to answer
+     *      the request and the caller must use the database
+     */
+    public DomainGroupMember getPrincipalGroups(final String principal, final String domainName) {
+
+        Set<String> domains = getPrincipalDomains(principal, domainName);
+        if (domains == null) {
+            return null;
+        }
+
+        DomainGroupMember domainGroupMember = new DomainGroupMember();
+        domainGroupMember.setMemberName(principal);
+        domainGroupMember.setMemberGroups(new ArrayList<>());
+        for (String name : domains) {
+            DomainMembers members = domainMembers.get(name);
+            List<GroupMember> memberGroups = (members == null) ? null : members.memberGroups.get(principal);
+            if (memberGroups == null) {
+                continue;
+            }
+            for (GroupMember groupMember : memberGroups) {
+                domainGroupMember.getMemberGroups().add(copyGroupMember(groupMember));
+            }
+        }
+        return domainGroupMember;
+    }
+
+    Set<String> getPrincipalDomains(final String principal, final String domainName) {
+
+        if (!initialized) {
+            return null;
+        }
+
+        // before we process our lookup we need to make sure to pick
+        // up any changes that were carried out by this server
+
+        if (!staleDomains.isEmpty()) {
+            try {
+                refreshStaleDomains();
+            } catch (ServerResourceException ex) {
+                LOGGER.error("unable to refresh stale domains: {}", ex.getMessage());
+                return null;
+            }
+        }
+
+        // if we don't know about the principal then we'll let the database
+        // handle the request so the caller gets the same response for
+        // unknown principals and principals without any memberships
+
+        Set<String> domains = principalDomains.get(principal);
+        if (domains == null) {
+            return null;
+        }
+
+        if (domainName == null || domainName.isEmpty()) {
+            return domains;
+        }
+
+        if (!domainMembers.containsKey(domainName)) {
+            return null;
+        }
+        return domains.contains(domainName) ? Collections.singleton(domainName) : Collections.emptySet();
+    }
+
+    synchronized void refreshStaleDomains() throws ServerResourceException {
+
+        if (staleDomains.isEmpty()) {
+            return;
+        }
+
+        // we use a read-write connection so we're not affected by
+        // any replication delays with the read-only replicas. the
+        // domain is only removed from the stale list if it has not
+        // been updated again while we were loading its members
+
+        try (ObjectStoreConnection con = store.getConnection(true, true)) {
+            for (Map.Entry<String, Long> entry : new ArrayList<>(staleDomains.entrySet())) {
+                loadDomain(con, entry.getKey());
+                staleDomains.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    void reconcile() {
+
+        final long startTime = System.currentTimeMillis();
+        try (ObjectStoreConnection con = store.getConnection(true, false)) {
+
+            List<String> domainNames = con.listDomains(null, 0);
+
+            if (!initialized) {
+
+                // initial build of the index - we'll load all domains
+
+                for (String domainName : domainNames) {
+                    loadDomain(con, domainName);
+                }
+                initialized = true;
+                LOGGER.info("principal membership index built for {} domains, {} principals in {} ms",
+                        domainMembers.size(), principalDomains.size(), System.currentTimeMillis() - startTime);
+
+            } else {
+
+                // remove any domains that have been deleted and mark all the
+                // domains that have been modified since our last run as stale
+
+                Set<String> domainSet = new HashSet<>(domainNames);
+                for (String domainName : new ArrayList<>(domainMembers.keySet())) {
+                    if (!domainSet.contains(domainName)) {
+                        updateDomain(domainName, null);
+                    }
+                }
+
+                for (String domainName : con.listDomains(null, lastReconcileTime - RECONCILE_MARGIN_MILLIS)) {
+                    invalidate(domainName);
+                }
+                refreshStaleDomains();
+            }
+            lastReconcileTime = startTime;
+
+        } catch (Throwable t) {
+            LOGGER.error("unable to reconcile principal membership index: {}", t.getMessage());
+        }
+    }
+
+    void loadDomain(ObjectStoreConnection con, final String domainName) throws ServerResourceException {
+
+        DomainRoleMembers roleMembers;
+        DomainGroupMembers groupMembers;
+        try {
+            roleMembers = con.listDomainRoleMembers(domainName);
+            groupMembers = con.listDomainGroupMembers(domainName);
+        } catch (ServerResourceException ex) {
+            if (ex.getCode() == ServerResourceException.NOT_FOUND) {
+                updateDomain(domainName, null);
+                return;
+            }
+            throw ex;
+        }
+        updateDomain(domainName, new DomainMembers(domainName, roleMembers, groupMembers));
+    }
+
+    synchronized void updateDomain(final String domainName, DomainMembers members) {
+
+        DomainMembers oldMembers = (members == null) ? domainMembers.remove(domainName)
+                : domainMembers.put(domainName, members);
+
+        // first add the domain for all current members and then remove
+        // it from any principals that are no longer members
+
+        if (members != null) {
+            for (String principal : members.getPrincipals()) {
+                principalDomains.computeIfAbsent(principal, k -> ConcurrentHashMap.newKeySet()).add(domainName);
+            }
+        }
+
+        if (oldMembers != null) {
+            for (String principal : oldMembers.getPrincipals()) {
+                if (members != null && members.containsPrincipal(principal)) {
+                    continue;
+                }
+                principalDomains.computeIfPresent(principal, (k, domains) -> {
+                    domains.remove(domainName);
+                    return domains.isEmpty() ? null : domains;
+                });
+            }
+        }
+    }
+
+    static MemberRole copyMemberRole(MemberRole memberRole) {
+        return new MemberRole()
+                .setRoleName(memberRole.getRoleName())
+                .setDomainName(memberRole.getDomainName())
+                .setExpiration(memberRole.getExpiration())
+                .setReviewReminder(memberRole.getReviewReminder())
+                .setSystemDisabled(memberRole.getSystemDisabled());
+    }
+
+    static GroupMember copyGroupMember(GroupMember groupMember) {
+        return new GroupMember()
+                .setGroupName(groupMember.getGroupName())
+                .setDomainName(groupMember.getDomainName())
+                .setExpiration(groupMember.getExpiration())
+                .setSystemDisabled(groupMember.getSystemDisabled());
+    }
+}
@@ -298,6 +298,12 @@ public final class ZMSConsts {
 
     public static final String ZMS_PROP_USER_AUTHORITY_FILTER_DOC_URL = "athenz.zms.user_authority_filter_documentation_url";
 
+    public static final String ZMS_PROP_PRINCIPAL_MEMBERSHIP_INDEX = "athenz.zms.principal_membership_index";
+    public static final String ZMS_PROP_PRINCIPAL_MEMBERSHIP_INDEX_RECONCILE_INTERVAL = "athenz.zms.principal_membership_index_reconcile_interval";
+    public static final String ZMS_PROP_PRINCIPAL_MEMBERSHIP_INDEX_RECONCILE_INTERVAL_DEFAULT = "300"; // in seconds
+
+    public static final String ZMS_PROP_PARSED_PUBLIC_KEY_CACHE_SIZE = "athenz.zms.parsed_public_key_cache_size";
+
     // ZMS feature flag bits
     public static final int ZMS_FEATURE_ALLOW_SERVICE_UNDERSCORE = 0x01;
 
@@ -22,7 +22,9 @@ import com.oath.auth.KeyRefresherException;
 import com.yahoo.athenz.auth.*;
 import com.yahoo.athenz.auth.token.PrincipalToken;
 import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.auth.util.CryptoException;
 import com.yahoo.athenz.auth.util.StringUtils;
+import com.yahoo.athenz.auth.util.GlobMatcher;
 import com.yahoo.athenz.common.config.AuthzDetailsEntity;
 import com.yahoo.athenz.common.config.AuthzDetailsField;
 import com.yahoo.athenz.common.messaging.ChangePublisher;
@@ -81,6 +83,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.PublicKey;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -6201,17 +6204,17 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
         return false;
     }
 
-    boolean matchRole(String domain, List<Role> roles, String rolePattern, List<String> authenticatedRoles) {
+    boolean matchRole(String domain, List<Role> roles, String roleGlob, List<String> authenticatedRoles) {
 
         if (LOG.isDebugEnabled()) {
-            LOG.debug("matchRole domain: {} rolePattern: {}", domain, rolePattern);
+            LOG.debug("matchRole domain: {} roleGlob: {}", domain, roleGlob);
         }
 
         String prefix = domain + AuthorityConsts.ROLE_SEP;
         int prefixLen = prefix.length();
         for (Role role : roles) {
             final String name = role.getName();
-            if (!name.matches(rolePattern)) {
+            if (!GlobMatcher.matches(roleGlob, name)) {
                 continue;
             }
 
@@ -6251,16 +6254,16 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
         return delegatedTrust(trust, roleName, fullUser);
     }
 
-    boolean matchPrincipal(List<Role> roles, String rolePattern, String fullUser, String trustDomain) {
+    boolean matchPrincipal(List<Role> roles, String roleGlob, String fullUser, String trustDomain) {
 
         if (LOG.isDebugEnabled()) {
-            LOG.debug("matchPrincipal - rolePattern: {} user: {} trust: {}", rolePattern, fullUser, trustDomain);
+            LOG.debug("matchPrincipal - roleGlob: {} user: {} trust: {}", roleGlob, fullUser, trustDomain);
         }
 
         for (Role role : roles) {
 
             String name = role.getName();
-            if (!name.matches(rolePattern)) {
+            if (!GlobMatcher.matches(roleGlob, name)) {
                 continue;
             }
 
@@ -6300,28 +6303,28 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
     boolean assertionMatch(Assertion assertion, String identity, String action, String resource,
             String domain, List<Role> roles, List<String> authenticatedRoles, String trustDomain) {
 
-        String actionPattern = StringUtils.patternFromGlob(assertion.getAction().toLowerCase());
+        final String actionGlob = assertion.getAction().toLowerCase();
         if (LOG.isDebugEnabled()) {
-            LOG.debug("assertionMatch: action '{}' pattern '{}'", action, actionPattern);
+            LOG.debug("assertionMatch: action '{}' pattern '{}'", action, actionGlob);
         }
-        if (!action.matches(actionPattern)) {
+        if (!GlobMatcher.matches(actionGlob, action)) {
             return false;
         }
 
-        String rezPattern = StringUtils.patternFromGlob(assertion.getResource().toLowerCase());
+        final String rezGlob = assertion.getResource().toLowerCase();
         if (LOG.isDebugEnabled()) {
-            LOG.debug("assertionMatch: resource '{}' pattern '{}'", resource, rezPattern);
+            LOG.debug("assertionMatch: resource '{}' pattern '{}'", resource, rezGlob);
         }
-        if (!resource.matches(rezPattern)) {
+        if (!GlobMatcher.matches(rezGlob, resource)) {
             return false;
         }
 
         boolean matchResult;
-        String rolePattern = StringUtils.patternFromGlob(assertion.getRole());
+        final String roleGlob = assertion.getRole();
         if (authenticatedRoles != null) {
-            matchResult = matchRole(domain, roles, rolePattern, authenticatedRoles);
+            matchResult = matchRole(domain, roles, roleGlob, authenticatedRoles);
         } else {
-            matchResult = matchPrincipal(roles, rolePattern, identity, trustDomain);
+            matchResult = matchPrincipal(roles, roleGlob, identity, trustDomain);
         }
 
         if (LOG.isDebugEnabled()) {
@@ -9062,6 +9065,36 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
     @Override
     public String getPublicKey(String domain, String service, String keyId) {
 
+        final String pubKey = getEncodedPublicKey(domain, service, keyId);
+        return pubKey == null ? null : Crypto.ybase64DecodeString(pubKey);
+    }
+
+    /**
+     * implements KeyStore getParsedPublicKey. The key is still retrieved
+     * from the store for every request so any key changes take effect
+     * immediately, but the parsed key object is reused as long as the
+     * encoded key value has not changed.
+     * @return parsed public key or null if not available
+     **/
+    @Override
+    public PublicKey getParsedPublicKey(String domain, String service, String keyId) {
+
+        final String pubKey = getEncodedPublicKey(domain, service, keyId);
+        if (pubKey == null) {
+            return null;
+        }
+
+        try {
+            return dbService.getParsedPublicKey(pubKey);
+        } catch (CryptoException ex) {
+            LOG.error("getParsedPublicKey: unable to parse public key for service={}.{} key-id={}: {}",
+                    domain, service, keyId, ex.getMessage());
+            return null;
+        }
+    }
+
+    String getEncodedPublicKey(String domain, String service, String keyId) {
+
         if (LOG.isDebugEnabled()) {
             LOG.debug("getPublicKey: service={}.{} key-id={}", domain, service, keyId);
         }
@@ -9114,7 +9147,7 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
             LOG.debug("getPublicKey: service public key: {}", pubKey);
         }
 
-        return Crypto.ybase64DecodeString(pubKey);
+        return pubKey;
     }
 
     @Override
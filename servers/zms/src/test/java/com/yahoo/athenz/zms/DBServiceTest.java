@@ -25,6 +25,7 @@ import com.yahoo.athenz.auth.Principal;
 import com.yahoo.athenz.auth.impl.FilePrivateKeyStore;
 import com.yahoo.athenz.auth.impl.SimplePrincipal;
 import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.auth.util.CryptoException;
 import com.yahoo.athenz.common.server.audit.AuditReferenceValidator;
 import com.yahoo.athenz.common.server.notification.NotificationManager;
 import com.yahoo.athenz.common.server.rest.ServerResourceContext;
@@ -55,6 +56,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.PublicKey;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
@@ -3886,6 +3888,39 @@ public class DBServiceTest {
         System.clearProperty(ZMSConsts.ZMS_PROP_STORE_OP_TIMEOUT);
     }
 
+    @Test
+    public void testGetParsedPublicKey() {
+
+        ZMSConfig zmsConfig = new ZMSConfig();
+        zmsConfig.setUserDomain("user");
+        DBService dbService = new DBService(mockObjStore, null, zmsConfig, null, null);
+
+        PublicKey publicKey = dbService.getParsedPublicKey(pubKeyK1);
+        assertNotNull(publicKey);
+        assertEquals(dbService.parsedPublicKeyCache.size(), 1);
+
+        // the same key value returns the cached object
+
+        assertSame(dbService.getParsedPublicKey(pubKeyK1), publicKey);
+        assertEquals(dbService.parsedPublicKeyCache.size(), 1);
+
+        // updated key value is parsed again
+
+        PublicKey publicKey2 = dbService.getParsedPublicKey(pubKeyK2);
+        assertNotNull(publicKey2);
+        assertNotEquals(publicKey2, publicKey);
+        assertEquals(dbService.parsedPublicKeyCache.size(), 2);
+
+        // invalid keys are not cached
+
+        try {
+            dbService.getParsedPublicKey("invalid-key");
+            fail();
+        } catch (CryptoException ignored) {
+        }
+        assertEquals(dbService.parsedPublicKeyCache.size(), 2);
+    }
+
     @Test
     public void testShouldRetryOperation() throws ServerResourceException {
 
@@ -0,0 +1,306 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zms;
+
+import com.yahoo.athenz.common.server.ServerResourceException;
+import com.yahoo.athenz.common.server.store.ObjectStore;
+import com.yahoo.athenz.common.server.store.ObjectStoreConnection;
+import com.yahoo.rdl.Timestamp;
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+public class PrincipalMembershipIndexTest {
+
+    private DomainRoleMembers roleMembers(final String domainName, String... members) {
+
+        // each member is specified as principal:role
+
+        Map<String, DomainRoleMember> memberMap = new LinkedHashMap<>();
+        for (String member : members) {
+            int idx = member.lastIndexOf(':');
+            DomainRoleMember roleMember = memberMap.computeIfAbsent(member.substring(0, idx),
+                    k -> new DomainRoleMember().setMemberName(k).setMemberRoles(new ArrayList<>()));
+            roleMember.getMemberRoles().add(new MemberRole().setRoleName(member.substring(idx + 1))
+                    .setExpiration(Timestamp.fromMillis(1000)));
+        }
+        return new DomainRoleMembers().setDomainName(domainName)
+                .setMembers(memberMap.isEmpty() ? null : new ArrayList<>(memberMap.values()));
+    }
+
+    private DomainGroupMembers groupMembers(final String domainName, String... members) {
+
+        // each member is specified as principal:group
+
+        Map<String, DomainGroupMember> memberMap = new LinkedHashMap<>();
+        for (String member : members) {
+            int idx = member.lastIndexOf(':');
+            DomainGroupMember groupMember = memberMap.computeIfAbsent(member.substring(0, idx),
+                    k -> new DomainGroupMember().setMemberName(k).setMemberGroups(new ArrayList<>()));
+            groupMember.getMemberGroups().add(new GroupMember().setGroupName(member.substring(idx + 1))
+                    .setSystemDisabled(1));
+        }
+        return new DomainGroupMembers().setDomainName(domainName)
+                .setMembers(memberMap.isEmpty() ? null : new ArrayList<>(memberMap.values()));
+    }
+
+    private ObjectStoreConnection setupConnection(ObjectStore store) throws ServerResourceException {
+
+        ObjectStoreConnection con = Mockito.mock(ObjectStoreConnection.class);
+        when(store.getConnection(anyBoolean(), anyBoolean())).thenReturn(con);
+
+        when(con.listDomains(null, 0)).thenReturn(List.of("coretech", "sports"));
+        when(con.listDomainRoleMembers("coretech")).thenReturn(roleMembers("coretech",
+                "user.joe:readers", "user.joe:writers", "user.jane:readers", "coretech:group.dev-team:readers"));
+        when(con.listDomainGroupMembers("coretech")).thenReturn(groupMembers("coretech",
+                "user.jane:dev-team"));
+        when(con.listDomainRoleMembers("sports")).thenReturn(roleMembers("sports", "user.joe:admin"));
+        when(con.listDomainGroupMembers("sports")).thenReturn(groupMembers("sports"));
+        return con;
+    }
+
+    private Set<String> roleNames(DomainRoleMember domainRoleMember) {
+        Set<String> names = new HashSet<>();
+        for (MemberRole memberRole : domainRoleMember.getMemberRoles()) {
+            names.add(memberRole.getDomainName() + ":" + memberRole.getRoleName());
+        }
+        return names;
+    }
+
+    @Test
+    public void testPrincipalLookups() throws ServerResourceException {
+
+        ObjectStore store = Mockito.mock(ObjectStore.class);
+        setupConnection(store);
+
+        PrincipalMembershipIndex index = new PrincipalMembershipIndex(store);
+
+        // until the index is built, we can't answer any requests
+
+        assertFalse(index.isInitialized());
+        assertNull(index.getPrincipalRoles("user.joe", null));
+        assertNull(index.getPrincipalGroups("user.jane", null));
+
+        index.reconcile();
+        assertTrue(index.isInitialized());
+
+        DomainRoleMember domainRoleMember = index.getPrincipalRoles("user.joe", null);
+        assertEquals(domainRoleMember.getMemberName(), "user.joe");
+        assertEquals(roleNames(domainRoleMember), Set.of("coretech:readers", "coretech:writers", "sports:admin"));
+        assertEquals(domainRoleMember.getMemberRoles().get(0).getExpiration(), Timestamp.fromMillis(1000));
+
+        domainRoleMember = index.getPrincipalRoles("user.joe", "sports");
+        assertEquals(roleNames(domainRoleMember), Set.of("sports:admin"));
+
+        // principal without any memberships in a known domain
+
+        domainRoleMember = index.getPrincipalRoles("user.jane", "sports");
+        assertTrue(domainRoleMember.getMemberRoles().isEmpty());
+
+        domainRoleMember = index.getPrincipalRoles("coretech:group.dev-team", null);
+        assertEquals(roleNames(domainRoleMember), Set.of("coretech:readers"));
+
+        DomainGroupMember domainGroupMember = index.getPrincipalGroups("user.jane", null);
+        assertEquals(domainGroupMember.getMemberName(), "user.jane");
+        assertEquals(domainGroupMember.getMemberGroups().size(), 1);
+        assertEquals(domainGroupMember.getMemberGroups().get(0).getDomainName(), "coretech");
+        assertEquals(domainGroupMember.getMemberGroups().get(0).getGroupName(), "dev-team");
+        assertEquals(domainGroupMember.getMemberGroups().get(0).getSystemDisabled(), Integer.valueOf(1));
+
+        assertTrue(index.getPrincipalGroups("user.joe", null).getMemberGroups().isEmpty());
+        assertTrue(index.getPrincipalGroups("user.jane", "sports").getMemberGroups().isEmpty());
+
+        // unknown principals and domains are handled by the database
+
+        assertNull(index.getPrincipalRoles("user.unknown", null));
+        assertNull(index.getPrincipalGroups("user.unknown", null));
+        assertNull(index.getPrincipalRoles("user.joe", "unknown"));
+
+        // the returned objects are copies so updating them
+        // does not change the index
+
+        domainRoleMember = index.getPrincipalRoles("user.joe", "sports");
+        domainRoleMember.getMemberRoles().get(0).setMemberName("coretech:group.dev-team");
+        domainRoleMember.getMemberRoles().add(new MemberRole().setRoleName("readers"));
+        domainRoleMember = index.getPrincipalRoles("user.joe", "sports");
+        assertEquals(domainRoleMember.getMemberRoles().size(), 1);
+        assertNull(domainRoleMember.getMemberRoles().get(0).getMemberName());
+    }
+
+    @Test
+    public void testInvalidateDomain() throws ServerResourceException {
+
+        ObjectStore store = Mockito.mock(ObjectStore.class);
+        ObjectStoreConnection con = setupConnection(store);
+
+        PrincipalMembershipIndex index = new PrincipalMembershipIndex(store);
+        index.reconcile();
+
+        // remove joe from coretech and add bob
+
+        when(con.listDomainRoleMembers("coretech")).thenReturn(roleMembers("coretech",
+                "user.jane:readers", "user.bob:writers"));
+        assertEquals(roleNames(index.getPrincipalRoles("user.joe", null)),
+                Set.of("coretech:readers", "coretech:writers", "sports:admin"));
+
+        index.invalidate("coretech");
+
+        assertEquals(roleNames(index.getPrincipalRoles("user.joe", null)), Set.of("sports:admin"));
+        assertTrue(index.getPrincipalRoles("user.joe", "coretech").getMemberRoles().isEmpty());
+        assertEquals(roleNames(index.getPrincipalRoles("user.bob", null)), Set.of("coretech:writers"));
+        assertNull(index.getPrincipalRoles("coretech:group.dev-team", null));
+
+        // we only refresh the domain once
+
+        verify(con, times(2)).listDomainRoleMembers("coretech");
+        verify(store, times(1)).getConnection(true, true);
+
+        // now delete the sports domain
+
+        when(con.listDomainRoleMembers("sports")).thenThrow(
+                new ServerResourceException(ServerResourceException.NOT_FOUND));
+        index.invalidate("sports");
+
+        assertNull(index.getPrincipalRoles("user.joe", null));
+        assertNull(index.getPrincipalRoles("user.bob", "sports"));
+    }
+
+    @Test
+    public void testRefreshFailure() throws ServerResourceException {
+
+        ObjectStore store = Mockito.mock(ObjectStore.class);
+        ObjectStoreConnection con = setupConnection(store);
+
+        PrincipalMembershipIndex index = new PrincipalMembershipIndex(store);
+        index.reconcile();
+
+        // if we can't refresh the stale domain, then we can't use
+        // the index until the domain is refreshed
+
+        when(con.listDomainRoleMembers("coretech")).thenThrow(
+                new ServerResourceException(ServerResourceException.INTERNAL_SERVER_ERROR));
+        index.invalidate("coretech");
+        assertNull(index.getPrincipalRoles("user.joe", null));
+        assertNull(index.getPrincipalGroups("user.jane", null));
+
+        Mockito.reset(con);
+        when(con.listDomainRoleMembers("coretech")).thenReturn(roleMembers("coretech", "user.joe:readers"));
+        when(con.listDomainGroupMembers("coretech")).thenReturn(groupMembers("coretech"));
+        assertEquals(roleNames(index.getPrincipalRoles("user.joe", null)), Set.of("coretech:readers", "sports:admin"));
+        assertNull(index.getPrincipalGroups("user.jane", null));
+    }
+
+    @Test
+    public void testReconcile() throws ServerResourceException {
+
+        ObjectStore store = Mockito.mock(ObjectStore.class);
+        ObjectStoreConnection con = setupConnection(store);
+
+        PrincipalMembershipIndex index = new PrincipalMembershipIndex(store);
+
+        // failure to build the index keeps it uninitialized
+
+        when(con.listDomains(null, 0)).thenThrow(new ServerResourceException(500));
+        index.reconcile();
+        assertFalse(index.isInitialized());
+
+        Mockito.reset(con);
+        setupConnection(store);
+        index.reconcile();
+        assertTrue(index.isInitialized());
+        assertNotNull(index.getPrincipalRoles("user.joe", "sports"));
+
+        // sports is deleted by another server and weather is
+        // created with bob as a member and jane is removed from
+        // the coretech group
+
+        con = setupConnection(store);
+        when(con.listDomains(null, 0)).thenReturn(List.of("coretech", "weather"));
+        when(con.listDomains(isNull(), longThat(modified -> modified > 0))).thenReturn(List.of("coretech", "weather"));
+        when(con.listDomainGroupMembers("coretech")).thenReturn(groupMembers("coretech"));
+        when(con.listDomainRoleMembers("weather")).thenReturn(roleMembers("weather", "user.bob:admin"));
+        when(con.listDomainGroupMembers("weather")).thenReturn(groupMembers("weather"));
+
+        index.reconcile();
+
+        assertEquals(roleNames(index.getPrincipalRoles("user.joe", null)),
+                Set.of("coretech:readers", "coretech:writers"));
+        assertNull(index.getPrincipalRoles("user.joe", "sports"));
+        assertEquals(roleNames(index.getPrincipalRoles("user.bob", null)), Set.of("weather:admin"));
+        assertEquals(roleNames(index.getPrincipalRoles("user.jane", null)), Set.of("coretech:readers"));
+        assertTrue(index.getPrincipalGroups("user.jane", null).getMemberGroups().isEmpty());
+    }
+
+    @Test
+    public void testDBServiceLookups() throws ServerResourceException {
+
+        ObjectStore store = Mockito.mock(ObjectStore.class);
+        ObjectStoreConnection con = setupConnection(store);
+        when(con.getPrincipalRoles("user.unknown", null)).thenReturn(
+                new DomainRoleMember().setMemberName("user.unknown").setMemberRoles(new ArrayList<>()));
+        when(con.getPrincipalGroups("user.unknown", null)).thenReturn(
+                new DomainGroupMember().setMemberName("user.unknown").setMemberGroups(new ArrayList<>()));
+
+        DBService dbService = new DBService(store, null, null, null, null);
+        assertNull(dbService.principalMembershipIndex);
+
+        // when the index is available, the requests are processed without
+        // the db lookups except for unknown principals
+
+        dbService.principalMembershipIndex = new PrincipalMembershipIndex(store);
+        dbService.principalMembershipIndex.reconcile();
+
+        DomainRoleMember domainRoleMember = dbService.getPrincipalRoles("user.joe", null, null);
+        assertEquals(roleNames(domainRoleMember), Set.of("coretech:readers", "coretech:writers", "sports:admin"));
+        assertEquals(dbService.getPrincipalGroups("user.jane", null).getMemberGroups().size(), 1);
+        verify(con, never()).getPrincipalRoles(anyString(), any());
+        verify(con, never()).getPrincipalGroups(anyString(), any());
+
+        assertTrue(dbService.getPrincipalRoles("user.unknown", null, null).getMemberRoles().isEmpty());
+        assertTrue(dbService.getPrincipalGroups("user.unknown", null).getMemberGroups().isEmpty());
+        verify(con, times(1)).getPrincipalRoles("user.unknown", null);
+        verify(con, times(1)).getPrincipalGroups("user.unknown", null);
+
+        // invalidating the domain cache marks the domain as stale in the index
+
+        when(con.listDomainRoleMembers("sports")).thenReturn(roleMembers("sports"));
+        dbService.invalidateDomainCache("sports");
+        domainRoleMember = dbService.getPrincipalRoles("user.joe", null, null);
+        assertEquals(roleNames(domainRoleMember), Set.of("coretech:readers", "coretech:writers"));
+    }
+
+    @Test
+    public void testStartShutdown() throws ServerResourceException {
+
+        ObjectStore store = Mockito.mock(ObjectStore.class);
+        setupConnection(store);
+
+        PrincipalMembershipIndex index = new PrincipalMembershipIndex(store);
+        index.shutdown();
+
+        index.start(300);
+        for (int i = 0; i < 100 && !index.isInitialized(); i++) {
+            ZMSTestUtils.sleep(100);
+        }
+        assertTrue(index.isInitialized());
+        index.shutdown();
+    }
+}
@@ -12234,7 +12234,7 @@ public class ZMSImplTest {
         // Verify that it was denied by explicit "Deny" assertion and not because no match was found
         verify(spiedZms, times(1)).matchPrincipal(
                 eq(domain.getRoles()),
-                eq("^coretech:role\\.role1$"),
+                eq("coretech:role.role1"),
                 eq("user.user1"),
                 eq(null));
     }
@@ -16186,7 +16186,7 @@ public class ZMSImplTest {
     @Test
     public void testMatchRoleNoRoleMatch() {
         ZMSImpl zmsImpl = zmsTestInitializer.getZms();
-        assertFalse(zmsImpl.matchRole("domain", new ArrayList<>(), "domain:role\\.role2.*", null));
+        assertFalse(zmsImpl.matchRole("domain", new ArrayList<>(), "domain:role.role2*", null));
     }
 
     @Test
@@ -16199,7 +16199,7 @@ public class ZMSImplTest {
         authRoles.add("role3");
 
         ZMSImpl zmsImpl = zmsTestInitializer.getZms();
-        assertFalse(zmsImpl.matchRole("domain", roles, "domain:role\\.role1.*", authRoles));
+        assertFalse(zmsImpl.matchRole("domain", roles, "domain:role.role1*", authRoles));
     }
 
     @Test
@@ -16212,7 +16212,7 @@ public class ZMSImplTest {
         authRoles.add("domain:role.role3");
 
         ZMSImpl zmsImpl = zmsTestInitializer.getZms();
-        assertFalse(zmsImpl.matchRole("domain", roles, "domain:role\\.role1.*", authRoles));
+        assertFalse(zmsImpl.matchRole("domain", roles, "domain:role.role1*", authRoles));
     }
 
     @Test
@@ -16225,7 +16225,7 @@ public class ZMSImplTest {
         authRoles.add("role3");
 
         ZMSImpl zmsImpl = zmsTestInitializer.getZms();
-        assertFalse(zmsImpl.matchRole("domain", roles, "domain:role\\.role1.*", authRoles));
+        assertFalse(zmsImpl.matchRole("domain", roles, "domain:role.role1*", authRoles));
     }
 
     @Test
@@ -16238,7 +16238,7 @@ public class ZMSImplTest {
         authRoles.add("role1");
 
         ZMSImpl zmsImpl = zmsTestInitializer.getZms();
-        assertTrue(zmsImpl.matchRole("domain", roles, "domain:role\\.role.*", authRoles));
+        assertTrue(zmsImpl.matchRole("domain", roles, "domain:role.role*", authRoles));
     }
 
     @Test
@@ -16251,7 +16251,7 @@ public class ZMSImplTest {
         authRoles.add("domain:role.role1");
 
         ZMSImpl zmsImpl = zmsTestInitializer.getZms();
-        assertTrue(zmsImpl.matchRole("domain", roles, "domain:role\\.role.*", authRoles));
+        assertTrue(zmsImpl.matchRole("domain", roles, "domain:role.role*", authRoles));
     }
 
     @Test
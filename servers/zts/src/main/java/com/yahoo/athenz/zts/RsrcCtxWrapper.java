@@ -24,6 +24,7 @@ import com.yahoo.athenz.common.server.rest.Http;
 import com.yahoo.athenz.common.metrics.Metric;
 import com.yahoo.athenz.common.server.rest.ServerResourceContext;
 import com.yahoo.athenz.common.server.ServerResourceException;
+import com.yahoo.athenz.zts.limiter.ConcurrencyLimiterManager;
 import com.yahoo.athenz.zts.utils.ZTSUtils;
 import jakarta.servlet.ServletContext;
 import org.slf4j.Logger;
@@ -44,6 +45,7 @@ public class RsrcCtxWrapper implements ResourceContext {
     Metric metric;
     private final Object timerMetric;
     private final String apiName;
+    private ConcurrencyLimiterManager.Permit limiterPermit;
 
     public RsrcCtxWrapper(ServletContext servletContext, HttpServletRequest request, HttpServletResponse response,
                           Http.AuthorityList authList, boolean optionalAuth, Authorizer authorizer,
@@ -72,6 +74,14 @@ public class RsrcCtxWrapper implements ResourceContext {
         return timerMetric;
     }
 
+    public ConcurrencyLimiterManager.Permit getLimiterPermit() {
+        return limiterPermit;
+    }
+
+    public void setLimiterPermit(ConcurrencyLimiterManager.Permit limiterPermit) {
+        this.limiterPermit = limiterPermit;
+    }
+
     public void setRequestDomain(String requestDomain) {
         ctx.setRequestDomain(requestDomain);
     }
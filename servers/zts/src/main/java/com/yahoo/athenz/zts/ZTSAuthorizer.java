@@ -17,7 +17,7 @@ package com.yahoo.athenz.zts;
 
 import com.yahoo.athenz.auth.Authorizer;
 import com.yahoo.athenz.auth.Principal;
-import com.yahoo.athenz.auth.util.StringUtils;
+import com.yahoo.athenz.auth.util.GlobMatcher;
 import com.yahoo.athenz.common.server.util.AuthzHelper;
 import com.yahoo.athenz.zms.GroupMember;
 import com.yahoo.athenz.zms.Role;
@@ -179,18 +179,15 @@ public class ZTSAuthorizer implements Authorizer {
 
         // Lowercase action and resource as it is possible to store them case-sensitive
 
-        String opPattern = StringUtils.patternFromGlob(assertion.getAction().toLowerCase());
-        if (!op.matches(opPattern)) {
+        if (!GlobMatcher.matches(assertion.getAction().toLowerCase(), op)) {
             return false;
         }
         
-        String rezPattern = StringUtils.patternFromGlob(assertion.getResource().toLowerCase());
-        if (!resource.matches(rezPattern)) {
+        if (!GlobMatcher.matches(assertion.getResource().toLowerCase(), resource)) {
             return false;
         }
         
-        String rolePattern = StringUtils.patternFromGlob(assertion.getRole());
-        boolean matchResult = matchPrincipal(roles, rolePattern, identity, trustDomain);
+        boolean matchResult = matchPrincipal(roles, assertion.getRole(), identity, trustDomain);
         
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("assertionMatch: -> {} (effect: {})", matchResult, assertion.getEffect());
@@ -199,16 +196,16 @@ public class ZTSAuthorizer implements Authorizer {
         return matchResult;
     }
     
-    boolean matchPrincipal(List<Role> roles, String rolePattern, String fullUser, String trustDomain) {
+    boolean matchPrincipal(List<Role> roles, String roleGlob, String fullUser, String trustDomain) {
 
         if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("matchPrincipal: rolePattern: {} user: {} trust: {}", rolePattern, fullUser, trustDomain);
+            LOGGER.debug("matchPrincipal: roleGlob: {} user: {} trust: {}", roleGlob, fullUser, trustDomain);
         }
 
         for (Role role : roles) {
             
             String name = role.getName();
-            if (!name.matches(rolePattern)) {
+            if (!GlobMatcher.matches(roleGlob, name)) {
                 continue;
             }
             
@@ -85,6 +85,13 @@ public final class ZTSConsts {
     public static final String ZTS_PROP_CERTSIGN_CONN_MAX_TOTAL      = "athenz.zts.certsign_conn_max_total";
     public static final String ZTS_PROP_CERTSIGN_CONN_TIME_TO_LIVE   = "athenz.zts.certsign_conn_time_to_live";
     public static final String ZTS_PROP_CERTSIGN_HANDSHAKE_TIMEOUT   = "athenz.zts.certsign_handshake_timeout";
+    public static final String ZTS_PROP_CERTSIGN_HEDGE_ENABLED       = "athenz.zts.certsign_hedge_enabled";
+    public static final String ZTS_PROP_CERTSIGN_HEDGE_BASE_URIS     = "athenz.zts.certsign_hedge_base_uris";
+    public static final String ZTS_PROP_CERTSIGN_HEDGE_PERCENTILE    = "athenz.zts.certsign_hedge_percentile";
+    public static final String ZTS_PROP_CERTSIGN_HEDGE_DEFAULT_DELAY = "athenz.zts.certsign_hedge_default_delay";
+    public static final String ZTS_PROP_CERTSIGN_HEDGE_MIN_DELAY     = "athenz.zts.certsign_hedge_min_delay";
+    public static final String ZTS_PROP_CERTSIGN_CIRCUIT_FAILURE_THRESHOLD = "athenz.zts.certsign_circuit_failure_threshold";
+    public static final String ZTS_PROP_CERTSIGN_CIRCUIT_OPEN_TIME   = "athenz.zts.certsign_circuit_open_time";
 
     public static final String ZTS_PROP_LEAST_PRIVILEGE_PRINCIPLE  = "athenz.zts.least_privilege_principle";
     public static final String ZTS_PROP_ROLE_TOKEN_MAX_TIMEOUT     = "athenz.zts.role_token_max_timeout";
@@ -94,6 +101,10 @@ public final class ZTSConsts {
     public static final String ZTS_PROP_ID_TOKEN_MAX_DOMAINS       = "athenz.zts.id_token_max_domains";
     public static final String ZTS_PROD_ID_TOKEN_ALLOWED_ROLES     = "athenz.zts.id_token_allowed_roles";
     public static final String ZTS_PROP_SIGNED_POLICY_TIMEOUT      = "athenz.zts.signed_policy_timeout";
+    public static final String ZTS_PROP_TOKEN_REQUEST_COALESCING   = "athenz.zts.token_request_coalescing";
+    public static final String ZTS_PROP_TOKEN_SIGNER_POOL          = "athenz.zts.token_signer_pool";
+    public static final String ZTS_PROP_TOKEN_SIGNER_POOL_SIZE     = "athenz.zts.token_signer_pool_size";
+    public static final String ZTS_PROP_TOKEN_SIGNER_QUEUE_SIZE    = "athenz.zts.token_signer_queue_size";
     public static final String ZTS_PROP_AUTHORIZED_PROXY_USERS     = "athenz.zts.authorized_proxy_users";
     public static final String ZTS_PROP_SECURE_REQUESTS_ONLY       = "athenz.zts.secure_requests_only";
     public static final String ZTS_PROP_STATUS_CERT_SIGNER         = "athenz.zts.status_cert_signer";
@@ -108,6 +119,10 @@ public final class ZTSConsts {
     public static final String ZTS_PROP_CERT_DNS_SUFFIX                         = "athenz.zts.cert_dns_suffix";
     public static final String ZTS_PROP_CERT_FILE_STORE_PATH                    = "athenz.zts.cert_file_store_path";
     public static final String ZTS_PROP_CERT_FILE_STORE_NAME                    = "athenz.zts.cert_file_store_name";
+    public static final String ZTS_PROP_CERT_RECORD_WRITE_BEHIND                = "athenz.zts.cert_record_write_behind";
+    public static final String ZTS_PROP_CERT_RECORD_WRITE_BEHIND_INTERVAL       = "athenz.zts.cert_record_write_behind_interval";
+    public static final String ZTS_PROP_CERT_RECORD_WRITE_BEHIND_BATCH_SIZE     = "athenz.zts.cert_record_write_behind_batch_size";
+    public static final String ZTS_PROP_CERT_RECORD_CLEANER_DELETE_LIMIT        = "athenz.zts.cert_record_cleaner_delete_limit";
 
     public static final String ZTS_PROP_SSH_FILE_STORE_PATH          = "athenz.zts.ssh_file_store_path";
     public static final String ZTS_PROP_SSH_FILE_STORE_NAME          = "athenz.zts.ssh_file_store_name";
@@ -124,6 +139,9 @@ public final class ZTSConsts {
     public static final String ZTS_PROP_WORKLOAD_FILE_STORE_NAME          = "athenz.zts.workload_file_store_name";
     public static final String ZTS_PROP_WORKLOAD_OP_TIMEOUT               = "athenz.zts.workload_op_timeout";
     public static final String ZTS_PROP_WORKLOAD_ENABLE_STORE_FEATURE     = "athenz.zts.workload_enable_store_feature";
+    public static final String ZTS_PROP_WORKLOAD_CACHE_ENABLED            = "athenz.zts.workload_cache_enabled";
+    public static final String ZTS_PROP_WORKLOAD_CACHE_REFRESH_TIME       = "athenz.zts.workload_cache_refresh_time";
+    public static final String ZTS_PROP_WORKLOAD_CACHE_MAX_SIZE           = "athenz.zts.workload_cache_max_size";
     public static final String ZTS_PROP_SYSTEM_AUTHZ_DETAILS_PATH         = "athenz.zts.system_authz_details_path";
     public static final String ZTS_PROP_SERVICE_CERT_DEFAULT_EXPIRY_MINS  = "athenz.zts.service_cert_default_expiry_mins";
 
@@ -135,6 +153,14 @@ public final class ZTSConsts {
     public static final String ZTS_PROP_RESP_X509_SIGNER_CERTS  = "athenz.zts.resp_x509_signer_certs";
     public static final String ZTS_PROP_RESP_SSH_SIGNER_CERTS   = "athenz.zts.resp_ssh_signer_certs";
 
+    public static final String ZTS_PROP_CONCURRENCY_LIMITER_ENABLED       = "athenz.zts.concurrency_limiter_enabled";
+    public static final String ZTS_PROP_CONCURRENCY_LIMITER_INITIAL_LIMIT = "athenz.zts.concurrency_limiter_initial_limit";
+    public static final String ZTS_PROP_CONCURRENCY_LIMITER_MIN_LIMIT     = "athenz.zts.concurrency_limiter_min_limit";
+    public static final String ZTS_PROP_CONCURRENCY_LIMITER_MAX_LIMIT     = "athenz.zts.concurrency_limiter_max_limit";
+    public static final String ZTS_PROP_CONCURRENCY_LIMITER_QUEUE_SIZE    = "athenz.zts.concurrency_limiter_queue_size";
+    public static final String ZTS_PROP_CONCURRENCY_LIMITER_QUEUE_TIMEOUT = "athenz.zts.concurrency_limiter_queue_timeout";
+    public static final String ZTS_PROP_CONCURRENCY_LIMITER_TOLERANCE     = "athenz.zts.concurrency_limiter_tolerance";
+
     public static final String DB_PROP_USER               = "user";
     public static final String DB_PROP_PASSWORD           = "password";
     public static final String DB_PROP_USE_SSL            = "useSSL";
@@ -69,12 +69,15 @@ import com.yahoo.athenz.zms.DomainData;
 import com.yahoo.athenz.zms.RoleMeta;
 import com.yahoo.athenz.zts.cache.DataCache;
 import com.yahoo.athenz.zts.cert.*;
+import com.yahoo.athenz.zts.limiter.ConcurrencyLimiterManager;
 import com.yahoo.athenz.zts.notification.ZTSNotificationTaskFactory;
 import com.yahoo.athenz.zts.store.CloudStore;
 import com.yahoo.athenz.zts.store.DataStore;
 import com.yahoo.athenz.zts.token.AccessTokenRequest;
 import com.yahoo.athenz.zts.token.IdTokenRequest;
 import com.yahoo.athenz.zts.transportrules.TransportRulesProcessor;
+import com.yahoo.athenz.zts.utils.RequestCoalescer;
+import com.yahoo.athenz.zts.utils.TokenSignerPool;
 import com.yahoo.athenz.zts.utils.ZTSUtils;
 import com.yahoo.rdl.*;
 import com.yahoo.rdl.Validator.Result;
@@ -97,10 +100,12 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.PublicKey;
 import java.security.cert.X509Certificate;
 import java.util.*;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -130,6 +135,7 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
     protected String keyAlgoForInstanceProviders;
     protected PrivateKeyStore privateKeyStore = null;
     protected HostnameResolver hostnameResolver = null;
+    protected ConcurrencyLimiterManager concurrencyLimiterManager = null;
     protected int roleTokenDefaultTimeout;
     protected int roleTokenMaxTimeout;
     protected int idTokenMaxTimeout;
@@ -183,6 +189,9 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
     private final Object updateJWKMutex = new Object();
     protected ExternalCredentialsManager externalCredentialsManager;
     protected DynamicConfigInteger serviceCertDefaultExpiryMins;
+    protected RequestCoalescer<String, Set<String>> accessibleRolesCoalescer = null;
+    protected RequestCoalescer<String, com.yahoo.athenz.auth.token.RoleToken> roleTokenCoalescer = null;
+    protected TokenSignerPool tokenSignerPool = null;
 
     private static final String TYPE_DOMAIN_NAME = "DomainName";
     private static final String TYPE_SIMPLE_NAME = "SimpleName";
@@ -322,10 +331,18 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
 
         loadMetricObject();
 
+        // check if we need to execute token signing in a dedicated pool
+
+        loadTokenSignerPool();
+
         // check if we need to load our hostname resolver for cert requests
 
         loadHostnameResolver();
 
+        // check if we need to limit the concurrent instance requests
+
+        loadConcurrencyLimiter();
+
        // create our cloud store if configured
 
         cloudStore = (implCloudStore == null) ? new CloudStore() : implCloudStore;
@@ -643,6 +660,14 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         includeRoleCompleteFlag = Boolean.parseBoolean(
                 System.getProperty(ZTSConsts.ZTS_PROP_ROLE_COMPLETE_FLAG, "true"));
 
+        // check if concurrent identical token requests should share
+        // the accessible role lookup and the signed role token
+
+        if (Boolean.parseBoolean(System.getProperty(ZTSConsts.ZTS_PROP_TOKEN_REQUEST_COALESCING, "false"))) {
+            accessibleRolesCoalescer = new RequestCoalescer<>();
+            roleTokenCoalescer = new RequestCoalescer<>();
+        }
+
         // check if we need to run in maintenance read only mode
 
         readOnlyMode = new DynamicConfigBoolean(CONFIG_MANAGER, ZTSConsts.ZTS_PROP_READ_ONLY_MODE, false);
@@ -766,6 +791,22 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         return clogFactory.create(homeDir, privateKey.getKey(), privateKey.getId());
     }
 
+    void loadTokenSignerPool() {
+
+        // token signing operations are cpu bound so if configured they're
+        // executed in a dedicated pool sized to the number of cores instead
+        // of the request handling threads
+
+        if (!Boolean.parseBoolean(System.getProperty(ZTSConsts.ZTS_PROP_TOKEN_SIGNER_POOL, "false"))) {
+            return;
+        }
+
+        int poolSize = Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_TOKEN_SIGNER_POOL_SIZE,
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        int queueSize = Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_TOKEN_SIGNER_QUEUE_SIZE, "1024"));
+        tokenSignerPool = new TokenSignerPool(poolSize, queueSize, metric);
+    }
+
     void loadMetricObject() {
 
         final String metricFactoryClass = System.getProperty(ZTSConsts.ZTS_PROP_METRIC_FACTORY_CLASS,
@@ -805,6 +846,14 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         hostnameResolver = resolverFactory.create();
     }
 
+    void loadConcurrencyLimiter() {
+
+        if (!Boolean.parseBoolean(System.getProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_ENABLED, "false"))) {
+            return;
+        }
+        concurrencyLimiterManager = new ConcurrencyLimiterManager(metric);
+    }
+
     void loadServicePrivateKey() {
 
         final String pkeyFactoryClass = System.getProperty(ZTSConsts.ZTS_PROP_PRIVATE_KEY_STORE_FACTORY_CLASS,
@@ -919,6 +968,22 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         return dataStore.getPublicKey(domain, service, keyId);
     }
 
+    @Override
+    public PublicKey getParsedPublicKey(String domain, String service, String keyId) {
+
+        if (domain != null) {
+            domain = domain.toLowerCase();
+        }
+        if (service != null) {
+            service = service.toLowerCase();
+        }
+        if (keyId != null) {
+            keyId = keyId.toLowerCase();
+        }
+
+        return dataStore.getParsedPublicKey(domain, service, keyId);
+    }
+
     ServiceIdentity generateZTSServiceIdentity(com.yahoo.athenz.zms.ServiceIdentity zmsService) {
 
         // zms and zts are using the same definition for service identities but
@@ -1854,11 +1919,48 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
             requestedRoleList = roleNames.split(",");
         }
 
+        // generate our role token. if request coalescing is enabled then
+        // concurrent identical requests share the same signed token. we
+        // skip principals with roles (e.g. role certificates) since the
+        // role validation depends on the principal object itself
+
+        final String remoteAddr = ServletRequestUtil.getRemoteAddress(ctx.request());
+        final String tokenDomainName = domainName;
+        final String tokenRoleNames = roleNames;
+        final String[] tokenRoleList = requestedRoleList;
+        final String tokenProxyForPrincipal = proxyForPrincipal;
+        Supplier<com.yahoo.athenz.auth.token.RoleToken> tokenGenerator = () -> generateRoleToken(principal,
+                data, tokenDomainName, tokenRoleNames, tokenRoleList, tokenProxyForPrincipal,
+                minExpiryTime, maxExpiryTime, remoteAddr, caller, principalDomain);
+
+        com.yahoo.athenz.auth.token.RoleToken token;
+        if (roleTokenCoalescer != null && principal.getRoles() == null) {
+            final String requestKey = String.join("|", principalName, tokenDomainName,
+                    String.valueOf(tokenRoleNames), String.valueOf(tokenProxyForPrincipal),
+                    String.valueOf(minExpiryTime), String.valueOf(maxExpiryTime), remoteAddr);
+            token = roleTokenCoalescer.execute(requestKey, tokenGenerator);
+        } else {
+            token = tokenGenerator.get();
+        }
+
+        RoleToken roleToken = new RoleToken();
+        roleToken.setToken(token.getSignedToken());
+        roleToken.setExpiryTime(token.getExpiryTime());
+
+        return roleToken;
+    }
+
+    com.yahoo.athenz.auth.token.RoleToken generateRoleToken(final Principal principal, DataCache data,
+            final String domainName, final String roleNames, final String[] requestedRoleList,
+            final String proxyForPrincipal, Integer minExpiryTime, Integer maxExpiryTime,
+            final String remoteAddr, final String caller, final String principalDomain) {
+
+        String principalName = principal.getFullName();
+
         // process our request and retrieve the roles for the principal
 
         Set<String> roles = new HashSet<>();
-        dataStore.getAccessibleRoles(data, domainName, principalName, requestedRoleList,
-                false, roles, false);
+        getAccessibleRoles(data, domainName, principalName, requestedRoleList, roles);
 
         if (roles.isEmpty()) {
             throw forbiddenError(tokenErrorMessage(caller, principalName, domainName, requestedRoleList),
@@ -1872,8 +1974,7 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         String proxyUser = null;
         if (proxyForPrincipal != null) {
             Set<String> rolesForProxy = new HashSet<>();
-            dataStore.getAccessibleRoles(data, domainName, proxyForPrincipal,
-                    requestedRoleList, false, rolesForProxy, false);
+            getAccessibleRoles(data, domainName, proxyForPrincipal, requestedRoleList, rolesForProxy);
             roles.retainAll(rolesForProxy);
 
             // check again in case we removed all the roles and ended up
@@ -1907,15 +2008,43 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         com.yahoo.athenz.auth.token.RoleToken token =
                 new com.yahoo.athenz.auth.token.RoleToken.Builder(ZTS_ROLE_TOKEN_VERSION, domainName, roleList)
                     .expirationWindow(tokenTimeout).host(serverHostName).keyId(privateKey.getId())
-                    .principal(principalName).ip(ServletRequestUtil.getRemoteAddress(ctx.request()))
+                    .principal(principalName).ip(remoteAddr)
                     .proxyUser(proxyUser).domainCompleteRoleSet(domainCompleteRoleSet).build();
-        token.sign(privateKey.getKey());
+        signToken(() -> {
+            token.sign(privateKey.getKey());
+            return token;
+        });
 
-        RoleToken roleToken = new RoleToken();
-        roleToken.setToken(token.getSignedToken());
-        roleToken.setExpiryTime(token.getExpiryTime());
+        return token;
+    }
 
-        return roleToken;
+    <T> T signToken(Supplier<T> signer) {
+        return (tokenSignerPool == null) ? signer.get() : tokenSignerPool.sign(signer);
+    }
+
+    void getAccessibleRoles(DataCache data, final String domainName, final String principalName,
+            final String[] requestedRoleList, Set<String> accessibleRoles) {
+
+        // without request coalescing we process the lookup directly
+
+        if (accessibleRolesCoalescer == null) {
+            dataStore.getAccessibleRoles(data, domainName, principalName, requestedRoleList,
+                    false, accessibleRoles, false);
+            return;
+        }
+
+        // concurrent identical lookups share the same result set. the
+        // shared set is never modified so we copy it into the caller's set
+
+        final String requestKey = String.join("|", domainName, principalName,
+                requestedRoleList == null ? "" : String.join(",", requestedRoleList));
+        Set<String> roles = accessibleRolesCoalescer.execute(requestKey, () -> {
+            Set<String> lookupRoles = new HashSet<>();
+            dataStore.getAccessibleRoles(data, domainName, principalName, requestedRoleList,
+                    false, lookupRoles, false);
+            return lookupRoles;
+        });
+        accessibleRoles.addAll(roles);
     }
 
     String tokenErrorMessage(final String caller, final String principalName, final String domainName,
@@ -2566,7 +2695,7 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         // process our request and retrieve the roles for the principal
 
         Set<String> roles = new HashSet<>();
-        dataStore.getAccessibleRoles(data, domainName, principalName, requestedRoles, false, roles, false);
+        getAccessibleRoles(data, domainName, principalName, requestedRoles, roles);
 
         // we return failure if we don't have access to any roles
 
@@ -2593,7 +2722,7 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
             // process the role lookup for the proxy principal
 
             Set<String> rolesForProxy = new HashSet<>();
-            dataStore.getAccessibleRoles(data, domainName, proxyForPrincipal, requestedRoles, false, rolesForProxy, false);
+            getAccessibleRoles(data, domainName, proxyForPrincipal, requestedRoles, rolesForProxy);
             roles.retainAll(rolesForProxy);
 
             // check again in case we removed all the roles and ended up
@@ -2649,7 +2778,8 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         }
 
         ServerPrivateKey privateKey = getServerPrivateKey(keyAlgoForJsonWebObjects);
-        String accessJwts = accessToken.getSignedToken(privateKey.getKey(), privateKey.getId(), privateKey.getAlgorithm());
+        String accessJwts = signToken(() -> accessToken.getSignedToken(privateKey.getKey(),
+                privateKey.getId(), privateKey.getAlgorithm()));
 
         // now let's check to see if we need to create openid token
 
@@ -2674,7 +2804,8 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
             idToken.setAuthTime(iat);
             idToken.setExpiryTime(iat + determineAccessIdTokenTimeout(tokenTimeout));
 
-            idJwts = idToken.getSignedToken(privateKey.getKey(), privateKey.getId(), privateKey.getAlgorithm());
+            idJwts = signToken(() -> idToken.getSignedToken(privateKey.getKey(), privateKey.getId(),
+                    privateKey.getAlgorithm()));
         }
 
         AccessTokenResponse response = new AccessTokenResponse().setAccess_token(accessJwts)
@@ -3018,7 +3149,7 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         }
 
         final String x509Cert = instanceCertManager.generateX509Certificate(null, null, req.getCsr(),
-                InstanceProvider.ZTS_CERT_USAGE_CLIENT, expiryTime, priority,
+                certReq.getCertReq(), InstanceProvider.ZTS_CERT_USAGE_CLIENT, expiryTime, priority,
                 getPrincipalDomainSignerKeyId(principalDomain, true));
         if (StringUtil.isEmpty(x509Cert)) {
             throw serverError("Unable to create certificate from the cert signer", caller, domainName, principalDomain);
@@ -3782,6 +3913,11 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
                     caller, domain, principalDomain);
         }
 
+        // before calling the provider, cert signer and cert store, make
+        // sure we're not exceeding the concurrency limit for the provider
+
+        acquireConcurrencyLimiterPermit(ctx, provider, caller, domain, principalDomain);
+
         // include instance details in the query access log to help
         // with debugging requests
 
@@ -3865,7 +4001,8 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
 
         Object timerX509CertMetric = metric.startTiming("certsignx509_timing", null, principalDomain);
         InstanceIdentity identity = instanceCertManager.generateIdentity(provider, null, info.getCsr(),
-                cn, certUsage, certExpiryTime, Priority.High, domainData.getX509CertSignerKeyId());
+                certReq.getCertReq(), cn, certUsage, certExpiryTime, Priority.High,
+                domainData.getX509CertSignerKeyId());
         metric.stopTiming(timerX509CertMetric, null, principalDomain);
 
         if (identity == null) {
@@ -4251,6 +4388,11 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
 
         X509Certificate cert = principal.getX509Certificate();
 
+        // before calling the provider, cert signer and cert store, make
+        // sure we're not exceeding the concurrency limit for the provider
+
+        acquireConcurrencyLimiterPermit(ctx, provider, caller, domain, principalDomain);
+
         InstanceIdentity identity;
         if (x509Csr != null) {
             identity = processProviderX509RefreshRequest(ctx, domainData, principal, domain, service,
@@ -4422,7 +4564,8 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         Priority priority = ZTSUtils.getCertRequestPriority(cert.getNotBefore(), cert.getNotAfter());
         Object timerX509CertMetric = metric.startTiming("certsignx509_timing", null, principalDomain);
         InstanceIdentity identity = instanceCertManager.generateIdentity(provider, null, info.getCsr(),
-                principalName, certUsage, certExpiryTime, priority, domainData.getX509CertSignerKeyId());
+                certReq.getCertReq(), principalName, certUsage, certExpiryTime, priority,
+                domainData.getX509CertSignerKeyId());
         metric.stopTiming(timerX509CertMetric, null, principalDomain);
 
         if (identity == null) {
@@ -4466,6 +4609,14 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
 
             processCertRecordChange(x509CertRecord, reqIp, info.getHostname());
 
+            // if the serial number has not changed then we only have
+            // metadata updates that can be deferred if the cert manager
+            // is configured in write-behind mode. otherwise, only the
+            // serial number update is written before we respond while
+            // the metadata updates are deferred in write-behind mode
+
+            final boolean serialChanged = !certSerialNumber.equals(x509CertRecord.getCurrentSerial());
+
             // now let's update our record
 
             x509CertRecord.setCurrentSerial(certSerialNumber);
@@ -4477,7 +4628,9 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
             // we must be able to update our record db otherwise we will
             // not be able to validate the refresh request next time
 
-            if (!instanceCertManager.updateX509CertRecord(x509CertRecord)) {
+            final boolean recordUpdated = serialChanged ? instanceCertManager.updateRefreshedX509CertRecord(x509CertRecord)
+                    : instanceCertManager.deferX509CertRecordUpdate(x509CertRecord);
+            if (!recordUpdated) {
                 throw serverError("unable to update cert db", caller, domain, principalDomain);
             }
         }
@@ -4872,7 +5025,7 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         int expiryTime = req.getExpiryTime() != null ? req.getExpiryTime() : 0;
         final String signerKeyId = getPrincipalDomainSignerKeyId(domain, true);
         Identity identity = ZTSUtils.generateIdentity(instanceCertManager, null, null, req.getCsr(),
-                fullServiceName, null, expiryTime, signerKeyId);
+                certReq, fullServiceName, null, expiryTime, signerKeyId);
         if (identity == null) {
             throw serverError("Unable to generate identity", caller, domain, principalDomain);
         }
@@ -5516,6 +5669,37 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         return ((RsrcCtxWrapper) ctx).getRequestDomain();
     }
 
+    void acquireConcurrencyLimiterPermit(ResourceContext ctx, final String provider, final String caller,
+            final String domain, final String principalDomain) {
+
+        if (concurrencyLimiterManager == null) {
+            return;
+        }
+
+        // the permit is released in recordMetrics once the request
+        // is completed so the limiter can use the response status
+
+        ConcurrencyLimiterManager.Permit permit = concurrencyLimiterManager.acquire(caller, provider);
+        if (permit == null) {
+            throw error(ResourceException.TOO_MANY_REQUESTS, "Too many concurrent requests for provider: "
+                    + provider + ", please retry later", caller, domain, principalDomain);
+        }
+        ((RsrcCtxWrapper) ctx).setLimiterPermit(permit);
+    }
+
+    void releaseConcurrencyLimiterPermit(ResourceContext ctx, int httpStatus) {
+
+        if (ctx == null) {
+            return;
+        }
+        RsrcCtxWrapper ctxWrapper = (RsrcCtxWrapper) ctx;
+        ConcurrencyLimiterManager.Permit permit = ctxWrapper.getLimiterPermit();
+        if (permit != null) {
+            ctxWrapper.setLimiterPermit(null);
+            permit.release(httpStatus);
+        }
+    }
+
     Object getTimerMetric(ResourceContext ctx) {
         if (ctx == null) {
             return null;
@@ -5635,6 +5819,7 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
     }
 
     public void recordMetrics(ResourceContext ctx, int httpStatus) {
+        releaseConcurrencyLimiterPermit(ctx, httpStatus);
         final String principalDomainName = getPrincipalDomain(ctx);
         final String domainName = getRequestDomainName(ctx);
         final Object timerMetric = getTimerMetric(ctx);
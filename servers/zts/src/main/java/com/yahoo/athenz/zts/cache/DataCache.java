@@ -16,6 +16,8 @@
 package com.yahoo.athenz.zts.cache;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.yahoo.athenz.auth.AuthorityConsts;
 import com.yahoo.athenz.auth.Principal;
 import com.yahoo.athenz.auth.util.AthenzUtils;
@@ -31,6 +33,7 @@ import com.yahoo.athenz.zts.transportrules.TransportRulesProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.security.PublicKey;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -49,12 +52,14 @@ public class DataCache {
     private final Map<String, RoleMeta> roleMetaCache;
     private final Map<String, Set<String>> awsRoleCache;
     private final Map<String, String> publicKeyCache;
+    private final Map<String, PublicKey> parsedPublicKeyCache;
     private final Map<String, List<String>> providerDnsSuffixCache;
     private final Map<String, List<String>> providerHostnameAllowedSuffixCache;
     private final Map<String, List<String>> providerHostnameDeniedSuffixCache;
     private final Map<String, List<AuthzDetailsEntity>> authzDetailsCache;
     private final Map<String, Map<String, List<String>>> transportRulesCache;
     private final Set<String> workloadStoreExcludeProvidersCache;
+    private Cache<String, PrincipalRoles> principalRolesCache = null;
 
     public static final String ACTION_ASSUME_ROLE = "assume_role";
     public static final String ACTION_ASSUME_AWS_ROLE = "assume_aws_role";
@@ -75,6 +80,7 @@ public class DataCache {
         awsRoleCache = new HashMap<>();
         roleMetaCache = new HashMap<>();
         publicKeyCache = new HashMap<>();
+        parsedPublicKeyCache = new HashMap<>();
         providerDnsSuffixCache = new HashMap<>();
         providerHostnameAllowedSuffixCache = new HashMap<>();
         providerHostnameDeniedSuffixCache = new HashMap<>();
@@ -399,8 +405,21 @@ public class DataCache {
                     serviceName, keyId, publicKey, ex.getMessage());
         }
         
-        if (keyValue != null) {
-            publicKeyCache.put(generateServiceKeyName(serviceName, keyId), keyValue);
+        if (keyValue == null) {
+            return;
+        }
+
+        final String keyName = generateServiceKeyName(serviceName, keyId);
+        publicKeyCache.put(keyName, keyValue);
+
+        // we're also going to keep the parsed public key object so the
+        // authorities don't need to parse the key for every request
+
+        try {
+            parsedPublicKeyCache.put(keyName, Crypto.loadPublicKey(keyValue));
+        } catch (CryptoException ex) {
+            LOGGER.error("Unable to parse public key for {} with id {}: {}",
+                    serviceName, keyId, ex.getMessage());
         }
     }
     
@@ -542,6 +561,92 @@ public class DataCache {
     public Map<String, Set<String>> getTrustMap() {
         return trustCache;
     }
+
+    /**
+     * Replace the member role hash sets with compact array based sets
+     * once the domain has been processed. The member role objects are
+     * shared between all members with the same role and expiration.
+     * The cache must not be updated after this call.
+     */
+    public void compactMemberRoles() {
+
+        Map<MemberRole, MemberRole> memberRoles = new HashMap<>();
+        compactMemberRoleMap(memberRoleCache, memberRoles);
+        compactMemberRoleMap(memberPrefixRoleCache, memberRoles);
+    }
+
+    void compactMemberRoleMap(Map<String, Set<MemberRole>> memberRoleMap, Map<MemberRole, MemberRole> memberRoles) {
+
+        for (Map.Entry<String, Set<MemberRole>> entry : memberRoleMap.entrySet()) {
+            MemberRole[] roles = new MemberRole[entry.getValue().size()];
+            int index = 0;
+            for (MemberRole memberRole : entry.getValue()) {
+                roles[index++] = memberRoles.computeIfAbsent(memberRole, k -> memberRole);
+            }
+            entry.setValue(new MemberRoleSet(roles));
+        }
+    }
+
+    /**
+     * Return the approximate heap usage of the domain data and the
+     * member role caches for this domain
+     * @return estimated size in bytes
+     */
+    public long getEstimatedSize() {
+
+        long size = DomainDataCompactor.estimateSize(domainData);
+        size += estimateMemberRoleMapSize(memberRoleCache);
+        size += estimateMemberRoleMapSize(memberPrefixRoleCache);
+        return size;
+    }
+
+    long estimateMemberRoleMapSize(Map<String, Set<MemberRole>> memberRoleMap) {
+
+        // member names are shared with the domain data object so
+        // we only account for the map entries and role sets
+
+        long size = 0;
+        for (Set<MemberRole> memberRoles : memberRoleMap.values()) {
+            size += DomainDataCompactor.MAP_ENTRY_SIZE + DomainDataCompactor.OBJECT_SIZE;
+            if (memberRoles instanceof MemberRoleSet) {
+                size += DomainDataCompactor.OBJECT_SIZE + (long) memberRoles.size() * DomainDataCompactor.REFERENCE_SIZE;
+            } else {
+                size += (long) memberRoles.size() * (DomainDataCompactor.MAP_ENTRY_SIZE + DomainDataCompactor.OBJECT_SIZE);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Enable the cache of precomputed accessible roles per principal.
+     * The cache is part of the domain data cache object so it is
+     * automatically discarded when the domain is updated.
+     * @param maxSize maximum number of principals to keep in the cache
+     */
+    public void enablePrincipalRolesCache(int maxSize) {
+        if (maxSize > 0) {
+            principalRolesCache = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+        }
+    }
+
+    public boolean isPrincipalRolesCacheEnabled() {
+        return principalRolesCache != null;
+    }
+
+    /**
+     * Return the precomputed accessible roles for the given principal
+     * @param principal name of the principal
+     * @return precomputed roles or null if not available
+     */
+    public PrincipalRoles getPrincipalRoles(final String principal) {
+        return principalRolesCache == null ? null : principalRolesCache.getIfPresent(principal);
+    }
+
+    public void setPrincipalRoles(final String principal, PrincipalRoles principalRoles) {
+        if (principalRolesCache != null) {
+            principalRolesCache.put(principal, principalRoles);
+        }
+    }
     
     public Map<String, Set<String>> getHostMap() {
         return hostCache;
@@ -551,6 +656,10 @@ public class DataCache {
         return publicKeyCache;
     }
 
+    public Map<String, PublicKey> getParsedPublicKeyMap() {
+        return parsedPublicKeyCache;
+    }
+
     public Map<String, List<String>> getProviderDnsSuffixCache() {
         return providerDnsSuffixCache;
     }
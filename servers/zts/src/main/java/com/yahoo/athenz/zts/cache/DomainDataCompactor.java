@@ -0,0 +1,387 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cache;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.yahoo.athenz.zms.*;
+import com.yahoo.rdl.Timestamp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates the compact copy of the domain data that ZTS keeps in its
+ * cache. Principal, role and group names are interned through a shared
+ * table so the same name referenced from many domains is only stored
+ * once, timestamps are shared within the domain and the role and group
+ * member attributes that ZTS never reads after processing (audit,
+ * review and notification details) are not copied.
+ * The given domain data object is never modified since the signed
+ * domain that contains it is saved in the local store after processing.
+ * The policy assertions are interned into new objects as well, so the
+ * original domain data is only referenced until it has been processed.
+ */
+public class DomainDataCompactor {
+
+    private static final Interner<String> STRING_INTERNER = Interners.newWeakInterner();
+
+    // approximate shallow sizes of the objects with compressed oops
+
+    static final int OBJECT_SIZE = 16;
+    static final int REFERENCE_SIZE = 4;
+    static final int STRING_SIZE = 40;
+    static final int TIMESTAMP_SIZE = 24;
+    static final int ROLE_SIZE = 136;
+    static final int GROUP_SIZE = 128;
+    static final int ROLE_MEMBER_SIZE = 72;
+    static final int GROUP_MEMBER_SIZE = 80;
+    static final int ASSERTION_SIZE = 48;
+    static final int SERVICE_SIZE = 64;
+    static final int MAP_ENTRY_SIZE = 40;
+
+    private final Map<Long, Timestamp> timestamps = new HashMap<>();
+    private long estimatedSavings = 0;
+
+    public DomainDataCompactor() {
+    }
+
+    /**
+     * Return the canonical instance of the given string from the
+     * shared table used for all domains
+     * @param value string value
+     * @return interned string or null if the given value is null
+     */
+    public static String intern(final String value) {
+        return value == null ? null : STRING_INTERNER.intern(value);
+    }
+
+    /**
+     * Generate the compact copy of the given domain data object
+     * @param domainData domain data as returned by ZMS
+     * @return compact domain data object
+     */
+    public static DomainData compact(DomainData domainData) {
+        return new DomainDataCompactor().compactDomainData(domainData);
+    }
+
+    /**
+     * Return the approximate number of bytes saved by the domain data
+     * objects compacted by this instance: duplicate strings and timestamps
+     * replaced by their shared instances and attributes that were not copied.
+     * @return estimated savings in bytes
+     */
+    public long getEstimatedSavings() {
+        return estimatedSavings;
+    }
+
+    /**
+     * Generate the compact copy of the given domain data object and
+     * update the estimated savings of this instance
+     * @param domainData domain data as returned by ZMS
+     * @return compact domain data object
+     */
+    public DomainData compactDomainData(DomainData domainData) {
+
+        // we only copy the domain attributes that are used by ZTS
+
+        estimatedSavings += stringSize(domainData.getDescription()) + stringSize(domainData.getOrg())
+                + stringSize(domainData.getBusinessService()) + stringSize(domainData.getApplicationId())
+                + stringSize(domainData.getProductId()) + stringSize(domainData.getEnvironment())
+                + stringSize(domainData.getUserAuthorityFilter());
+
+        DomainData compactData = new DomainData()
+                .setName(internValue(domainData.getName()))
+                .setModified(domainData.getModified())
+                .setEnabled(domainData.getEnabled())
+                .setAccount(domainData.getAccount())
+                .setAzureSubscription(domainData.getAzureSubscription())
+                .setAzureTenant(domainData.getAzureTenant())
+                .setAzureClient(domainData.getAzureClient())
+                .setGcpProject(domainData.getGcpProject())
+                .setGcpProjectNumber(domainData.getGcpProjectNumber())
+                .setCertDnsDomain(domainData.getCertDnsDomain())
+                .setTokenExpiryMins(domainData.getTokenExpiryMins())
+                .setServiceCertExpiryMins(domainData.getServiceCertExpiryMins())
+                .setRoleCertExpiryMins(domainData.getRoleCertExpiryMins())
+                .setSignAlgorithm(domainData.getSignAlgorithm())
+                .setX509CertSignerKeyId(domainData.getX509CertSignerKeyId())
+                .setSshCertSignerKeyId(domainData.getSshCertSignerKeyId())
+                .setTags(domainData.getTags())
+                .setServices(domainData.getServices())
+                .setEntities(domainData.getEntities())
+                .setPolicies(compactPolicies(domainData.getPolicies()));
+
+        if (domainData.getRoles() != null) {
+            List<Role> roles = new ArrayList<>(domainData.getRoles().size());
+            for (Role role : domainData.getRoles()) {
+                roles.add(compactRole(role));
+            }
+            compactData.setRoles(roles);
+        }
+
+        if (domainData.getGroups() != null) {
+            List<Group> groups = new ArrayList<>(domainData.getGroups().size());
+            for (Group group : domainData.getGroups()) {
+                groups.add(compactGroup(group));
+            }
+            compactData.setGroups(groups);
+        }
+
+        return compactData;
+    }
+
+    Role compactRole(Role role) {
+
+        estimatedSavings += stringSize(role.getDescription()) + stringSize(role.getNotifyRoles())
+                + stringSize(role.getUserAuthorityFilter()) + stringSize(role.getUserAuthorityExpiration())
+                + stringSize(role.getPrincipalDomainFilter());
+
+        Role compactRole = new Role()
+                .setName(internValue(role.getName()))
+                .setModified(role.getModified())
+                .setTrust(internValue(role.getTrust()))
+                .setSignAlgorithm(role.getSignAlgorithm())
+                .setCertExpiryMins(role.getCertExpiryMins())
+                .setTokenExpiryMins(role.getTokenExpiryMins())
+                .setTags(role.getTags());
+
+        final List<RoleMember> roleMembers = role.getRoleMembers();
+        if (roleMembers != null) {
+            List<RoleMember> members = new ArrayList<>(roleMembers.size());
+            for (RoleMember roleMember : roleMembers) {
+                estimatedSavings += stringSize(roleMember.getAuditRef())
+                        + stringSize(roleMember.getRequestPrincipal()) + stringSize(roleMember.getPendingState())
+                        + timestampSize(roleMember.getReviewReminder()) + timestampSize(roleMember.getRequestTime())
+                        + timestampSize(roleMember.getLastNotifiedTime())
+                        + timestampSize(roleMember.getReviewLastNotifiedTime());
+                members.add(new RoleMember()
+                        .setMemberName(internValue(roleMember.getMemberName()))
+                        .setExpiration(compactTimestamp(roleMember.getExpiration()))
+                        .setSystemDisabled(roleMember.getSystemDisabled())
+                        .setPrincipalType(roleMember.getPrincipalType())
+                        .setActive(roleMember.getActive())
+                        .setApproved(roleMember.getApproved()));
+            }
+            compactRole.setRoleMembers(members);
+        }
+        return compactRole;
+    }
+
+    Group compactGroup(Group group) {
+
+        estimatedSavings += stringSize(group.getNotifyRoles()) + stringSize(group.getUserAuthorityFilter())
+                + stringSize(group.getUserAuthorityExpiration()) + stringSize(group.getPrincipalDomainFilter());
+
+        Group compactGroup = new Group()
+                .setName(internValue(group.getName()))
+                .setModified(group.getModified());
+
+        final List<GroupMember> groupMembers = group.getGroupMembers();
+        if (groupMembers != null) {
+            List<GroupMember> members = new ArrayList<>(groupMembers.size());
+            for (GroupMember groupMember : groupMembers) {
+                estimatedSavings += stringSize(groupMember.getAuditRef())
+                        + stringSize(groupMember.getRequestPrincipal()) + stringSize(groupMember.getPendingState())
+                        + stringSize(groupMember.getNotifyRoles()) + timestampSize(groupMember.getRequestTime())
+                        + timestampSize(groupMember.getLastNotifiedTime())
+                        + timestampSize(groupMember.getReviewLastNotifiedTime());
+                members.add(new GroupMember()
+                        .setMemberName(internValue(groupMember.getMemberName()))
+                        .setGroupName(internValue(groupMember.getGroupName()))
+                        .setDomainName(internValue(groupMember.getDomainName()))
+                        .setExpiration(compactTimestamp(groupMember.getExpiration()))
+                        .setSystemDisabled(groupMember.getSystemDisabled())
+                        .setPrincipalType(groupMember.getPrincipalType())
+                        .setActive(groupMember.getActive())
+                        .setApproved(groupMember.getApproved()));
+            }
+            compactGroup.setGroupMembers(members);
+        }
+        return compactGroup;
+    }
+
+    SignedPolicies compactPolicies(SignedPolicies signedPolicies) {
+
+        // the policies are part of the signed policy data that we return
+        // to the clients as is, so we copy all their attributes and only
+        // replace the assertion strings with their interned values which
+        // does not change the signed content
+
+        if (signedPolicies == null || signedPolicies.getContents() == null
+                || signedPolicies.getContents().getPolicies() == null) {
+            return signedPolicies;
+        }
+
+        final DomainPolicies domainPolicies = signedPolicies.getContents();
+        List<Policy> policies = new ArrayList<>(domainPolicies.getPolicies().size());
+        for (Policy policy : domainPolicies.getPolicies()) {
+            policies.add(compactPolicy(policy));
+        }
+
+        return new SignedPolicies()
+                .setContents(new DomainPolicies()
+                        .setDomain(domainPolicies.getDomain())
+                        .setPolicies(policies))
+                .setSignature(signedPolicies.getSignature())
+                .setKeyId(signedPolicies.getKeyId());
+    }
+
+    Policy compactPolicy(Policy policy) {
+
+        Policy compactPolicy = new Policy()
+                .setName(policy.getName())
+                .setModified(policy.getModified())
+                .setCaseSensitive(policy.getCaseSensitive())
+                .setVersion(policy.getVersion())
+                .setActive(policy.getActive())
+                .setDescription(policy.getDescription())
+                .setTags(policy.getTags())
+                .setResourceOwnership(policy.getResourceOwnership());
+
+        final List<Assertion> assertions = policy.getAssertions();
+        if (assertions != null) {
+            List<Assertion> compactAssertions = new ArrayList<>(assertions.size());
+            for (Assertion assertion : assertions) {
+                compactAssertions.add(new Assertion()
+                        .setRole(internValue(assertion.getRole()))
+                        .setResource(internValue(assertion.getResource()))
+                        .setAction(internValue(assertion.getAction()))
+                        .setEffect(assertion.getEffect())
+                        .setId(assertion.getId())
+                        .setCaseSensitive(assertion.getCaseSensitive())
+                        .setConditions(assertion.getConditions()));
+            }
+            compactPolicy.setAssertions(compactAssertions);
+        }
+        return compactPolicy;
+    }
+
+    String internValue(final String value) {
+
+        // the first reference to a string becomes the canonical
+        // instance so only the duplicates count towards our savings
+
+        final String internValue = intern(value);
+        if (internValue != value) {
+            estimatedSavings += stringSize(value);
+        }
+        return internValue;
+    }
+
+    Timestamp compactTimestamp(Timestamp timestamp) {
+
+        // timestamp objects do not implement hashCode so we're using
+        // the millis value as the key for our domain timestamp table
+
+        if (timestamp == null) {
+            return null;
+        }
+        final Timestamp compactTimestamp = timestamps.computeIfAbsent(timestamp.millis(), k -> timestamp);
+        if (compactTimestamp != timestamp) {
+            estimatedSavings += TIMESTAMP_SIZE;
+        }
+        return compactTimestamp;
+    }
+
+    /**
+     * Return the approximate heap usage of the given domain data object.
+     * Interned strings are accounted for in every domain that references
+     * them so the value is an upper bound of the memory that would be
+     * released if the domain was removed from the cache.
+     * @param domainData domain data object
+     * @return estimated size in bytes
+     */
+    public static long estimateSize(DomainData domainData) {
+
+        if (domainData == null) {
+            return 0;
+        }
+
+        long size = OBJECT_SIZE + 40 * REFERENCE_SIZE + stringSize(domainData.getName());
+        if (domainData.getRoles() != null) {
+            size += listSize(domainData.getRoles());
+            for (Role role : domainData.getRoles()) {
+                size += ROLE_SIZE + stringSize(role.getName()) + stringSize(role.getTrust());
+                if (role.getRoleMembers() != null) {
+                    size += listSize(role.getRoleMembers());
+                    for (RoleMember member : role.getRoleMembers()) {
+                        size += ROLE_MEMBER_SIZE + stringSize(member.getMemberName())
+                                + timestampSize(member.getExpiration());
+                    }
+                }
+            }
+        }
+        if (domainData.getGroups() != null) {
+            size += listSize(domainData.getGroups());
+            for (Group group : domainData.getGroups()) {
+                size += GROUP_SIZE + stringSize(group.getName());
+                if (group.getGroupMembers() != null) {
+                    size += listSize(group.getGroupMembers());
+                    for (GroupMember member : group.getGroupMembers()) {
+                        size += GROUP_MEMBER_SIZE + stringSize(member.getMemberName())
+                                + timestampSize(member.getExpiration());
+                    }
+                }
+            }
+        }
+        if (domainData.getServices() != null) {
+            size += listSize(domainData.getServices());
+            for (ServiceIdentity service : domainData.getServices()) {
+                size += SERVICE_SIZE + stringSize(service.getName());
+                if (service.getPublicKeys() != null) {
+                    for (PublicKeyEntry publicKey : service.getPublicKeys()) {
+                        size += OBJECT_SIZE + stringSize(publicKey.getId()) + stringSize(publicKey.getKey());
+                    }
+                }
+                if (service.getHosts() != null) {
+                    for (String host : service.getHosts()) {
+                        size += stringSize(host);
+                    }
+                }
+            }
+        }
+        final SignedPolicies signedPolicies = domainData.getPolicies();
+        if (signedPolicies != null && signedPolicies.getContents() != null
+                && signedPolicies.getContents().getPolicies() != null) {
+            for (Policy policy : signedPolicies.getContents().getPolicies()) {
+                size += OBJECT_SIZE + stringSize(policy.getName());
+                if (policy.getAssertions() != null) {
+                    size += listSize(policy.getAssertions());
+                    for (Assertion assertion : policy.getAssertions()) {
+                        size += ASSERTION_SIZE + stringSize(assertion.getRole())
+                                + stringSize(assertion.getResource()) + stringSize(assertion.getAction());
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    static long stringSize(final String value) {
+        return value == null ? 0 : STRING_SIZE + value.length();
+    }
+
+    static long timestampSize(final Timestamp timestamp) {
+        return timestamp == null ? 0 : TIMESTAMP_SIZE;
+    }
+
+    static long listSize(final List<?> list) {
+        return OBJECT_SIZE + (long) list.size() * REFERENCE_SIZE;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cache;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable array backed set of member roles. Once the domain is
+ * processed, the hash sets in the member role cache are replaced
+ * with this set to avoid the per entry overhead of the hash set.
+ * The member role objects themselves are shared between all the
+ * members in the domain that have the same role and expiration.
+ */
+class MemberRoleSet extends AbstractSet<MemberRole> {
+
+    private final MemberRole[] memberRoles;
+
+    MemberRoleSet(MemberRole[] memberRoles) {
+        this.memberRoles = memberRoles;
+    }
+
+    @Override
+    public Iterator<MemberRole> iterator() {
+        return new Iterator<>() {
+
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < memberRoles.length;
+            }
+
+            @Override
+            public MemberRole next() {
+                if (index >= memberRoles.length) {
+                    throw new NoSuchElementException();
+                }
+                return memberRoles[index++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return memberRoles.length;
+    }
+
+    @Override
+    public boolean contains(Object obj) {
+        for (MemberRole memberRole : memberRoles) {
+            if (memberRole.equals(obj)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOf(memberRoles, memberRoles.length);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cache;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Precomputed set of roles (full names) that a principal has access to
+ * in a given domain. The standard roles are based on the principal's
+ * direct, wildcard and prefix memberships in the domain while the
+ * delegated roles are based on group memberships and trusted domains.
+ * The entry is only valid while the group membership version and the
+ * trusted domain data caches are the same as when it was computed and
+ * until the earliest expiration of any membership it depends on.
+ */
+public class PrincipalRoles {
+
+    private final Set<String> standardRoles;
+    private final Set<String> delegatedRoles;
+    private final long groupVersion;
+    private final Map<String, DataCache> trustedDomains;
+    private final long expiration;
+
+    public PrincipalRoles(Set<String> standardRoles, Set<String> delegatedRoles, long groupVersion,
+            Map<String, DataCache> trustedDomains, long expiration) {
+        this.standardRoles = standardRoles;
+        this.delegatedRoles = delegatedRoles;
+        this.groupVersion = groupVersion;
+        this.trustedDomains = trustedDomains;
+        this.expiration = expiration;
+    }
+
+    public Set<String> getStandardRoles() {
+        return standardRoles;
+    }
+
+    public Set<String> getDelegatedRoles() {
+        return delegatedRoles;
+    }
+
+    public long getGroupVersion() {
+        return groupVersion;
+    }
+
+    public Map<String, DataCache> getTrustedDomains() {
+        return trustedDomains;
+    }
+
+    public long getExpiration() {
+        return expiration;
+    }
+}
@@ -39,7 +39,9 @@ import com.yahoo.athenz.common.server.workload.WorkloadRecordStoreFactory;
 import com.yahoo.athenz.common.utils.X509CertUtils;
 import com.yahoo.athenz.zts.*;
 import com.yahoo.athenz.zts.utils.*;
+import com.yahoo.athenz.zts.workload.WorkloadRecordCache;
 import com.yahoo.rdl.Timestamp;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 import org.eclipse.jetty.util.StringUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,6 +52,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -62,6 +65,7 @@ public class InstanceCertManager {
 
     private static final String CA_TYPE_X509 = "x509";
     private static final String ZTS_SVC_TOKEN_PROVIDER = "zts-svc-token-provider";
+    private static final long CERT_RECORD_FLUSH_SHUTDOWN_TIMEOUT = 30;
 
     private static final ObjectMapper JSON_MAPPER = new ObjectMapper()
             .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
@@ -73,8 +77,11 @@ public class InstanceCertManager {
     private CertRecordStore certStore = null;
     private SSHRecordStore sshStore = null;
     private WorkloadRecordStore workloadStore = null;
+    private WorkloadRecordCache workloadCache = null;
     private ScheduledExecutorService certScheduledExecutor;
     private ScheduledExecutorService sshScheduledExecutor;
+    private ScheduledExecutorService certWriteBehindExecutor;
+    private X509CertRecordWriteBehind certRecordWriteBehind = null;
     private final ScheduledExecutorService ipBlockScheduledExecutor;
     private final ConcurrentHashMap<String, List<IPBlock>> instanceCertIPBlocks;
     private String caX509CertificateSigner = null;
@@ -121,6 +128,7 @@ public class InstanceCertManager {
         // it can track of some details if enabled
 
         loadWorkloadObjectStore(keyStore);
+        loadWorkloadCache();
 
         // load any configuration wrt certificate signers and any
         // configured certificate bundles
@@ -158,6 +166,14 @@ public class InstanceCertManager {
                     0, 1, TimeUnit.DAYS);
         }
 
+        // if configured, start our thread to flush any non-critical
+        // cert record updates that are queued in write-behind mode
+
+        if (certStore != null && Boolean.parseBoolean(
+                System.getProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_WRITE_BEHIND, "false"))) {
+            startCertRecordWriteBehind();
+        }
+
         if (sshStore != null) {
             int expiryTimeMins = (int) TimeUnit.MINUTES.convert(30, TimeUnit.DAYS);
             sshScheduledExecutor = Executors.newScheduledThreadPool(1);
@@ -175,6 +191,9 @@ public class InstanceCertManager {
         if (certScheduledExecutor != null) {
             certScheduledExecutor.shutdownNow();
         }
+        if (certWriteBehindExecutor != null) {
+            shutdownCertRecordWriteBehind();
+        }
         if (sshScheduledExecutor != null) {
             sshScheduledExecutor.shutdownNow();
         }
@@ -183,6 +202,56 @@ public class InstanceCertManager {
         }
     }
 
+    void shutdownCertRecordWriteBehind() {
+
+        // we let any in-progress flush complete its batches instead of
+        // interrupting it and then write the remaining pending records
+
+        certWriteBehindExecutor.shutdown();
+        try {
+            if (!certWriteBehindExecutor.awaitTermination(CERT_RECORD_FLUSH_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                LOGGER.error("Cert record write-behind flush did not complete within {} seconds",
+                        CERT_RECORD_FLUSH_SHUTDOWN_TIMEOUT);
+                certWriteBehindExecutor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            certWriteBehindExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        flushX509CertRecordUpdates();
+    }
+
+    void startCertRecordWriteBehind() {
+
+        final long flushInterval = Long.parseLong(
+                System.getProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_WRITE_BEHIND_INTERVAL, "5000"));
+        final int batchSize = Integer.parseInt(
+                System.getProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_WRITE_BEHIND_BATCH_SIZE, "100"));
+
+        certRecordWriteBehind = new X509CertRecordWriteBehind(batchSize);
+        certWriteBehindExecutor = Executors.newScheduledThreadPool(1);
+        certWriteBehindExecutor.scheduleWithFixedDelay(this::flushX509CertRecordUpdates,
+                flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    int flushX509CertRecordUpdates() {
+        if (certRecordWriteBehind == null) {
+            return 0;
+        }
+        int updatedRecords = 0;
+        try {
+            updatedRecords = certRecordWriteBehind.flush(certStore);
+        } catch (Throwable t) {
+            LOGGER.error("flushX509CertRecordUpdates: unable to flush cert record updates: {}", t.getMessage());
+        }
+        return updatedRecords;
+    }
+
+    // for testing only
+    X509CertRecordWriteBehind getCertRecordWriteBehind() {
+        return certRecordWriteBehind;
+    }
+
     // for testing only
     protected final ConcurrentHashMap<String, List<IPBlock>> getInstanceCertIPBlocks() {
         return instanceCertIPBlocks;
@@ -563,6 +632,18 @@ public class InstanceCertManager {
         }
     }
 
+    void loadWorkloadCache() {
+
+        if (!Boolean.parseBoolean(System.getProperty(ZTSConsts.ZTS_PROP_WORKLOAD_CACHE_ENABLED, "false"))) {
+            return;
+        }
+
+        final long refreshTime = TimeUnit.SECONDS.toMillis(Long.parseLong(
+                System.getProperty(ZTSConsts.ZTS_PROP_WORKLOAD_CACHE_REFRESH_TIME, "60")));
+        final long maxSize = Long.parseLong(System.getProperty(ZTSConsts.ZTS_PROP_WORKLOAD_CACHE_MAX_SIZE, "100000"));
+        workloadCache = new WorkloadRecordCache(refreshTime, maxSize);
+    }
+
     public void setCertStore(CertRecordStore certStore) {
         this.certStore = certStore;
     }
@@ -622,6 +703,18 @@ public class InstanceCertManager {
             return null;
         }
 
+        // if we have a pending write-behind update for this instance
+        // then it carries the latest values for the record. we get a
+        // copy of the record so the caller's changes are only queued
+        // if the request completes and updates the record
+
+        if (certRecordWriteBehind != null) {
+            X509CertRecord pendingRecord = certRecordWriteBehind.getPendingRecord(provider, instanceId, service);
+            if (pendingRecord != null) {
+                return pendingRecord;
+            }
+        }
+
         X509CertRecord certRecord;
         try (CertRecordStoreConnection storeConnection = certStore.getConnection()) {
             certRecord = storeConnection.getX509CertRecord(provider, instanceId, service);
@@ -638,29 +731,77 @@ public class InstanceCertManager {
             return false;
         }
 
-        boolean result;
-        try (CertRecordStoreConnection storeConnection = certStore.getConnection()) {
-            result = storeConnection.updateX509CertRecord(certRecord);
-        } catch (ServerResourceException ex) {
-            throw ZTSUtils.error(ex);
+        return executeCertRecordOperation(certRecord,
+                storeConnection -> storeConnection.updateX509CertRecord(certRecord));
+    }
+
+    /**
+     * Update the given certificate record where only the metadata fields
+     * (e.g. hostname, ip, timestamps) have changed and the serial numbers
+     * are the same as in the store. If the write-behind mode is enabled,
+     * the update is queued and coalesced with any other pending updates
+     * for the same instance instead of being written to the store before
+     * the request is completed.
+     * @param certRecord certificate record to be updated
+     * @return true if the record was updated or queued
+     */
+    public boolean deferX509CertRecordUpdate(X509CertRecord certRecord) {
+
+        if (certRecordWriteBehind == null) {
+            return updateX509CertRecord(certRecord);
         }
-        return result;
+
+        certRecordWriteBehind.enqueue(certRecord);
+        return true;
     }
-    
+
+    /**
+     * Update the given certificate record after a new certificate with
+     * a different serial number was issued for the instance. If the
+     * write-behind mode is enabled, only the serial number and expiry
+     * fields, which are required to validate the next refresh request,
+     * are written to the store before the request is completed. The full
+     * record with the metadata fields (e.g. hostname, ip, timestamps)
+     * is queued and written by the next flush. Otherwise, the full record
+     * is updated synchronously.
+     * @param certRecord certificate record to be updated
+     * @return true if the serial number fields were updated successfully
+     */
+    public boolean updateRefreshedX509CertRecord(X509CertRecord certRecord) {
+
+        if (certRecordWriteBehind == null) {
+            return updateX509CertRecord(certRecord);
+        }
+
+        // we hold the instance lock while updating the serial number and
+        // queueing the metadata update so that updates for the same instance
+        // are queued in the same order as they were written to the store
+
+        Lock recordLock = certRecordWriteBehind.getRecordLock(certRecord.getProvider(),
+                certRecord.getInstanceId(), certRecord.getService());
+        recordLock.lock();
+        try {
+            certRecordWriteBehind.discard(certRecord.getProvider(), certRecord.getInstanceId(),
+                    certRecord.getService());
+            if (!executeCertRecordOperation(storeConnection -> storeConnection.updateX509CertRecordSerial(certRecord))) {
+                return false;
+            }
+            certRecordWriteBehind.enqueue(certRecord);
+            return true;
+        } finally {
+            recordLock.unlock();
+        }
+    }
+
     public boolean deleteX509CertRecord(final String provider, final String instanceId,
             final String service) {
         
         if (certStore == null) {
             return false;
         }
-        
-        boolean result;
-        try (CertRecordStoreConnection storeConnection = certStore.getConnection()) {
-            result = storeConnection.deleteX509CertRecord(provider, instanceId, service);
-        } catch (ServerResourceException ex) {
-            throw ZTSUtils.error(ex);
-        }
-        return result;
+
+        return executeCertRecordOperation(provider, instanceId, service,
+                storeConnection -> storeConnection.deleteX509CertRecord(provider, instanceId, service));
     }
     
     public boolean insertX509CertRecord(X509CertRecord certRecord) {
@@ -668,23 +809,74 @@ public class InstanceCertManager {
         if (certStore == null) {
             return false;
         }
-        
-        boolean result;
+
+        return executeCertRecordOperation(certRecord,
+                storeConnection -> storeConnection.insertX509CertRecord(certRecord));
+    }
+
+    interface CertRecordOperation {
+        boolean execute(CertRecordStoreConnection storeConnection) throws ServerResourceException;
+    }
+
+    boolean executeCertRecordOperation(X509CertRecord certRecord, CertRecordOperation operation) {
+
+        // the record key is only needed if we have pending updates
+
+        if (certRecordWriteBehind == null) {
+            return executeCertRecordOperation(operation);
+        }
+        return executeCertRecordOperation(certRecord.getProvider(), certRecord.getInstanceId(),
+                certRecord.getService(), operation);
+    }
+
+    boolean executeCertRecordOperation(final String provider, final String instanceId,
+            final String service, CertRecordOperation operation) {
+
+        // without write-behind mode there are no pending updates
+        // so we can carry out the operation directly
+
+        if (certRecordWriteBehind == null) {
+            return executeCertRecordOperation(operation);
+        }
+
+        // otherwise we need to discard any pending update for the instance
+        // and hold the instance lock so that a flush that is running
+        // concurrently does not overwrite our changes with stale values
+
+        Lock recordLock = certRecordWriteBehind.getRecordLock(provider, instanceId, service);
+        recordLock.lock();
+        try {
+            certRecordWriteBehind.discard(provider, instanceId, service);
+            return executeCertRecordOperation(operation);
+        } finally {
+            recordLock.unlock();
+        }
+    }
+
+    boolean executeCertRecordOperation(CertRecordOperation operation) {
         try (CertRecordStoreConnection storeConnection = certStore.getConnection()) {
-            result = storeConnection.insertX509CertRecord(certRecord);
+            return operation.execute(storeConnection);
         } catch (ServerResourceException ex) {
             throw ZTSUtils.error(ex);
         }
-        
-        return result;
     }
 
     public String generateX509Certificate(final String provider, final String certIssuer, final String csr,
             final String keyUsage, int expiryTime, Priority priority, final String keySignerId) {
+        return generateX509Certificate(provider, certIssuer, csr, null, keyUsage, expiryTime,
+                priority, keySignerId);
+    }
+
+    public String generateX509Certificate(final String provider, final String certIssuer, final String csr,
+            PKCS10CertificationRequest certReq, final String keyUsage, int expiryTime, Priority priority,
+            final String keySignerId) {
+
+        // we pass the already parsed certificate request (if available)
+        // so the signer does not need to decode the csr again
 
         String pemCert = null;
         try {
-            pemCert = certSigner.generateX509Certificate(provider, certIssuer, csr, keyUsage,
+            pemCert = certSigner.generateX509Certificate(provider, certIssuer, csr, certReq, keyUsage,
                     expiryTime, priority, keySignerId);
         } catch (ServerResourceException ex) {
             LOGGER.error("generateX509Certificate: CertSigner was unable to generate X509 certificate", ex);
@@ -707,10 +899,17 @@ public class InstanceCertManager {
     public InstanceIdentity generateIdentity(final String provider, final String certIssuer,
             final String csr, final String cn, final String keyUsage, int expiryTime,
             Priority priority, final String signerKeyId) {
-        
+        return generateIdentity(provider, certIssuer, csr, null, cn, keyUsage, expiryTime,
+                priority, signerKeyId);
+    }
+
+    public InstanceIdentity generateIdentity(final String provider, final String certIssuer,
+            final String csr, PKCS10CertificationRequest certReq, final String cn, final String keyUsage,
+            int expiryTime, Priority priority, final String signerKeyId) {
+
         // generate a certificate for this certificate request
 
-        final String pemCert = generateX509Certificate(provider, certIssuer, csr, keyUsage,
+        final String pemCert = generateX509Certificate(provider, certIssuer, csr, certReq, keyUsage,
                 expiryTime, priority, signerKeyId);
         if (StringUtil.isEmpty(pemCert)) {
             return null;
@@ -1265,6 +1464,9 @@ public class InstanceCertManager {
             LOGGER.error("Unable to insert workload record: {}", ex.getMessage());
         }
 
+        if (result && workloadCache != null) {
+            workloadCache.insertRecord(workloadRecord);
+        }
         return result;
     }
 
@@ -1275,50 +1477,86 @@ public class InstanceCertManager {
         }
 
         boolean result = false;
+        boolean inserted = false;
         try (WorkloadRecordStoreConnection storeConnection = workloadStore.getConnection()) {
             result = storeConnection.updateWorkloadRecord(workloadRecord);
             if (!result) {
                 // failed update could be because of a new IP address for the same instance id,
                 // so we are going to try insert operation.
                 result = storeConnection.insertWorkloadRecord(workloadRecord);
+                inserted = result;
             }
         } catch (ServerResourceException ex) {
             LOGGER.error("Unable to update workload record: {}", ex.getMessage());
         }
+
+        if (result && workloadCache != null) {
+            if (inserted) {
+                workloadCache.insertRecord(workloadRecord);
+            } else {
+                workloadCache.updateRecord(workloadRecord);
+            }
+        }
         return result;
     }
 
+    List<WorkloadRecord> getWorkloadRecordsByService(final String domain, final String service)
+            throws ServerResourceException {
+
+        if (workloadCache != null) {
+            return workloadCache.getServiceRecords(AthenzUtils.getPrincipalName(domain, service),
+                    () -> loadWorkloadRecordsByService(domain, service));
+        }
+        return loadWorkloadRecordsByService(domain, service);
+    }
+
+    List<WorkloadRecord> loadWorkloadRecordsByService(final String domain, final String service)
+            throws ServerResourceException {
+        try (WorkloadRecordStoreConnection storeConnection = workloadStore.getConnection()) {
+            return storeConnection.getWorkloadRecordsByService(domain, service);
+        }
+    }
+
+    List<WorkloadRecord> getWorkloadRecordsByIp(final String ip) throws ServerResourceException {
+
+        if (workloadCache != null) {
+            return workloadCache.getIpRecords(ip, () -> loadWorkloadRecordsByIp(ip));
+        }
+        return loadWorkloadRecordsByIp(ip);
+    }
+
+    List<WorkloadRecord> loadWorkloadRecordsByIp(final String ip) throws ServerResourceException {
+        try (WorkloadRecordStoreConnection storeConnection = workloadStore.getConnection()) {
+            return storeConnection.getWorkloadRecordsByIp(ip);
+        }
+    }
+
     public List<Workload> getWorkloadsByService(String domain, String service) {
         if (workloadStore == null) {
             return Collections.emptyList();
         }
-        try (WorkloadRecordStoreConnection storeConnection = workloadStore.getConnection()) {
-            List<WorkloadRecord> workloadRecords = storeConnection.getWorkloadRecordsByService(domain, service);
-            Map<String, List<String>> flattenedIpAddresses = new HashMap<>();
-            String mapKey;
+        try {
+            List<WorkloadRecord> workloadRecords = getWorkloadRecordsByService(domain, service);
+
+            // group the ip addresses of the records that belong to the same
+            // workload. the list based key handles the null values and any
+            // separator characters in the record fields
+
+            Map<List<Object>, Workload> workloads = new LinkedHashMap<>();
             for (WorkloadRecord workloadRecord : workloadRecords) {
-                mapKey = workloadRecord.getInstanceId() + ":" + workloadRecord.getProvider() +
-                        ":" + workloadRecord.getUpdateTime().getTime() +
-                        ":" + workloadRecord.getCertExpiryTime().getTime() + ":" + workloadRecord.getHostname();
-                if (flattenedIpAddresses.containsKey(mapKey)) {
-                    flattenedIpAddresses.get(mapKey).add(workloadRecord.getIp());
-                } else {
-                    List<String> ipList = new ArrayList<>();
-                    ipList.add(workloadRecord.getIp());
-                    flattenedIpAddresses.put(mapKey, ipList);
-                }
+                final List<Object> workloadKey = Arrays.asList(workloadRecord.getInstanceId(),
+                        workloadRecord.getProvider(), workloadRecord.getUpdateTime().getTime(),
+                        workloadRecord.getCertExpiryTime().getTime(), workloadRecord.getHostname());
+                workloads.computeIfAbsent(workloadKey, k -> new Workload()
+                        .setUuid(workloadRecord.getInstanceId())
+                        .setProvider(workloadRecord.getProvider())
+                        .setUpdateTime(Timestamp.fromMillis(workloadRecord.getUpdateTime().getTime()))
+                        .setCertExpiryTime(Timestamp.fromMillis(workloadRecord.getCertExpiryTime().getTime()))
+                        .setHostname(workloadRecord.getHostname())
+                        .setIpAddresses(new ArrayList<>()))
+                        .getIpAddresses().add(workloadRecord.getIp());
             }
-            return flattenedIpAddresses.entrySet().stream().map(entry -> {
-                Workload wl = new Workload();
-                String[] tempArr = entry.getKey().split(":");
-                wl.setUuid(tempArr[0])
-                        .setProvider(tempArr[1])
-                        .setUpdateTime(Timestamp.fromMillis(Long.parseLong(tempArr[2])))
-                        .setCertExpiryTime(Timestamp.fromMillis(Long.parseLong(tempArr[3])))
-                        .setHostname(tempArr[4])
-                        .setIpAddresses(entry.getValue());
-                return wl;
-            }).collect(Collectors.toList());
+            return new ArrayList<>(workloads.values());
         } catch (ServerResourceException ex) {
             throw ZTSUtils.error(ex);
         }
@@ -1328,8 +1566,8 @@ public class InstanceCertManager {
         if (workloadStore == null) {
             return Collections.emptyList();
         }
-        try (WorkloadRecordStoreConnection storeConnection = workloadStore.getConnection()) {
-            return storeConnection.getWorkloadRecordsByIp(ip).stream()
+        try {
+            return getWorkloadRecordsByIp(ip).stream()
                     .map(wr -> {
                         Workload wl = new Workload();
                         String[] strArr = AthenzUtils.splitPrincipalName(wr.getService());
@@ -1358,12 +1596,15 @@ public class InstanceCertManager {
         
         private final CertRecordStore store;
         private final int expiryTimeMins;
+        private final int deleteLimit;
         private final DynamicConfigBoolean readOnlyMode;
 
         public ExpiredX509CertRecordCleaner(CertRecordStore store, int expiryTimeMins, DynamicConfigBoolean readOnlyMode) {
             this.store = store;
             this.expiryTimeMins = expiryTimeMins;
             this.readOnlyMode = readOnlyMode;
+            this.deleteLimit = Integer.parseInt(
+                    System.getProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_CLEANER_DELETE_LIMIT, "10000"));
         }
         
         @Override
@@ -1391,9 +1632,19 @@ public class InstanceCertManager {
                 return 0;
             }
 
-            int deletedRecords;
+            // we're going to delete the records in chunks so that we don't
+            // have a single long-running operation against the store. we'll
+            // stop once we delete fewer records than our configured limit
+
+            int deletedRecords = 0;
             try (CertRecordStoreConnection storeConnection = store.getConnection()) {
-                deletedRecords = storeConnection.deleteExpiredX509CertRecords(expiryTimeMins);
+                while (true) {
+                    int chunkRecords = storeConnection.deleteExpiredX509CertRecords(expiryTimeMins, deleteLimit);
+                    deletedRecords += chunkRecords;
+                    if (deleteLimit <= 0 || chunkRecords < deleteLimit || readOnlyMode.get()) {
+                        break;
+                    }
+                }
             } catch (ServerResourceException ex) {
                 throw ZTSUtils.error(ex);
             }
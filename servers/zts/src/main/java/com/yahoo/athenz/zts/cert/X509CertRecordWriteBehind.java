@@ -0,0 +1,235 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cert;
+
+import com.yahoo.athenz.common.server.ServerResourceException;
+import com.yahoo.athenz.common.server.cert.CertRecordStore;
+import com.yahoo.athenz.common.server.cert.CertRecordStoreConnection;
+import com.yahoo.athenz.common.server.cert.X509CertRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind queue for x.509 certificate record updates that only
+ * carry non-critical metadata (e.g. hostname, ip, timestamps). Updates
+ * are coalesced per instance so only the latest record for a given
+ * provider/instance/service is written when the queue is flushed.
+ * Any update that changes the certificate serial numbers must be
+ * written synchronously while holding the instance lock, and either
+ * call discard() or enqueue the record with the new serial values
+ * before releasing the lock, so that a queued stale copy does not
+ * overwrite the newer serial values.
+ * The queue keeps its own copies of the records so the pending state
+ * is only changed through enqueue() and never by a request that
+ * modifies a record it has read from the queue.
+ */
+public class X509CertRecordWriteBehind {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(X509CertRecordWriteBehind.class);
+
+    private final ConcurrentHashMap<String, X509CertRecord> pendingRecords = new ConcurrentHashMap<>();
+    private final ReentrantLock[] recordLocks;
+    private final int batchSize;
+
+    public X509CertRecordWriteBehind(int batchSize) {
+        this.batchSize = batchSize > 0 ? batchSize : 100;
+        recordLocks = new ReentrantLock[64];
+        for (int idx = 0; idx < recordLocks.length; idx++) {
+            recordLocks[idx] = new ReentrantLock();
+        }
+    }
+
+    static String getRecordKey(final String provider, final String instanceId, final String service) {
+        return provider + ":" + instanceId + ":" + service;
+    }
+
+    /**
+     * Queue the given record to be written during the next flush. If
+     * there is already a pending update for the same instance, it is
+     * replaced with the given record unless the pending record carries
+     * a newer update time. The instance lock is held while the record
+     * is merged so that a stale update that races with a newer one,
+     * or with a synchronous update, cannot replace the newer values.
+     * A copy of the given record is queued so any changes made to
+     * the record after this call are not written by the flush.
+     * @param certRecord certificate record to be updated
+     */
+    public void enqueue(X509CertRecord certRecord) {
+
+        final X509CertRecord queuedRecord = copyRecord(certRecord);
+        final String recordKey = getRecordKey(certRecord.getProvider(), certRecord.getInstanceId(),
+                certRecord.getService());
+        ReentrantLock recordLock = recordLocks[getRecordLockIndex(recordKey)];
+        recordLock.lock();
+        try {
+            pendingRecords.merge(recordKey, queuedRecord,
+                    (pendingRecord, newRecord) -> isNewerRecord(pendingRecord, newRecord) ? pendingRecord : newRecord);
+        } finally {
+            recordLock.unlock();
+        }
+    }
+
+    boolean isNewerRecord(X509CertRecord record1, X509CertRecord record2) {
+        final Date time1 = record1.getCurrentTime();
+        final Date time2 = record2.getCurrentTime();
+        return time1 != null && time2 != null && time1.after(time2);
+    }
+
+    /**
+     * Drop any pending update for the given instance. This must be called
+     * before the record is updated or deleted synchronously.
+     * @param provider name of the provider
+     * @param instanceId instance id
+     * @param service name of the service
+     */
+    public void discard(final String provider, final String instanceId, final String service) {
+        pendingRecords.remove(getRecordKey(provider, instanceId, service));
+    }
+
+    /**
+     * Return a copy of the pending update for the given instance, if any,
+     * so that readers see the latest metadata before it is flushed. The
+     * caller is free to modify the returned record without affecting the
+     * queued update.
+     * @param provider name of the provider
+     * @param instanceId instance id
+     * @param service name of the service
+     * @return copy of the pending certificate record or null
+     */
+    public X509CertRecord getPendingRecord(final String provider, final String instanceId, final String service) {
+        final X509CertRecord pendingRecord = pendingRecords.get(getRecordKey(provider, instanceId, service));
+        return pendingRecord == null ? null : copyRecord(pendingRecord);
+    }
+
+    static X509CertRecord copyRecord(X509CertRecord certRecord) {
+
+        X509CertRecord copy = new X509CertRecord();
+        copy.setProvider(certRecord.getProvider());
+        copy.setInstanceId(certRecord.getInstanceId());
+        copy.setService(certRecord.getService());
+        copy.setCurrentSerial(certRecord.getCurrentSerial());
+        copy.setCurrentTime(copyDate(certRecord.getCurrentTime()));
+        copy.setCurrentIP(certRecord.getCurrentIP());
+        copy.setPrevSerial(certRecord.getPrevSerial());
+        copy.setPrevTime(copyDate(certRecord.getPrevTime()));
+        copy.setPrevIP(certRecord.getPrevIP());
+        copy.setClientCert(certRecord.getClientCert());
+        copy.setLastNotifiedTime(copyDate(certRecord.getLastNotifiedTime()));
+        copy.setLastNotifiedServer(certRecord.getLastNotifiedServer());
+        copy.setExpiryTime(copyDate(certRecord.getExpiryTime()));
+        copy.setHostName(certRecord.getHostName());
+        copy.setSvcDataUpdateTime(copyDate(certRecord.getSvcDataUpdateTime()));
+        return copy;
+    }
+
+    static Date copyDate(Date date) {
+        return date == null ? null : new Date(date.getTime());
+    }
+
+    public int getPendingCount() {
+        return pendingRecords.size();
+    }
+
+    /**
+     * Return the lock that must be held while a record for the
+     * given instance is written to the store. Both the flush operation
+     * and the synchronous updates use the same lock to guarantee that
+     * a queued metadata update is never written after a newer critical
+     * update for the same instance.
+     * @param provider name of the provider
+     * @param instanceId instance id
+     * @param service name of the service
+     * @return lock for the instance
+     */
+    public Lock getRecordLock(final String provider, final String instanceId, final String service) {
+        return recordLocks[getRecordLockIndex(getRecordKey(provider, instanceId, service))];
+    }
+
+    int getRecordLockIndex(final String recordKey) {
+        return (recordKey.hashCode() & 0x7fffffff) % recordLocks.length;
+    }
+
+    /**
+     * Write all pending records to the given store. Records are processed
+     * in batches of the configured size using the batch update api of the
+     * store connection. Records that fail to be written are discarded since
+     * they only carry metadata that will be updated again with the
+     * next refresh request.
+     * @param certStore certificate record store
+     * @return number of records successfully updated
+     */
+    public int flush(CertRecordStore certStore) {
+
+        if (certStore == null || pendingRecords.isEmpty()) {
+            return 0;
+        }
+
+        int updatedRecords = 0;
+        List<String> recordKeys = new ArrayList<>(pendingRecords.keySet());
+        for (int idx = 0; idx < recordKeys.size(); idx += batchSize) {
+            updatedRecords += flushBatch(certStore, recordKeys.subList(idx,
+                    Math.min(idx + batchSize, recordKeys.size())));
+        }
+        return updatedRecords;
+    }
+
+    int flushBatch(CertRecordStore certStore, List<String> recordKeys) {
+
+        // we remove the records from our pending map while holding the
+        // instance locks so that a concurrent critical update either
+        // discards them first or is written after our batch update.
+        // the locks are always acquired in the same order
+
+        TreeSet<Integer> lockIndexes = new TreeSet<>();
+        for (String recordKey : recordKeys) {
+            lockIndexes.add(getRecordLockIndex(recordKey));
+        }
+        for (Integer lockIndex : lockIndexes) {
+            recordLocks[lockIndex].lock();
+        }
+
+        try {
+            List<X509CertRecord> certRecords = new ArrayList<>(recordKeys.size());
+            for (String recordKey : recordKeys) {
+                X509CertRecord certRecord = pendingRecords.remove(recordKey);
+                if (certRecord != null) {
+                    certRecords.add(certRecord);
+                }
+            }
+            if (certRecords.isEmpty()) {
+                return 0;
+            }
+            try (CertRecordStoreConnection storeConnection = certStore.getConnection()) {
+                return storeConnection.updateX509CertRecords(certRecords);
+            } catch (ServerResourceException ex) {
+                LOGGER.error("Unable to flush {} cert records: {}", certRecords.size(), ex.getMessage());
+                return 0;
+            }
+        } finally {
+            for (Integer lockIndex : lockIndexes.descendingSet()) {
+                recordLocks[lockIndex].unlock();
+            }
+        }
+    }
+}
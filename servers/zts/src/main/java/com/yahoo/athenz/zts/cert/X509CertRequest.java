@@ -27,6 +27,7 @@ import com.yahoo.athenz.common.utils.X509CertUtils;
 import com.yahoo.athenz.zts.CertType;
 import com.yahoo.athenz.zts.ZTSConsts;
 import com.yahoo.athenz.zts.cache.DataCache;
+import org.bouncycastle.asn1.x509.GeneralName;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,14 +62,19 @@ public class X509CertRequest {
             throw new CryptoException("Invalid csr provided");
         }
 
+        // decode the subject alternative names once and extract
+        // all the values that we need from the same list
+
+        final List<GeneralName> sanNames = Crypto.extractX509CSRSubjectAltNames(certReq);
+
         // extract the dns names but we can't process them now
         // since we need to know what the provider and domain
         // allowed dns suffix values
 
-        dnsNames = Crypto.extractX509CSRDnsNames(certReq);
+        dnsNames = Crypto.extractSANValues(sanNames, GeneralName.dNSName);
         providerDnsNames = new ArrayList<>();
 
-        ipAddresses = Crypto.extractX509CSRIPAddresses(certReq);
+        ipAddresses = Crypto.extractSANIPAddresses(sanNames);
 
         // extract the common name for the request
 
@@ -80,7 +86,7 @@ public class X509CertRequest {
 
         // extract our URI values
 
-        uris = Crypto.extractX509CSRURIs(certReq);
+        uris = Crypto.extractSANValues(sanNames, GeneralName.uniformResourceIdentifier);
 
         // process to make sure we only have a single spiffe uri
         // present in our request
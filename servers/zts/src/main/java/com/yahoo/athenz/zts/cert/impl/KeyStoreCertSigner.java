@@ -38,10 +38,22 @@ public class KeyStoreCertSigner implements CertSigner, AutoCloseable {
     @Override
     public String generateX509Certificate(String provider, String certIssuer, String csr, String keyUsage,
             int certExpiryMins, Priority priority, String signerKeyId) {
+        return generateX509Certificate(provider, certIssuer, csr, null, keyUsage, certExpiryMins,
+                priority, signerKeyId);
+    }
+
+    @Override
+    public String generateX509Certificate(String provider, String certIssuer, String csr,
+            PKCS10CertificationRequest certReq, String keyUsage, int certExpiryMins, Priority priority,
+            String signerKeyId) {
 
         int certExpiryTime = (certExpiryMins == 0) ? this.maxCertExpiryTimeMins : certExpiryMins;
 
-        PKCS10CertificationRequest certReq = Crypto.getPKCS10CertRequest(csr);
+        // only parse the csr if the server did not already do so
+
+        if (certReq == null) {
+            certReq = Crypto.getPKCS10CertRequest(csr);
+        }
         return Crypto.convertToPEMFormat(Crypto.generateX509Certificate(certReq, caPrivateKey,
                 caCertificate, certExpiryTime, false));
     }
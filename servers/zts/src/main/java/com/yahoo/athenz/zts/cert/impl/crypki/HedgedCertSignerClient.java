@@ -0,0 +1,433 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cert.impl.crypki;
+
+import com.yahoo.athenz.common.server.util.config.dynamic.DynamicConfigBoolean;
+import com.yahoo.athenz.common.server.util.config.dynamic.DynamicConfigInteger;
+import com.yahoo.athenz.zts.ZTSConsts;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.ssl.TLS;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking transport to the certificate signer endpoints. A request
+ * is first sent to the first available endpoint and if there is no
+ * response within the configured percentile of that endpoint's latency,
+ * a hedged request is sent to the next endpoint and the first successful
+ * response is used. Hedged requests are only sent to endpoints that have
+ * not been tried yet for the same request. Failed requests are retried
+ * right away with the next endpoint instead of waiting for the request
+ * timeout. If configured to retry connection failures only, requests
+ * that reached the signer (server errors and read timeouts) are not
+ * retried. Each endpoint has a circuit breaker so that after a number
+ * of consecutive failures the endpoint is skipped until the circuit
+ * open time expires.
+ */
+public class HedgedCertSignerClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HedgedCertSignerClient.class);
+
+    private static final String CONTENT_JSON = "application/json";
+    private static final int MIN_HEDGE_SAMPLES = 20;
+
+    private final CloseableHttpAsyncClient asyncClient;
+    private final List<SignerEndpoint> endpoints = new ArrayList<>();
+    private final DynamicConfigInteger maxAttempts;
+    private final DynamicConfigBoolean retryConnFailuresOnly;
+    private final double hedgePercentile;
+    private final long hedgeDefaultDelay;
+    private final long hedgeMinDelay;
+    private final long requestTimeout;
+
+    /**
+     * Create the hedged client for the given signer endpoints
+     * @param baseUris list of signer base uris in the order of preference
+     * @param sslContext ssl context with the client key/cert
+     * @param maxAttempts max number of requests sent to the signer
+     *      endpoints, including the hedged requests, for each operation
+     * @param retryConnFailuresOnly only retry failed requests if the
+     *      connection to the signer endpoint could not be established
+     */
+    public HedgedCertSignerClient(final List<String> baseUris, SSLContext sslContext,
+            DynamicConfigInteger maxAttempts, DynamicConfigBoolean retryConnFailuresOnly) {
+
+        this.maxAttempts = maxAttempts;
+        this.retryConnFailuresOnly = retryConnFailuresOnly;
+
+        hedgePercentile = Double.parseDouble(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_PERCENTILE, "95"));
+        hedgeDefaultDelay = Long.parseLong(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_DEFAULT_DELAY, "1000"));
+        hedgeMinDelay = Long.parseLong(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_MIN_DELAY, "50"));
+
+        final int failureThreshold = Integer.parseInt(
+                System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_CIRCUIT_FAILURE_THRESHOLD, "5"));
+        final long circuitOpenTime = Long.parseLong(
+                System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_CIRCUIT_OPEN_TIME, "30000"));
+
+        final int connectionTimeoutSec = Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_CONNECT_TIMEOUT, "10"));
+        final int readTimeoutSec = Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_REQUEST_TIMEOUT, "25"));
+
+        for (String baseUri : baseUris) {
+            endpoints.add(new SignerEndpoint(baseUri,
+                    new LatencyHistogram(TimeUnit.SECONDS.toMillis(readTimeoutSec), 10000),
+                    new CircuitBreaker(failureThreshold, circuitOpenTime)));
+        }
+
+        // our overall timeout covers the case where all requests are
+        // sent one after another and each one takes the max time
+
+        requestTimeout = TimeUnit.SECONDS.toMillis(connectionTimeoutSec + readTimeoutSec)
+                * Math.max(1, maxAttempts.get());
+
+        asyncClient = createAsyncHttpClient(sslContext, connectionTimeoutSec, readTimeoutSec);
+        asyncClient.start();
+    }
+
+    CloseableHttpAsyncClient createAsyncHttpClient(SSLContext sslContext, int connectionTimeoutSec,
+            int readTimeoutSec) {
+
+        int defaultMaxPerRoute = Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_CONN_MAX_PER_ROUTE, "20"));
+        int maxTotal = Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_CONN_MAX_TOTAL, "30"));
+        int timeToLive = Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_CONN_TIME_TO_LIVE, "10"));
+        int handshakeTimeout = Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HANDSHAKE_TIMEOUT, "30000"));
+
+        return HttpAsyncClients.custom()
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                        .setTlsStrategy(ClientTlsStrategyBuilder.create()
+                                .setSslContext(sslContext)
+                                .setTlsVersions(TLS.V_1_2, TLS.V_1_3)
+                                .build())
+                        .setDefaultTlsConfig(TlsConfig.custom()
+                                .setHandshakeTimeout(Timeout.ofMilliseconds(handshakeTimeout))
+                                .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_1)
+                                .build())
+                        .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.STRICT)
+                        .setConnPoolPolicy(PoolReusePolicy.LIFO)
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setSocketTimeout(Timeout.ofSeconds(readTimeoutSec))
+                                .setConnectTimeout(Timeout.ofSeconds(connectionTimeoutSec))
+                                .setTimeToLive(TimeValue.ofMinutes(timeToLive))
+                                .build())
+                        .setMaxConnPerRoute(defaultMaxPerRoute)
+                        .setMaxConnTotal(maxTotal)
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setRedirectsEnabled(false)
+                        .setResponseTimeout(Timeout.ofSeconds(readTimeoutSec))
+                        .build())
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    public void close() {
+        asyncClient.close(CloseMode.GRACEFUL);
+    }
+
+    List<SignerEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Post the given json request to the signer endpoints
+     * @param path request path appended to the endpoint base uri
+     * @param requestContent json request content
+     * @param expectedStatusCode expected http status code
+     * @return response body or null if the request failed
+     */
+    public String postRequest(final String path, final String requestContent, int expectedStatusCode) {
+
+        HedgedRequest request = new HedgedRequest(path, requestContent, expectedStatusCode);
+        request.sendNext(false);
+
+        try {
+            return request.result.get(requestTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while waiting for the cert signer response to {}", path);
+        } catch (ExecutionException | TimeoutException ex) {
+            LOGGER.error("Unable to get cert signer response to {}", path, ex);
+        } finally {
+            request.cancel();
+        }
+        return null;
+    }
+
+    long getHedgeDelay(SignerEndpoint endpoint) {
+
+        // until we have enough samples we'll use our default delay
+
+        if (endpoint.histogram.getSampleCount() < MIN_HEDGE_SAMPLES) {
+            return hedgeDefaultDelay;
+        }
+        return Math.max(hedgeMinDelay, endpoint.histogram.getPercentile(hedgePercentile));
+    }
+
+    class HedgedRequest {
+
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        final String path;
+        final String requestContent;
+        final int expectedStatusCode;
+        final int attemptLimit;
+        final AtomicInteger attemptsSent = new AtomicInteger();
+        final AtomicInteger outstanding = new AtomicInteger();
+        final List<Future<SimpleHttpResponse>> futures = new ArrayList<>();
+        final Set<SignerEndpoint> triedEndpoints = new HashSet<>();
+        int retryIndex = 0;
+
+        HedgedRequest(final String path, final String requestContent, int expectedStatusCode) {
+            this.path = path;
+            this.requestContent = requestContent;
+            this.expectedStatusCode = expectedStatusCode;
+            this.attemptLimit = Math.max(1, maxAttempts.get());
+        }
+
+        synchronized void sendNext(boolean hedge) {
+
+            if (result.isDone()) {
+                return;
+            }
+
+            SignerEndpoint endpoint = attemptsSent.get() < attemptLimit ? nextAvailableEndpoint(hedge) : null;
+            if (endpoint == null) {
+
+                // if there are no more requests we can send and none of
+                // the requests are still outstanding then we have failed
+
+                if (outstanding.get() == 0) {
+                    LOGGER.error("No cert signer endpoints available to process request {}", path);
+                    result.complete(null);
+                }
+                return;
+            }
+
+            final int attempt = attemptsSent.incrementAndGet();
+            outstanding.incrementAndGet();
+            triedEndpoints.add(endpoint);
+
+            SimpleHttpRequest httpRequest = SimpleHttpRequest.create("POST", endpoint.baseUri + path);
+            httpRequest.setHeader(HttpHeaders.ACCEPT, CONTENT_JSON);
+            httpRequest.setBody(requestContent, ContentType.APPLICATION_JSON);
+
+            final long startTime = System.nanoTime();
+            futures.add(asyncClient.execute(httpRequest, new FutureCallback<>() {
+
+                @Override
+                public void completed(SimpleHttpResponse response) {
+                    endpoint.histogram.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                    processResponse(endpoint, response, attempt);
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    LOGGER.error("Unable to process request to cert signer {}, attempt: {}",
+                            endpoint.baseUri + path, attempt, ex);
+                    endpoint.circuitBreaker.recordFailure(System.currentTimeMillis());
+                    processFailure(isConnectionFailure(ex));
+                }
+
+                @Override
+                public void cancelled() {
+                    outstanding.decrementAndGet();
+                }
+            }));
+
+            // schedule our hedged request if we have not received
+            // a response for this request within our hedge delay
+            // and there is another endpoint we can send it to
+
+            if (attempt < attemptLimit && triedEndpoints.size() < endpoints.size()) {
+                CompletableFuture.runAsync(() -> sendHedgedRequest(attempt),
+                        CompletableFuture.delayedExecutor(getHedgeDelay(endpoint), TimeUnit.MILLISECONDS));
+            }
+        }
+
+        SignerEndpoint nextAvailableEndpoint(boolean hedge) {
+
+            // we always prefer the endpoints that have not been
+            // tried yet in their configured order
+
+            final long now = System.currentTimeMillis();
+            for (SignerEndpoint endpoint : endpoints) {
+                if (!triedEndpoints.contains(endpoint) && endpoint.circuitBreaker.allowRequest(now)) {
+                    return endpoint;
+                }
+            }
+
+            // hedged requests are only sent to a different endpoint since
+            // the one we tried is still processing our request while failed
+            // requests can be retried with the endpoints we already tried
+
+            if (hedge) {
+                return null;
+            }
+            for (int i = 0; i < endpoints.size(); i++) {
+                SignerEndpoint endpoint = endpoints.get(retryIndex++ % endpoints.size());
+                if (endpoint.circuitBreaker.allowRequest(now)) {
+                    return endpoint;
+                }
+            }
+            return null;
+        }
+
+        void sendHedgedRequest(int attempt) {
+
+            // we only send the hedged request if no other request
+            // has been sent since this one, e.g. due to a failure
+
+            if (!result.isDone() && attemptsSent.get() == attempt) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Sending hedged cert signer request for {}, attempt: {}", path, attempt + 1);
+                }
+                sendNext(true);
+            }
+        }
+
+        void processResponse(SignerEndpoint endpoint, SimpleHttpResponse response, int attempt) {
+
+            final int statusCode = response.getCode();
+            if (statusCode == expectedStatusCode) {
+                endpoint.circuitBreaker.recordSuccess();
+                result.complete(response.getBodyText());
+                return;
+            }
+
+            LOGGER.error("unable to process request to cert signer {} status: {}, attempt: {}",
+                    endpoint.baseUri + path, statusCode, attempt);
+
+            // client errors are returned for invalid requests so there is
+            // no point retrying them with another endpoint
+
+            if (statusCode >= 400 && statusCode < 500) {
+                endpoint.circuitBreaker.recordSuccess();
+                result.complete(null);
+                return;
+            }
+
+            endpoint.circuitBreaker.recordFailure(System.currentTimeMillis());
+            processFailure(false);
+        }
+
+        void processFailure(boolean connectionFailure) {
+
+            // if we're configured to retry connection failures only, then
+            // we don't retry requests that were processed by the signer.
+            // we'll wait for any other outstanding requests to complete
+
+            if (connectionFailure || !retryConnFailuresOnly.get()) {
+                outstanding.decrementAndGet();
+                sendNext(false);
+            } else if (outstanding.decrementAndGet() == 0) {
+                result.complete(null);
+            }
+        }
+
+        synchronized void cancel() {
+            for (Future<SimpleHttpResponse> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    static boolean isConnectionFailure(Exception ex) {
+        return ex instanceof ConnectException || ex instanceof ConnectTimeoutException;
+    }
+
+    static class SignerEndpoint {
+
+        final String baseUri;
+        final LatencyHistogram histogram;
+        final CircuitBreaker circuitBreaker;
+
+        SignerEndpoint(final String baseUri, LatencyHistogram histogram, CircuitBreaker circuitBreaker) {
+            this.baseUri = baseUri;
+            this.histogram = histogram;
+            this.circuitBreaker = circuitBreaker;
+        }
+    }
+
+    static class CircuitBreaker {
+
+        private final int failureThreshold;
+        private final long openTime;
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicLong openUntil = new AtomicLong();
+
+        CircuitBreaker(int failureThreshold, long openTime) {
+            this.failureThreshold = failureThreshold;
+            this.openTime = openTime;
+        }
+
+        boolean allowRequest(long now) {
+
+            final long until = openUntil.get();
+            if (now < until) {
+                return false;
+            }
+            if (consecutiveFailures.get() < failureThreshold) {
+                return true;
+            }
+
+            // the circuit is half-open so we only let one request through
+            // and keep the circuit open for others until we get its result
+
+            return openUntil.compareAndSet(until, now + openTime);
+        }
+
+        void recordSuccess() {
+            consecutiveFailures.set(0);
+            openUntil.set(0);
+        }
+
+        void recordFailure(long now) {
+            if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                openUntil.set(now + openTime);
+            }
+        }
+
+        boolean isOpen(long now) {
+            return now < openUntil.get();
+        }
+    }
+}
@@ -15,10 +15,12 @@
  */
 package com.yahoo.athenz.zts.cert.impl.crypki;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -86,6 +88,7 @@ public class HttpCertSigner implements CertSigner {
     private CloseableHttpClient httpClient;
     private final PoolingHttpClientConnectionManager connManager;
     private final SslContextFactory sslContextFactory;
+    private HedgedCertSignerClient hedgedClient;
 
     String serverBaseUri;
     DynamicConfigInteger certsignRequestRetryCount;
@@ -126,6 +129,14 @@ public class HttpCertSigner implements CertSigner {
         this.connManager = createConnectionPooling(sslContextFactory.getSslContext());
         this.httpClient = createHttpClient(this.connManager);
 
+        // if configured, use the non-blocking hedged client for
+        // our x509 certificate requests
+
+        if (Boolean.parseBoolean(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_ENABLED, "false"))) {
+            hedgedClient = new HedgedCertSignerClient(getSignerBaseUris(), sslContextFactory.getSslContext(),
+                    certsignRequestRetryCount, retryConnFailuresOnly);
+        }
+
         // load our provider signer key details
 
         if (!loadProviderSignerKeyConfig()) {
@@ -137,6 +148,23 @@ public class HttpCertSigner implements CertSigner {
         LOGGER.info("HttpCertSigner connection pool stats {} ", this.connManager.getTotalStats().toString());
     }
 
+    List<String> getSignerBaseUris() {
+
+        List<String> baseUris = new ArrayList<>();
+        baseUris.add(serverBaseUri);
+
+        final String hedgeBaseUris = System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_BASE_URIS);
+        if (!StringUtil.isEmpty(hedgeBaseUris)) {
+            for (String baseUri : hedgeBaseUris.split(",")) {
+                baseUri = baseUri.trim();
+                if (!baseUri.isEmpty() && !baseUris.contains(baseUri)) {
+                    baseUris.add(baseUri);
+                }
+            }
+        }
+        return baseUris;
+    }
+
     private boolean loadProviderSignerKeyConfig() {
 
         // read the file list of providers and allowed IP addresses
@@ -241,9 +269,16 @@ public class HttpCertSigner implements CertSigner {
         this.httpClient = client;
     }
 
+    void setHedgedClient(HedgedCertSignerClient hedgedClient) {
+        this.hedgedClient = hedgedClient;
+    }
+
     @Override
     public void close() {
         try {
+            if (hedgedClient != null) {
+                hedgedClient.close();
+            }
             this.sslContextFactory.stop();
             this.httpClient.close();
             if (LOGGER.isDebugEnabled()) {
@@ -277,21 +312,24 @@ public class HttpCertSigner implements CertSigner {
     public String generateX509Certificate(String provider, String certIssuer, String csr, String keyUsage,
             int expireMins, Priority priority, String signerKeyId) {
 
-        StringEntity entity;
+        final String requestContent;
         try {
-            final String requestContent = JACKSON_MAPPER.writeValueAsString(getX509CertSigningRequest(provider,
+            requestContent = JACKSON_MAPPER.writeValueAsString(getX509CertSigningRequest(provider,
                     csr, keyUsage, expireMins, priority, signerKeyId));
-            entity = new StringEntity(requestContent);
         } catch (Exception ex) {
             LOGGER.error("unable to generate csr", ex);
             return null;
         }
 
+        if (hedgedClient != null) {
+            return generateX509CertificateHedged(provider, signerKeyId, requestContent);
+        }
+
         final String x509CertUri = getX509CertUri(serverBaseUri, provider, signerKeyId);
         HttpPost httpPost = new HttpPost(x509CertUri);
         httpPost.setHeader("Accept", CONTENT_JSON);
         httpPost.setHeader("Content-Type", CONTENT_JSON);
-        httpPost.setEntity(entity);
+        httpPost.setEntity(new StringEntity(requestContent));
 
         // Retry configured number of times before returning failure
 
@@ -313,6 +351,21 @@ public class HttpCertSigner implements CertSigner {
         return null;
     }
 
+    String generateX509CertificateHedged(String provider, String signerKeyId, final String requestContent) {
+
+        final String response = hedgedClient.postRequest(X509_CERTIFICATE_PATH + getProviderKeyId(provider, signerKeyId),
+                requestContent, 201);
+        if (response == null) {
+            return null;
+        }
+        try {
+            return parseResponse(new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException ex) {
+            LOGGER.error("unable to parse x509 certificate response", ex);
+            return null;
+        }
+    }
+
     /**
      * Process http response from crypki server
      * @param request http request object
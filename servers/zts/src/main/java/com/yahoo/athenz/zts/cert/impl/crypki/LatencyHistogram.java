@@ -0,0 +1,126 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cert.impl.crypki;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with exponentially sized buckets. Each
+ * bucket is about 25% wider than the previous one so the percentiles
+ * are reported within that precision. Once the number of recorded
+ * samples reaches the configured limit, all bucket counts are halved
+ * so the percentiles follow the recent latencies of the endpoint.
+ */
+class LatencyHistogram {
+
+    private final long[] bucketBounds;
+    private final AtomicLongArray bucketCounts;
+    private final AtomicLong sampleCount = new AtomicLong();
+    private final long maxSamples;
+
+    /**
+     * Create a new histogram
+     * @param maxLatency the upper bound of the last bucket in milliseconds.
+     *      larger latencies are recorded in the last bucket
+     * @param maxSamples number of samples after which the counts are halved
+     */
+    LatencyHistogram(long maxLatency, long maxSamples) {
+
+        List<Long> bounds = new ArrayList<>();
+        long bound = 1;
+        while (bound < maxLatency) {
+            bounds.add(bound);
+            bound = Math.max(bound + 1, bound * 5 / 4);
+        }
+        bounds.add(maxLatency);
+
+        bucketBounds = bounds.stream().mapToLong(Long::longValue).toArray();
+        bucketCounts = new AtomicLongArray(bucketBounds.length);
+        this.maxSamples = maxSamples;
+    }
+
+    /**
+     * Record the given latency in the histogram
+     * @param latency request latency in milliseconds
+     */
+    void record(long latency) {
+
+        bucketCounts.incrementAndGet(getBucketIndex(latency));
+        if (sampleCount.incrementAndGet() >= maxSamples) {
+            decay();
+        }
+    }
+
+    /**
+     * Return the latency for the given percentile
+     * @param percentile percentile value between 0 and 100
+     * @return the upper bound of the bucket that contains the given
+     *      percentile in milliseconds or -1 if there are no samples
+     */
+    long getPercentile(double percentile) {
+
+        long total = 0;
+        final long[] counts = new long[bucketBounds.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = bucketCounts.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return -1;
+        }
+
+        final long threshold = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= threshold) {
+                return bucketBounds[i];
+            }
+        }
+        return bucketBounds[bucketBounds.length - 1];
+    }
+
+    long getSampleCount() {
+        return sampleCount.get();
+    }
+
+    int getBucketIndex(long latency) {
+        int index = Arrays.binarySearch(bucketBounds, latency);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return Math.min(index, bucketBounds.length - 1);
+    }
+
+    synchronized void decay() {
+
+        // another thread might have already carried out the decay
+
+        if (sampleCount.get() < maxSamples) {
+            return;
+        }
+
+        long total = 0;
+        for (int i = 0; i < bucketBounds.length; i++) {
+            total += bucketCounts.updateAndGet(i, count -> count / 2);
+        }
+        sampleCount.set(total);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.limiter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive concurrency limiter based on the observed request latency.
+ * The limiter keeps a short and a long term average of the request
+ * latency. As long as the short term average stays within the configured
+ * tolerance of the long term one, the limit grows. Once the backends
+ * start to slow down, the limit is reduced by the ratio of the two
+ * averages. Requests that fail with a server error reduce the limit
+ * right away. Requests over the limit wait in a bounded queue until
+ * a permit is available or the queue timeout expires.
+ */
+public class ConcurrencyLimiter {
+
+    static final double SHORT_RTT_ALPHA = 0.1;
+    static final double LONG_RTT_ALPHA = 0.01;
+    static final double MIN_GRADIENT = 0.5;
+    static final double DROP_BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final long queueTimeoutNanos;
+    private final double tolerance;
+    private final double smoothing;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+
+    private double limit;
+    private int inflight = 0;
+    private int queued = 0;
+    private double shortRtt = 0;
+    private double longRtt = 0;
+
+    /**
+     * Permit for a single request. The permit must be released
+     * once the request is completed.
+     */
+    public class Permit {
+
+        private final long startTime;
+        private final int inflightAtStart;
+        private boolean released = false;
+
+        Permit(long startTime, int inflightAtStart) {
+            this.startTime = startTime;
+            this.inflightAtStart = inflightAtStart;
+        }
+
+        /**
+         * Release the permit and update the limit based on the request
+         * result. Releasing the same permit multiple times has no effect.
+         * @param dropped true if the request failed because of a backend
+         *      failure or timeout
+         */
+        public void release(boolean dropped) {
+            releasePermit(this, dropped, System.nanoTime());
+        }
+    }
+
+    /**
+     * Create a new concurrency limiter
+     * @param initialLimit initial concurrency limit
+     * @param minLimit minimum concurrency limit
+     * @param maxLimit maximum concurrency limit
+     * @param maxQueueSize max number of requests waiting for a permit
+     * @param queueTimeout max time in milliseconds a request waits for a permit
+     * @param tolerance ratio of the short and long term latency averages
+     *      that is tolerated before the limit is reduced
+     * @param smoothing weight of the new limit when it's updated
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueueSize,
+            long queueTimeout, double tolerance, double smoothing) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.maxQueueSize = Math.max(0, maxQueueSize);
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, queueTimeout));
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * Acquire a permit for a new request. If the limit has been reached,
+     * the request waits in the queue until a permit is released or the
+     * queue timeout expires.
+     * @return permit object or null if the request must be rejected
+     */
+    public Permit acquire() {
+
+        lock.lock();
+        try {
+            if (inflight < (int) limit) {
+                return newPermit();
+            }
+
+            // if the queue is full we're going to reject the request
+            // right away instead of keeping the thread blocked
+
+            if (queued >= maxQueueSize) {
+                return null;
+            }
+
+            queued += 1;
+            try {
+                long nanos = queueTimeoutNanos;
+                while (inflight >= (int) limit) {
+                    if (nanos <= 0) {
+                        return null;
+                    }
+                    nanos = permitAvailable.awaitNanos(nanos);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return null;
+            } finally {
+                queued -= 1;
+            }
+            return newPermit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Permit newPermit() {
+        inflight += 1;
+        return new Permit(System.nanoTime(), inflight);
+    }
+
+    void releasePermit(Permit permit, boolean dropped, long endTime) {
+
+        lock.lock();
+        try {
+            if (permit.released) {
+                return;
+            }
+            permit.released = true;
+            inflight -= 1;
+
+            final int prevLimit = (int) limit;
+            if (dropped) {
+                limit = Math.max(minLimit, limit * DROP_BACKOFF_RATIO);
+            } else {
+                updateLimit(endTime - permit.startTime, permit.inflightAtStart);
+            }
+
+            // wake up as many waiting requests as we have permits
+
+            if ((int) limit > prevLimit) {
+                permitAvailable.signalAll();
+            } else {
+                permitAvailable.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void updateLimit(long rtt, int inflightAtStart) {
+
+        if (shortRtt == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+        } else {
+            shortRtt += (rtt - shortRtt) * SHORT_RTT_ALPHA;
+            longRtt += (rtt - longRtt) * LONG_RTT_ALPHA;
+        }
+
+        // once the backends recover, the long term average can be
+        // much higher than the current latency so we're going to
+        // pull it down faster to reflect the current state
+
+        if (longRtt > 2 * shortRtt) {
+            longRtt *= 0.95;
+        }
+
+        // if the requests were not using at least half of the limit
+        // then the latency does not tell us anything about the limit
+
+        if (inflightAtStart < limit / 2) {
+            return;
+        }
+
+        final double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRtt / Math.max(1.0, shortRtt)));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    /**
+     * Return the current concurrency limit
+     * @return concurrency limit
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the number of requests currently holding a permit
+     * @return number of requests
+     */
+    public int getInflight() {
+        lock.lock();
+        try {
+            return inflight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the number of requests waiting for a permit
+     * @return queue depth
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.limiter;
+
+import com.yahoo.athenz.common.metrics.Metric;
+import com.yahoo.athenz.zts.ZTSConsts;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains a separate adaptive concurrency limiter for each api and
+ * provider combination so a slow provider does not block the requests
+ * for the other providers. The limit, number of in-flight requests and
+ * queue depth of each limiter are reported as gauges through the
+ * configured metric object.
+ */
+public class ConcurrencyLimiterManager {
+
+    static final String METRIC_LIMIT = "zts_concurrency_limiter_limit";
+    static final String METRIC_INFLIGHT = "zts_concurrency_limiter_inflight";
+    static final String METRIC_QUEUE_DEPTH = "zts_concurrency_limiter_queue_depth";
+    static final String METRIC_REJECTED = "zts_concurrency_limiter_rejected";
+
+    static final String ATTR_API_NAME = "apiName";
+    static final String ATTR_PROVIDER = "provider";
+
+    private final ConcurrentHashMap<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private final Metric metric;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final long queueTimeout;
+    private final double tolerance;
+    private final double smoothing;
+
+    /**
+     * Limiter permit along with the details required to
+     * report the limiter state when the permit is released
+     */
+    public class Permit {
+
+        private final ConcurrencyLimiter limiter;
+        private final ConcurrencyLimiter.Permit permit;
+        private final String apiName;
+        private final String provider;
+
+        Permit(ConcurrencyLimiter limiter, ConcurrencyLimiter.Permit permit,
+                final String apiName, final String provider) {
+            this.limiter = limiter;
+            this.permit = permit;
+            this.apiName = apiName;
+            this.provider = provider;
+        }
+
+        /**
+         * Release the permit based on the http status of the request.
+         * Server errors (e.g. provider or signer timeouts) indicate
+         * that the backends are overloaded so the limit is reduced
+         * @param httpStatus http status code of the response
+         */
+        public void release(int httpStatus) {
+            permit.release(httpStatus >= 500);
+            reportMetrics(limiter, apiName, provider);
+        }
+    }
+
+    public ConcurrencyLimiterManager(Metric metric) {
+
+        this.metric = metric;
+        initialLimit = Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_INITIAL_LIMIT, "20"));
+        minLimit = Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_MIN_LIMIT, "5"));
+        maxLimit = Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_MAX_LIMIT, "200"));
+        maxQueueSize = Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_QUEUE_SIZE, "100"));
+        queueTimeout = Long.parseLong(System.getProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_QUEUE_TIMEOUT, "1000"));
+        tolerance = Double.parseDouble(System.getProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_TOLERANCE, "1.5"));
+        smoothing = 0.2;
+    }
+
+    /**
+     * Acquire a permit for the given api and provider. The caller
+     * might be blocked until a permit is available or the queue
+     * timeout expires.
+     * @param apiName name of the api
+     * @param provider name of the provider
+     * @return permit object or null if the request must be rejected
+     */
+    public Permit acquire(final String apiName, final String provider) {
+
+        ConcurrencyLimiter limiter = limiters.computeIfAbsent(apiName + ":" + provider,
+                k -> new ConcurrencyLimiter(initialLimit, minLimit, maxLimit, maxQueueSize,
+                        queueTimeout, tolerance, smoothing));
+
+        ConcurrencyLimiter.Permit permit = limiter.acquire();
+        if (permit == null) {
+            metric.increment(METRIC_REJECTED, ATTR_API_NAME, apiName, ATTR_PROVIDER, provider);
+            reportMetrics(limiter, apiName, provider);
+            return null;
+        }
+        reportMetrics(limiter, apiName, provider);
+        return new Permit(limiter, permit, apiName, provider);
+    }
+
+    void reportMetrics(ConcurrencyLimiter limiter, final String apiName, final String provider) {
+        metric.gauge(METRIC_LIMIT, limiter.getLimit(), ATTR_API_NAME, apiName, ATTR_PROVIDER, provider);
+        metric.gauge(METRIC_INFLIGHT, limiter.getInflight(), ATTR_API_NAME, apiName, ATTR_PROVIDER, provider);
+        metric.gauge(METRIC_QUEUE_DEPTH, limiter.getQueueDepth(), ATTR_API_NAME, apiName, ATTR_PROVIDER, provider);
+    }
+
+    ConcurrencyLimiter getLimiter(final String apiName, final String provider) {
+        return limiters.get(apiName + ":" + provider);
+    }
+}
@@ -21,6 +21,7 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.yahoo.athenz.auth.AuthorityConsts;
 import com.yahoo.athenz.auth.util.StringUtils;
+import com.yahoo.athenz.auth.util.GlobMatcher;
 import com.yahoo.athenz.common.metrics.Metric;
 import com.yahoo.athenz.common.server.db.RolesProvider;
 import com.yahoo.athenz.common.server.key.PubKeysProvider;
@@ -38,7 +39,9 @@ import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.common.config.AthenzConfig;
 import com.yahoo.athenz.zts.cache.DataCache;
 import com.yahoo.athenz.zts.cache.DataCacheProvider;
+import com.yahoo.athenz.zts.cache.DomainDataCompactor;
 import com.yahoo.athenz.zts.cache.MemberRole;
+import com.yahoo.athenz.zts.cache.PrincipalRoles;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -49,11 +52,12 @@ import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.ECPoint;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -79,6 +83,7 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
     final RequireRoleCertCache requireRoleCertCache;
     final Map<String, List<String>> hostCache;
     final Map<String, String> publicKeyCache;
+    final Map<String, PublicKey> parsedPublicKeyCache;
     final JWKList zmsJWKList;
     final JWKList zmsJWKListStrictRFC;
     final JWKList ztsJWKList;
@@ -94,16 +99,24 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
     long domainFetchRefreshTime;
     int domainFetchCount;
     boolean jwsDomainSupport;
+    int principalRolesCacheSize;
+    boolean compactDomainData;
+    final AtomicLong groupMembershipVersion = new AtomicLong();
+    final AtomicLong compactedDomainCount = new AtomicLong();
+    final AtomicLong compactedDomainSavings = new AtomicLong();
 
     private static final String ROLE_POSTFIX = ":role.";
 
-    private final ReentrantReadWriteLock hostRWLock = new ReentrantReadWriteLock();
-    private final Lock hostRLock = hostRWLock.readLock();
-    private final Lock hostWLock = hostRWLock.writeLock();
+    // the host and public key indexes are concurrent maps so the
+    // lookups never block. the lock is only used to serialize the
+    // domain updates so each one applies its changes to the indexes
+    // based on the cache entry it replaces. since the lookups cannot
+    // be blocked, the only contention we report is between the updates
 
-    private final ReentrantReadWriteLock pkeyRWLock = new ReentrantReadWriteLock();
-    private final Lock pkeyRLock = pkeyRWLock.readLock();
-    private final Lock pkeyWLock = pkeyRWLock.writeLock();
+    final ReentrantLock indexUpdateLock = new ReentrantLock();
+
+    static final String METRIC_INDEX_UPDATE_CONTENTION = "datastore_index_update_contention";
+    static final String METRIC_INDEX_UPDATE_LOCK_WAIT  = "datastore_index_update_lock_wait";
 
     private static final String ZTS_PROP_DOMAIN_UPDATE_TIMEOUT = "athenz.zts.zms_domain_update_timeout";
     private static final String ZTS_PROP_DOMAIN_DELETE_TIMEOUT = "athenz.zts.zms_domain_delete_timeout";
@@ -111,6 +124,8 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
     private static final String ZTS_PROP_DOMAIN_JWS_SUPPORT    = "athenz.zts.zms_domain_jws_support";
     private static final String ZTS_PROP_DOMAIN_FETCH_TIMEOUT  = "athenz.zts.zms_domain_fetch_timeout";
     private static final String ZTS_PROP_DOMAIN_FETCH_COUNT    = "athenz.zts.zms_domain_fetch_count";
+    private static final String ZTS_PROP_PRINCIPAL_ROLES_CACHE_SIZE = "athenz.zts.principal_roles_cache_size";
+    private static final String ZTS_PROP_DOMAIN_DATA_COMPACT   = "athenz.zts.domain_data_compact";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DataStore.class);
 
@@ -137,8 +152,9 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         ztsJWKList = new JWKList();
         ztsJWKListStrictRFC = new JWKList();
 
-        hostCache = new HashMap<>();
-        publicKeyCache = new HashMap<>();
+        hostCache = new ConcurrentHashMap<>();
+        publicKeyCache = new ConcurrentHashMap<>();
+        parsedPublicKeyCache = new ConcurrentHashMap<>();
 
         // our configured values are going to be in seconds, so we need
         // to convert our input in seconds to milliseconds
@@ -170,6 +186,16 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         domainFetchRefreshTime = ConfigProperties.retrieveConfigSetting(ZTS_PROP_DOMAIN_FETCH_TIMEOUT, 2592000);
         domainFetchCount = ConfigProperties.retrieveConfigSetting(ZTS_PROP_DOMAIN_FETCH_COUNT, 10);
 
+        // configure the number of principals per domain for which we keep
+        // the precomputed set of accessible roles. 0 disables the cache
+
+        principalRolesCacheSize = ConfigProperties.retrieveConfigSetting(ZTS_PROP_PRINCIPAL_ROLES_CACHE_SIZE, 0);
+
+        // check if we're keeping the compact copy of the domain data
+        // in our cache instead of the full object returned by ZMS
+
+        compactDomainData = Boolean.parseBoolean(System.getProperty(ZTS_PROP_DOMAIN_DATA_COMPACT, "false"));
+
         /* load the zms public key from configuration files */
 
         if (!loadAthenzPublicKeys()) {
@@ -891,6 +917,8 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
             processDomainChecks();
         }
 
+        logDomainDataCompaction();
+
         /* Start our monitoring thread to get changes from ZMS */
 
         ScheduledExecutorService scheduledThreadPool = Executors.newScheduledThreadPool(1);
@@ -1120,6 +1148,11 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
         // process deleted members from the group
 
         processGroupDeletedMembers(group.getName(), delMembers);
+
+        // since the principal group membership has changed, we need
+        // to invalidate any precomputed principal role sets
+
+        groupMembershipVersion.incrementAndGet();
     }
 
     void processGroupDeletedMembers(final String groupName, List<GroupMember> deletedMembers) {
@@ -1148,6 +1181,7 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
         // delete all the members from our cache objects
 
         processGroupDeletedMembers(group.getName(), group.getGroupMembers());
+        groupMembershipVersion.incrementAndGet();
     }
 
     void processDomainPolicies(DomainData domainData, DataCache domainCache) {
@@ -1210,9 +1244,20 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
 
     public void processDomainData(DomainData domainData) {
 
+        // if configured, replace the domain data with its compact copy
+        // before any of our caches keep references to its members
+
+        if (compactDomainData) {
+            DomainDataCompactor compactor = new DomainDataCompactor();
+            domainData = compactor.compactDomainData(domainData);
+            compactedDomainCount.incrementAndGet();
+            compactedDomainSavings.addAndGet(compactor.getEstimatedSavings());
+        }
+
         // generate our cache object */
 
         DataCache domainCache = new DataCache();
+        domainCache.enablePrincipalRolesCache(principalRolesCacheSize);
 
         // process the roles for this domain */
 
@@ -1244,6 +1289,15 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
 
         domainCache.setDomainData(domainData);
 
+        if (compactDomainData) {
+            domainCache.compactMemberRoles();
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Domain: {} estimated heap usage: {} bytes", domainData.getName(),
+                    domainCache.getEstimatedSize());
+        }
+
         // add the entry to the cache and struct store
 
         addDomainToCache(domainData.getName(), domainCache);
@@ -1396,6 +1450,20 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
         return data.getDomainData();
     }
 
+    /**
+     * Return the approximate heap usage of the cached data for the given domain
+     * @param name name of the domain
+     * @return estimated size in bytes or -1 if the domain is not in the cache
+     */
+    public long getDomainHeapUsage(String name) {
+
+        DataCache data = getCacheStore().getIfPresent(name);
+        if (data == null) {
+            return -1;
+        }
+        return data.getEstimatedSize();
+    }
+
     // Internal
     void addHostEntries(Map<String, Set<String>> hostMap) {
 
@@ -1403,10 +1471,7 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
             return;
         }
 
-        for (Map.Entry<String, Set<String>> entry : hostMap.entrySet()) {
-            List<String> services = hostCache.computeIfAbsent(entry.getKey(), k -> new ArrayList<>());
-            services.addAll(entry.getValue());
-        }
+        updateHostEntries(null, hostMap);
     }
 
     // Internal
@@ -1416,14 +1481,47 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
             return;
         }
 
-        for (Map.Entry<String, Set<String>> entry : hostMap.entrySet()) {
-            List<String> services = hostCache.get(entry.getKey());
-            if (services != null) {
-                services.removeAll(entry.getValue());
-            }
+        updateHostEntries(hostMap, null);
+    }
+
+    // Internal
+    void updateHostEntries(Map<String, Set<String>> oldHostMap, Map<String, Set<String>> newHostMap) {
+
+        Set<String> hosts = new HashSet<>();
+        if (oldHostMap != null) {
+            hosts.addAll(oldHostMap.keySet());
+        }
+        if (newHostMap != null) {
+            hosts.addAll(newHostMap.keySet());
+        }
+
+        // the service lists in the cache are never modified. for each
+        // host we publish a new list with both the removed and added
+        // services so the readers see either the old or the new list
+
+        for (String host : hosts) {
+            final Set<String> oldServices = (oldHostMap != null) ? oldHostMap.get(host) : null;
+            final Set<String> newServices = (newHostMap != null) ? newHostMap.get(host) : null;
+            hostCache.compute(host, (key, services) -> updateHostServices(services, oldServices, newServices));
         }
     }
 
+    List<String> updateHostServices(List<String> services, Set<String> oldServices, Set<String> newServices) {
+
+        if (services == null && newServices == null) {
+            return null;
+        }
+
+        List<String> updatedServices = (services == null) ? new ArrayList<>() : new ArrayList<>(services);
+        if (oldServices != null) {
+            updatedServices.removeAll(oldServices);
+        }
+        if (newServices != null) {
+            updatedServices.addAll(newServices);
+        }
+        return Collections.unmodifiableList(updatedServices);
+    }
+
     // Internal
     void addPublicKeys(Map<String, String> publicKeyMap) {
 
@@ -1434,6 +1532,28 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
         publicKeyCache.putAll(publicKeyMap);
     }
 
+    // Internal
+    void addParsedPublicKeys(Map<String, PublicKey> publicKeyMap) {
+
+        if (publicKeyMap == null || publicKeyMap.isEmpty()) {
+            return;
+        }
+
+        parsedPublicKeyCache.putAll(publicKeyMap);
+    }
+
+    // Internal
+    void removeParsedPublicKeys(Map<String, PublicKey> publicKeyMap) {
+
+        if (publicKeyMap == null || publicKeyMap.isEmpty()) {
+            return;
+        }
+
+        for (String keyName : publicKeyMap.keySet()) {
+            parsedPublicKeyCache.remove(keyName);
+        }
+    }
+
     // Internal
     void removePublicKeys(Map<String, String> publicKeyMap) {
 
@@ -1447,73 +1567,99 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
     }
 
     // Internal
-    public void addDomainToCache(String name, DataCache dataCache) {
-
-        /* before update the cache store with our updated data
-         * we need to remove the old data host and public key sets */
+    <T> void updatePublicKeyIndex(Map<String, T> keyIndex, Map<String, T> oldKeyMap, Map<String, T> newKeyMap) {
 
-        DataCache oldDataCache = getCacheStore().getIfPresent(name);
+        // we first publish the new and updated keys and only then remove
+        // the keys that are no longer present in the domain. this way
+        // a key that is part of both versions is always available
 
-        try {
-            hostWLock.lock();
-            if (oldDataCache != null) {
-                removeHostEntries(oldDataCache.getHostMap());
-            }
-            addHostEntries(dataCache.getHostMap());
-        } finally {
-            hostWLock.unlock();
+        if (newKeyMap != null) {
+            keyIndex.putAll(newKeyMap);
         }
 
-        try {
-            pkeyWLock.lock();
-            if (oldDataCache != null) {
-                removePublicKeys(oldDataCache.getPublicKeyMap());
+        if (oldKeyMap != null) {
+            for (String keyName : oldKeyMap.keySet()) {
+                if (newKeyMap == null || !newKeyMap.containsKey(keyName)) {
+                    keyIndex.remove(keyName);
+                }
             }
-            addPublicKeys(dataCache.getPublicKeyMap());
-        } finally {
-            pkeyWLock.unlock();
         }
+    }
 
-        /* now let's see if we have a cloud account defined
-         * and update accordingly */
+    void lockIndexUpdates() {
 
-        if (getCloudStore() != null) {
-            getCloudStore().updateAwsAccount(name, dataCache.getDomainData().getAccount());
-            getCloudStore().updateAzureSubscription(name, dataCache.getDomainData().getAzureSubscription(), dataCache.getDomainData().getAzureTenant(), dataCache.getDomainData().getAzureClient());
-            getCloudStore().updateGCPProject(name, dataCache.getDomainData().getGcpProject(), dataCache.getDomainData().getGcpProjectNumber());
+        if (indexUpdateLock.tryLock()) {
+            return;
         }
 
-        /* update the cache for the given domain */
+        // another domain update is in progress so we record the
+        // contention and how long we had to wait for the lock
 
-        getCacheStore().put(name, dataCache);
+        metric.increment(METRIC_INDEX_UPDATE_CONTENTION);
+        final Object timerMetric = metric.startTiming(METRIC_INDEX_UPDATE_LOCK_WAIT, null);
+        indexUpdateLock.lock();
+        metric.stopTiming(timerMetric);
     }
 
     // Internal
-    void deleteDomainFromCache(String name) {
+    public void addDomainToCache(String name, DataCache dataCache) {
 
-        /* before we delete the domain from our cache, we need to
-         * remove the old data host and public key sets */
+        lockIndexUpdates();
+        try {
 
-        DataCache data = getCacheStore().getIfPresent(name);
-        if (data == null) {
-            return;
-        }
+            /* before update the cache store with our updated data
+             * we need to replace the old data host and public key sets */
+
+            DataCache oldDataCache = getCacheStore().getIfPresent(name);
+
+            updateHostEntries(oldDataCache != null ? oldDataCache.getHostMap() : null,
+                    dataCache.getHostMap());
+            updatePublicKeyIndex(publicKeyCache, oldDataCache != null ? oldDataCache.getPublicKeyMap() : null,
+                    dataCache.getPublicKeyMap());
+            updatePublicKeyIndex(parsedPublicKeyCache, oldDataCache != null ? oldDataCache.getParsedPublicKeyMap() : null,
+                    dataCache.getParsedPublicKeyMap());
+
+            /* now let's see if we have a cloud account defined
+             * and update accordingly */
+
+            if (getCloudStore() != null) {
+                getCloudStore().updateAwsAccount(name, dataCache.getDomainData().getAccount());
+                getCloudStore().updateAzureSubscription(name, dataCache.getDomainData().getAzureSubscription(), dataCache.getDomainData().getAzureTenant(), dataCache.getDomainData().getAzureClient());
+                getCloudStore().updateGCPProject(name, dataCache.getDomainData().getGcpProject(), dataCache.getDomainData().getGcpProjectNumber());
+            }
+
+            /* update the cache for the given domain */
+
+            getCacheStore().put(name, dataCache);
 
-        try {
-            hostWLock.lock();
-            removeHostEntries(data.getHostMap());
         } finally {
-            hostWLock.unlock();
+            indexUpdateLock.unlock();
         }
+    }
 
+    // Internal
+    void deleteDomainFromCache(String name) {
+
+        lockIndexUpdates();
         try {
-            pkeyWLock.lock();
+
+            /* before we delete the domain from our cache, we need to
+             * remove the old data host and public key sets */
+
+            DataCache data = getCacheStore().getIfPresent(name);
+            if (data == null) {
+                return;
+            }
+
+            removeHostEntries(data.getHostMap());
             removePublicKeys(data.getPublicKeyMap());
+            removeParsedPublicKeys(data.getParsedPublicKeyMap());
+
+            getCacheStore().invalidate(name);
+
         } finally {
-            pkeyWLock.unlock();
+            indexUpdateLock.unlock();
         }
-
-        getCacheStore().invalidate(name);
     }
 
     // Internal
@@ -1688,6 +1834,19 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
 
         final String rolePrefix = domainName + ROLE_POSTFIX;
 
+        /* if enabled, use the precomputed role set for the identity */
+
+        if (data.isPrincipalRolesCacheEnabled()) {
+            PrincipalRoles principalRoles = getPrincipalRoles(data, identity, rolePrefix);
+            for (String role : principalRoles.getStandardRoles()) {
+                addRoleToList(role, rolePrefix, requestedRoleList, fullNameMatch, accessibleRoles, keepFullName);
+            }
+            for (String role : principalRoles.getDelegatedRoles()) {
+                addRoleToList(role, rolePrefix, requestedRoleList, false, accessibleRoles, keepFullName);
+            }
+            return;
+        }
+
         /* first look through the members to see if the given identity is
          * included in the list explicitly */
 
@@ -1722,6 +1881,127 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
                 accessibleRoles, keepFullName);
     }
 
+    PrincipalRoles getPrincipalRoles(DataCache data, final String identity, final String rolePrefix) {
+
+        PrincipalRoles principalRoles = data.getPrincipalRoles(identity);
+        if (principalRoles != null && isPrincipalRolesValid(data, principalRoles)) {
+            return principalRoles;
+        }
+
+        // we need to capture our group version and trusted domain
+        // caches before computing the roles so that any concurrent
+        // change invalidates our entry on the next lookup
+
+        final long groupVersion = groupMembershipVersion.get();
+        Map<String, DataCache> trustedDomains = new HashMap<>();
+        for (String trustDomain : data.getTrustMap().keySet()) {
+            trustedDomains.put(trustDomain, getCacheStore().getIfPresent(trustDomain));
+        }
+
+        // standard roles are filtered based on the requested full name
+        // match option while group and trust roles are always matched
+        // based on the role suffix so we keep them in separate sets
+
+        Set<String> standardRoles = new HashSet<>();
+        processStandardMembership(data.getMemberRoleSet(identity), rolePrefix, null,
+                false, standardRoles, true);
+        processStandardMembership(data.getAllMemberRoleSet(), rolePrefix, null,
+                false, standardRoles, true);
+        Map<String, Set<MemberRole>> roleSetMap = data.getPrefixMemberRoleSetMap();
+        for (String identityPrefix : roleSetMap.keySet()) {
+            if (identity.startsWith(identityPrefix)) {
+                processStandardMembership(roleSetMap.get(identityPrefix), rolePrefix, null,
+                        false, standardRoles, true);
+            }
+        }
+
+        Set<String> delegatedRoles = new HashSet<>();
+        processGroupMembership(data, identity, rolePrefix, null, null, delegatedRoles, true);
+        for (Map.Entry<String, DataCache> trustedDomain : trustedDomains.entrySet()) {
+            processTrustedDomain(trustedDomain.getValue(), identity, rolePrefix, null,
+                    data.getTrustMap().get(trustedDomain.getKey()), delegatedRoles, true);
+        }
+
+        // our entry is valid until any of the memberships expires
+
+        long expiration = getNextMemberExpiration(data, identity, System.currentTimeMillis());
+        for (DataCache trustData : trustedDomains.values()) {
+            if (trustData != null) {
+                expiration = Math.min(expiration, getNextMemberExpiration(trustData, identity,
+                        System.currentTimeMillis()));
+            }
+        }
+
+        principalRoles = new PrincipalRoles(standardRoles, delegatedRoles, groupVersion,
+                trustedDomains, expiration);
+        data.setPrincipalRoles(identity, principalRoles);
+        return principalRoles;
+    }
+
+    boolean isPrincipalRolesValid(DataCache data, PrincipalRoles principalRoles) {
+
+        if (principalRoles.getGroupVersion() != groupMembershipVersion.get()) {
+            return false;
+        }
+        if (principalRoles.getExpiration() <= System.currentTimeMillis()) {
+            return false;
+        }
+
+        // make sure none of our trusted domains have been updated
+
+        Map<String, DataCache> trustedDomains = principalRoles.getTrustedDomains();
+        if (trustedDomains.size() != data.getTrustMap().size()) {
+            return false;
+        }
+        for (Map.Entry<String, DataCache> trustedDomain : trustedDomains.entrySet()) {
+            if (getCacheStore().getIfPresent(trustedDomain.getKey()) != trustedDomain.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long getNextMemberExpiration(DataCache data, final String identity, long currentTime) {
+
+        long expiration = getNextMemberExpiration(data.getMemberRoleSet(identity), currentTime, Long.MAX_VALUE);
+        expiration = getNextMemberExpiration(data.getAllMemberRoleSet(), currentTime, expiration);
+        Map<String, Set<MemberRole>> roleSetMap = data.getPrefixMemberRoleSetMap();
+        for (String identityPrefix : roleSetMap.keySet()) {
+            if (identity.startsWith(identityPrefix)) {
+                expiration = getNextMemberExpiration(roleSetMap.get(identityPrefix), currentTime, expiration);
+            }
+        }
+
+        List<GroupMember> groupMembers = principalGroupCache.getIfPresent(identity);
+        if (groupMembers != null) {
+            for (GroupMember member : groupMembers) {
+                if (member.getExpiration() != null) {
+                    long groupExpiration = member.getExpiration().millis();
+                    if (groupExpiration > currentTime && groupExpiration < expiration) {
+                        expiration = groupExpiration;
+                    }
+                }
+                expiration = getNextMemberExpiration(data.getMemberRoleSet(member.getGroupName()),
+                        currentTime, expiration);
+            }
+        }
+        return expiration;
+    }
+
+    long getNextMemberExpiration(Set<MemberRole> memberRoles, long currentTime, long expiration) {
+
+        if (memberRoles == null) {
+            return expiration;
+        }
+        for (MemberRole memberRole : memberRoles) {
+            final long roleExpiration = memberRole.getExpiration();
+            if (roleExpiration > currentTime && roleExpiration < expiration) {
+                expiration = roleExpiration;
+            }
+        }
+        return expiration;
+    }
+
     // Internal
     boolean checkRoleSet(String role, Set<String> checkSet) {
 
@@ -1779,7 +2059,6 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
     // Internal
     boolean roleMatchInSet(String role, Set<MemberRole> memberRoles) {
 
-        String rolePattern;
         long currentTime = System.currentTimeMillis();
         for (MemberRole memberRole : memberRoles) {
 
@@ -1796,8 +2075,7 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
 
             final String roleName = memberRole.getRole();
             if (StringUtils.containsMatchCharacter(roleName)) {
-                rolePattern = StringUtils.patternFromGlob(roleName);
-                if (role.matches(rolePattern)) {
+                if (GlobMatcher.matches(roleName, role)) {
                     return true;
                 }
             } else {
@@ -1896,17 +2174,23 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
     public String getPublicKey(String domain, String service, String keyId) {
 
         String publicKeyName = generateServiceKeyName(domain, service, keyId);
-        String publicKey;
+        String publicKey = publicKeyCache.get(publicKeyName);
 
-        try {
-            pkeyRLock.lock();
-            publicKey = publicKeyCache.get(publicKeyName);
-        } finally {
-            pkeyRLock.unlock();
+        if (publicKey == null && LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Public key: {} not available", publicKeyName);
         }
 
+        return publicKey;
+    }
+
+    // API
+    public PublicKey getParsedPublicKey(String domain, String service, String keyId) {
+
+        String publicKeyName = generateServiceKeyName(domain, service, keyId);
+        PublicKey publicKey = parsedPublicKeyCache.get(publicKeyName);
+
         if (publicKey == null && LOGGER.isDebugEnabled()) {
-            LOGGER.debug("Public key: {} not available", publicKeyName);
+            LOGGER.debug("Parsed public key: {} not available", publicKeyName);
         }
 
         return publicKey;
@@ -1917,19 +2201,13 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
 
         HostServices result = new HostServices().setHost(host);
 
-        try {
-            hostRLock.lock();
+        /* the service lists in our host cache are replaced and never
+         * modified by the updater thread, so we can return a copy of
+         * the current list without any locking */
 
-            /* we need to make a copy of our list as opposed to just returning
-             * a reference since once we release the host read lock that list
-             * can be modified by the updater thread */
-
-            List<String> services = hostCache.get(host);
-            if (services != null) {
-                result.setNames(new ArrayList<>(services));
-            }
-        } finally {
-            hostRLock.unlock();
+        List<String> services = hostCache.get(host);
+        if (services != null) {
+            result.setNames(new ArrayList<>(services));
         }
 
         return result;
@@ -1989,6 +2267,20 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
     }
 
 
+    /**
+     * Log the number of domains compacted since the last call along with
+     * the estimated heap savings so we have a single report per refresh
+     */
+    void logDomainDataCompaction() {
+
+        final long domainCount = compactedDomainCount.getAndSet(0);
+        final long savings = compactedDomainSavings.getAndSet(0);
+        if (domainCount == 0) {
+            return;
+        }
+        LOGGER.info("Compacted {} domains, estimated heap savings: {} bytes", domainCount, savings);
+    }
+
     class DataUpdater implements Runnable {
 
         @Override
@@ -2038,6 +2330,8 @@ boolean loadZtsJwk(ArrayList<com.yahoo.athenz.zms.PublicKeyEntry> keys) {
             } catch (Throwable t) {
                 LOGGER.error("DataUpdater: unable to process domain checks", t);
             }
+
+            logDomainDataCompaction();
         }
     }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing of concurrent identical requests. The first
+ * caller for a given key executes the supplier while any other callers
+ * that arrive with the same key before the computation completes wait
+ * for and share its result (or exception). Results are not cached -
+ * once the computation completes, the next caller for the same key
+ * starts a new computation.
+ */
+public class RequestCoalescer<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inflightRequests = new ConcurrentHashMap<>();
+
+    /**
+     * Execute the given supplier unless there is already an in-flight
+     * computation for the same key in which case wait for its result.
+     * @param key request key identifying identical requests
+     * @param supplier computation to be executed
+     * @return the result of the computation
+     */
+    public V execute(final K key, Supplier<V> supplier) {
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inflightFuture = inflightRequests.putIfAbsent(key, future);
+        if (inflightFuture != null) {
+            return waitForResult(inflightFuture);
+        }
+
+        try {
+            V result = supplier.get();
+            future.complete(result);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inflightRequests.remove(key, future);
+        }
+    }
+
+    V waitForResult(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
+    public int getInflightCount() {
+        return inflightRequests.size();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.utils;
+
+import com.yahoo.athenz.common.metrics.Metric;
+import com.yahoo.athenz.zts.ResourceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Fixed size pool of threads, sized by default to the number of cores,
+ * dedicated to the CPU bound token signing operations. Request threads
+ * submit the signing task and wait for its result so the number of
+ * concurrent signing operations is bounded by the pool size regardless
+ * of how many request threads are blocked on I/O. If the pool queue is
+ * full, the signing task is executed by the calling thread.
+ */
+public class TokenSignerPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenSignerPool.class);
+
+    static final String METRIC_SIGNER_WAIT_TIMING = "tokensigner_wait_timing";
+    static final String METRIC_SIGNER_REQUEST     = "tokensigner_request";
+    static final String METRIC_SIGNER_QUEUE_DEPTH = "tokensigner_queue_depth";
+
+    private final ThreadPoolExecutor executor;
+    private final Metric metric;
+
+    public TokenSignerPool(int poolSize, int queueSize, Metric metric) {
+
+        this.metric = metric;
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "zts-token-signer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        LOGGER.info("Token signer pool initialized with {} threads and queue size {}", poolSize, queueSize);
+    }
+
+    /**
+     * Execute the given signing operation in the signer pool and wait
+     * for its result. Any runtime exception thrown by the operation
+     * is rethrown to the caller as is.
+     * @param signer signing operation
+     * @return the result of the signing operation
+     */
+    public <T> T sign(Supplier<T> signer) {
+
+        metric.increment(METRIC_SIGNER_REQUEST);
+        metric.gauge(METRIC_SIGNER_QUEUE_DEPTH, getQueueDepth());
+
+        final Object timerMetric = metric.startTiming(METRIC_SIGNER_WAIT_TIMING, null);
+        Future<T> future = executor.submit(() -> {
+            metric.stopTiming(timerMetric);
+            return signer.get();
+        });
+
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ResourceException(ResourceException.INTERNAL_SERVER_ERROR, cause.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new ResourceException(ResourceException.INTERNAL_SERVER_ERROR,
+                    "Token signing interrupted");
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
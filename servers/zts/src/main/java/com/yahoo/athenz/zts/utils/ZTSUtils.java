@@ -291,11 +291,18 @@ public class ZTSUtils {
     public static Identity generateIdentity(InstanceCertManager certManager, final String provider,
             final String certIssuer, final String csr, final String cn, final String certUsage,
             int expiryTime, final String signerKeyId) {
-        
+        return generateIdentity(certManager, provider, certIssuer, csr, null, cn, certUsage,
+                expiryTime, signerKeyId);
+    }
+
+    public static Identity generateIdentity(InstanceCertManager certManager, final String provider,
+            final String certIssuer, final String csr, PKCS10CertificationRequest certReq, final String cn,
+            final String certUsage, int expiryTime, final String signerKeyId) {
+
         // generate a certificate for this certificate request
 
-        String pemCert = certManager.generateX509Certificate(provider, certIssuer, csr, certUsage, expiryTime,
-                Priority.Unspecified_priority, signerKeyId);
+        String pemCert = certManager.generateX509Certificate(provider, certIssuer, csr, certReq, certUsage,
+                expiryTime, Priority.Unspecified_priority, signerKeyId);
         if (StringUtil.isEmpty(pemCert)) {
             return null;
         }
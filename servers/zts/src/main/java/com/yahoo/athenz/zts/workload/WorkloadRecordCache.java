@@ -0,0 +1,275 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.workload;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.yahoo.athenz.common.server.ServerResourceException;
+import com.yahoo.athenz.common.server.workload.WorkloadRecord;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Time based cache of the workload records by service and by ip address.
+ * The entries are loaded from the workload record store on the first
+ * lookup and are updated with the records that are inserted or updated
+ * by this server. Other servers update the same store and the expired
+ * records are removed from the store without going through this server,
+ * so the cache is not authoritative: each entry is reloaded from the
+ * store once it's older than the configured refresh time regardless of
+ * any local updates. The records returned for a service or ip address
+ * are therefore at most refresh time behind the store. The records
+ * written by this server while an entry is being loaded are applied to
+ * the loaded records as well, so the local changes are visible as soon
+ * as they have been written to the store.
+ */
+public class WorkloadRecordCache {
+
+    /**
+     * Loader for the workload records from the store
+     */
+    @FunctionalInterface
+    public interface RecordLoader {
+        List<WorkloadRecord> load() throws ServerResourceException;
+    }
+
+    static class CacheEntry {
+
+        final List<WorkloadRecord> records;
+        final long loadTime;
+
+        CacheEntry(List<WorkloadRecord> records, long loadTime) {
+            this.records = Collections.unmodifiableList(records);
+            this.loadTime = loadTime;
+        }
+    }
+
+    static class LocalWrite {
+
+        final WorkloadRecord record;
+        final boolean insert;
+
+        LocalWrite(WorkloadRecord record, boolean insert) {
+            this.record = record;
+            this.insert = insert;
+        }
+    }
+
+    /**
+     * Tracks the loads in progress for a key along with the local writes
+     * for the same key that must be applied to the loaded records. The
+     * object is only accessed within the compute functions of the pending
+     * load map so the map's key lock guards its fields.
+     */
+    static class PendingLoad {
+
+        int loaders = 0;
+        final List<LocalWrite> writes = new ArrayList<>();
+    }
+
+    static class RecordCache {
+
+        final Cache<String, CacheEntry> entries;
+        final ConcurrentHashMap<String, PendingLoad> pendingLoads = new ConcurrentHashMap<>();
+
+        RecordCache(long maxSize) {
+            entries = CacheBuilder.newBuilder().concurrencyLevel(25).maximumSize(maxSize).build();
+        }
+    }
+
+    private final RecordCache serviceCache;
+    private final RecordCache ipCache;
+    private final long refreshTime;
+
+    /**
+     * Create a new workload record cache
+     * @param refreshTime time in milliseconds after which the entries
+     *      are reloaded from the workload record store. This is the
+     *      maximum staleness of the returned records
+     * @param maxSize max number of services and ip addresses to keep
+     *      in each of the caches
+     */
+    public WorkloadRecordCache(long refreshTime, long maxSize) {
+        this.refreshTime = refreshTime;
+        serviceCache = new RecordCache(maxSize);
+        ipCache = new RecordCache(maxSize);
+    }
+
+    /**
+     * Return the workload records for the given service
+     * @param service name of the service in domain.service format
+     * @param loader loader for the records if the entry is not available
+     * @return list of workload records
+     * @throws ServerResourceException if unable to load the records
+     */
+    public List<WorkloadRecord> getServiceRecords(final String service, RecordLoader loader)
+            throws ServerResourceException {
+        return getRecords(serviceCache, service, loader);
+    }
+
+    /**
+     * Return the workload records for the given ip address
+     * @param ip ip address of the workload
+     * @param loader loader for the records if the entry is not available
+     * @return list of workload records
+     * @throws ServerResourceException if unable to load the records
+     */
+    public List<WorkloadRecord> getIpRecords(final String ip, RecordLoader loader)
+            throws ServerResourceException {
+        return getRecords(ipCache, ip, loader);
+    }
+
+    List<WorkloadRecord> getRecords(RecordCache cache, final String key, RecordLoader loader)
+            throws ServerResourceException {
+
+        CacheEntry entry = cache.entries.getIfPresent(key);
+        if (entry != null && entry.loadTime + refreshTime > System.currentTimeMillis()) {
+            return entry.records;
+        }
+
+        // the entry is either not available or needs to be reconciled
+        // with the store. we register our load before reading from the
+        // store so any local write for the same key that completes while
+        // we're reading is recorded and applied to the loaded records.
+        // concurrent requests might load the same entry but the store
+        // returns the same data so the last one wins
+
+        cache.pendingLoads.compute(key, (k, load) -> {
+            PendingLoad pendingLoad = load == null ? new PendingLoad() : load;
+            pendingLoad.loaders += 1;
+            return pendingLoad;
+        });
+
+        final long loadTime = System.currentTimeMillis();
+        final List<WorkloadRecord> records;
+        try {
+            records = loader.load();
+        } catch (ServerResourceException | RuntimeException ex) {
+            cache.pendingLoads.computeIfPresent(key, (k, load) -> --load.loaders == 0 ? null : load);
+            throw ex;
+        }
+
+        final CacheEntry[] loadedEntry = new CacheEntry[1];
+        cache.pendingLoads.compute(key, (k, load) -> {
+            List<WorkloadRecord> loadedRecords = records == null ? new ArrayList<>() : new ArrayList<>(records);
+            if (load != null) {
+                for (LocalWrite write : load.writes) {
+                    loadedRecords = applyWrite(loadedRecords, write.record, write.insert);
+                }
+            }
+            loadedEntry[0] = new CacheEntry(loadedRecords, loadTime);
+            cache.entries.put(key, loadedEntry[0]);
+            return load == null || --load.loaders == 0 ? null : load;
+        });
+        return loadedEntry[0].records;
+    }
+
+    /**
+     * Add the inserted workload record to the loaded cache entries
+     * @param record inserted workload record
+     */
+    public void insertRecord(WorkloadRecord record) {
+        updateEntry(serviceCache, record.getService(), record, true);
+        updateEntry(ipCache, record.getIp(), record, true);
+    }
+
+    /**
+     * Apply the updated workload record to the loaded cache entries.
+     * Just like the store, the provider, certificate expiry and update
+     * time of the existing record are updated
+     * @param record updated workload record
+     */
+    public void updateRecord(WorkloadRecord record) {
+        updateEntry(serviceCache, record.getService(), record, false);
+        updateEntry(ipCache, record.getIp(), record, false);
+    }
+
+    void updateEntry(RecordCache cache, final String key, WorkloadRecord record, boolean insert) {
+
+        // we only update the entries that are already loaded or being
+        // loaded. the write is recorded for the pending loads first so
+        // it's either applied by the load or to the entry it publishes.
+        // applying the same write twice gives the same result. the
+        // entries are immutable so the readers either see the old or
+        // the new list of records
+
+        if (key == null) {
+            return;
+        }
+
+        cache.pendingLoads.computeIfPresent(key, (k, load) -> {
+            load.writes.add(new LocalWrite(record, insert));
+            return load;
+        });
+        cache.entries.asMap().computeIfPresent(key,
+                (k, entry) -> new CacheEntry(applyWrite(entry.records, record, insert), entry.loadTime));
+    }
+
+    static List<WorkloadRecord> applyWrite(List<WorkloadRecord> currentRecords, WorkloadRecord record,
+            boolean insert) {
+
+        List<WorkloadRecord> records = new ArrayList<>(currentRecords.size() + 1);
+        boolean found = false;
+        for (WorkloadRecord existing : currentRecords) {
+            if (isSameWorkload(existing, record)) {
+                records.add(insert ? record : updatedRecord(existing, record));
+                found = true;
+            } else {
+                records.add(existing);
+            }
+        }
+        if (!found) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    static boolean isSameWorkload(WorkloadRecord record1, WorkloadRecord record2) {
+        return Objects.equals(record1.getInstanceId(), record2.getInstanceId())
+                && Objects.equals(record1.getService(), record2.getService())
+                && Objects.equals(record1.getIp(), record2.getIp());
+    }
+
+    static WorkloadRecord updatedRecord(WorkloadRecord existing, WorkloadRecord update) {
+
+        WorkloadRecord record = new WorkloadRecord();
+        record.setService(existing.getService());
+        record.setInstanceId(existing.getInstanceId());
+        record.setIp(existing.getIp());
+        record.setHostname(existing.getHostname());
+        record.setCreationTime(existing.getCreationTime());
+        record.setProvider(update.getProvider());
+        record.setCertExpiryTime(update.getCertExpiryTime());
+        record.setUpdateTime(update.getUpdateTime());
+        return record;
+    }
+
+    long getServiceCacheSize() {
+        return serviceCache.entries.size();
+    }
+
+    long getIpCacheSize() {
+        return ipCache.entries.size();
+    }
+
+    int getPendingLoadCount() {
+        return serviceCache.pendingLoads.size() + ipCache.pendingLoads.size();
+    }
+}
@@ -1037,6 +1037,21 @@ public class ZTSImplTest {
         assertNull(pubKey);
     }
 
+    @Test
+    public void testGetParsedPublicKey() {
+
+        SignedDomain signedDomain = createSignedDomain("coretech", "weather", "storage", true);
+        store.processSignedDomain(signedDomain, false);
+
+        PublicKey pubKey = zts.getParsedPublicKey("CoreTech", "Storage", "0");
+        assertEquals(pubKey, Crypto.loadPublicKey(ZTS_PEM_CERT0));
+
+        assertNull(zts.getParsedPublicKey("coretech", "storage", "100"));
+        assertNull(zts.getParsedPublicKey(null, "storage", "0"));
+        assertNull(zts.getParsedPublicKey("coretech", null, "0"));
+        assertNull(zts.getParsedPublicKey("coretech", "storage", null));
+    }
+
     @Test
     public void testEvaluateAccessNoAssertions() {
 
@@ -1113,7 +1128,7 @@ public class ZTSImplTest {
         // Verify that it was denied by explicit "Deny" assertion and not because no match was found
         Mockito.verify(spiedZtsAuthorizer, times(1)).matchPrincipal(
                 eq(domainData.getRoles()),
-                eq("^coretech:role\\.role1$"),
+                eq("coretech:role.role1"),
                 eq("user_domain.user1"),
                 eq(null));
     }
@@ -1653,6 +1668,51 @@ public class ZTSImplTest {
         zts.includeRoleCompleteFlag = true;
     }
 
+    @Test
+    public void testGetRoleTokenRequestCoalescing() {
+
+        System.setProperty(ZTSConsts.ZTS_PROP_TOKEN_REQUEST_COALESCING, "true");
+        ZTSImpl ztsImpl = new ZTSImpl(cloudStore, store);
+        System.clearProperty(ZTSConsts.ZTS_PROP_TOKEN_REQUEST_COALESCING);
+
+        assertNotNull(ztsImpl.accessibleRolesCoalescer);
+        assertNotNull(ztsImpl.roleTokenCoalescer);
+
+        SignedDomain signedDomain = createSignedDomain("coretech", "weather", "storage", true);
+        store.processSignedDomain(signedDomain, false);
+
+        Principal principal = SimplePrincipal.create("user_domain", "user1",
+                "v=U1;d=user_domain;n=user1;s=signature", 0, null);
+        ResourceContext context = createResourceContext(principal);
+
+        RoleToken roleToken = ztsImpl.getRoleToken(context, "coretech", null, null, 1200, null);
+        com.yahoo.athenz.auth.token.RoleToken token = new com.yahoo.athenz.auth.token.RoleToken(roleToken.getToken());
+        assertEquals(token.getRoles().size(), 2);
+        assertTrue(token.getRoles().contains("readers"));
+        assertTrue(token.getRoles().contains("writers"));
+        assertTrue(roleToken.getToken().contains(";p=user_domain.user1;"));
+
+        roleToken = ztsImpl.getRoleToken(context, "coretech", "readers", null, 1200, null);
+        token = new com.yahoo.athenz.auth.token.RoleToken(roleToken.getToken());
+        assertEquals(token.getRoles().size(), 1);
+        assertTrue(token.getRoles().contains("readers"));
+
+        // failures are returned to the caller as before
+
+        Principal principal2 = SimplePrincipal.create("user_domain", "user2",
+                "v=U1;d=user_domain;n=user2;s=signature", 0, null);
+        ResourceContext context2 = createResourceContext(principal2);
+        try {
+            ztsImpl.getRoleToken(context2, "coretech", null, null, 1200, null);
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.FORBIDDEN);
+        }
+
+        assertEquals(ztsImpl.accessibleRolesCoalescer.getInflightCount(), 0);
+        assertEquals(ztsImpl.roleTokenCoalescer.getInflightCount(), 0);
+    }
+
     @Test
     public void testGetRoleTokenWithRoleAuthority() {
 
@@ -2262,7 +2322,7 @@ public class ZTSImplTest {
         // process sys.auth domain without zms service
         SignedDomain providerDomain = signedAuthorizedProviderDomain();
         store.processSignedDomain(providerDomain, false);
-        providerDomain.getDomain().setServices(createServices("sys.auth", "zts"));
+        store.getDomainData("sys.auth").setServices(createServices("sys.auth", "zts"));
         try {
             zts.getAthenzJWKConfig(context);
             fail();
@@ -2273,7 +2333,7 @@ public class ZTSImplTest {
         // add zms service without public key
         ServiceIdentity sysAuthZms = createServices("sys.auth", "zms").get(0);
         sysAuthZms.setPublicKeys(null);
-        providerDomain.getDomain().getServices().add(sysAuthZms);
+        store.getDomainData("sys.auth").getServices().add(sysAuthZms);
 
         AthenzJWKConfig conf = zts.getAthenzJWKConfig(context);
         assertNull(conf.zms);
@@ -2293,7 +2353,7 @@ public class ZTSImplTest {
 
         SignedDomain providerDomain = signedAuthorizedProviderDomain();
         store.processSignedDomain(providerDomain, false);
-        providerDomain.getDomain().setServices(
+        store.getDomainData("sys.auth").setServices(
                 Stream.of(createServices("sys.auth", "zts"),
                                 createServices("sys.auth", "zms"))
                         .flatMap(List::stream).collect(Collectors.toList())
@@ -2370,7 +2430,7 @@ public class ZTSImplTest {
     public void testFillAthenzJWKConfig() {
         SignedDomain providerDomain = signedAuthorizedProviderDomain();
         store.processSignedDomain(providerDomain, false);
-        providerDomain.getDomain().setServices(
+        store.getDomainData("sys.auth").setServices(
                 Stream.of(createServices("sys.auth", "zts"),
                                 createServices("sys.auth", "zms"))
                         .flatMap(List::stream).collect(Collectors.toList())
@@ -2410,7 +2470,7 @@ public class ZTSImplTest {
 
         SignedDomain providerDomain = signedAuthorizedProviderDomain();
         store.processSignedDomain(providerDomain, false);
-        providerDomain.getDomain().setServices(
+        store.getDomainData("sys.auth").setServices(
                 Stream.of(createServices("sys.auth", "zts"),
                                 createServices("sys.auth", "zms"))
                         .flatMap(List::stream).collect(Collectors.toList())
@@ -5045,7 +5105,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -5137,7 +5198,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -5199,7 +5261,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
         Mockito.doReturn(true).when(instanceManager).insertWorkloadRecord(any(WorkloadRecord.class));
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
@@ -5272,7 +5335,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -5335,7 +5399,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -5403,7 +5468,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -5468,7 +5534,8 @@ public class ZTSImplTest {
                 .setX509Certificate(pem)
                 .setSshCertificate("test ssh host certificate");
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -5535,7 +5602,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -5602,7 +5670,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -5663,7 +5732,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -5758,7 +5828,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -6091,7 +6162,8 @@ public class ZTSImplTest {
         Mockito.when(instanceManager.insertX509CertRecord(Mockito.any())).thenReturn(true);
 
         Mockito.doReturn(null).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -6146,7 +6218,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -6201,7 +6274,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -6263,7 +6337,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -6348,7 +6423,8 @@ public class ZTSImplTest {
                 .setX509Certificate(pem)
                 .setSshCertificate("test ssh host certificate");
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -6442,7 +6518,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -6611,7 +6688,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -6677,7 +6755,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -6759,7 +6838,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -6861,7 +6941,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -6952,7 +7033,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -7024,7 +7106,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -7089,7 +7172,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -7233,7 +7317,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -7301,7 +7386,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -7364,7 +7450,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -7434,7 +7521,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -7504,7 +7592,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -7574,7 +7663,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -7638,7 +7728,8 @@ public class ZTSImplTest {
         path = Paths.get("src/test/resources/athenz.instanceid.pem");
         String pem = new String(Files.readAllBytes(path));
         Mockito.doReturn(null).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -7708,7 +7799,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -7910,7 +8002,8 @@ public class ZTSImplTest {
         InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
                 .setX509Certificate(pem);
         Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(),
+                Mockito.any());
 
         ztsImpl.instanceProviderManager = instanceProviderManager;
         ztsImpl.instanceCertManager = instanceManager;
@@ -8864,7 +8957,7 @@ public class ZTSImplTest {
 
         InstanceCertManager certManager = Mockito.mock(InstanceCertManager.class);
         Mockito.when(certManager.generateX509Certificate(Mockito.anyString(), Mockito.anyString(),
-                Mockito.anyString(), Mockito.anyString(), Mockito.anyInt(), Mockito.any(),
+                Mockito.anyString(), Mockito.any(), Mockito.anyString(), Mockito.anyInt(), Mockito.any(),
                 Mockito.any())).thenReturn(null);
         ztsImpl.instanceCertManager = certManager;
 
@@ -9832,6 +9925,75 @@ public class ZTSImplTest {
         System.clearProperty(ZTSConsts.ZTS_PROP_HOSTNAME_RESOLVER_FACTORY_CLASS);
     }
 
+    @Test
+    public void testPostAccessTokenRequestCoalescing() throws ParseException {
+
+        System.setProperty(FilePrivateKeyStore.ATHENZ_PROP_PRIVATE_KEY, "src/test/resources/unit_test_zts_at_private.pem");
+        System.setProperty(ZTSConsts.ZTS_PROP_TOKEN_REQUEST_COALESCING, "true");
+
+        ZTSImpl ztsImpl = new ZTSImpl(cloudStore, store);
+        System.setProperty(FilePrivateKeyStore.ATHENZ_PROP_PRIVATE_KEY, "src/test/resources/unit_test_zts_private.pem");
+        System.clearProperty(ZTSConsts.ZTS_PROP_TOKEN_REQUEST_COALESCING);
+
+        SignedDomain signedDomain = createSignedDomain("coretech", "weather", "storage", true);
+        store.processSignedDomain(signedDomain, false);
+
+        Principal principal = SimplePrincipal.create("user_domain", "user1",
+                "v=U1;d=user_domain;n=user1;s=signature", 0, null);
+        ResourceContext context = createResourceContext(principal);
+
+        // access tokens always have a unique jwt id so only the
+        // role lookup is shared and each request gets its own token
+
+        AccessTokenResponse resp1 = ztsImpl.postAccessTokenRequest(context,
+                "grant_type=client_credentials&scope=coretech:domain");
+        AccessTokenResponse resp2 = ztsImpl.postAccessTokenRequest(context,
+                "grant_type=client_credentials&scope=coretech:domain");
+        assertEquals(resp1.getScope(), "coretech:role.readers coretech:role.writers");
+        assertEquals(resp2.getScope(), "coretech:role.readers coretech:role.writers");
+        assertNotEquals(SignedJWT.parse(resp1.getAccess_token()).getJWTClaimsSet().getJWTID(),
+                SignedJWT.parse(resp2.getAccess_token()).getJWTClaimsSet().getJWTID());
+        assertEquals(ztsImpl.accessibleRolesCoalescer.getInflightCount(), 0);
+    }
+
+    @Test
+    public void testPostAccessTokenRequestSignerPool() throws JOSEException, ParseException {
+
+        System.setProperty(FilePrivateKeyStore.ATHENZ_PROP_PRIVATE_KEY, "src/test/resources/unit_test_zts_at_private.pem");
+        System.setProperty(ZTSConsts.ZTS_PROP_TOKEN_SIGNER_POOL, "true");
+        System.setProperty(ZTSConsts.ZTS_PROP_TOKEN_SIGNER_POOL_SIZE, "2");
+
+        ZTSImpl ztsImpl = new ZTSImpl(cloudStore, store);
+        System.setProperty(FilePrivateKeyStore.ATHENZ_PROP_PRIVATE_KEY, "src/test/resources/unit_test_zts_private.pem");
+        System.clearProperty(ZTSConsts.ZTS_PROP_TOKEN_SIGNER_POOL);
+        System.clearProperty(ZTSConsts.ZTS_PROP_TOKEN_SIGNER_POOL_SIZE);
+        assertNotNull(ztsImpl.tokenSignerPool);
+
+        SignedDomain signedDomain = createSignedDomain("coretech", "weather", "storage", true);
+        store.processSignedDomain(signedDomain, false);
+
+        Principal principal = SimplePrincipal.create("user_domain", "user1",
+                "v=U1;d=user_domain;n=user1;s=signature", 0, null);
+        ResourceContext context = createResourceContext(principal);
+
+        AccessTokenResponse resp = ztsImpl.postAccessTokenRequest(context,
+                "grant_type=client_credentials&scope=coretech:domain openid coretech:service.api");
+        assertNotNull(resp.getId_token());
+
+        ServerPrivateKey privateKey = getServerPrivateKey(ztsImpl, ztsImpl.keyAlgoForJsonWebObjects);
+        JWSVerifier verifier = JwtsHelper.getJWSVerifier(Crypto.extractPublicKey(privateKey.getKey()));
+        assertTrue(SignedJWT.parse(resp.getAccess_token()).verify(verifier));
+        assertTrue(SignedJWT.parse(resp.getId_token()).verify(verifier));
+
+        RoleToken roleToken = ztsImpl.getRoleToken(context, "coretech", null, 600, 1200, null);
+        com.yahoo.athenz.auth.token.RoleToken token = new com.yahoo.athenz.auth.token.RoleToken(roleToken.getToken());
+        assertEquals(token.getDomain(), "coretech");
+        assertNotNull(token.getSignature());
+
+        assertEquals(ztsImpl.tokenSignerPool.getQueueDepth(), 0);
+        ztsImpl.tokenSignerPool.shutdown();
+    }
+
     @Test
     public void testPostAccessTokenRequest() throws JOSEException {
 
@@ -11698,6 +11860,64 @@ public class ZTSImplTest {
                 eq(null), eq(httpStatus), eq(null));
     }
 
+    @Test
+    public void testConcurrencyLimiterPermit() {
+
+        zts.metric = Mockito.mock(Metric.class);
+
+        // by default the limiter is disabled
+
+        zts.loadConcurrencyLimiter();
+        assertNull(zts.concurrencyLimiterManager);
+
+        RsrcCtxWrapper ctx1 = (RsrcCtxWrapper) zts.newResourceContext(mockServletContext, mockServletRequest,
+                mockServletResponse, "postinstanceregisterinformation");
+        zts.acquireConcurrencyLimiterPermit(ctx1, "sys.auth.aws", "postinstanceregisterinformation",
+                "athenz", "athenz");
+        assertNull(ctx1.getLimiterPermit());
+
+        System.setProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_ENABLED, "true");
+        System.setProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_INITIAL_LIMIT, "1");
+        System.setProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_MIN_LIMIT, "1");
+        System.setProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_QUEUE_SIZE, "0");
+
+        zts.loadConcurrencyLimiter();
+        assertNotNull(zts.concurrencyLimiterManager);
+
+        zts.acquireConcurrencyLimiterPermit(ctx1, "sys.auth.aws", "postinstanceregisterinformation",
+                "athenz", "athenz");
+        assertNotNull(ctx1.getLimiterPermit());
+
+        // second request is rejected since the limit is reached
+
+        RsrcCtxWrapper ctx2 = (RsrcCtxWrapper) zts.newResourceContext(mockServletContext, mockServletRequest,
+                mockServletResponse, "postinstanceregisterinformation");
+        try {
+            zts.acquireConcurrencyLimiterPermit(ctx2, "sys.auth.aws", "postinstanceregisterinformation",
+                    "athenz", "athenz");
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.TOO_MANY_REQUESTS);
+        }
+        assertNull(ctx2.getLimiterPermit());
+
+        // once the first request is completed, the permit is released
+
+        zts.recordMetrics(ctx1, 200);
+        assertNull(ctx1.getLimiterPermit());
+
+        zts.acquireConcurrencyLimiterPermit(ctx2, "sys.auth.aws", "postinstanceregisterinformation",
+                "athenz", "athenz");
+        assertNotNull(ctx2.getLimiterPermit());
+        zts.recordMetrics(ctx2, 200);
+
+        zts.concurrencyLimiterManager = null;
+        System.clearProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_ENABLED);
+        System.clearProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_INITIAL_LIMIT);
+        System.clearProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_MIN_LIMIT);
+        System.clearProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_QUEUE_SIZE);
+    }
+
     @Test
     public void testProcessCertRecordChange() {
         X509CertRecord certRecord = new X509CertRecord();
@@ -19,6 +19,7 @@ import static org.testng.Assert.*;
 
 import java.util.*;
 
+import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.zts.ZTSTestUtils;
 import org.testng.annotations.Test;
 
@@ -1000,6 +1001,14 @@ public class DataCacheTest {
 
         cache.processServiceIdentityPublicKey("service1", "id1", ZTS_Y64_CERT0);
         assertEquals(cache.getPublicKeyMap().get("service1_id1"), ZTS_PEM_CERT0);
+        assertEquals(cache.getParsedPublicKeyMap().get("service1_id1"), Crypto.loadPublicKey(ZTS_PEM_CERT0));
+
+        // valid ybase64 encoded value that is not a public key is
+        // only available in pem format
+
+        cache.processServiceIdentityPublicKey("service1", "id2", Crypto.ybase64EncodeString("invalid-key"));
+        assertEquals(cache.getPublicKeyMap().get("service1_id2"), "invalid-key");
+        assertNull(cache.getParsedPublicKeyMap().get("service1_id2"));
     }
 
     @Test
@@ -1336,5 +1345,82 @@ public class DataCacheTest {
         assertFalse(cache.isWorkloadStoreExcludedProvider("sys.openstack.classic"));
         assertTrue(cache.isWorkloadStoreExcludedProvider("omega.k8s.identity"));
     }
-}
 
+    @Test
+    public void testPrincipalRolesCache() {
+
+        DataCache cache = new DataCache();
+        assertFalse(cache.isPrincipalRolesCacheEnabled());
+
+        // without the cache enabled nothing is stored
+
+        PrincipalRoles principalRoles = new PrincipalRoles(Collections.singleton("coretech:role.readers"),
+                Collections.emptySet(), 0, Collections.emptyMap(), Long.MAX_VALUE);
+        cache.setPrincipalRoles("user.user1", principalRoles);
+        assertNull(cache.getPrincipalRoles("user.user1"));
+
+        cache.enablePrincipalRolesCache(0);
+        assertFalse(cache.isPrincipalRolesCacheEnabled());
+
+        cache.enablePrincipalRolesCache(10);
+        assertTrue(cache.isPrincipalRolesCacheEnabled());
+        cache.setPrincipalRoles("user.user1", principalRoles);
+        assertSame(cache.getPrincipalRoles("user.user1"), principalRoles);
+        assertNull(cache.getPrincipalRoles("user.user2"));
+
+        assertTrue(principalRoles.getStandardRoles().contains("coretech:role.readers"));
+        assertTrue(principalRoles.getDelegatedRoles().isEmpty());
+        assertTrue(principalRoles.getTrustedDomains().isEmpty());
+        assertEquals(principalRoles.getGroupVersion(), 0);
+        assertEquals(principalRoles.getExpiration(), Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testCompactMemberRoles() {
+
+        Role role1 = new Role().setName("dom:role.role1").setRoleMembers(List.of(
+                new RoleMember().setMemberName("user.user1"),
+                new RoleMember().setMemberName("user.user2"),
+                new RoleMember().setMemberName("user.dev*")));
+        Role role2 = new Role().setName("dom:role.role2").setRoleMembers(List.of(
+                new RoleMember().setMemberName("user.user1")));
+
+        DataCache cache = new DataCache();
+        cache.processRole(role1);
+        cache.processRole(role2);
+        cache.setDomainData(new DomainData().setName("dom").setRoles(List.of(role1, role2)));
+
+        long hashSetSize = cache.getEstimatedSize();
+        cache.compactMemberRoles();
+        assertTrue(cache.getEstimatedSize() < hashSetSize);
+
+        Set<MemberRole> set1 = cache.getMemberRoleSet("user.user1");
+        assertTrue(set1 instanceof MemberRoleSet);
+        assertEquals(set1.size(), 2);
+        assertTrue(set1.contains(new MemberRole("dom:role.role1", 0)));
+        assertTrue(set1.contains(new MemberRole("dom:role.role2", 0)));
+        assertFalse(set1.contains(new MemberRole("dom:role.role3", 0)));
+        assertEquals(set1.toArray().length, 2);
+
+        // members with the same role share the member role object
+
+        Set<MemberRole> set2 = cache.getMemberRoleSet("user.user2");
+        assertEquals(set2.size(), 1);
+        MemberRole memberRole = set2.iterator().next();
+        boolean shared = false;
+        for (MemberRole entry : set1) {
+            shared |= (entry == memberRole);
+        }
+        assertTrue(shared);
+
+        Set<MemberRole> prefixSet = cache.getPrefixMemberRoleSetMap().get("user.dev");
+        assertTrue(prefixSet instanceof MemberRoleSet);
+        assertTrue(prefixSet.contains(new MemberRole("dom:role.role1", 0)));
+
+        Iterator<MemberRole> iterator = prefixSet.iterator();
+        iterator.next();
+        assertFalse(iterator.hasNext());
+        assertThrows(NoSuchElementException.class, iterator::next);
+        assertThrows(UnsupportedOperationException.class, () -> prefixSet.add(memberRole));
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cache;
+
+import com.yahoo.athenz.zms.*;
+import com.yahoo.rdl.Timestamp;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class DomainDataCompactorTest {
+
+    private DomainData createDomainData() {
+
+        Timestamp expiration = Timestamp.fromMillis(System.currentTimeMillis() + 3600000);
+
+        List<RoleMember> roleMembers = new ArrayList<>();
+        roleMembers.add(new RoleMember().setMemberName(new String("user.joe"))
+                .setExpiration(Timestamp.fromMillis(expiration.millis()))
+                .setAuditRef("audit-ref").setRequestPrincipal("user.admin")
+                .setReviewReminder(expiration).setLastNotifiedTime(expiration)
+                .setActive(true).setApproved(true).setSystemDisabled(0));
+        roleMembers.add(new RoleMember().setMemberName("user.jane")
+                .setExpiration(Timestamp.fromMillis(expiration.millis())));
+
+        Role role = new Role().setName("coretech:role.readers").setRoleMembers(roleMembers)
+                .setAuditEnabled(true).setDescription("readers role").setSelfServe(true)
+                .setCertExpiryMins(10).setTokenExpiryMins(20).setSignAlgorithm("rsa")
+                .setTags(Collections.singletonMap("zts.IssueRoleCerts",
+                        new TagValueList().setList(Collections.singletonList("true"))));
+        Role trustRole = new Role().setName("coretech:role.trust").setTrust(new String("sports"));
+
+        List<GroupMember> groupMembers = new ArrayList<>();
+        groupMembers.add(new GroupMember().setMemberName(new String("user.joe"))
+                .setGroupName("coretech:group.dev-team").setDomainName("coretech")
+                .setAuditRef("audit-ref").setRequestTime(expiration)
+                .setExpiration(expiration).setSystemDisabled(1));
+        Group group = new Group().setName("coretech:group.dev-team").setGroupMembers(groupMembers)
+                .setAuditEnabled(true);
+
+        Assertion assertion = new Assertion().setRole(new String("coretech:role.readers"))
+                .setResource("coretech:resource").setAction("read");
+        Policy policy = new Policy().setName("coretech:policy.readers")
+                .setAssertions(Collections.singletonList(assertion));
+        Policy emptyPolicy = new Policy().setName("coretech:policy.empty");
+        SignedPolicies signedPolicies = new SignedPolicies().setContents(new DomainPolicies()
+                .setDomain("coretech").setPolicies(List.of(policy, emptyPolicy)));
+
+        ServiceIdentity service = new ServiceIdentity().setName("coretech.api")
+                .setPublicKeys(Collections.singletonList(new PublicKeyEntry().setId("0").setKey("key")))
+                .setHosts(Collections.singletonList("host1.athenz.io"));
+
+        return new DomainData().setName("coretech").setModified(Timestamp.fromCurrentTime())
+                .setDescription("coretech domain").setOrg("athenz").setBusinessService("service")
+                .setAccount("aws-account").setGcpProject("gcp-project").setTokenExpiryMins(30)
+                .setRoles(List.of(role, trustRole)).setGroups(Collections.singletonList(group))
+                .setPolicies(signedPolicies).setServices(Collections.singletonList(service));
+    }
+
+    @Test
+    public void testCompact() {
+
+        DomainData domainData = createDomainData();
+        DomainData compactData = DomainDataCompactor.compact(domainData);
+        assertNotSame(compactData, domainData);
+
+        // domain attributes that ZTS does not use are dropped
+
+        assertEquals(compactData.getName(), "coretech");
+        assertEquals(compactData.getModified(), domainData.getModified());
+        assertEquals(compactData.getAccount(), "aws-account");
+        assertEquals(compactData.getGcpProject(), "gcp-project");
+        assertEquals(compactData.getTokenExpiryMins(), Integer.valueOf(30));
+        assertNull(compactData.getDescription());
+        assertNull(compactData.getOrg());
+        assertNull(compactData.getBusinessService());
+        assertNotSame(compactData.getPolicies(), domainData.getPolicies());
+        assertEquals(compactData.getPolicies(), domainData.getPolicies());
+        assertSame(compactData.getServices(), domainData.getServices());
+
+        // role attributes and members
+
+        Role role = compactData.getRoles().get(0);
+        assertEquals(role.getName(), "coretech:role.readers");
+        assertEquals(role.getCertExpiryMins(), Integer.valueOf(10));
+        assertEquals(role.getTokenExpiryMins(), Integer.valueOf(20));
+        assertEquals(role.getSignAlgorithm(), "rsa");
+        assertNotNull(role.getTags().get("zts.IssueRoleCerts"));
+        assertNull(role.getDescription());
+        assertNull(role.getAuditEnabled());
+        assertNull(role.getSelfServe());
+        assertEquals(role.getRoleMembers().size(), 2);
+
+        RoleMember roleMember = role.getRoleMembers().get(0);
+        assertEquals(roleMember.getMemberName(), "user.joe");
+        assertEquals(roleMember.getActive(), Boolean.TRUE);
+        assertEquals(roleMember.getApproved(), Boolean.TRUE);
+        assertEquals(roleMember.getSystemDisabled(), Integer.valueOf(0));
+        assertNull(roleMember.getAuditRef());
+        assertNull(roleMember.getRequestPrincipal());
+        assertNull(roleMember.getReviewReminder());
+        assertNull(roleMember.getLastNotifiedTime());
+
+        // members with the same expiration share the timestamp object
+
+        assertSame(roleMember.getExpiration(), role.getRoleMembers().get(1).getExpiration());
+
+        assertEquals(compactData.getRoles().get(1).getTrust(), "sports");
+        assertNull(compactData.getRoles().get(1).getRoleMembers());
+
+        // group members
+
+        Group group = compactData.getGroups().get(0);
+        assertEquals(group.getName(), "coretech:group.dev-team");
+        assertNull(group.getAuditEnabled());
+        GroupMember groupMember = group.getGroupMembers().get(0);
+        assertEquals(groupMember.getGroupName(), "coretech:group.dev-team");
+        assertEquals(groupMember.getDomainName(), "coretech");
+        assertEquals(groupMember.getSystemDisabled(), Integer.valueOf(1));
+        assertNotNull(groupMember.getExpiration());
+        assertNull(groupMember.getAuditRef());
+        assertNull(groupMember.getRequestTime());
+
+        // names are interned across the domain objects
+
+        assertSame(roleMember.getMemberName(), groupMember.getMemberName());
+        assertSame(compactData.getPolicies().getContents().getPolicies().get(0)
+                .getAssertions().get(0).getRole(), role.getName());
+
+        // the original domain data is not modified
+
+        RoleMember origMember = domainData.getRoles().get(0).getRoleMembers().get(0);
+        assertEquals(origMember.getAuditRef(), "audit-ref");
+        assertEquals(domainData.getDescription(), "coretech domain");
+        assertEquals(domainData.getGroups().get(0).getGroupMembers().get(0).getAuditRef(), "audit-ref");
+        Assertion origAssertion = domainData.getPolicies().getContents().getPolicies().get(0).getAssertions().get(0);
+        assertNotSame(origAssertion, compactData.getPolicies().getContents().getPolicies().get(0)
+                .getAssertions().get(0));
+        assertEquals(origAssertion.getRole(), "coretech:role.readers");
+    }
+
+    @Test
+    public void testCompactEstimatedSavings() {
+
+        DomainDataCompactor compactor = new DomainDataCompactor();
+        assertEquals(compactor.getEstimatedSavings(), 0);
+
+        compactor.compactDomainData(createDomainData());
+        final long savings = compactor.getEstimatedSavings();
+        assertTrue(savings > 0);
+
+        // the savings are accumulated for all compacted domains
+
+        compactor.compactDomainData(createDomainData());
+        assertTrue(compactor.getEstimatedSavings() > savings);
+
+        // no savings for a domain without any duplicates or dropped attributes
+
+        compactor = new DomainDataCompactor();
+        compactor.compactDomainData(new DomainData().setName("coretech"));
+        assertEquals(compactor.getEstimatedSavings(), 0);
+    }
+
+    @Test
+    public void testCompactPolicies() {
+
+        DomainDataCompactor compactor = new DomainDataCompactor();
+        assertNull(compactor.compactPolicies(null));
+
+        SignedPolicies signedPolicies = new SignedPolicies().setContents(new DomainPolicies());
+        assertSame(compactor.compactPolicies(signedPolicies), signedPolicies);
+
+        Assertion assertion = new Assertion().setRole("coretech:role.readers").setResource("coretech:resource")
+                .setAction("read").setEffect(AssertionEffect.DENY).setId(101L).setCaseSensitive(true);
+        Policy policy = new Policy().setName("coretech:policy.readers").setModified(Timestamp.fromCurrentTime())
+                .setVersion("0").setActive(true).setCaseSensitive(true).setDescription("readers policy")
+                .setAssertions(Collections.singletonList(assertion));
+        signedPolicies = new SignedPolicies().setSignature("signature").setKeyId("0")
+                .setContents(new DomainPolicies().setDomain("coretech")
+                        .setPolicies(Collections.singletonList(policy)));
+
+        SignedPolicies compactPolicies = compactor.compactPolicies(signedPolicies);
+        assertNotSame(compactPolicies, signedPolicies);
+        assertEquals(compactPolicies, signedPolicies);
+    }
+
+    @Test
+    public void testCompactEmptyDomain() {
+
+        DomainData compactData = DomainDataCompactor.compact(new DomainData().setName("coretech"));
+        assertEquals(compactData.getName(), "coretech");
+        assertNull(compactData.getRoles());
+        assertNull(compactData.getGroups());
+        assertNull(compactData.getPolicies());
+
+        compactData = DomainDataCompactor.compact(new DomainData().setName("coretech")
+                .setGroups(Collections.singletonList(new Group().setName("coretech:group.dev-team")))
+                .setPolicies(new SignedPolicies()));
+        assertNull(compactData.getGroups().get(0).getGroupMembers());
+
+        compactData = DomainDataCompactor.compact(new DomainData().setName("coretech")
+                .setPolicies(new SignedPolicies().setContents(new DomainPolicies())));
+        assertNull(compactData.getPolicies().getContents().getPolicies());
+    }
+
+    @Test
+    public void testIntern() {
+
+        assertNull(DomainDataCompactor.intern(null));
+        final String value1 = new String("coretech:role.readers");
+        final String value2 = new String("coretech:role.readers");
+        assertNotSame(value1, value2);
+        assertSame(DomainDataCompactor.intern(value1), DomainDataCompactor.intern(value2));
+    }
+
+    @Test
+    public void testEstimateSize() {
+
+        assertEquals(DomainDataCompactor.estimateSize(null), 0);
+
+        long emptySize = DomainDataCompactor.estimateSize(new DomainData());
+        assertTrue(emptySize > 0);
+
+        DomainData domainData = createDomainData();
+        long fullSize = DomainDataCompactor.estimateSize(domainData);
+        assertTrue(fullSize > emptySize);
+
+        // adding members increases the estimated size
+
+        domainData.getRoles().get(0).getRoleMembers().add(new RoleMember().setMemberName("user.john"));
+        assertTrue(DomainDataCompactor.estimateSize(domainData) > fullSize);
+
+        // services without keys or hosts
+
+        domainData.setServices(Collections.singletonList(new ServiceIdentity().setName("coretech.backend")));
+        assertTrue(DomainDataCompactor.estimateSize(domainData) > emptySize);
+    }
+}
@@ -26,6 +26,7 @@ import com.yahoo.athenz.common.server.workload.WorkloadRecordStore;
 import com.yahoo.athenz.common.server.workload.WorkloadRecordStoreConnection;
 import com.yahoo.athenz.zts.*;
 import com.yahoo.athenz.zts.cert.impl.FileSSHRecordStoreFactory;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.testng.annotations.BeforeMethod;
@@ -62,7 +63,7 @@ public class InstanceCertManagerTest {
         final String cert = "cert";
         final String caCert = "caCert";
         CertSigner certSigner = Mockito.mock(com.yahoo.athenz.common.server.cert.CertSigner.class);
-        when(certSigner.generateX509Certificate(any(), any(), any(), any(), anyInt(), any(), any())).thenReturn(cert);
+        when(certSigner.generateX509Certificate(any(), any(), any(), any(), any(), anyInt(), any(), any())).thenReturn(cert);
         when(certSigner.getCACertificate(any(), any())).thenReturn(caCert);
         
         InstanceCertManager instanceManager = new InstanceCertManager(null, null, null, new DynamicConfigBoolean(false));
@@ -164,11 +165,36 @@ public class InstanceCertManagerTest {
         System.clearProperty(ZTSConsts.ZTS_PROP_SELF_SIGNER_PRIVATE_KEY_PASSWORD);
     }
 
+    @Test
+    public void testGenerateIdentityParsedRequest() throws ServerResourceException, IOException {
+
+        CertSigner certSigner = Mockito.mock(com.yahoo.athenz.common.server.cert.CertSigner.class);
+        when(certSigner.generateX509Certificate(any(), any(), any(), any(), any(), anyInt(), any(), any()))
+                .thenReturn("cert");
+
+        Path path = Paths.get("src/test/resources/valid.csr");
+        final String csr = new String(Files.readAllBytes(path));
+        PKCS10CertificationRequest certReq = Crypto.getPKCS10CertRequest(csr);
+
+        InstanceCertManager instanceManager = new InstanceCertManager(null, null, null, new DynamicConfigBoolean(false));
+        instanceManager.setCertSigner(certSigner);
+        InstanceIdentity identity = instanceManager.generateIdentity("aws", null, csr, certReq, "cn", null, 0,
+                Priority.High, "keyid");
+        assertNotNull(identity);
+        assertEquals(identity.getX509Certificate(), "cert");
+
+        // the parsed request is passed to the signer as is
+
+        Mockito.verify(certSigner, Mockito.times(1)).generateX509Certificate("aws", null, csr, certReq, null, 0,
+                Priority.High, "keyid");
+        instanceManager.shutdown();
+    }
+
     @Test
     public void testGenerateIdentityNullCert() throws ServerResourceException {
         
         CertSigner certSigner = Mockito.mock(com.yahoo.athenz.common.server.cert.CertSigner.class);
-        when(certSigner.generateX509Certificate(any(), any(), any(), any(), anyInt(), any(), any())).thenReturn(null);
+        when(certSigner.generateX509Certificate(any(), any(), any(), any(), any(), anyInt(), any(), any())).thenReturn(null);
 
         InstanceCertManager instanceManager = new InstanceCertManager(null, null, null, new DynamicConfigBoolean(false));
         instanceManager.setCertSigner(certSigner);
@@ -182,7 +208,7 @@ public class InstanceCertManagerTest {
     public void testGenerateIdentityEmptyCert() throws ServerResourceException {
         
         CertSigner certSigner = Mockito.mock(com.yahoo.athenz.common.server.cert.CertSigner.class);
-        when(certSigner.generateX509Certificate(any(), any(), any(), any(), anyInt(), any(), any())).thenReturn("");
+        when(certSigner.generateX509Certificate(any(), any(), any(), any(), any(), anyInt(), any(), any())).thenReturn("");
 
         InstanceCertManager instanceManager = new InstanceCertManager(null, null, null, new DynamicConfigBoolean(false));
         instanceManager.setCertSigner(certSigner);
@@ -290,6 +316,242 @@ public class InstanceCertManagerTest {
         instance.shutdown();
     }
     
+    @Test
+    public void testDeferX509CertRecordUpdate() throws ServerResourceException {
+        InstanceCertManager instance = new InstanceCertManager(null, null, null, new DynamicConfigBoolean(true));
+        instance.setCertSigner(null);
+
+        CertRecordStore certStore = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection certConnection = Mockito.mock(CertRecordStoreConnection.class);
+        when(certStore.getConnection()).thenReturn(certConnection);
+        when(certConnection.updateX509CertRecord(ArgumentMatchers.isA(X509CertRecord.class))).thenReturn(true);
+        when(certConnection.updateX509CertRecords(ArgumentMatchers.any())).thenReturn(1);
+        instance.setCertStore(certStore);
+
+        // without write-behind mode the record is updated right away
+
+        X509CertRecord x509CertRecord = new X509CertRecord();
+        x509CertRecord.setProvider("provider");
+        x509CertRecord.setInstanceId("instance-id");
+        x509CertRecord.setService("athenz.api");
+        assertTrue(instance.deferX509CertRecordUpdate(x509CertRecord));
+        Mockito.verify(certConnection, Mockito.times(1)).updateX509CertRecord(x509CertRecord);
+        assertEquals(instance.flushX509CertRecordUpdates(), 0);
+
+        // now enable write-behind mode and verify the record is queued
+
+        System.setProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_WRITE_BEHIND_INTERVAL, "3600000");
+        instance.startCertRecordWriteBehind();
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_WRITE_BEHIND_INTERVAL);
+
+        assertTrue(instance.deferX509CertRecordUpdate(x509CertRecord));
+        Mockito.verify(certConnection, Mockito.times(1)).updateX509CertRecord(x509CertRecord);
+        assertEquals(instance.getCertRecordWriteBehind().getPendingCount(), 1);
+
+        // pending record must be returned without going to the store
+
+        X509CertRecord pendingRecord = instance.getX509CertRecord("provider", "instance-id", "athenz.api");
+        assertNotSame(pendingRecord, x509CertRecord);
+        assertEquals(pendingRecord.getInstanceId(), "instance-id");
+
+        // flush the record to the store
+
+        assertEquals(instance.flushX509CertRecordUpdates(), 1);
+        assertEquals(instance.getCertRecordWriteBehind().getPendingCount(), 0);
+        Mockito.verify(certConnection, Mockito.times(1)).updateX509CertRecords(ArgumentMatchers.any());
+
+        // a critical update must discard the pending update
+
+        assertTrue(instance.deferX509CertRecordUpdate(x509CertRecord));
+        assertTrue(instance.updateX509CertRecord(x509CertRecord));
+        assertEquals(instance.getCertRecordWriteBehind().getPendingCount(), 0);
+        Mockito.verify(certConnection, Mockito.times(2)).updateX509CertRecord(x509CertRecord);
+
+        // same for delete operations
+
+        assertTrue(instance.deferX509CertRecordUpdate(x509CertRecord));
+        instance.deleteX509CertRecord("provider", "instance-id", "athenz.api");
+        assertEquals(instance.getCertRecordWriteBehind().getPendingCount(), 0);
+
+        // pending records are flushed during shutdown
+
+        assertTrue(instance.deferX509CertRecordUpdate(x509CertRecord));
+        instance.shutdown();
+        assertEquals(instance.getCertRecordWriteBehind().getPendingCount(), 0);
+        Mockito.verify(certConnection, Mockito.times(2)).updateX509CertRecords(ArgumentMatchers.any());
+    }
+
+    @Test
+    public void testShutdownCertRecordWriteBehindFailure() throws ServerResourceException {
+        InstanceCertManager instance = new InstanceCertManager(null, null, null, new DynamicConfigBoolean(true));
+        instance.setCertSigner(null);
+
+        CertRecordStore certStore = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection certConnection = Mockito.mock(CertRecordStoreConnection.class);
+        when(certStore.getConnection()).thenReturn(certConnection);
+        when(certConnection.updateX509CertRecords(ArgumentMatchers.any()))
+                .thenThrow(new IllegalStateException("store failure"));
+        instance.setCertStore(certStore);
+
+        System.setProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_WRITE_BEHIND_INTERVAL, "3600000");
+        instance.startCertRecordWriteBehind();
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_WRITE_BEHIND_INTERVAL);
+
+        X509CertRecord x509CertRecord = new X509CertRecord();
+        x509CertRecord.setProvider("provider");
+        x509CertRecord.setInstanceId("instance-id");
+        x509CertRecord.setService("athenz.api");
+        assertTrue(instance.deferX509CertRecordUpdate(x509CertRecord));
+
+        // store failure during the final flush must not fail the shutdown
+
+        instance.shutdown();
+        Mockito.verify(certConnection, Mockito.times(1)).updateX509CertRecords(ArgumentMatchers.any());
+    }
+
+    @Test
+    public void testShutdownCertRecordWriteBehindInterrupted() throws ServerResourceException {
+        InstanceCertManager instance = new InstanceCertManager(null, null, null, new DynamicConfigBoolean(true));
+        instance.setCertSigner(null);
+
+        CertRecordStore certStore = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection certConnection = Mockito.mock(CertRecordStoreConnection.class);
+        when(certStore.getConnection()).thenReturn(certConnection);
+        when(certConnection.updateX509CertRecords(ArgumentMatchers.any())).thenReturn(1);
+        instance.setCertStore(certStore);
+
+        System.setProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_WRITE_BEHIND_INTERVAL, "3600000");
+        instance.startCertRecordWriteBehind();
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_WRITE_BEHIND_INTERVAL);
+
+        X509CertRecord x509CertRecord = new X509CertRecord();
+        x509CertRecord.setProvider("provider");
+        x509CertRecord.setInstanceId("instance-id");
+        x509CertRecord.setService("athenz.api");
+        assertTrue(instance.deferX509CertRecordUpdate(x509CertRecord));
+
+        // the pending records are still flushed if we're interrupted
+        // while waiting for the flush executor to terminate
+
+        Thread.currentThread().interrupt();
+        instance.shutdown();
+        assertTrue(Thread.interrupted());
+        assertEquals(instance.getCertRecordWriteBehind().getPendingCount(), 0);
+        Mockito.verify(certConnection, Mockito.times(1)).updateX509CertRecords(ArgumentMatchers.any());
+    }
+
+    @Test
+    public void testGetX509CertRecordPendingFailedRequest() throws ServerResourceException {
+        InstanceCertManager instance = new InstanceCertManager(null, null, null, new DynamicConfigBoolean(true));
+        instance.setCertSigner(null);
+
+        CertRecordStore certStore = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection certConnection = Mockito.mock(CertRecordStoreConnection.class);
+        when(certStore.getConnection()).thenReturn(certConnection);
+        List<X509CertRecord> flushedRecords = new ArrayList<>();
+        when(certConnection.updateX509CertRecords(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            List<X509CertRecord> certRecords = invocation.getArgument(0);
+            flushedRecords.addAll(certRecords);
+            return certRecords.size();
+        });
+        instance.setCertStore(certStore);
+
+        System.setProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_WRITE_BEHIND_INTERVAL, "3600000");
+        instance.startCertRecordWriteBehind();
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_WRITE_BEHIND_INTERVAL);
+
+        X509CertRecord x509CertRecord = new X509CertRecord();
+        x509CertRecord.setProvider("provider");
+        x509CertRecord.setInstanceId("instance-id");
+        x509CertRecord.setService("athenz.api");
+        x509CertRecord.setCurrentSerial("serial1");
+        x509CertRecord.setPrevSerial("serial0");
+        x509CertRecord.setHostName("host1");
+        assertTrue(instance.deferX509CertRecordUpdate(x509CertRecord));
+
+        // the refresh request reads the pending record and rotates the
+        // serial numbers but fails before the new certificate is issued
+
+        X509CertRecord certRecord = instance.getX509CertRecord("provider", "instance-id", "athenz.api");
+        certRecord.setPrevSerial(certRecord.getCurrentSerial());
+        certRecord.setCurrentSerial("serial2");
+        certRecord.setHostName("host2");
+
+        // the queued record is not affected by the failed request
+
+        assertEquals(instance.getX509CertRecord("provider", "instance-id", "athenz.api").getCurrentSerial(),
+                "serial1");
+        assertEquals(instance.flushX509CertRecordUpdates(), 1);
+        assertEquals(flushedRecords.size(), 1);
+        assertEquals(flushedRecords.get(0).getCurrentSerial(), "serial1");
+        assertEquals(flushedRecords.get(0).getPrevSerial(), "serial0");
+        assertEquals(flushedRecords.get(0).getHostName(), "host1");
+
+        instance.shutdown();
+    }
+
+    @Test
+    public void testUpdateRefreshedX509CertRecord() throws ServerResourceException {
+        InstanceCertManager instance = new InstanceCertManager(null, null, null, new DynamicConfigBoolean(true));
+        instance.setCertSigner(null);
+
+        CertRecordStore certStore = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection certConnection = Mockito.mock(CertRecordStoreConnection.class);
+        when(certStore.getConnection()).thenReturn(certConnection);
+        when(certConnection.updateX509CertRecord(ArgumentMatchers.isA(X509CertRecord.class))).thenReturn(true);
+        when(certConnection.updateX509CertRecordSerial(ArgumentMatchers.isA(X509CertRecord.class))).thenReturn(true);
+        when(certConnection.updateX509CertRecords(ArgumentMatchers.any())).thenReturn(1);
+        instance.setCertStore(certStore);
+
+        // without write-behind mode the full record is updated right away
+
+        X509CertRecord x509CertRecord = new X509CertRecord();
+        x509CertRecord.setProvider("provider");
+        x509CertRecord.setInstanceId("instance-id");
+        x509CertRecord.setService("athenz.api");
+        x509CertRecord.setCurrentSerial("serial1");
+        assertTrue(instance.updateRefreshedX509CertRecord(x509CertRecord));
+        Mockito.verify(certConnection, Mockito.times(1)).updateX509CertRecord(x509CertRecord);
+        Mockito.verify(certConnection, Mockito.never()).updateX509CertRecordSerial(x509CertRecord);
+
+        // with write-behind mode only the serial is updated right away
+        // and the full record is queued
+
+        System.setProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_WRITE_BEHIND_INTERVAL, "3600000");
+        instance.startCertRecordWriteBehind();
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_WRITE_BEHIND_INTERVAL);
+
+        assertTrue(instance.updateRefreshedX509CertRecord(x509CertRecord));
+        Mockito.verify(certConnection, Mockito.times(1)).updateX509CertRecord(x509CertRecord);
+        Mockito.verify(certConnection, Mockito.times(1)).updateX509CertRecordSerial(x509CertRecord);
+        assertEquals(instance.getCertRecordWriteBehind().getPendingCount(), 1);
+        assertEquals(instance.getX509CertRecord("provider", "instance-id", "athenz.api").getCurrentSerial(),
+                "serial1");
+
+        // a newer refresh replaces the pending record
+
+        X509CertRecord newCertRecord = new X509CertRecord();
+        newCertRecord.setProvider("provider");
+        newCertRecord.setInstanceId("instance-id");
+        newCertRecord.setService("athenz.api");
+        newCertRecord.setCurrentSerial("serial2");
+        assertTrue(instance.updateRefreshedX509CertRecord(newCertRecord));
+        assertEquals(instance.getCertRecordWriteBehind().getPendingCount(), 1);
+        assertEquals(instance.getX509CertRecord("provider", "instance-id", "athenz.api").getCurrentSerial(),
+                "serial2");
+
+        assertEquals(instance.flushX509CertRecordUpdates(), 1);
+        assertEquals(instance.getCertRecordWriteBehind().getPendingCount(), 0);
+
+        // if the serial update fails, nothing is queued
+
+        when(certConnection.updateX509CertRecordSerial(ArgumentMatchers.isA(X509CertRecord.class))).thenReturn(false);
+        assertFalse(instance.updateRefreshedX509CertRecord(newCertRecord));
+        assertEquals(instance.getCertRecordWriteBehind().getPendingCount(), 0);
+
+        instance.shutdown();
+    }
+
     @Test
     public void testUpdateX509CertRecordNoCertStore() {
         InstanceCertManager instance = new InstanceCertManager(null, null, null, new DynamicConfigBoolean(true));
@@ -1411,6 +1673,30 @@ public class InstanceCertManagerTest {
         cleaner.run();
     }
 
+    @Test
+    public void testExpiredX509CertRecordCleanerChunks() throws ServerResourceException {
+
+        System.setProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_CLEANER_DELETE_LIMIT, "10");
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConnection = Mockito.mock(CertRecordStoreConnection.class);
+        when(store.getConnection()).thenReturn(storeConnection);
+        when(storeConnection.deleteExpiredX509CertRecords(100, 10)).thenReturn(10).thenReturn(10).thenReturn(3);
+
+        InstanceCertManager.ExpiredX509CertRecordCleaner cleaner =
+                new InstanceCertManager.ExpiredX509CertRecordCleaner(store, 100, new DynamicConfigBoolean(false));
+        assertEquals(cleaner.cleanupExpiredX509CertRecords(), 23);
+        Mockito.verify(storeConnection, Mockito.times(3)).deleteExpiredX509CertRecords(100, 10);
+
+        // in read-only mode we don't delete anything
+
+        cleaner = new InstanceCertManager.ExpiredX509CertRecordCleaner(store, 100, new DynamicConfigBoolean(true));
+        assertEquals(cleaner.cleanupExpiredX509CertRecords(), 0);
+        Mockito.verify(storeConnection, Mockito.times(3)).deleteExpiredX509CertRecords(100, 10);
+
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_CLEANER_DELETE_LIMIT);
+    }
+
     @Test
     public void testExpiredSSHCertRecordCleaner() {
 
@@ -2023,6 +2309,64 @@ public class InstanceCertManagerTest {
         instance.shutdown();
     }
 
+    @Test
+    public void testGetWorkloadsWithCache() throws ServerResourceException {
+
+        System.setProperty(ZTSConsts.ZTS_PROP_WORKLOAD_CACHE_ENABLED, "true");
+        InstanceCertManager instance = new InstanceCertManager(null, null, null, new DynamicConfigBoolean(true));
+        System.clearProperty(ZTSConsts.ZTS_PROP_WORKLOAD_CACHE_ENABLED);
+
+        WorkloadRecordStore store = Mockito.mock(WorkloadRecordStore.class);
+        instance.setWorkloadStore(store);
+        WorkloadRecordStoreConnection storeConn = Mockito.mock(WorkloadRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+
+        Date d = new Date();
+        WorkloadRecord w1 = ZTSTestUtils.createWorkloadRecord(d, d,
+                "aws", "i-123", "test-host1.corp.yahoo.com", "10.0.0.1", "athenz.api", d);
+        List<WorkloadRecord> workloadRecordList = new ArrayList<>();
+        workloadRecordList.add(w1);
+        Mockito.when(storeConn.getWorkloadRecordsByService("athenz", "api")).thenReturn(workloadRecordList);
+        Mockito.when(storeConn.getWorkloadRecordsByIp("10.0.0.1")).thenReturn(workloadRecordList);
+
+        assertEquals(instance.getWorkloadsByService("athenz", "api").size(), 1);
+        assertEquals(instance.getWorkloadsByIp("10.0.0.1").size(), 1);
+
+        // the second lookups are served from the cache
+
+        assertEquals(instance.getWorkloadsByService("athenz", "api").size(), 1);
+        assertEquals(instance.getWorkloadsByIp("10.0.0.1").size(), 1);
+        Mockito.verify(storeConn, Mockito.times(1)).getWorkloadRecordsByService("athenz", "api");
+        Mockito.verify(storeConn, Mockito.times(1)).getWorkloadRecordsByIp("10.0.0.1");
+
+        // new records and updates are reflected in the cache
+
+        Mockito.when(storeConn.insertWorkloadRecord(any())).thenReturn(true);
+        assertTrue(instance.insertWorkloadRecord(ZTSTestUtils.createWorkloadRecord(d, d,
+                "aws", "i-234", "test-host2.corp.yahoo.com", "10.0.0.2", "athenz.api", d)));
+        assertEquals(instance.getWorkloadsByService("athenz", "api").size(), 2);
+
+        Mockito.when(storeConn.updateWorkloadRecord(any())).thenReturn(true);
+        assertTrue(instance.updateWorkloadRecord(ZTSTestUtils.createWorkloadRecord(d, d,
+                "gcp", "i-123", "test-host1.corp.yahoo.com", "10.0.0.1", "athenz.api", d)));
+        List<Workload> workloadList = instance.getWorkloadsByIp("10.0.0.1");
+        assertEquals(workloadList.size(), 1);
+        assertEquals(workloadList.get(0).getProvider(), "gcp");
+
+        // an update that falls back to insert adds the new ip address
+
+        Mockito.when(storeConn.updateWorkloadRecord(any())).thenReturn(false);
+        assertTrue(instance.updateWorkloadRecord(ZTSTestUtils.createWorkloadRecord(d, d,
+                "gcp", "i-123", "test-host1.corp.yahoo.com", "10.0.0.3", "athenz.api", d)));
+        workloadList = instance.getWorkloadsByService("athenz", "api");
+        assertEquals(workloadList.size(), 2);
+        assertEquals(workloadList.get(0).getIpAddresses(), List.of("10.0.0.1", "10.0.0.3"));
+
+        Mockito.verify(storeConn, Mockito.times(1)).getWorkloadRecordsByService("athenz", "api");
+        Mockito.verify(storeConn, Mockito.times(1)).getWorkloadRecordsByIp("10.0.0.1");
+        instance.shutdown();
+    }
+
     @Test
     public void nullWorkloadsStoreTest() {
         InstanceCertManager instance = new InstanceCertManager(null, null, null, new DynamicConfigBoolean(true));
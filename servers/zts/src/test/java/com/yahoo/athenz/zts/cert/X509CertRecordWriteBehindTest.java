@@ -0,0 +1,240 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cert;
+
+import com.yahoo.athenz.common.server.ServerResourceException;
+import com.yahoo.athenz.common.server.cert.CertRecordStore;
+import com.yahoo.athenz.common.server.cert.CertRecordStoreConnection;
+import com.yahoo.athenz.common.server.cert.X509CertRecord;
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+public class X509CertRecordWriteBehindTest {
+
+    private X509CertRecord createRecord(final String instanceId, final String hostName) {
+        X509CertRecord certRecord = new X509CertRecord();
+        certRecord.setProvider("provider");
+        certRecord.setInstanceId(instanceId);
+        certRecord.setService("athenz.api");
+        certRecord.setHostName(hostName);
+        return certRecord;
+    }
+
+    @Test
+    public void testEnqueueCoalesce() throws ServerResourceException {
+
+        X509CertRecordWriteBehind writeBehind = new X509CertRecordWriteBehind(10);
+        writeBehind.enqueue(createRecord("id1", "host1"));
+        writeBehind.enqueue(createRecord("id1", "host2"));
+        writeBehind.enqueue(createRecord("id2", "host3"));
+        assertEquals(writeBehind.getPendingCount(), 2);
+
+        X509CertRecord certRecord = writeBehind.getPendingRecord("provider", "id1", "athenz.api");
+        assertNotNull(certRecord);
+        assertEquals(certRecord.getHostName(), "host2");
+        assertNull(writeBehind.getPendingRecord("provider", "id3", "athenz.api"));
+
+        CertRecordStore certStore = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection certConnection = Mockito.mock(CertRecordStoreConnection.class);
+        when(certStore.getConnection()).thenReturn(certConnection);
+        when(certConnection.updateX509CertRecords(any())).thenAnswer(invocation -> {
+            List<X509CertRecord> certRecords = invocation.getArgument(0);
+            return certRecords.size();
+        });
+
+        assertEquals(writeBehind.flush(certStore), 2);
+        assertEquals(writeBehind.getPendingCount(), 0);
+        verify(certConnection, times(1)).updateX509CertRecords(any());
+
+        // nothing to flush the second time
+
+        assertEquals(writeBehind.flush(certStore), 0);
+        assertEquals(writeBehind.flush(null), 0);
+    }
+
+    @Test
+    public void testEnqueueStaleRecord() {
+
+        X509CertRecordWriteBehind writeBehind = new X509CertRecordWriteBehind(10);
+
+        X509CertRecord newRecord = createRecord("id1", "host2");
+        newRecord.setCurrentSerial("serial2");
+        newRecord.setCurrentTime(new Date(2000));
+        writeBehind.enqueue(newRecord);
+
+        // a stale update that arrives later must not replace the newer serial
+
+        X509CertRecord staleRecord = createRecord("id1", "host1");
+        staleRecord.setCurrentSerial("serial1");
+        staleRecord.setCurrentTime(new Date(1000));
+        writeBehind.enqueue(staleRecord);
+        assertEquals(writeBehind.getPendingRecord("provider", "id1", "athenz.api").getCurrentSerial(), "serial2");
+
+        // records with the same or a later time replace the pending record
+
+        X509CertRecord laterRecord = createRecord("id1", "host3");
+        laterRecord.setCurrentSerial("serial3");
+        laterRecord.setCurrentTime(new Date(2000));
+        writeBehind.enqueue(laterRecord);
+        assertEquals(writeBehind.getPendingRecord("provider", "id1", "athenz.api").getCurrentSerial(), "serial3");
+        assertEquals(writeBehind.getPendingCount(), 1);
+    }
+
+    @Test
+    public void testPendingRecordCopies() throws ServerResourceException {
+
+        X509CertRecordWriteBehind writeBehind = new X509CertRecordWriteBehind(10);
+
+        X509CertRecord certRecord = createRecord("id1", "host1");
+        certRecord.setCurrentSerial("serial1");
+        certRecord.setCurrentIP("10.0.0.1");
+        certRecord.setCurrentTime(new Date(1000));
+        certRecord.setPrevSerial("serial0");
+        certRecord.setPrevIP("10.0.0.2");
+        certRecord.setPrevTime(new Date(500));
+        certRecord.setClientCert(true);
+        certRecord.setLastNotifiedTime(new Date(600));
+        certRecord.setLastNotifiedServer("server1");
+        certRecord.setExpiryTime(new Date(5000));
+        certRecord.setSvcDataUpdateTime(new Date(700));
+        writeBehind.enqueue(certRecord);
+
+        // changes to the enqueued record after the call are not queued
+
+        certRecord.setHostName("host2");
+
+        // the returned record is a full copy of the pending record
+
+        X509CertRecord pendingRecord = writeBehind.getPendingRecord("provider", "id1", "athenz.api");
+        assertNotSame(pendingRecord, certRecord);
+        assertEquals(pendingRecord.getProvider(), "provider");
+        assertEquals(pendingRecord.getInstanceId(), "id1");
+        assertEquals(pendingRecord.getService(), "athenz.api");
+        assertEquals(pendingRecord.getHostName(), "host1");
+        assertEquals(pendingRecord.getCurrentSerial(), "serial1");
+        assertEquals(pendingRecord.getCurrentIP(), "10.0.0.1");
+        assertEquals(pendingRecord.getCurrentTime(), new Date(1000));
+        assertEquals(pendingRecord.getPrevSerial(), "serial0");
+        assertEquals(pendingRecord.getPrevIP(), "10.0.0.2");
+        assertEquals(pendingRecord.getPrevTime(), new Date(500));
+        assertTrue(pendingRecord.getClientCert());
+        assertEquals(pendingRecord.getLastNotifiedTime(), new Date(600));
+        assertEquals(pendingRecord.getLastNotifiedServer(), "server1");
+        assertEquals(pendingRecord.getExpiryTime(), new Date(5000));
+        assertEquals(pendingRecord.getSvcDataUpdateTime(), new Date(700));
+
+        // a request that rotates the serials of the returned record and
+        // then fails must not change the record written by the flush
+
+        pendingRecord.setPrevSerial(pendingRecord.getCurrentSerial());
+        pendingRecord.setPrevIP(pendingRecord.getCurrentIP());
+        pendingRecord.setPrevTime(pendingRecord.getCurrentTime());
+        pendingRecord.setCurrentSerial("serial2");
+        pendingRecord.getExpiryTime().setTime(9000);
+
+        CertRecordStore certStore = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection certConnection = Mockito.mock(CertRecordStoreConnection.class);
+        when(certStore.getConnection()).thenReturn(certConnection);
+        List<X509CertRecord> flushedRecords = new ArrayList<>();
+        when(certConnection.updateX509CertRecords(any())).thenAnswer(invocation -> {
+            List<X509CertRecord> certRecords = invocation.getArgument(0);
+            flushedRecords.addAll(certRecords);
+            return certRecords.size();
+        });
+
+        assertEquals(writeBehind.flush(certStore), 1);
+        assertEquals(flushedRecords.size(), 1);
+        assertEquals(flushedRecords.get(0).getCurrentSerial(), "serial1");
+        assertEquals(flushedRecords.get(0).getPrevSerial(), "serial0");
+        assertEquals(flushedRecords.get(0).getPrevIP(), "10.0.0.2");
+        assertEquals(flushedRecords.get(0).getExpiryTime(), new Date(5000));
+        assertEquals(flushedRecords.get(0).getHostName(), "host1");
+
+        assertNull(X509CertRecordWriteBehind.copyDate(null));
+    }
+
+    @Test
+    public void testDiscard() {
+
+        X509CertRecordWriteBehind writeBehind = new X509CertRecordWriteBehind(10);
+        writeBehind.enqueue(createRecord("id1", "host1"));
+        writeBehind.enqueue(createRecord("id2", "host2"));
+
+        writeBehind.discard("provider", "id1", "athenz.api");
+        assertEquals(writeBehind.getPendingCount(), 1);
+        assertNull(writeBehind.getPendingRecord("provider", "id1", "athenz.api"));
+
+        // unknown record is ignored
+
+        writeBehind.discard("provider", "id3", "athenz.api");
+        assertEquals(writeBehind.getPendingCount(), 1);
+    }
+
+    @Test
+    public void testFlushBatches() throws ServerResourceException {
+
+        X509CertRecordWriteBehind writeBehind = new X509CertRecordWriteBehind(2);
+        for (int i = 0; i < 5; i++) {
+            writeBehind.enqueue(createRecord("id" + i, "host" + i));
+        }
+
+        CertRecordStore certStore = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection certConnection = Mockito.mock(CertRecordStoreConnection.class);
+        when(certStore.getConnection()).thenReturn(certConnection);
+        when(certConnection.updateX509CertRecords(any())).thenReturn(2).thenReturn(1)
+                .thenThrow(new ServerResourceException(500, "db failure"));
+
+        assertEquals(writeBehind.flush(certStore), 3);
+        assertEquals(writeBehind.getPendingCount(), 0);
+        verify(certStore, times(3)).getConnection();
+        verify(certConnection, times(3)).updateX509CertRecords(any());
+        verify(certConnection, times(3)).close();
+    }
+
+    @Test
+    public void testFlushConnectionFailure() throws ServerResourceException {
+
+        X509CertRecordWriteBehind writeBehind = new X509CertRecordWriteBehind(0);
+        writeBehind.enqueue(createRecord("id1", "host1"));
+
+        CertRecordStore certStore = Mockito.mock(CertRecordStore.class);
+        when(certStore.getConnection()).thenThrow(new ServerResourceException(500, "no connection"));
+
+        assertEquals(writeBehind.flush(certStore), 0);
+
+        // the record is discarded since it only carries metadata
+
+        assertEquals(writeBehind.getPendingCount(), 0);
+    }
+
+    @Test
+    public void testGetRecordLock() {
+
+        X509CertRecordWriteBehind writeBehind = new X509CertRecordWriteBehind(10);
+        Lock lock1 = writeBehind.getRecordLock("provider", "id1", "athenz.api");
+        assertNotNull(lock1);
+        assertSame(writeBehind.getRecordLock("provider", "id1", "athenz.api"), lock1);
+    }
+}
@@ -20,6 +20,7 @@ import java.security.cert.X509Certificate;
 import java.time.Duration;
 import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.common.server.cert.Priority;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -70,6 +71,23 @@ public class KeyStoreCertSignerTest {
         }
     }
 
+    @Test
+    public void testGenerateX509CertificateParsedRequest() {
+        try (KeyStoreCertSigner keyStoreCertSigner = new KeyStoreCertSigner(CA_CERT, CA_KEY, 43200)) {
+
+            // the parsed request is used instead of the csr
+
+            PKCS10CertificationRequest certReq = Crypto.getPKCS10CertRequest(CLIENT_CSR_PEM);
+            String certPem = keyStoreCertSigner.generateX509Certificate("sys.auth.zts", null, "invalid-csr",
+                    certReq, null, 60, Priority.Unspecified_priority, null);
+            X509Certificate cert = Crypto.loadX509Certificate(certPem);
+            long certExpiry = Duration.between(cert.getNotBefore().toInstant(), cert.getNotAfter().toInstant()).toMinutes();
+            // assertion
+            Assert.assertEquals(cert.getSubjectX500Principal().getName(), "CN=sys.auth.zts,O=Athenz,C=US");
+            Assert.assertEquals(certExpiry, 60);
+        }
+    }
+
     @Test
     public void testGetCACertificate() {
         try (KeyStoreCertSigner keyStoreCertSigner = new KeyStoreCertSigner(CA_CERT, CA_KEY, 43200)) {
@@ -0,0 +1,391 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cert.impl.crypki;
+
+import com.sun.net.httpserver.HttpServer;
+import com.yahoo.athenz.common.server.util.config.dynamic.DynamicConfigBoolean;
+import com.yahoo.athenz.common.server.util.config.dynamic.DynamicConfigInteger;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import com.yahoo.athenz.zts.ZTSConsts;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public class HedgedCertSignerClientTest {
+
+    private final List<MockSigner> signers = new ArrayList<>();
+
+    static class MockSigner {
+
+        final HttpServer server;
+        final AtomicInteger requestCount = new AtomicInteger();
+        volatile int statusCode = 201;
+        volatile long delay = 0;
+        volatile String response;
+        volatile String lastRequest;
+
+        MockSigner(final String response) throws IOException {
+            this.response = response;
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.createContext("/", exchange -> {
+                requestCount.incrementAndGet();
+                try (InputStream body = exchange.getRequestBody()) {
+                    lastRequest = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+                }
+                if (delay > 0) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+                final byte[] data = this.response.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(statusCode, data.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(data);
+                }
+            });
+            server.start();
+        }
+
+        String getBaseUri() {
+            return "http://localhost:" + server.getAddress().getPort() + "/v3";
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+    }
+
+    @BeforeMethod
+    public void setup() {
+        System.setProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_DEFAULT_DELAY, "200");
+        System.setProperty(ZTSConsts.ZTS_PROP_CERTSIGN_CIRCUIT_FAILURE_THRESHOLD, "2");
+        System.setProperty(ZTSConsts.ZTS_PROP_CERTSIGN_CIRCUIT_OPEN_TIME, "60000");
+    }
+
+    @AfterMethod
+    public void shutdown() {
+        for (MockSigner signer : signers) {
+            signer.stop();
+        }
+        signers.clear();
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_DEFAULT_DELAY);
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERTSIGN_CIRCUIT_FAILURE_THRESHOLD);
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERTSIGN_CIRCUIT_OPEN_TIME);
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_MIN_DELAY);
+    }
+
+    private MockSigner createSigner(final String response) throws IOException {
+        MockSigner signer = new MockSigner(response);
+        signers.add(signer);
+        return signer;
+    }
+
+    private HedgedCertSignerClient createClient(List<String> baseUris, int maxAttempts) throws Exception {
+        return createClient(baseUris, maxAttempts, true);
+    }
+
+    private HedgedCertSignerClient createClient(List<String> baseUris, int maxAttempts,
+            boolean retryConnFailuresOnly) throws Exception {
+        DynamicConfigInteger attempts = new DynamicConfigInteger(maxAttempts);
+        return new HedgedCertSignerClient(baseUris, SSLContext.getDefault(), attempts,
+                new DynamicConfigBoolean(retryConnFailuresOnly));
+    }
+
+    @Test
+    public void testPostRequest() throws Exception {
+
+        MockSigner signer = createSigner("{\"cert\":\"primary\"}");
+        HedgedCertSignerClient client = createClient(Collections.singletonList(signer.getBaseUri()), 2);
+
+        assertEquals(client.postRequest("/sig/x509-cert/keys/x509-key", "{\"csr\":\"csr\"}", 201),
+                "{\"cert\":\"primary\"}");
+        assertEquals(signer.requestCount.get(), 1);
+        assertEquals(signer.lastRequest, "{\"csr\":\"csr\"}");
+        assertEquals(client.getEndpoints().get(0).histogram.getSampleCount(), 1);
+
+        client.close();
+    }
+
+    @Test
+    public void testPostRequestHedged() throws Exception {
+
+        MockSigner slowSigner = createSigner("{\"cert\":\"slow\"}");
+        slowSigner.delay = 3000;
+        MockSigner fastSigner = createSigner("{\"cert\":\"fast\"}");
+
+        HedgedCertSignerClient client = createClient(Arrays.asList(slowSigner.getBaseUri(),
+                fastSigner.getBaseUri()), 2);
+
+        // the first request is hedged after our default delay of 200ms
+        // and we should get the response from the fast signer
+
+        final long startTime = System.currentTimeMillis();
+        assertEquals(client.postRequest("/sig/x509-cert/keys/x509-key", "{}", 201), "{\"cert\":\"fast\"}");
+        assertTrue(System.currentTimeMillis() - startTime < 2500);
+
+        assertEquals(slowSigner.requestCount.get(), 1);
+        assertEquals(fastSigner.requestCount.get(), 1);
+
+        client.close();
+    }
+
+    @Test
+    public void testPostRequestNotHedgedToSameEndpoint() throws Exception {
+
+        MockSigner slowSigner = createSigner("{\"cert\":\"slow\"}");
+        slowSigner.delay = 1000;
+
+        HedgedCertSignerClient client = createClient(Collections.singletonList(slowSigner.getBaseUri()), 2);
+
+        // with a single endpoint there is nowhere to send the hedged
+        // request so we only wait for our original request
+
+        assertEquals(client.postRequest("/sig/x509-cert/keys/x509-key", "{}", 201), "{\"cert\":\"slow\"}");
+        assertEquals(slowSigner.requestCount.get(), 1);
+
+        client.close();
+    }
+
+    @Test
+    public void testPostRequestNotHedgedWithSingleAttempt() throws Exception {
+
+        MockSigner slowSigner = createSigner("{\"cert\":\"slow\"}");
+        slowSigner.delay = 500;
+        MockSigner fastSigner = createSigner("{\"cert\":\"fast\"}");
+
+        HedgedCertSignerClient client = createClient(Arrays.asList(slowSigner.getBaseUri(),
+                fastSigner.getBaseUri()), 1);
+
+        assertEquals(client.postRequest("/sig/x509-cert/keys/x509-key", "{}", 201), "{\"cert\":\"slow\"}");
+        assertEquals(slowSigner.requestCount.get(), 1);
+        assertEquals(fastSigner.requestCount.get(), 0);
+
+        client.close();
+    }
+
+    @Test
+    public void testPostRequestServerErrorFailover() throws Exception {
+
+        MockSigner failedSigner = createSigner("{}");
+        failedSigner.statusCode = 503;
+        MockSigner signer = createSigner("{\"cert\":\"secondary\"}");
+
+        System.setProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_DEFAULT_DELAY, "10000");
+        HedgedCertSignerClient client = createClient(Arrays.asList(failedSigner.getBaseUri(),
+                signer.getBaseUri()), 2, false);
+
+        // failed request is retried right away without waiting for the hedge delay
+
+        final long startTime = System.currentTimeMillis();
+        assertEquals(client.postRequest("/sig/x509-cert/keys/x509-key", "{}", 201), "{\"cert\":\"secondary\"}");
+        assertTrue(System.currentTimeMillis() - startTime < 5000);
+        assertEquals(failedSigner.requestCount.get(), 1);
+        assertEquals(signer.requestCount.get(), 1);
+
+        // after the second failure the circuit for the failed signer is
+        // opened and all requests go to the second signer only
+
+        assertEquals(client.postRequest("/sig/x509-cert/keys/x509-key", "{}", 201), "{\"cert\":\"secondary\"}");
+        assertEquals(failedSigner.requestCount.get(), 2);
+        assertTrue(client.getEndpoints().get(0).circuitBreaker.isOpen(System.currentTimeMillis()));
+
+        assertEquals(client.postRequest("/sig/x509-cert/keys/x509-key", "{}", 201), "{\"cert\":\"secondary\"}");
+        assertEquals(failedSigner.requestCount.get(), 2);
+        assertEquals(signer.requestCount.get(), 3);
+
+        client.close();
+    }
+
+    @Test
+    public void testPostRequestServerErrorNotRetried() throws Exception {
+
+        MockSigner failedSigner = createSigner("{}");
+        failedSigner.statusCode = 503;
+        MockSigner signer = createSigner("{\"cert\":\"secondary\"}");
+
+        System.setProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_DEFAULT_DELAY, "10000");
+        HedgedCertSignerClient client = createClient(Arrays.asList(failedSigner.getBaseUri(),
+                signer.getBaseUri()), 2);
+
+        // by default only connection failures are retried so we must
+        // fail right away without waiting for the hedge delay
+
+        final long startTime = System.currentTimeMillis();
+        assertNull(client.postRequest("/sig/x509-cert/keys/x509-key", "{}", 201));
+        assertTrue(System.currentTimeMillis() - startTime < 5000);
+        assertEquals(failedSigner.requestCount.get(), 1);
+        assertEquals(signer.requestCount.get(), 0);
+
+        client.close();
+    }
+
+    @Test
+    public void testPostRequestClientError() throws Exception {
+
+        MockSigner signer1 = createSigner("{}");
+        signer1.statusCode = 400;
+        MockSigner signer2 = createSigner("{\"cert\":\"secondary\"}");
+
+        HedgedCertSignerClient client = createClient(Arrays.asList(signer1.getBaseUri(),
+                signer2.getBaseUri()), 2);
+
+        // client errors are not retried
+
+        assertNull(client.postRequest("/sig/x509-cert/keys/x509-key", "{}", 201));
+        assertEquals(signer1.requestCount.get(), 1);
+        assertEquals(signer2.requestCount.get(), 0);
+        assertFalse(client.getEndpoints().get(0).circuitBreaker.isOpen(System.currentTimeMillis()));
+
+        client.close();
+    }
+
+    @Test
+    public void testPostRequestAllEndpointsFailed() throws Exception {
+
+        MockSigner signer1 = createSigner("{}");
+        signer1.statusCode = 500;
+        MockSigner signer2 = createSigner("{}");
+        signer2.statusCode = 502;
+
+        HedgedCertSignerClient client = createClient(Arrays.asList(signer1.getBaseUri(),
+                signer2.getBaseUri()), 3, false);
+
+        // with 3 attempts we cycle back to the first signer
+
+        assertNull(client.postRequest("/sig/x509-cert/keys/x509-key", "{}", 201));
+        assertEquals(signer1.requestCount.get(), 2);
+        assertEquals(signer2.requestCount.get(), 1);
+
+        // now both circuits are open so no requests are sent
+
+        client.postRequest("/sig/x509-cert/keys/x509-key", "{}", 201);
+        assertNull(client.postRequest("/sig/x509-cert/keys/x509-key", "{}", 201));
+        assertTrue(signer1.requestCount.get() + signer2.requestCount.get() <= 5);
+
+        client.close();
+    }
+
+    @Test
+    public void testPostRequestConnectionFailure() throws Exception {
+
+        MockSigner stoppedSigner = createSigner("{}");
+        final String stoppedUri = stoppedSigner.getBaseUri();
+        stoppedSigner.stop();
+        signers.remove(stoppedSigner);
+
+        MockSigner signer = createSigner("{\"cert\":\"secondary\"}");
+
+        HedgedCertSignerClient client = createClient(Arrays.asList(stoppedUri, signer.getBaseUri()), 2);
+        assertEquals(client.postRequest("/sig/x509-cert/keys/x509-key", "{}", 201), "{\"cert\":\"secondary\"}");
+        assertEquals(signer.requestCount.get(), 1);
+
+        client.close();
+    }
+
+    @Test
+    public void testIsConnectionFailure() {
+        assertTrue(HedgedCertSignerClient.isConnectionFailure(new ConnectException("refused")));
+        assertTrue(HedgedCertSignerClient.isConnectionFailure(new ConnectTimeoutException("timeout")));
+        assertFalse(HedgedCertSignerClient.isConnectionFailure(new SocketTimeoutException("read timeout")));
+        assertFalse(HedgedCertSignerClient.isConnectionFailure(new IOException("failure")));
+    }
+
+    @Test
+    public void testGetHedgeDelay() throws Exception {
+
+        System.setProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_MIN_DELAY, "20");
+        HedgedCertSignerClient client = createClient(Collections.singletonList("https://localhost:4443/v3"), 2);
+        HedgedCertSignerClient.SignerEndpoint endpoint = client.getEndpoints().get(0);
+
+        // not enough samples so we get our default delay
+
+        assertEquals(client.getHedgeDelay(endpoint), 200);
+        for (int i = 0; i < 19; i++) {
+            endpoint.histogram.record(100);
+        }
+        assertEquals(client.getHedgeDelay(endpoint), 200);
+
+        endpoint.histogram.record(100);
+        long delay = client.getHedgeDelay(endpoint);
+        assertTrue(delay >= 100 && delay <= 125, "delay: " + delay);
+
+        // delay is never below our configured minimum
+
+        HedgedCertSignerClient.SignerEndpoint fastEndpoint = new HedgedCertSignerClient.SignerEndpoint(
+                "https://localhost:4443/v3", new LatencyHistogram(1000, 100),
+                new HedgedCertSignerClient.CircuitBreaker(2, 1000));
+        for (int i = 0; i < 20; i++) {
+            fastEndpoint.histogram.record(1);
+        }
+        assertEquals(client.getHedgeDelay(fastEndpoint), 20);
+
+        client.close();
+    }
+
+    @Test
+    public void testCircuitBreaker() {
+
+        HedgedCertSignerClient.CircuitBreaker circuitBreaker = new HedgedCertSignerClient.CircuitBreaker(2, 1000);
+        assertTrue(circuitBreaker.allowRequest(100));
+
+        circuitBreaker.recordFailure(100);
+        assertTrue(circuitBreaker.allowRequest(100));
+        assertFalse(circuitBreaker.isOpen(100));
+
+        circuitBreaker.recordFailure(200);
+        assertTrue(circuitBreaker.isOpen(200));
+        assertFalse(circuitBreaker.allowRequest(500));
+        assertFalse(circuitBreaker.allowRequest(1199));
+
+        // once the open time expires only a single request is allowed
+
+        assertTrue(circuitBreaker.allowRequest(1200));
+        assertFalse(circuitBreaker.allowRequest(1201));
+
+        // failed probe keeps the circuit open
+
+        circuitBreaker.recordFailure(1300);
+        assertFalse(circuitBreaker.allowRequest(2000));
+        assertTrue(circuitBreaker.allowRequest(2300));
+
+        // successful probe closes the circuit
+
+        circuitBreaker.recordSuccess();
+        assertFalse(circuitBreaker.isOpen(2300));
+        assertTrue(circuitBreaker.allowRequest(2300));
+        assertTrue(circuitBreaker.allowRequest(2301));
+    }
+}
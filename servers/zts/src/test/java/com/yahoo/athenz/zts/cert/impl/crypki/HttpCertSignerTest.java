@@ -12,6 +12,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.ConnectException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
 
 import com.yahoo.athenz.common.server.cert.Priority;
 import com.yahoo.athenz.instance.provider.InstanceProvider;
@@ -214,6 +216,63 @@ public class HttpCertSignerTest {
         certSigner.close();
     }
     
+    @Test
+    public void testGenerateX509CertificateHedged() throws Exception {
+
+        HedgedCertSignerClientTest.MockSigner slowSigner =
+                new HedgedCertSignerClientTest.MockSigner("{\"cert\": \"slow-pem\"}");
+        slowSigner.delay = 3000;
+        HedgedCertSignerClientTest.MockSigner signer =
+                new HedgedCertSignerClientTest.MockSigner("{\"cert\": \"pem-value\"}");
+
+        System.setProperty(ZTSConsts.ZTS_PROP_CERTSIGN_BASE_URI, slowSigner.getBaseUri());
+        System.setProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_ENABLED, "true");
+        System.setProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_BASE_URIS, " ," + signer.getBaseUri()
+                + "," + slowSigner.getBaseUri());
+        System.setProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_DEFAULT_DELAY, "100");
+
+        HttpCertSignerFactory certFactory = new HttpCertSignerFactory();
+        HttpCertSigner certSigner = (HttpCertSigner) certFactory.create();
+        assertEquals(certSigner.getSignerBaseUris(), Arrays.asList(slowSigner.getBaseUri(), signer.getBaseUri()));
+
+        String pem = certSigner.generateX509Certificate("aws", null, "csr", InstanceProvider.ZTS_CERT_USAGE_CLIENT, 0,
+                Priority.Unspecified_priority, null);
+        assertEquals(pem, "pem-value");
+        assertEquals(signer.requestCount.get(), 1);
+        assertTrue(signer.lastRequest.contains("\"csr\":\"csr\""));
+
+        // invalid response data
+
+        signer.response = "invalid-json";
+        slowSigner.response = "invalid-json";
+        assertNull(certSigner.generateX509Certificate("aws", null, "csr", null, 0, Priority.Unspecified_priority, null));
+
+        // failed requests
+
+        signer.statusCode = 500;
+        slowSigner.statusCode = 500;
+        slowSigner.delay = 0;
+        assertNull(certSigner.generateX509Certificate("aws", null, "csr", null, 0, Priority.Unspecified_priority, null));
+
+        certSigner.close();
+        signer.stop();
+        slowSigner.stop();
+
+        System.setProperty(ZTSConsts.ZTS_PROP_CERTSIGN_BASE_URI, "https://localhost:443/v3");
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_ENABLED);
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_BASE_URIS);
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_DEFAULT_DELAY);
+    }
+
+    @Test
+    public void testGetSignerBaseUris() {
+
+        HttpCertSignerFactory certFactory = new HttpCertSignerFactory();
+        HttpCertSigner certSigner = (HttpCertSigner) certFactory.create();
+        assertEquals(certSigner.getSignerBaseUris(), Collections.singletonList("https://localhost:443/v3"));
+        certSigner.close();
+    }
+
     @Test
     public void testGenerateX509CertificateInvalidCsr() {
        HttpCertSigner testHttpCertSigner = new HttpCertSigner() {
@@ -0,0 +1,100 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cert.impl.crypki;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testGetPercentile() {
+
+        LatencyHistogram histogram = new LatencyHistogram(30000, 10000);
+        assertEquals(histogram.getPercentile(95), -1);
+
+        for (int i = 0; i < 90; i++) {
+            histogram.record(10);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1000);
+        }
+        assertEquals(histogram.getSampleCount(), 100);
+
+        // bucket bounds are within 25% of the recorded value
+
+        long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= 10 && p50 <= 13, "p50: " + p50);
+        long p90 = histogram.getPercentile(90);
+        assertTrue(p90 >= 10 && p90 <= 13, "p90: " + p90);
+        long p95 = histogram.getPercentile(95);
+        assertTrue(p95 >= 1000 && p95 <= 1250, "p95: " + p95);
+        assertEquals(histogram.getPercentile(100), p95);
+        assertEquals(histogram.getPercentile(0), p50);
+    }
+
+    @Test
+    public void testRecordOutOfRange() {
+
+        LatencyHistogram histogram = new LatencyHistogram(1000, 10000);
+        histogram.record(-5);
+        assertEquals(histogram.getPercentile(100), 1);
+
+        histogram = new LatencyHistogram(1000, 10000);
+        histogram.record(50000);
+        assertEquals(histogram.getPercentile(50), 1000);
+    }
+
+    @Test
+    public void testGetBucketIndex() {
+
+        LatencyHistogram histogram = new LatencyHistogram(100, 10000);
+        assertEquals(histogram.getBucketIndex(0), 0);
+        assertEquals(histogram.getBucketIndex(1), 0);
+        assertEquals(histogram.getBucketIndex(2), 1);
+        assertTrue(histogram.getBucketIndex(50) <= histogram.getBucketIndex(51));
+        assertEquals(histogram.getBucketIndex(100), histogram.getBucketIndex(5000));
+    }
+
+    @Test
+    public void testDecay() {
+
+        LatencyHistogram histogram = new LatencyHistogram(30000, 100);
+        for (int i = 0; i < 99; i++) {
+            histogram.record(10);
+        }
+        assertEquals(histogram.getSampleCount(), 99);
+
+        // the 100th sample triggers the decay
+
+        histogram.record(5000);
+        assertEquals(histogram.getSampleCount(), 49);
+
+        // newer samples now have more weight
+
+        for (int i = 0; i < 50; i++) {
+            histogram.record(5000);
+        }
+        long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= 5000, "p50: " + p50);
+
+        // decay without reaching the limit is a no-op
+
+        histogram.decay();
+        assertEquals(histogram.getSampleCount(), 99);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.limiter;
+
+import com.yahoo.athenz.common.metrics.Metric;
+import com.yahoo.athenz.zts.ZTSConsts;
+import org.mockito.Mockito;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class ConcurrencyLimiterManagerTest {
+
+    @BeforeMethod
+    public void setup() {
+        System.setProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_INITIAL_LIMIT, "2");
+        System.setProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_MIN_LIMIT, "1");
+        System.setProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_QUEUE_SIZE, "0");
+    }
+
+    @AfterMethod
+    public void cleanup() {
+        System.clearProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_INITIAL_LIMIT);
+        System.clearProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_MIN_LIMIT);
+        System.clearProperty(ZTSConsts.ZTS_PROP_CONCURRENCY_LIMITER_QUEUE_SIZE);
+    }
+
+    @Test
+    public void testAcquirePerProvider() {
+
+        Metric metric = Mockito.mock(Metric.class);
+        ConcurrencyLimiterManager manager = new ConcurrencyLimiterManager(metric);
+
+        assertNotNull(manager.acquire("postinstanceregisterinformation", "sys.auth.aws"));
+        assertNotNull(manager.acquire("postinstanceregisterinformation", "sys.auth.aws"));
+
+        // the limit for the aws provider is reached but the other
+        // provider and api have their own limits
+
+        assertNull(manager.acquire("postinstanceregisterinformation", "sys.auth.aws"));
+        assertNotNull(manager.acquire("postinstanceregisterinformation", "sys.auth.gcp"));
+        assertNotNull(manager.acquire("postinstancerefreshinformation", "sys.auth.aws"));
+
+        Mockito.verify(metric, Mockito.times(1)).increment(ConcurrencyLimiterManager.METRIC_REJECTED,
+                "apiName", "postinstanceregisterinformation", "provider", "sys.auth.aws");
+        Mockito.verify(metric, Mockito.times(5)).gauge(Mockito.eq(ConcurrencyLimiterManager.METRIC_LIMIT),
+                Mockito.anyLong(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.verify(metric, Mockito.times(2)).gauge(ConcurrencyLimiterManager.METRIC_INFLIGHT, 2,
+                "apiName", "postinstanceregisterinformation", "provider", "sys.auth.aws");
+    }
+
+    @Test
+    public void testRelease() {
+
+        Metric metric = Mockito.mock(Metric.class);
+        ConcurrencyLimiterManager manager = new ConcurrencyLimiterManager(metric);
+
+        ConcurrencyLimiterManager.Permit permit1 = manager.acquire("postinstanceregisterinformation", "sys.auth.aws");
+        ConcurrencyLimiterManager.Permit permit2 = manager.acquire("postinstanceregisterinformation", "sys.auth.aws");
+        assertNotNull(permit1);
+        assertNotNull(permit2);
+
+        ConcurrencyLimiter limiter = manager.getLimiter("postinstanceregisterinformation", "sys.auth.aws");
+        assertEquals(limiter.getInflight(), 2);
+
+        // server errors reduce the limit
+
+        permit1.release(504);
+        assertEquals(limiter.getInflight(), 1);
+        assertEquals(limiter.getLimit(), 1);
+
+        // client errors are processed as completed requests so
+        // with the limit fully used, the limit grows back
+
+        permit2.release(400);
+        assertEquals(limiter.getInflight(), 0);
+        assertEquals(limiter.getLimit(), 2);
+
+        Mockito.verify(metric, Mockito.times(1)).gauge(ConcurrencyLimiterManager.METRIC_INFLIGHT, 0,
+                "apiName", "postinstanceregisterinformation", "provider", "sys.auth.aws");
+        assertNull(manager.getLimiter("postinstanceregisterinformation", "sys.auth.gcp"));
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.limiter;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.testng.Assert.*;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void testLimitBounds() {
+
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 5, 50, 10, 100, 1.5, 0.2);
+        assertEquals(limiter.getLimit(), 50);
+
+        limiter = new ConcurrencyLimiter(1, 5, 50, 10, 100, 1.5, 0.2);
+        assertEquals(limiter.getLimit(), 5);
+
+        limiter = new ConcurrencyLimiter(10, 0, -1, -1, -1, 1.5, 0.2);
+        assertEquals(limiter.getLimit(), 1);
+    }
+
+    @Test
+    public void testAcquireReject() {
+
+        // with no queue the requests over the limit are rejected right away
+
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 10, 0, 1000, 1.5, 0.2);
+        ConcurrencyLimiter.Permit permit1 = limiter.acquire();
+        ConcurrencyLimiter.Permit permit2 = limiter.acquire();
+        assertNotNull(permit1);
+        assertNotNull(permit2);
+        assertEquals(limiter.getInflight(), 2);
+
+        assertNull(limiter.acquire());
+        assertEquals(limiter.getQueueDepth(), 0);
+
+        // releasing the same permit multiple times has no effect
+
+        permit1.release(false);
+        permit1.release(false);
+        assertEquals(limiter.getInflight(), 1);
+
+        assertNotNull(limiter.acquire());
+        assertEquals(limiter.getInflight(), 2);
+    }
+
+    @Test
+    public void testAcquireQueueTimeout() {
+
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 10, 5, 50, 1.5, 0.2);
+        assertNotNull(limiter.acquire());
+
+        long start = System.nanoTime();
+        assertNull(limiter.acquire());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 40);
+        assertEquals(limiter.getQueueDepth(), 0);
+        assertEquals(limiter.getInflight(), 1);
+    }
+
+    @Test
+    public void testAcquireQueued() throws Exception {
+
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 5, 10000, 1.5, 0.2);
+        ConcurrencyLimiter.Permit permit = limiter.acquire();
+        assertNotNull(permit);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ConcurrencyLimiter.Permit> future = executor.submit(limiter::acquire);
+
+            // wait until the request is queued and then release our permit
+
+            for (int i = 0; i < 100 && limiter.getQueueDepth() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(limiter.getQueueDepth(), 1);
+            permit.release(false);
+
+            assertNotNull(future.get(5, TimeUnit.SECONDS));
+            assertEquals(limiter.getQueueDepth(), 0);
+            assertEquals(limiter.getInflight(), 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAcquireInterrupted() throws Exception {
+
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 5, 10000, 1.5, 0.2);
+        assertNotNull(limiter.acquire());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ConcurrencyLimiter.Permit> future = executor.submit(limiter::acquire);
+            for (int i = 0; i < 100 && limiter.getQueueDepth() == 0; i++) {
+                Thread.sleep(10);
+            }
+            executor.shutdownNow();
+            assertNull(future.get(5, TimeUnit.SECONDS));
+            assertEquals(limiter.getQueueDepth(), 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDroppedRequests() {
+
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 5, 100, 10, 100, 1.5, 0.2);
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire().release(true);
+        }
+        assertEquals(limiter.getLimit(), 11);
+
+        // the limit never goes below the configured minimum
+
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire().release(true);
+        }
+        assertEquals(limiter.getLimit(), 5);
+    }
+
+    @Test
+    public void testUpdateLimitStableLatency() {
+
+        // with stable latency and the limit fully used, the limit grows
+
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 5, 50, 10, 100, 1.5, 0.2);
+        for (int i = 0; i < 10; i++) {
+            limiter.updateLimit(1000000, 10);
+        }
+        assertTrue(limiter.getLimit() > 10);
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.updateLimit(1000000, 50);
+        }
+        assertEquals(limiter.getLimit(), 50);
+    }
+
+    @Test
+    public void testUpdateLimitApplicationLimited() {
+
+        // if the requests are not using the limit, the limit is not changed
+
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 5, 50, 10, 100, 1.5, 0.2);
+        for (int i = 0; i < 10; i++) {
+            limiter.updateLimit(1000000, 2);
+        }
+        assertEquals(limiter.getLimit(), 20);
+    }
+
+    @Test
+    public void testUpdateLimitIncreasedLatency() {
+
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(40, 5, 50, 10, 100, 1.5, 0.2);
+        for (int i = 0; i < 100; i++) {
+            limiter.updateLimit(1000000, 40);
+        }
+        final int stableLimit = limiter.getLimit();
+
+        // once the backends slow down, the limit is reduced
+
+        for (int i = 0; i < 50; i++) {
+            limiter.updateLimit(10000000, 50);
+        }
+        assertEquals(stableLimit, 50);
+        assertTrue(limiter.getLimit() < stableLimit / 2, "limit: " + limiter.getLimit());
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 4, 4, 100, 10000, 1.5, 0.2);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                futures.add(executor.submit(() -> {
+                    ConcurrencyLimiter.Permit permit = limiter.acquire();
+                    if (permit == null) {
+                        return -1;
+                    }
+                    final int inflight = limiter.getInflight();
+                    Thread.sleep(1);
+                    permit.release(false);
+                    return inflight;
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                final int inflight = future.get(10, TimeUnit.SECONDS);
+                assertTrue(inflight >= 1 && inflight <= 4);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(limiter.getInflight(), 0);
+        assertEquals(limiter.getQueueDepth(), 0);
+    }
+}
@@ -35,6 +35,8 @@ import java.nio.file.Paths;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.primitives.Bytes;
@@ -60,6 +62,7 @@ import com.yahoo.athenz.common.utils.SignUtils;
 import com.yahoo.athenz.zts.HostServices;
 import com.yahoo.athenz.zts.ZTSConsts;
 import com.yahoo.athenz.zts.cache.DataCache;
+import com.yahoo.athenz.zts.cache.PrincipalRoles;
 import com.yahoo.athenz.zts.cache.MemberRole;
 import com.yahoo.athenz.zts.store.DataStore.DataUpdater;
 import com.yahoo.rdl.JSON;
@@ -1493,6 +1496,10 @@ public class DataStoreTest {
         assertNull(store.getPublicKey("coretech", "storage", "0"));
         assertEquals(store.getPublicKey("coretech", "storage", "1"), ZTS_PEM_CERT1);
         assertNull(store.getPublicKey("coretech", "storage", "2"));
+
+        assertNull(store.getParsedPublicKey("coretech", "storage", "0"));
+        assertEquals(store.getParsedPublicKey("coretech", "storage", "1"), Crypto.loadPublicKey(ZTS_PEM_CERT1));
+        assertNull(store.getParsedPublicKey("coretech", "storage", "2"));
     }
     
     @Test
@@ -1604,6 +1611,138 @@ public class DataStoreTest {
         assertFalse(file.exists());
     }
     
+    @Test
+    public void testUpdateHostEntries() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+        store.hostCache.put("host1", new ArrayList<>(List.of("sports.api", "coretech.storage")));
+
+        Map<String, Set<String>> oldHostMap = new HashMap<>();
+        oldHostMap.put("host1", new HashSet<>(List.of("coretech.storage")));
+        oldHostMap.put("host2", new HashSet<>(List.of("coretech.storage")));
+
+        Map<String, Set<String>> newHostMap = new HashMap<>();
+        newHostMap.put("host1", new HashSet<>(List.of("coretech.storage", "coretech.backup")));
+        newHostMap.put("host3", new HashSet<>(List.of("coretech.backup")));
+
+        store.updateHostEntries(oldHostMap, newHostMap);
+
+        List<String> services = store.hostCache.get("host1");
+        assertEquals(services.size(), 3);
+        assertTrue(services.containsAll(List.of("sports.api", "coretech.storage", "coretech.backup")));
+        assertThrows(UnsupportedOperationException.class, () -> services.add("weather.api"));
+
+        // host2 was not in the cache so there is nothing to remove
+
+        assertNull(store.hostCache.get("host2"));
+        assertEquals(store.hostCache.get("host3"), List.of("coretech.backup"));
+
+        // the returned host services are a copy of our list
+
+        HostServices hostServices = store.getHostServices("host3");
+        hostServices.getNames().add("weather.api");
+        assertEquals(store.hostCache.get("host3"), List.of("coretech.backup"));
+    }
+
+    @Test
+    public void testAddDomainToCacheKeyRotation() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+
+        ServiceIdentity service = new ServiceIdentity().setName("coretech.storage");
+        setServicePublicKey(service, "0", ZTS_Y64_CERT0);
+        service.getPublicKeys().add(new com.yahoo.athenz.zms.PublicKeyEntry().setId("1").setKey(ZTS_Y64_CERT1));
+
+        DataCache dataCache = new DataCache();
+        dataCache.processServiceIdentity(service);
+        dataCache.setDomainData(new DomainData().setServices(List.of(service)));
+        store.addDomainToCache("coretech", dataCache);
+
+        assertNotNull(store.getPublicKey("coretech", "storage", "0"));
+        assertNotNull(store.getParsedPublicKey("coretech", "storage", "0"));
+        assertNotNull(store.getPublicKey("coretech", "storage", "1"));
+
+        // rotate the keys - key 0 is removed, key 1 is kept and key 2 is added
+
+        service = new ServiceIdentity().setName("coretech.storage");
+        setServicePublicKey(service, "1", ZTS_Y64_CERT1);
+        service.getPublicKeys().add(new com.yahoo.athenz.zms.PublicKeyEntry().setId("2").setKey(ZTS_Y64_CERT2));
+
+        dataCache = new DataCache();
+        dataCache.processServiceIdentity(service);
+        dataCache.setDomainData(new DomainData().setServices(List.of(service)));
+        store.addDomainToCache("coretech", dataCache);
+
+        assertNull(store.getPublicKey("coretech", "storage", "0"));
+        assertNull(store.getParsedPublicKey("coretech", "storage", "0"));
+        assertEquals(store.getPublicKey("coretech", "storage", "1"), ZTS_PEM_CERT1);
+        assertNotNull(store.getParsedPublicKey("coretech", "storage", "1"));
+        assertEquals(store.getPublicKey("coretech", "storage", "2"), ZTS_PEM_CERT2);
+        assertEquals(store.publicKeyCache.size(), 2);
+        assertEquals(store.parsedPublicKeyCache.size(), 2);
+    }
+
+    @Test
+    public void testPublicKeyLookupDuringDomainUpdates() throws InterruptedException {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+
+        DataCache[] dataCaches = new DataCache[2];
+        for (int i = 0; i < dataCaches.length; i++) {
+            ServiceIdentity service = new ServiceIdentity().setName("coretech.storage")
+                    .setHosts(List.of("host1", "host" + (i + 2)));
+            setServicePublicKey(service, "0", ZTS_Y64_CERT0);
+            service.getPublicKeys().add(new com.yahoo.athenz.zms.PublicKeyEntry()
+                    .setId(Integer.toString(i + 1)).setKey(ZTS_Y64_CERT1));
+            dataCaches[i] = new DataCache();
+            dataCaches[i].processServiceIdentity(service);
+            dataCaches[i].setDomainData(new DomainData().setServices(List.of(service)));
+        }
+        store.addDomainToCache("coretech", dataCaches[0]);
+
+        // the key and host that are present in both versions of the
+        // domain must be available while the domain is being updated
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicInteger failures = new AtomicInteger();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread reader = new Thread(() -> {
+                while (running.get()) {
+                    if (store.getPublicKey("coretech", "storage", "0") == null
+                            || store.getParsedPublicKey("coretech", "storage", "0") == null
+                            || !store.getHostServices("host1").getNames().contains("coretech.storage")) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            store.addDomainToCache("coretech", dataCaches[i % 2]);
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertEquals(failures.get(), 0);
+
+        // the last update was the second version of the domain
+
+        assertNull(store.getPublicKey("coretech", "storage", "1"));
+        assertNotNull(store.getPublicKey("coretech", "storage", "2"));
+        assertTrue(store.getHostServices("host2").getNames().isEmpty());
+        assertEquals(store.getHostServices("host3").getNames(), List.of("coretech.storage"));
+    }
+
     @Test
     public void testDeleteDomainFromCacheHosts() {
         
@@ -1667,11 +1806,17 @@ public class DataStoreTest {
         dataCache.setDomainData(domainData);
         
         store.addDomainToCache("coretech", dataCache);
+        assertNotNull(store.getParsedPublicKey("coretech", "storage", "1"));
+
         store.deleteDomainFromCache("coretech");
 
         assertNull(store.getPublicKey("coretech", "storage", "0"));
         assertNull(store.getPublicKey("coretech", "storage", "1"));
         assertNull(store.getPublicKey("coretech", "storage", "2"));
+
+        assertNull(store.getParsedPublicKey("coretech", "storage", "0"));
+        assertNull(store.getParsedPublicKey("coretech", "storage", "1"));
+        assertTrue(store.parsedPublicKeyCache.isEmpty());
     }
     
     @Test
@@ -2329,6 +2474,87 @@ public class DataStoreTest {
         assertEquals(rolesRequireRoleCert.size(), 0);
     }
 
+    @Test
+    public void testIndexUpdateContentionMetric() throws InterruptedException {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        Metric metric = Mockito.mock(Metric.class);
+        DataStore store = new DataStore(clogStore, null, metric);
+
+        // uncontended updates do not report any metrics
+
+        store.deleteDomainFromCache("coretech");
+        Mockito.verify(metric, Mockito.times(0)).increment(DataStore.METRIC_INDEX_UPDATE_CONTENTION);
+
+        // hold the lock while another thread updates the indexes
+
+        store.lockIndexUpdates();
+        Thread thread = new Thread(() -> store.deleteDomainFromCache("coretech"));
+        thread.start();
+        while (!store.indexUpdateLock.hasQueuedThreads()) {
+            Thread.sleep(10);
+        }
+        store.indexUpdateLock.unlock();
+        thread.join();
+
+        Mockito.verify(metric, Mockito.times(1)).increment(DataStore.METRIC_INDEX_UPDATE_CONTENTION);
+        Mockito.verify(metric, Mockito.times(1)).startTiming(DataStore.METRIC_INDEX_UPDATE_LOCK_WAIT, null);
+        Mockito.verify(metric, Mockito.times(1)).stopTiming(Mockito.any());
+        assertFalse(store.indexUpdateLock.isLocked());
+    }
+
+    @Test
+    public void testProcessDomainDataCompact() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        System.setProperty("athenz.zts.domain_data_compact", "true");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+        System.clearProperty("athenz.zts.domain_data_compact");
+        assertTrue(store.compactDomainData);
+        assertEquals(store.getDomainHeapUsage("coretech"), -1);
+
+        DomainData domainData = getDomainData(true);
+        domainData.getRoles().get(0).getRoleMembers().get(0).setAuditRef("audit-ref");
+        store.processDomainData(domainData);
+
+        // the cache has its own copy of the domain data without the
+        // member attributes that are not used by ZTS
+
+        DomainData cachedData = store.getDomainData("coretech");
+        assertNotSame(cachedData, domainData);
+        assertNull(cachedData.getRoles().get(0).getRoleMembers().get(0).getAuditRef());
+        assertEquals(domainData.getRoles().get(0).getRoleMembers().get(0).getAuditRef(), "audit-ref");
+
+        DataCache dataCache = store.getDataCache("coretech");
+        assertEquals(dataCache.getMemberRoleSet("user_domain.user").size(), 2);
+        assertTrue(dataCache.getMemberRoleSet("user_domain.user")
+                .contains(new MemberRole("coretech:role.admin", 0)));
+        assertTrue(store.getDomainHeapUsage("coretech") > 0);
+
+        // the compaction report is reset once it's logged
+
+        assertEquals(store.compactedDomainCount.get(), 1);
+        assertTrue(store.compactedDomainSavings.get() > 0);
+        store.logDomainDataCompaction();
+        assertEquals(store.compactedDomainCount.get(), 0);
+        assertEquals(store.compactedDomainSavings.get(), 0);
+        store.logDomainDataCompaction();
+
+        // compaction is disabled by default so the cache keeps the original object
+
+        store = new DataStore(clogStore, null, ztsMetric);
+        assertFalse(store.compactDomainData);
+
+        domainData = getDomainData(true);
+        store.processDomainData(domainData);
+        assertSame(store.getDomainData("coretech"), domainData);
+        assertEquals(store.getDataCache("coretech").getMemberRoleSet("user_domain.user").size(), 2);
+        assertTrue(store.getDomainHeapUsage("coretech") > 0);
+        assertEquals(store.compactedDomainCount.get(), 0);
+    }
+
     private DomainData getDomainData(boolean withRequireRoleCertTagRole) {
         List<Role> roles = new ArrayList<>();
 
@@ -4805,6 +5031,114 @@ public class DataStoreTest {
         assertTrue(accessibleRoles.contains("role3"));
     }
 
+    @Test
+    public void testGetAccessibleRolesWithGroupsPrincipalRolesCache() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root", pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+        store.loadAthenzPublicKeys();
+        store.principalRolesCacheSize = 100;
+
+        final String domainName = "access-domain";
+        ZTSTestUtils.setupDomainsWithGroups(store, pkey, domainName, Collections.emptyList());
+
+        Set<String> accessibleRoles = new HashSet<>();
+        DataCache data = store.getDataCache("access-domain1");
+        assertTrue(data.isPrincipalRolesCacheEnabled());
+        store.getAccessibleRoles(data, "access-domain1", "user.user1", null, false, accessibleRoles, false);
+
+        assertEquals(accessibleRoles.size(), 2);
+        assertTrue(accessibleRoles.contains("role1"));
+        assertTrue(accessibleRoles.contains("role2"));
+
+        // the second lookup must use the same precomputed entry
+
+        PrincipalRoles principalRoles = data.getPrincipalRoles("user.user1");
+        assertNotNull(principalRoles);
+
+        accessibleRoles.clear();
+        String[] requestedRoleList = { "role2" };
+        store.getAccessibleRoles(data, "access-domain1", "user.user1", requestedRoleList, false, accessibleRoles, true);
+        assertEquals(accessibleRoles.size(), 1);
+        assertTrue(accessibleRoles.contains("access-domain1:role.role2"));
+        assertSame(data.getPrincipalRoles("user.user1"), principalRoles);
+
+        // user6 has access to role5 through group5 until the member expires
+
+        data = store.getDataCache("access-domain3");
+        accessibleRoles.clear();
+        store.getAccessibleRoles(data, "access-domain3", "user.user6", null, false, accessibleRoles, false);
+        assertEquals(accessibleRoles.size(), 1);
+        assertTrue(accessibleRoles.contains("role5"));
+        assertTrue(data.getPrincipalRoles("user.user6").getExpiration() < Long.MAX_VALUE);
+
+        ZTSTestUtils.sleep(2000);
+
+        accessibleRoles.clear();
+        store.getAccessibleRoles(data, "access-domain3", "user.user6", null, false, accessibleRoles, false);
+        assertTrue(accessibleRoles.isEmpty());
+
+        // delete the groups and verify the group changes are reflected
+
+        ZTSTestUtils.setupDomainsWithGroups(store, pkey, domainName,
+                Arrays.asList("access-domain1:group.group1", "access-domain3:group.group6", "access-domain2:group.group4"));
+
+        data = store.getDataCache("access-domain1");
+
+        accessibleRoles.clear();
+        store.getAccessibleRoles(data, "access-domain1", "user.user1", null, false, accessibleRoles, false);
+        assertTrue(accessibleRoles.isEmpty());
+
+        accessibleRoles.clear();
+        store.getAccessibleRoles(data, "access-domain1", "user.user3", null, false, accessibleRoles, false);
+
+        assertEquals(accessibleRoles.size(), 3);
+        assertTrue(accessibleRoles.contains("role1"));
+        assertTrue(accessibleRoles.contains("role2"));
+        assertTrue(accessibleRoles.contains("role3"));
+    }
+
+    @Test
+    public void testGetAccessibleRolesTrustPrincipalRolesCache() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root", pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+        store.loadAthenzPublicKeys();
+        store.principalRolesCacheSize = 100;
+
+        store.processSignedDomain(createSignedDomain("coretech", "weather"), true);
+        store.processSignedDomain(createTenantSignedDomain("weather", "coretech"), true);
+
+        Set<String> accessibleRoles = new HashSet<>();
+        DataCache data = store.getDataCache("coretech");
+        store.getAccessibleRoles(data, "coretech", "user_domain.user100", null, false, accessibleRoles, false);
+        assertEquals(accessibleRoles.size(), 1);
+        assertTrue(accessibleRoles.contains("tenant.readers"));
+
+        // trusted roles are always matched by their suffix
+
+        accessibleRoles.clear();
+        String[] requestedRoleList = { "readers" };
+        store.getAccessibleRoles(data, "coretech", "user_domain.user100", requestedRoleList, true, accessibleRoles, false);
+        assertEquals(accessibleRoles.size(), 1);
+        assertTrue(accessibleRoles.contains("tenant.readers"));
+
+        // while standard roles require the full name match
+
+        accessibleRoles.clear();
+        store.getAccessibleRoles(data, "coretech", "user_domain.user3", requestedRoleList, true, accessibleRoles, false);
+        assertEquals(accessibleRoles.size(), 1);
+        assertTrue(accessibleRoles.contains("readers"));
+
+        // once the trusted domain is deleted, the entry must be recomputed
+
+        store.deleteDomain("weather");
+
+        accessibleRoles.clear();
+        store.getAccessibleRoles(data, "coretech", "user_domain.user100", null, false, accessibleRoles, false);
+        assertTrue(accessibleRoles.isEmpty());
+    }
+
     @Test
     public void testDomainDeleteWithGroups() {
 
@@ -0,0 +1,141 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.utils;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public class RequestCoalescerTest {
+
+    @Test
+    public void testExecuteSequential() {
+
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+        AtomicInteger counter = new AtomicInteger();
+
+        assertEquals(coalescer.execute("key", () -> "value" + counter.incrementAndGet()), "value1");
+        assertEquals(coalescer.execute("key", () -> "value" + counter.incrementAndGet()), "value2");
+        assertEquals(coalescer.getInflightCount(), 0);
+    }
+
+    @Test
+    public void testExecuteConcurrent() throws Exception {
+
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+        AtomicInteger counter = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        Future<String> leader = executor.submit(() -> coalescer.execute("key", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+            return "value" + counter.incrementAndGet();
+        }));
+        started.await();
+
+        List<Future<String>> followers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            followers.add(executor.submit(() -> coalescer.execute("key",
+                    () -> "value" + counter.incrementAndGet())));
+        }
+
+        // give the followers a chance to join the in-flight request
+
+        Thread.sleep(200);
+        assertEquals(coalescer.getInflightCount(), 1);
+        release.countDown();
+
+        assertEquals(leader.get(), "value1");
+        for (Future<String> follower : followers) {
+            assertEquals(follower.get(), "value1");
+        }
+        assertEquals(counter.get(), 1);
+        assertEquals(coalescer.getInflightCount(), 0);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testExecuteException() throws Exception {
+
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<String> leader = executor.submit(() -> coalescer.execute("key", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+            throw new IllegalStateException("failure");
+        }));
+        started.await();
+
+        Future<String> follower = executor.submit(() -> coalescer.execute("key", () -> "value"));
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<String> future : List.of(leader, follower)) {
+            try {
+                future.get();
+                fail();
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof IllegalStateException);
+            }
+        }
+        assertEquals(coalescer.getInflightCount(), 0);
+
+        // next request is executed again
+
+        assertEquals(coalescer.execute("key", () -> "value"), "value");
+        executor.shutdown();
+    }
+
+    @Test
+    public void testWaitForResult() {
+
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        future.completeExceptionally(new AssertionError("error"));
+        try {
+            coalescer.waitForResult(future);
+            fail();
+        } catch (AssertionError ex) {
+            assertEquals(ex.getMessage(), "error");
+        }
+
+        future = new CompletableFuture<>();
+        future.completeExceptionally(new Exception("checked"));
+        try {
+            coalescer.waitForResult(future);
+            fail();
+        } catch (CompletionException ex) {
+            assertEquals(ex.getCause().getMessage(), "checked");
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.utils;
+
+import com.yahoo.athenz.common.metrics.Metric;
+import com.yahoo.athenz.zts.ResourceException;
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.*;
+
+public class TokenSignerPoolTest {
+
+    @Test
+    public void testSign() {
+
+        Metric metric = Mockito.mock(Metric.class);
+        Object timer = new Object();
+        Mockito.when(metric.startTiming(TokenSignerPool.METRIC_SIGNER_WAIT_TIMING, null)).thenReturn(timer);
+
+        TokenSignerPool pool = new TokenSignerPool(2, 10, metric);
+        final String caller = Thread.currentThread().getName();
+        String result = pool.sign(() -> Thread.currentThread().getName());
+        assertNotEquals(result, caller);
+        assertTrue(result.startsWith("zts-token-signer-"));
+
+        Mockito.verify(metric, Mockito.times(1)).increment(TokenSignerPool.METRIC_SIGNER_REQUEST);
+        Mockito.verify(metric, Mockito.times(1)).gauge(TokenSignerPool.METRIC_SIGNER_QUEUE_DEPTH, 0L);
+        Mockito.verify(metric, Mockito.times(1)).stopTiming(timer);
+        pool.shutdown();
+    }
+
+    @Test
+    public void testSignException() {
+
+        TokenSignerPool pool = new TokenSignerPool(1, 10, Mockito.mock(Metric.class));
+        try {
+            pool.sign(() -> {
+                throw new IllegalArgumentException("invalid key");
+            });
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertEquals(ex.getMessage(), "invalid key");
+        }
+
+        try {
+            pool.sign(() -> {
+                throw new AssertionError("error");
+            });
+            fail();
+        } catch (AssertionError ex) {
+            assertEquals(ex.getMessage(), "error");
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testSignQueueFull() throws Exception {
+
+        TokenSignerPool pool = new TokenSignerPool(1, 1, Mockito.mock(Metric.class));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<String> blocked = executor.submit(() -> pool.sign(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+            return "blocked";
+        }));
+        started.await();
+
+        // the single thread is busy so the next task is queued
+
+        Future<String> queued = executor.submit(() -> pool.sign(() -> "queued"));
+        while (pool.getQueueDepth() == 0) {
+            Thread.sleep(10);
+        }
+        assertEquals(pool.getActiveCount(), 1);
+
+        // with the queue full the task is executed by the caller
+
+        final String caller = Thread.currentThread().getName();
+        assertEquals(pool.sign(() -> Thread.currentThread().getName()), caller);
+
+        release.countDown();
+        assertEquals(blocked.get(), "blocked");
+        assertEquals(queued.get(), "queued");
+
+        executor.shutdown();
+        pool.shutdown();
+    }
+
+    @Test
+    public void testSignInterrupted() throws Exception {
+
+        TokenSignerPool pool = new TokenSignerPool(1, 10, Mockito.mock(Metric.class));
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread.currentThread().interrupt();
+        try {
+            pool.sign(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+                return "value";
+            });
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.INTERNAL_SERVER_ERROR);
+        }
+        assertTrue(Thread.interrupted());
+        release.countDown();
+        pool.shutdown();
+    }
+}
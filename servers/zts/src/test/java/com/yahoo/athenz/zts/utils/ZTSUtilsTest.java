@@ -168,7 +168,7 @@ public class ZTSUtilsTest {
         
         InstanceCertManager certManager = Mockito.mock(InstanceCertManager.class);
         Mockito.when(certManager.generateX509Certificate(Mockito.any(), Mockito.any(), Mockito.any(),
-                Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any())).thenReturn(null);
+                Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any())).thenReturn(null);
         
         Path path = Paths.get("src/test/resources/valid.csr");
         String csr = new String(Files.readAllBytes(path));
@@ -0,0 +1,237 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.workload;
+
+import com.yahoo.athenz.common.server.ServerResourceException;
+import com.yahoo.athenz.common.server.workload.WorkloadRecord;
+import com.yahoo.athenz.zts.ZTSTestUtils;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public class WorkloadRecordCacheTest {
+
+    @Test
+    public void testGetServiceRecords() throws ServerResourceException {
+
+        WorkloadRecordCache cache = new WorkloadRecordCache(60000, 100);
+
+        Date d = new Date();
+        List<WorkloadRecord> records = new ArrayList<>();
+        records.add(ZTSTestUtils.createWorkloadRecord(d, d, "aws", "i-123",
+                "host1.athenz.io", "10.0.0.1", "athenz.api", d));
+
+        AtomicInteger loadCount = new AtomicInteger();
+        WorkloadRecordCache.RecordLoader loader = () -> {
+            loadCount.incrementAndGet();
+            return records;
+        };
+
+        List<WorkloadRecord> result = cache.getServiceRecords("athenz.api", loader);
+        assertEquals(result.size(), 1);
+        assertEquals(loadCount.get(), 1);
+        assertEquals(cache.getServiceCacheSize(), 1);
+        assertEquals(cache.getIpCacheSize(), 0);
+
+        // second lookup is served from the cache
+
+        result = cache.getServiceRecords("athenz.api", loader);
+        assertEquals(result.size(), 1);
+        assertEquals(loadCount.get(), 1);
+
+        // the returned list is a copy and cannot be modified
+
+        records.add(ZTSTestUtils.createWorkloadRecord(d, d, "aws", "i-234",
+                "host2.athenz.io", "10.0.0.2", "athenz.api", d));
+        assertEquals(cache.getServiceRecords("athenz.api", loader).size(), 1);
+        try {
+            result.add(records.get(1));
+            fail();
+        } catch (UnsupportedOperationException ignored) {
+        }
+    }
+
+    @Test
+    public void testGetRecordsRefresh() throws ServerResourceException {
+
+        // with zero refresh time every lookup is reconciled with the store
+
+        WorkloadRecordCache cache = new WorkloadRecordCache(0, 100);
+
+        AtomicInteger loadCount = new AtomicInteger();
+        WorkloadRecordCache.RecordLoader loader = () -> {
+            loadCount.incrementAndGet();
+            return null;
+        };
+
+        assertTrue(cache.getIpRecords("10.0.0.1", loader).isEmpty());
+        assertTrue(cache.getIpRecords("10.0.0.1", loader).isEmpty());
+        assertEquals(loadCount.get(), 2);
+        assertEquals(cache.getIpCacheSize(), 1);
+    }
+
+    @Test
+    public void testGetRecordsLoaderFailure() {
+
+        WorkloadRecordCache cache = new WorkloadRecordCache(60000, 100);
+        try {
+            cache.getServiceRecords("athenz.api", () -> {
+                throw new ServerResourceException(500, "store failure");
+            });
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), 500);
+        }
+        assertEquals(cache.getServiceCacheSize(), 0);
+        assertEquals(cache.getPendingLoadCount(), 0);
+    }
+
+    @Test
+    public void testLocalWritesDuringLoad() throws ServerResourceException {
+
+        WorkloadRecordCache cache = new WorkloadRecordCache(0, 100);
+
+        Date d = new Date();
+        WorkloadRecord record1 = ZTSTestUtils.createWorkloadRecord(d, d, "aws", "i-123",
+                "host1.athenz.io", "10.0.0.1", "athenz.api", d);
+        WorkloadRecord record2 = ZTSTestUtils.createWorkloadRecord(d, d, "aws", "i-234",
+                "host2.athenz.io", "10.0.0.2", "athenz.api", d);
+
+        // the insert completes while the store read is in progress so
+        // the loaded snapshot does not include the new record
+
+        List<WorkloadRecord> result = cache.getServiceRecords("athenz.api", () -> {
+            cache.insertRecord(record2);
+            return List.of(record1);
+        });
+        assertEquals(result.size(), 2);
+        assertSame(result.get(0), record1);
+        assertSame(result.get(1), record2);
+        assertEquals(cache.getPendingLoadCount(), 0);
+
+        // same for an update while the entry is being reloaded
+
+        Date updated = new Date(d.getTime() + 1000);
+        WorkloadRecord update = ZTSTestUtils.createWorkloadRecord(updated, updated, "gcp", "i-123",
+                "host1.athenz.io", "10.0.0.1", "athenz.api", updated);
+        result = cache.getServiceRecords("athenz.api", () -> {
+            cache.updateRecord(update);
+            return List.of(record1, record2);
+        });
+        assertEquals(result.size(), 2);
+        assertEquals(result.get(0).getProvider(), "gcp");
+        assertEquals(result.get(0).getUpdateTime(), updated);
+        assertEquals(cache.getPendingLoadCount(), 0);
+
+        // overlapping loads for the same key both apply the local write
+
+        WorkloadRecord record3 = ZTSTestUtils.createWorkloadRecord(d, d, "aws", "i-345",
+                "host3.athenz.io", "10.0.0.3", "athenz.api", d);
+        result = cache.getServiceRecords("athenz.api", () -> {
+            List<WorkloadRecord> innerResult = cache.getServiceRecords("athenz.api", () -> {
+                cache.insertRecord(record3);
+                return List.of(record1);
+            });
+            assertEquals(innerResult.size(), 2);
+            assertEquals(cache.getPendingLoadCount(), 1);
+            return List.of(record1);
+        });
+        assertEquals(result.size(), 2);
+        assertSame(result.get(1), record3);
+        assertEquals(cache.getPendingLoadCount(), 0);
+
+        // writes after the load has completed are not recorded
+
+        cache.insertRecord(record2);
+        assertEquals(cache.getPendingLoadCount(), 0);
+    }
+
+    @Test
+    public void testInsertRecord() throws ServerResourceException {
+
+        WorkloadRecordCache cache = new WorkloadRecordCache(60000, 100);
+
+        Date d = new Date();
+        WorkloadRecord record1 = ZTSTestUtils.createWorkloadRecord(d, d, "aws", "i-123",
+                "host1.athenz.io", "10.0.0.1", "athenz.api", d);
+        cache.getServiceRecords("athenz.api", () -> List.of(record1));
+
+        // insert for a loaded service and an ip that is not loaded
+
+        WorkloadRecord record2 = ZTSTestUtils.createWorkloadRecord(d, d, "aws", "i-234",
+                "host2.athenz.io", "10.0.0.2", "athenz.api", d);
+        cache.insertRecord(record2);
+
+        List<WorkloadRecord> result = cache.getServiceRecords("athenz.api", () -> {
+            throw new ServerResourceException(500);
+        });
+        assertEquals(result.size(), 2);
+        assertSame(result.get(1), record2);
+        assertEquals(cache.getIpCacheSize(), 0);
+
+        // inserting the same workload again replaces the record
+
+        WorkloadRecord record3 = ZTSTestUtils.createWorkloadRecord(d, d, "gcp", "i-234",
+                "host2.athenz.io", "10.0.0.2", "athenz.api", d);
+        cache.insertRecord(record3);
+
+        result = cache.getServiceRecords("athenz.api", () -> null);
+        assertEquals(result.size(), 2);
+        assertSame(result.get(1), record3);
+
+        // records without service or ip are ignored for that cache
+
+        cache.insertRecord(new WorkloadRecord());
+        assertEquals(cache.getServiceRecords("athenz.api", () -> null).size(), 2);
+    }
+
+    @Test
+    public void testUpdateRecord() throws ServerResourceException {
+
+        WorkloadRecordCache cache = new WorkloadRecordCache(60000, 100);
+
+        Date created = new Date(System.currentTimeMillis() - 3600000);
+        WorkloadRecord record1 = ZTSTestUtils.createWorkloadRecord(created, created, "aws", "i-123",
+                "host1.athenz.io", "10.0.0.1", "athenz.api", created);
+        cache.getIpRecords("10.0.0.1", () -> List.of(record1));
+
+        Date updated = new Date();
+        WorkloadRecord update = ZTSTestUtils.createWorkloadRecord(updated, updated, "gcp", "i-123",
+                "host2.athenz.io", "10.0.0.1", "athenz.api", updated);
+        cache.updateRecord(update);
+
+        List<WorkloadRecord> result = cache.getIpRecords("10.0.0.1", () -> null);
+        assertEquals(result.size(), 1);
+
+        // only provider, cert expiry and update time are updated
+
+        WorkloadRecord record = result.get(0);
+        assertEquals(record.getProvider(), "gcp");
+        assertEquals(record.getCertExpiryTime(), updated);
+        assertEquals(record.getUpdateTime(), updated);
+        assertEquals(record.getHostname(), "host1.athenz.io");
+        assertEquals(record.getCreationTime(), created);
+
+        // the original record is not modified
+
+        assertEquals(record1.getProvider(), "aws");
+    }
+}
@@ -51,6 +51,8 @@ public class Config {
     static final String DEFAULT_JSON_MAX_NESTING_DEPTH = "1000";
     static final String DEFAULT_JSON_MAX_NUMBER_LENGTH = "1000";
     static final String DEFAULT_JSON_MAX_STRING_LENGTH = "200000000";
+    static final String DEFAULT_UPLOAD_THREADS = "10";
+    static final String DEFAULT_UPLOAD_QUEUE_SIZE = "100";
 
     // system properties - take precedence over config file settings
 
@@ -78,6 +80,8 @@ public class Config {
     static final String SYNC_CFG_PARAM_JSON_MAX_NESTING_DEPTH = "json_max_nesting_depth";
     static final String SYNC_CFG_PARAM_JSON_MAX_NUMBER_LENGTH = "json_max_number_length";
     static final String SYNC_CFG_PARAM_JSON_MAX_STRING_LENGTH = "json_max_string_length";
+    static final String SYNC_CFG_PARAM_UPLOAD_THREADS = "upload_threads";
+    static final String SYNC_CFG_PARAM_UPLOAD_QUEUE_SIZE = "upload_queue_size";
 
     static final String[] SYNC_CFG_PARAMS = {
             SYNC_CFG_PARAM_DEBUG,
@@ -101,7 +105,9 @@ public class Config {
             SYNC_CFG_PARAM_DOMAIN_REFRESH_TIMEOUT,
             SYNC_CFG_PARAM_JSON_MAX_NESTING_DEPTH,
             SYNC_CFG_PARAM_JSON_MAX_NUMBER_LENGTH,
-            SYNC_CFG_PARAM_JSON_MAX_STRING_LENGTH
+            SYNC_CFG_PARAM_JSON_MAX_STRING_LENGTH,
+            SYNC_CFG_PARAM_UPLOAD_THREADS,
+            SYNC_CFG_PARAM_UPLOAD_QUEUE_SIZE
     };
 
     static final String ZMS_CFG_PARAM_ZMS_URL = "zmsUrl";
@@ -260,6 +266,8 @@ public class Config {
             propertyMap.putIfAbsent(SYNC_CFG_PARAM_JSON_MAX_NESTING_DEPTH, DEFAULT_JSON_MAX_NESTING_DEPTH);
             propertyMap.putIfAbsent(SYNC_CFG_PARAM_JSON_MAX_NUMBER_LENGTH, DEFAULT_JSON_MAX_NUMBER_LENGTH);
             propertyMap.putIfAbsent(SYNC_CFG_PARAM_JSON_MAX_STRING_LENGTH, DEFAULT_JSON_MAX_STRING_LENGTH);
+            propertyMap.putIfAbsent(SYNC_CFG_PARAM_UPLOAD_THREADS, DEFAULT_UPLOAD_THREADS);
+            propertyMap.putIfAbsent(SYNC_CFG_PARAM_UPLOAD_QUEUE_SIZE, DEFAULT_UPLOAD_QUEUE_SIZE);
 
             syncMergeStatus = true;
         } catch (Exception ex) {
@@ -25,6 +25,7 @@ public class DomainState {
     private String domain;
     private String modified;
     private long fetchTime;
+    private String contentHash;
 
     public long getFetchTime() {
         return fetchTime;
@@ -44,4 +45,10 @@ public class DomainState {
     public void setModified(String modified) {
         this.modified = modified;
     }
+    public String getContentHash() {
+        return contentHash;
+    }
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
 }
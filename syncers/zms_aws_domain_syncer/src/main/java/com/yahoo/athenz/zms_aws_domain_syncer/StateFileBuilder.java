@@ -99,14 +99,24 @@ public class StateFileBuilder {
                 .filter(entry -> domainValidator.validateJWSDomain(entry.getValue().getJwsDomain()))
                 .collect(Collectors.toMap(
                         Map.Entry::getKey,
-                        value -> getDomainState(domainValidator.getDomainData(value.getValue().getJwsDomain()),
-                                value.getValue().getFetchTime())
+                        value -> getDomainState(value.getValue())
                 ));
 
         LOGGER.info("validated signatures of {} domain object from S3 bucket {}", stateMap.size(), BUCKET_NAME);
         return stateMap;
     }
 
+    DomainState getDomainState(final JWSDomainData jwsDomainData) {
+
+        // include the hash of the domain content stored in S3 so the syncer
+        // can skip uploading domains whose content has not changed
+
+        final DomainData domainData = domainValidator.getDomainData(jwsDomainData.getJwsDomain());
+        DomainState domState = getDomainState(domainData, jwsDomainData.getFetchTime());
+        domState.setContentHash(ZmsSyncer.contentHash(domainData));
+        return domState;
+    }
+
     DomainState getDomainState(final DomainData domData, long fetchTime) {
         final String domName = domData.getName();
         final String domMod = domData.getModified().toString();
@@ -19,12 +19,15 @@
 package com.yahoo.athenz.zms_aws_domain_syncer;
 
 import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.yahoo.athenz.zms.DomainData;
 import com.yahoo.athenz.zms.JWSDomain;
 import com.yahoo.athenz.zms.SignedDomain;
 import com.yahoo.rdl.JSON;
 import com.yahoo.rdl.Struct;
 import com.yahoo.rdl.Timestamp;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,6 +37,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 public class ZmsSyncer {
 
@@ -56,6 +63,7 @@ public class ZmsSyncer {
     static final String NUM_DOMS_UPLOADED_FIELD      = "number-domains-uploaded"; // value is a number
     static final String NUM_DOMS_REFRESHED_FIELD     = "number-domains-refreshed"; // value is a number
     static final String NUM_DOMS_NOT_UPLOADED_FIELD  = "number-domains-not-uploaded"; // value is a number
+    static final String NUM_DOMS_UPLOAD_SKIPPED_FIELD = "number-domains-upload-skipped"; // value is a number
     static final String NUM_DOMS_UPLOAD_FAILED_FIELD = "number-domain-upload-failures"; // value is a number
     static final String NUM_DOMS_DELETED_FIELD       = "number-domain-deleted"; //  value is a number
     static final String NUM_DOMS_DELETE_FAILED_FIELD = "number-domain-deleted-failures"; // value is a number
@@ -63,9 +71,13 @@ public class ZmsSyncer {
     static final String RUNS_STATUS_SUCCESS_MSG = "Success";
     static final String RUNS_STATUS_FAIL_MSG    = "Failed";
 
-    private int numDomainsUploaded       = 0;
+    private static final ObjectMapper CONTENT_HASH_MAPPER = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final AtomicInteger numDomainsUploaded      = new AtomicInteger();
+    private final AtomicInteger numDomainsUploadSkipped = new AtomicInteger();
+    private final AtomicInteger numDomainsUploadFailed  = new AtomicInteger();
     private int numDomainsNotUploaded    = 0;
-    private int numDomainsUploadFailed   = 0;
     private int numDomainsDeleted        = 0;
     private int numDomainsDeletedFailed  = 0;
     private int numDomainsRefreshed      = 0;
@@ -123,7 +135,11 @@ public class ZmsSyncer {
     }
 
     public int getNumDomainsUploaded() {
-        return numDomainsUploaded;
+        return numDomainsUploaded.get();
+    }
+
+    public int getNumDomainsUploadSkipped() {
+        return numDomainsUploadSkipped.get();
     }
 
     public int getNumDomainsRefreshed() {
@@ -139,7 +155,7 @@ public class ZmsSyncer {
     }
 
     public int getNumDomainsUploadFailed() {
-        return numDomainsUploadFailed;
+        return numDomainsUploadFailed.get();
     }
 
     public int getNumDomainsDeleted() {
@@ -152,37 +168,114 @@ public class ZmsSyncer {
 
     DomainState uploadDomain(final String domainName) {
 
-        // create a new stateObj to return, update the modified field
-        // set the "modified" field to "0" if failed, else set it to value from ZMS
+        // run all the upload stages for the domain in the calling thread
 
-        DomainState stateObj = new DomainState();
-        stateObj.setDomain(domainName);
-        JWSDomain jwsDomain;
-        String modified;
+        return storeDomain(serializeDomain(fetchDomain(new DomainUpload(domainName, null, false))));
+    }
+
+    static String contentHash(final DomainData domainData) {
+
+        // we hash the domain data without its modified timestamp since zms
+        // updates the timestamp even when the content of the domain itself
+        // has not changed. the signature is not part of the domain data and
+        // map entries are sorted so the hash does not depend on the order
+        // zms serialized them in
+
+        final Timestamp modified = domainData.getModified();
+        domainData.setModified(null);
         try {
-            jwsDomain = zmsReader.getDomain(domainName);
+            return DigestUtils.sha256Hex(CONTENT_HASH_MAPPER.writeValueAsBytes(domainData));
+        } catch (Exception ex) {
+            LOGGER.error("unable to generate content hash for domain: {}", domainData.getName(), ex);
+            return null;
+        } finally {
+            domainData.setModified(modified);
+        }
+    }
+
+    DomainUpload fetchDomain(DomainUpload upload) {
+
+        // fetch the domain from ZMS and extract its modified timestamp
+
+        try {
+            JWSDomain jwsDomain = zmsReader.getDomain(upload.domainName);
             if (jwsDomain == null) {
-                throw new Exception("zms failed to return domain object: " + domainName);
+                throw new Exception("zms failed to return domain object: " + upload.domainName);
             }
             DomainData domainData = zmsReader.getDomainData(jwsDomain);
-            modified = domainData.getModified().toString();
+            upload.modified = domainData.getModified().toString();
+            upload.domainData = domainData;
+            upload.jwsDomain = jwsDomain;
         } catch (Exception exc) {
-            LOGGER.error("failed to read zms data for domain: {}", domainName, exc);
+            LOGGER.error("failed to read zms data for domain: {}", upload.domainName, exc);
+            upload.failed = true;
+        }
+        return upload;
+    }
+
+    DomainUpload serializeDomain(DomainUpload upload) {
+
+        if (upload.failed) {
+            return upload;
+        }
+
+        // generate the json document that we're going to upload and
+        // calculate the hash of the domain content so we can compare
+        // with the previous upload
+
+        upload.domJson = JSON.string(upload.jwsDomain);
+        if (upload.domJson == null) {
+            LOGGER.error("failed to serialize domain: {}", upload.domainName);
+            upload.failed = true;
+            return upload;
+        }
+        upload.contentHash = contentHash(upload.domainData);
+        upload.domainData = null;
+        upload.jwsDomain = null;
+        return upload;
+    }
+
+    DomainState storeDomain(DomainUpload upload) {
+
+        // create a new stateObj to return, update the modified field
+        // set the "modified" field to "0" if failed, else set it to value from ZMS.
+        // on failure the object in S3 has not been replaced so we keep the
+        // content hash of the previous upload
+
+        final String prevContentHash = upload.prevState == null ? null : upload.prevState.getContentHash();
+        DomainState stateObj = new DomainState();
+        stateObj.setDomain(upload.domainName);
+        if (upload.failed) {
             stateObj.setModified(LAST_MOD_NO_DATE);
-            ++numDomainsUploadFailed;
+            stateObj.setContentHash(prevContentHash);
+            numDomainsUploadFailed.incrementAndGet();
             return stateObj;
         }
 
-        try {
-            awsSyncer.uploadDomain(domainName, JSON.string(jwsDomain));
-            ++numDomainsUploaded;
-        } catch (Exception exc) {
-            LOGGER.error("cloud sync error domain: {}", domainName, exc);
-            modified = LAST_MOD_NO_DATE;
-            ++numDomainsUploadFailed;
+        // if the content of the domain is the same as the one we uploaded
+        // last time, then there is no need to upload it again. refreshed
+        // domains are always uploaded since the goal of the refresh is to
+        // replace the object in S3
+
+        String modified = upload.modified;
+        String contentHash = upload.contentHash;
+        if (!upload.refresh && contentHash != null && contentHash.equals(prevContentHash)) {
+            LOGGER.info("content not changed so no upload of domain: {}", upload.domainName);
+            numDomainsUploadSkipped.incrementAndGet();
+        } else {
+            try {
+                awsSyncer.uploadDomain(upload.domainName, upload.domJson);
+                numDomainsUploaded.incrementAndGet();
+            } catch (Exception exc) {
+                LOGGER.error("cloud sync error domain: {}", upload.domainName, exc);
+                modified = LAST_MOD_NO_DATE;
+                contentHash = prevContentHash;
+                numDomainsUploadFailed.incrementAndGet();
+            }
         }
-        
+
         stateObj.setModified(modified);
+        stateObj.setContentHash(contentHash);
         stateObj.setFetchTime(System.currentTimeMillis() / 1000);
         return stateObj;
     }
@@ -258,36 +351,54 @@ public class ZmsSyncer {
             LOGGER.info("got domain list from zms: num elements: {}", sdList.size());
             processedDomains = new ArrayList<>(sdList.size());
 
+            // the domains that need to be uploaded are processed by our pipeline
+            // while the rest are carried over as is. we keep the futures in the
+            // same order as the domain list for our state file
+
+            List<CompletableFuture<DomainState>> domainStates = new ArrayList<>(sdList.size());
+            UploadPipeline pipeline = new UploadPipeline(
+                    Integer.parseInt(Config.getInstance().getConfigParam(Config.SYNC_CFG_PARAM_UPLOAD_THREADS)),
+                    Integer.parseInt(Config.getInstance().getConfigParam(Config.SYNC_CFG_PARAM_UPLOAD_QUEUE_SIZE)));
+
             long now = System.currentTimeMillis() / 1000;
-            for (SignedDomain sDom : sdList) {
-
-                DomainData domainData = sDom.getDomain();
-                final String domainName = domainData.getName();
-                final String domainModifiedTime  = domainData.getModified().toString();
-                LOGGER.debug("domain: {}, list-modified: {}", domainName, domainModifiedTime);
-                latestZmsDomSet.add(domainName);
-
-                DomainState domainState = stateMap.get(domainName);
-                boolean uploadDom = domainState == null || !domainModifiedTime.equals(domainState.getModified());
-                boolean refreshDom = shouldRefreshDomain(domainState, now, domainRefreshCountLimit, domainRefreshTimeout);
-                if (uploadDom || refreshDom) {
-                    domainState = uploadDomain(domainName);
+            try {
+                for (SignedDomain sDom : sdList) {
+
+                    DomainData domainData = sDom.getDomain();
+                    final String domainName = domainData.getName();
+                    final String domainModifiedTime  = domainData.getModified().toString();
+                    LOGGER.debug("domain: {}, list-modified: {}", domainName, domainModifiedTime);
+                    latestZmsDomSet.add(domainName);
+
+                    DomainState domainState = stateMap.get(domainName);
+                    boolean uploadDom = domainState == null || !domainModifiedTime.equals(domainState.getModified());
+                    boolean refreshDom = shouldRefreshDomain(domainState, now, domainRefreshCountLimit, domainRefreshTimeout);
+                    if (uploadDom || refreshDom) {
+                        domainStates.add(pipeline.submit(new DomainUpload(domainName, domainState, refreshDom)));
+                        if (refreshDom) {
+                            ++numDomainsRefreshed;
+                        }
+                    } else {
+                        // add the old domain state
+                        domainStates.add(CompletableFuture.completedFuture(domainState));
+                        ++numDomainsNotUploaded;
+                        LOGGER.debug("no change so no upload of domain: {}", domainName);
+                    }
+                }
+
+                for (CompletableFuture<DomainState> future : domainStates) {
+                    DomainState domainState = future.join();
                     // add the updated domain state
                     processedDomains.add(domainState);
                     // check if we failed to upload this domain
                     if (domainState.getModified().equals(LAST_MOD_NO_DATE)) {
                         retStatus = false;
                     }
-                    if (refreshDom) {
-                        ++numDomainsRefreshed;
-                    }
-                } else {
-                    // add the old domain state
-                    processedDomains.add(domainState);
-                    ++numDomainsNotUploaded;
-                    LOGGER.debug("no change so no upload of domain: {}", domainName);
                 }
+            } finally {
+                pipeline.shutdown();
             }
+            pipeline.logStageThroughput();
         } catch (Exception ex) {
             LOGGER.error("domain processing error", ex);
             throw ex;
@@ -312,6 +423,7 @@ public class ZmsSyncer {
                 " : number-domains-uploaded: " + getNumDomainsUploaded() +
                 " : number-domains-refreshed: " + getNumDomainsRefreshed() +
                 " : number-domains-not-uploaded: " + getNumDomainsNotUploaded() +
+                " : number-domains-upload-skipped: " + getNumDomainsUploadSkipped() +
                 " : number-domain-upload-failures: " + getNumDomainsUploadFailed() +
                 " : number-domain-deleted: " + getNumDomainsDeleted() +
                 " : number-domain-deleted-failures: " + getNumDomainsDeletedFailed();
@@ -373,6 +485,7 @@ public class ZmsSyncer {
             with(NUM_DOMS_UPLOADED_FIELD, getNumDomainsUploaded()).
             with(NUM_DOMS_REFRESHED_FIELD, getNumDomainsRefreshed()).
             with(NUM_DOMS_NOT_UPLOADED_FIELD, getNumDomainsNotUploaded()).
+            with(NUM_DOMS_UPLOAD_SKIPPED_FIELD, getNumDomainsUploadSkipped()).
             with(NUM_DOMS_UPLOAD_FAILED_FIELD, getNumDomainsUploadFailed()).
             with(NUM_DOMS_DELETED_FIELD, getNumDomainsDeleted()).
             with(NUM_DOMS_DELETE_FAILED_FIELD, getNumDomainsDeletedFailed());
@@ -381,6 +494,122 @@ public class ZmsSyncer {
         return saveStateToFile(stateFileName, newState);
     }
 
+    static class DomainUpload {
+
+        final String domainName;
+        final DomainState prevState;
+        final boolean refresh;
+        boolean failed = false;
+        String modified;
+        DomainData domainData;
+        JWSDomain jwsDomain;
+        String domJson;
+        String contentHash;
+
+        DomainUpload(final String domainName, DomainState prevState, boolean refresh) {
+            this.domainName = domainName;
+            this.prevState = prevState;
+            this.refresh = refresh;
+        }
+    }
+
+    static class StageStats {
+
+        final String name;
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicLong busyNanos = new AtomicLong();
+
+        StageStats(final String name) {
+            this.name = name;
+        }
+
+        <T> T record(Supplier<T> stage) {
+            final long start = System.nanoTime();
+            try {
+                return stage.get();
+            } finally {
+                busyNanos.addAndGet(System.nanoTime() - start);
+                count.incrementAndGet();
+            }
+        }
+
+        int getCount() {
+            return count.get();
+        }
+
+        void log(long elapsedNanos) {
+            final int domains = count.get();
+            final long busyMillis = TimeUnit.NANOSECONDS.toMillis(busyNanos.get());
+            final double throughput = elapsedNanos > 0 ? domains * 1e9 / elapsedNanos : 0;
+            LOGGER.info("upload pipeline stage: {}, domains: {}, busy time: {} ms, throughput: {} domains/sec",
+                    name, domains, busyMillis, String.format("%.2f", throughput));
+        }
+    }
+
+    /**
+     * Bounded pipeline for uploading domains. Each domain goes through the
+     * fetch stage (read from ZMS), the serialize stage (generate the json
+     * document and its content hash) and the upload stage (store in S3)
+     * with each stage running in its own thread pool. The number of domains
+     * in the pipeline at any time is limited by the queue size so that we
+     * don't keep a large number of fetched domains in memory.
+     */
+    class UploadPipeline {
+
+        private final ExecutorService fetchExecutor;
+        private final ExecutorService serializeExecutor;
+        private final ExecutorService uploadExecutor;
+        private final Semaphore inFlight;
+        private final long startTime;
+
+        final StageStats fetchStats = new StageStats("fetch");
+        final StageStats serializeStats = new StageStats("serialize");
+        final StageStats uploadStats = new StageStats("upload");
+
+        UploadPipeline(int uploadThreads, int queueSize) {
+
+            uploadThreads = Math.max(1, uploadThreads);
+            LOGGER.info("upload pipeline threads: {}, queue size: {}", uploadThreads, queueSize);
+
+            fetchExecutor = Executors.newFixedThreadPool(uploadThreads);
+            serializeExecutor = Executors.newFixedThreadPool(Math.min(uploadThreads,
+                    Runtime.getRuntime().availableProcessors()));
+            uploadExecutor = Executors.newFixedThreadPool(uploadThreads);
+            inFlight = new Semaphore(Math.max(1, queueSize));
+            startTime = System.nanoTime();
+        }
+
+        CompletableFuture<DomainState> submit(DomainUpload upload) throws InterruptedException {
+
+            // wait until we have room in our pipeline
+
+            inFlight.acquire();
+
+            return CompletableFuture.supplyAsync(() -> fetchStats.record(() -> fetchDomain(upload)), fetchExecutor)
+                    .thenApplyAsync(u -> serializeStats.record(() -> serializeDomain(u)), serializeExecutor)
+                    .thenApplyAsync(u -> uploadStats.record(() -> storeDomain(u)), uploadExecutor)
+                    .exceptionally(ex -> {
+                        LOGGER.error("upload pipeline failure for domain: {}", upload.domainName, ex);
+                        upload.failed = true;
+                        return storeDomain(upload);
+                    })
+                    .whenComplete((domainState, ex) -> inFlight.release());
+        }
+
+        void shutdown() {
+            fetchExecutor.shutdownNow();
+            serializeExecutor.shutdownNow();
+            uploadExecutor.shutdownNow();
+        }
+
+        void logStageThroughput() {
+            final long elapsedNanos = System.nanoTime() - startTime;
+            fetchStats.log(elapsedNanos);
+            serializeStats.log(elapsedNanos);
+            uploadStats.log(elapsedNanos);
+        }
+    }
+
     public static void main(String[] args) {
         ZmsSyncer syncer = null;
         boolean syncStatus = false;
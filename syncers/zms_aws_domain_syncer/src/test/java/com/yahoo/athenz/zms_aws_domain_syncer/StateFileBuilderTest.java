@@ -128,6 +128,8 @@ public class StateFileBuilderTest {
 
             assertEquals(domainName, domainState.getDomain());
             assertEquals(Timestamp.fromMillis(100 + i).toString(), domainState.getModified());
+            assertEquals(domainState.getContentHash(), ZmsSyncer.contentHash(new DomainValidator().getDomainData(
+                    JSON.fromString(generateJsonDomainObject(domainName), JWSDomain.class))));
         }
     }
 
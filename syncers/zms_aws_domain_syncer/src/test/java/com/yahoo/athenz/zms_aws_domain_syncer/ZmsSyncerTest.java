@@ -19,7 +19,9 @@
 package com.yahoo.athenz.zms_aws_domain_syncer;
 
 import com.yahoo.athenz.zms.*;
+import com.yahoo.rdl.JSON;
 import com.yahoo.rdl.Struct;
+import com.yahoo.rdl.Timestamp;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeClass;
@@ -32,9 +34,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
@@ -569,6 +575,192 @@ public class ZmsSyncerTest {
         assertEquals(zmsSyncer.getNumDomainsDeletedFailed(), 1);
     }
 
+    @Test
+    public void testSyncDomainsContentHash() throws Exception {
+        System.out.println("testSyncDomainsContentHash");
+        Config.getInstance().loadConfigParams();
+
+        DomainValidator validator = Mockito.mock(DomainValidator.class);
+        when(validator.validateJWSDomain(any())).thenReturn(true);
+        DomainValidator domainValidator = new DomainValidator();
+        when(validator.getDomainData(any())).thenAnswer(invocationOnMock -> {
+            Object[] arguments = invocationOnMock.getArguments();
+            return domainValidator.getDomainData((JWSDomain) arguments[0]);
+        });
+
+        // our objects in s3 are old enough to be refreshed
+
+        LocalS3Client s3Client = new LocalS3Client(Instant.ofEpochSecond(1000));
+        AwsSyncer awsSyncer = new AwsSyncer(s3Client);
+        ZmsReader zmsReader = new ZmsReader(mockZMSClt, validator);
+
+        ZmsSyncer zmsSyncer = new ZmsSyncer(awsSyncer, zmsReader, new StateFileBuilder(s3Client, validator));
+        assertTrue(zmsSyncer.syncDomains(zmsSyncer.loadState()));
+        assertEquals(zmsSyncer.getNumDomainsUploaded(), 4);
+        assertEquals(zmsSyncer.getNumDomainsUploadSkipped(), 0);
+        assertEquals(zmsSyncer.getNumDomainsNotUploaded(), 1);
+        assertEquals(s3Client.getPutCount(), 4);
+        assertEquals(s3Client.getObjects().size(), 4);
+        for (String domainName : MockZmsClient.domainUploadNames) {
+            assertNotNull(s3Client.getObjects().get(domainName));
+        }
+
+        // rebuild our state from s3 - all the domains are going to be
+        // refreshed, and even though the content is the same they must
+        // be uploaded again. coriander is not in s3 so it must be uploaded
+
+        StateFileBuilder stateFileBuilder = new StateFileBuilder(s3Client, validator);
+        Map<String, DomainState> stateMap = stateFileBuilder.buildStateMap();
+        assertEquals(stateMap.size(), 4);
+        for (DomainState domainState : stateMap.values()) {
+            assertEquals(domainState.getContentHash(), ZmsSyncer.contentHash(domainValidator.getDomainData(JSON.fromBytes(
+                    s3Client.getObjects().get(domainState.getDomain()), JWSDomain.class))));
+        }
+
+        zmsSyncer = new ZmsSyncer(awsSyncer, zmsReader, stateFileBuilder);
+        assertTrue(zmsSyncer.syncDomains(stateMap));
+        assertEquals(zmsSyncer.getNumDomainsRefreshed(), 4);
+        assertEquals(zmsSyncer.getNumDomainsUploadSkipped(), 0);
+        assertEquals(zmsSyncer.getNumDomainsUploaded(), 5);
+        assertEquals(zmsSyncer.getNumDomainsUploadFailed(), 0);
+        assertEquals(s3Client.getPutCount(), 9);
+        assertNotNull(s3Client.getObjects().get("coriander"));
+
+        // the state file includes the hash for all domains
+
+        assertTrue(zmsSyncer.saveDomainsState());
+        stateMap = zmsSyncer.loadState();
+        assertEquals(stateMap.size(), 5);
+        for (DomainState domainState : stateMap.values()) {
+            assertNotNull(domainState.getContentHash());
+            assertNotEquals(domainState.getModified(), ZmsSyncer.LAST_MOD_NO_DATE);
+        }
+
+        // if zms has updated the modified timestamp of the domain but its
+        // content has not changed, then the upload is skipped
+
+        for (DomainState domainState : stateMap.values()) {
+            domainState.setModified(Timestamp.fromMillis(1000).toString());
+        }
+        zmsSyncer = new ZmsSyncer(awsSyncer, zmsReader, stateFileBuilder);
+        assertTrue(zmsSyncer.syncDomains(stateMap));
+        assertEquals(zmsSyncer.getNumDomainsRefreshed(), 0);
+        assertEquals(zmsSyncer.getNumDomainsUploadSkipped(), 5);
+        assertEquals(zmsSyncer.getNumDomainsUploaded(), 0);
+        assertEquals(s3Client.getPutCount(), 9);
+    }
+
+    @Test
+    public void testContentHash() {
+
+        DomainData domainData = new DomainData().setName("coriander")
+                .setModified(Timestamp.fromMillis(1000))
+                .setRoles(List.of(new Role().setName("coriander:role.admin")
+                        .setModified(Timestamp.fromMillis(500))))
+                .setTags(Map.of("tag1", new TagValueList().setList(List.of("value1")),
+                        "tag2", new TagValueList().setList(List.of("value2"))));
+        final String contentHash = ZmsSyncer.contentHash(domainData);
+        assertNotNull(contentHash);
+        assertEquals(domainData.getModified(), Timestamp.fromMillis(1000));
+
+        // the domain modified timestamp and the order of map entries
+        // are not part of the hash
+
+        Map<String, TagValueList> tags = new LinkedHashMap<>();
+        tags.put("tag2", new TagValueList().setList(List.of("value2")));
+        tags.put("tag1", new TagValueList().setList(List.of("value1")));
+        domainData.setModified(Timestamp.fromMillis(2000)).setTags(tags);
+        assertEquals(ZmsSyncer.contentHash(domainData), contentHash);
+
+        // any change in the content of the domain generates a new hash
+
+        domainData.getRoles().get(0).setModified(Timestamp.fromMillis(1500));
+        assertNotEquals(ZmsSyncer.contentHash(domainData), contentHash);
+    }
+
+    @Test
+    public void testStoreDomainFailureKeepsContentHash() throws Exception {
+        System.out.println("testStoreDomainFailureKeepsContentHash");
+        Config.getInstance().loadConfigParams();
+
+        AwsSyncer awsSyncer = Mockito.mock(AwsSyncer.class);
+        doThrow(new RuntimeException("upload failure")).when(awsSyncer).uploadDomain(any(), any());
+        ZmsSyncer zmsSyncer = new ZmsSyncer(awsSyncer, Mockito.mock(ZmsReader.class),
+                Mockito.mock(StateFileBuilder.class));
+
+        // the object in s3 is not replaced when we fail to fetch or upload
+        // the domain so the state must keep the previous content hash
+
+        DomainState prevState = new DomainState();
+        prevState.setDomain("coriander");
+        prevState.setContentHash("prev-hash");
+
+        ZmsSyncer.DomainUpload upload = new ZmsSyncer.DomainUpload("coriander", prevState, false);
+        upload.failed = true;
+        DomainState domainState = zmsSyncer.storeDomain(upload);
+        assertEquals(domainState.getModified(), ZmsSyncer.LAST_MOD_NO_DATE);
+        assertEquals(domainState.getContentHash(), "prev-hash");
+
+        upload = new ZmsSyncer.DomainUpload("coriander", prevState, false);
+        upload.modified = Timestamp.fromMillis(1000).toString();
+        upload.domJson = "{}";
+        upload.contentHash = "new-hash";
+        domainState = zmsSyncer.storeDomain(upload);
+        assertEquals(domainState.getModified(), ZmsSyncer.LAST_MOD_NO_DATE);
+        assertEquals(domainState.getContentHash(), "prev-hash");
+        assertEquals(zmsSyncer.getNumDomainsUploadFailed(), 2);
+        assertEquals(zmsSyncer.getNumDomainsUploaded(), 0);
+    }
+
+    @Test
+    public void testUploadPipeline() throws Exception {
+        System.out.println("testUploadPipeline");
+        Config.getInstance().loadConfigParams();
+
+        DomainValidator validator = Mockito.mock(DomainValidator.class);
+        when(validator.validateJWSDomain(any())).thenReturn(true);
+        DomainValidator domainValidator = new DomainValidator();
+        when(validator.getDomainData(any())).thenAnswer(invocationOnMock -> {
+            Object[] arguments = invocationOnMock.getArguments();
+            return domainValidator.getDomainData((JWSDomain) arguments[0]);
+        });
+
+        LocalS3Client s3Client = new LocalS3Client(Instant.now());
+        AwsSyncer awsSyncer = new AwsSyncer(s3Client);
+        ZmsReader zmsReader = new ZmsReader(mockZMSClt, validator);
+        ZmsSyncer zmsSyncer = new ZmsSyncer(awsSyncer, zmsReader, new StateFileBuilder(s3Client, validator));
+
+        // with a queue size of 1 we only have a single domain in the pipeline
+
+        ZmsSyncer.UploadPipeline pipeline = zmsSyncer.new UploadPipeline(2, 1);
+        List<CompletableFuture<DomainState>> futures = new ArrayList<>();
+        for (String domainName : MockZmsClient.domainUploadNames) {
+            futures.add(pipeline.submit(new ZmsSyncer.DomainUpload(domainName, null, false)));
+        }
+        futures.add(pipeline.submit(new ZmsSyncer.DomainUpload("unknown", null, false)));
+
+        for (int i = 0; i < MockZmsClient.domainUploadNames.length; i++) {
+            DomainState domainState = futures.get(i).join();
+            assertEquals(domainState.getDomain(), MockZmsClient.domainUploadNames[i]);
+            assertEquals(domainState.getModified(), MockZmsClient.CUR_TIME.toString());
+            assertEquals(domainState.getContentHash(), ZmsSyncer.contentHash(domainValidator.getDomainData(JSON.fromBytes(
+                    s3Client.getObjects().get(domainState.getDomain()), JWSDomain.class))));
+        }
+        DomainState domainState = futures.get(4).join();
+        assertEquals(domainState.getModified(), ZmsSyncer.LAST_MOD_NO_DATE);
+        assertNull(domainState.getContentHash());
+
+        pipeline.shutdown();
+        pipeline.logStageThroughput();
+
+        assertEquals(pipeline.fetchStats.getCount(), 5);
+        assertEquals(pipeline.serializeStats.getCount(), 5);
+        assertEquals(pipeline.uploadStats.getCount(), 5);
+        assertEquals(zmsSyncer.getNumDomainsUploaded(), 4);
+        assertEquals(zmsSyncer.getNumDomainsUploadFailed(), 1);
+        assertEquals(s3Client.getPutCount(), 4);
+    }
+
     @Test
     public void testZmsSyncer() {
         // calling main zms syncer without any proper zms